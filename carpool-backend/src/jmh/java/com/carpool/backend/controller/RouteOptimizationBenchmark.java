@@ -0,0 +1,195 @@
+package com.carpool.backend.controller;
+
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+import com.carpool.backend.dto.OptimizeToursRequestDTO;
+import com.carpool.backend.dto.RoutePlanDTO;
+import com.carpool.backend.fake.FakeOptimizeToursServer;
+import com.carpool.backend.service.OptimizationJobService;
+import com.carpool.backend.service.OptimizeToursCache;
+import com.carpool.backend.service.OptimizeToursExecutor;
+import com.carpool.backend.solver.GeoDistance;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU cost of the request/response hot paths of {@link RouteOptimizationController}, on seeded random events around
+ * Madison of {@code students} students and {@code drivers} drivers. The optimizeTours responses for
+ * {@code buildRoutePlans} come from {@link FakeOptimizeToursServer}, which answers in the shape of the real response
+ * fixture; {@code buildRoutePlansFixture} parses the fixture itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteOptimizationBenchmark {
+
+    private static final double EVENT_LAT = 43.0800;
+    private static final double EVENT_LNG = -89.4000;
+
+    @State(Scope.Benchmark)
+    public static class Event {
+
+        @Param({"50", "300", "1000"})
+        public int students;
+
+        @Param({"20", "100"})
+        public int drivers;
+
+        RouteOptimizationController controller;
+        OptimizeRequestDTO request;
+        String responseJson;
+        List<RoutePlanDTO> plans;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            controller = newController();
+            request = randomRequest(students, drivers, new Random(42));
+            OptimizeToursRequestDTO body = controller.buildOptimizeBody(request.event.location, request.drivers,
+                    request.students, request.globalStartTime, request.globalEndTime);
+            responseJson = new FakeOptimizeToursServer(new FakeOptimizeToursServer.Options())
+                    .answer(new String(controller.serializeBody(body), StandardCharsets.UTF_8));
+            plans = controller.buildRoutePlans(responseJson, request);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Fixture {
+
+        RouteOptimizationController controller;
+        OptimizeRequestDTO request;
+        String responseJson;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            controller = newController();
+            request = new OptimizeRequestDTO();
+            request.event = new OptimizeRequestDTO.EventDTO();
+            request.event.location = location(EVENT_LAT, EVENT_LNG);
+            request.drivers = List.of(driver("d1", 43.0731, -89.4012, 4), driver("d2", 43.0680, -89.3980, 3));
+            request.students = List.of(student("1", 43.0750, -89.4100), student("2", 43.0700, -89.4200),
+                    student("3", 43.0650, -89.4050));
+            try (InputStream in = RouteOptimizationBenchmark.class.getClassLoader()
+                    .getResourceAsStream("fixtures/optimizeTours_real_response.json")) {
+                if (in == null) {
+                    throw new IOException("fixtures/optimizeTours_real_response.json not on the classpath");
+                }
+                responseJson = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<String, List<OptimizeRequestDTO.StudentDTO>> assignStudentsGreedy(Event event) {
+        return RouteOptimizationController.assignStudentsGreedy(event.request.drivers, event.request.students,
+                event.request.event.location);
+    }
+
+    /** Every driver-student distance, as the greedy and min-cost-flow assignments compute them. */
+    @Benchmark
+    public void haversineKm(Event event, Blackhole blackhole) {
+        for (OptimizeRequestDTO.DriverDTO driver : event.request.drivers) {
+            for (OptimizeRequestDTO.StudentDTO student : event.request.students) {
+                blackhole.consume(GeoDistance.haversineKm(driver.home.lat, driver.home.lng,
+                        student.home.lat, student.home.lng));
+            }
+        }
+    }
+
+    /** Includes serialization, since that is what the RestClient does with the body next. */
+    @Benchmark
+    public byte[] buildOptimizeBody(Event event) throws IOException {
+        OptimizeRequestDTO request = event.request;
+        return event.controller.serializeBody(event.controller.buildOptimizeBody(request.event.location,
+                request.drivers, request.students, request.globalStartTime, request.globalEndTime));
+    }
+
+    @Benchmark
+    public List<RoutePlanDTO> buildRoutePlans(Event event) throws IOException {
+        return event.controller.buildRoutePlans(event.responseJson, event.request);
+    }
+
+    @Benchmark
+    public List<RoutePlanDTO> buildRoutePlansFixture(Fixture fixture) throws IOException {
+        return fixture.controller.buildRoutePlans(fixture.responseJson, fixture.request);
+    }
+
+    @Benchmark
+    public boolean hasSeatCapacityViolation(Event event) {
+        return RouteOptimizationController.hasSeatCapacityViolation(event.plans, event.request);
+    }
+
+    private static RouteOptimizationController newController() {
+        return new RouteOptimizationController(
+                new OptimizeToursExecutor(1, 1_000),
+                new OptimizationJobService(1, 1, 60_000),
+                new OptimizeToursCache(0, 0, 4, new SimpleMeterRegistry())
+        );
+    }
+
+    /** Homes uniform within about 15 km of the event; 2 to 6 seats per driver. */
+    private static OptimizeRequestDTO randomRequest(int students, int drivers, Random random) {
+        OptimizeRequestDTO request = new OptimizeRequestDTO();
+        request.event = new OptimizeRequestDTO.EventDTO();
+        request.event.location = location(EVENT_LAT, EVENT_LNG);
+        request.globalStartTime = "2026-01-10T15:00:00Z";
+        request.drivers = new ArrayList<>(drivers);
+        for (int d = 0; d < drivers; d++) {
+            request.drivers.add(driver("d" + d, EVENT_LAT + offset(random), EVENT_LNG + offset(random),
+                    2 + random.nextInt(5)));
+        }
+        request.students = new ArrayList<>(students);
+        for (int s = 0; s < students; s++) {
+            request.students.add(student("s" + s, EVENT_LAT + offset(random), EVENT_LNG + offset(random)));
+        }
+        return request;
+    }
+
+    private static double offset(Random random) {
+        return (random.nextDouble() * 2 - 1) * 0.135;
+    }
+
+    private static OptimizeRequestDTO.DriverDTO driver(String id, double lat, double lng, int seats) {
+        OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+        driver.id = id;
+        driver.home = location(lat, lng);
+        driver.seatCapacity = seats;
+        return driver;
+    }
+
+    private static OptimizeRequestDTO.StudentDTO student(String id, double lat, double lng) {
+        OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+        student.id = id;
+        student.home = location(lat, lng);
+        return student;
+    }
+
+    private static LatLngDTO location(double lat, double lng) {
+        LatLngDTO loc = new LatLngDTO();
+        loc.lat = lat;
+        loc.lng = lng;
+        return loc;
+    }
+}
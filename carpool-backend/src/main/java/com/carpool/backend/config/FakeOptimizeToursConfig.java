@@ -0,0 +1,38 @@
+package com.carpool.backend.config;
+
+import com.carpool.backend.fake.FakeOptimizeToursServer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Embeds {@link FakeOptimizeToursServer} for load tests and profiling; application-fake-optimize-tours.properties
+ * points the optimizeTours RestClient at it and replaces Google credentials with a static token.
+ */
+@Profile("fake-optimize-tours")
+@Configuration
+public class FakeOptimizeToursConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public FakeOptimizeToursServer fakeOptimizeToursServer(
+            @Value("${fake-optimize-tours.port:8089}") int port,
+            @Value("${fake-optimize-tours.threads:8}") int threads,
+            @Value("${fake-optimize-tours.latency-distribution:LOG_NORMAL}") String latencyDistribution,
+            @Value("${fake-optimize-tours.latency-ms:800}") long latencyMs,
+            @Value("${fake-optimize-tours.latency-spread:0.5}") double latencySpread,
+            @Value("${fake-optimize-tours.error-rate:0}") double errorRate,
+            @Value("${fake-optimize-tours.quota-exceeded-rate:0}") double quotaExceededRate,
+            @Value("${fake-optimize-tours.seed:1}") long seed) {
+        FakeOptimizeToursServer.Options options = new FakeOptimizeToursServer.Options();
+        options.port = port;
+        options.threads = threads;
+        options.latencyDistribution = FakeOptimizeToursServer.LatencyDistribution.valueOf(latencyDistribution);
+        options.latencyMs = latencyMs;
+        options.latencySpread = latencySpread;
+        options.errorRate = errorRate;
+        options.quotaExceededRate = quotaExceededRate;
+        options.seed = seed;
+        return new FakeOptimizeToursServer(options);
+    }
+}
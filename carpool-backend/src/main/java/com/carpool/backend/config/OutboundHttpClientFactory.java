@@ -0,0 +1,296 @@
+package com.carpool.backend.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pooled Apache HttpClient per named outbound client (one per Google integration), shared by everything that asks for
+ * the same name. Each client keeps per-host pools of keep-alive connections with explicit connect, pool-wait and read
+ * timeouts, asks for gzip responses (Google only compresses when the User-Agent mentions gzip), and once the
+ * application is ready opens {@code google.http.warm-up-connections} connections to every registered base URL so the
+ * first real calls skip the TCP and TLS handshakes. Pool usage, lease wait and TLS handshake times are published as
+ * {@code http.client.*} meters tagged with the client name.
+ */
+@Component
+public class OutboundHttpClientFactory {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundHttpClientFactory.class);
+    private static final String USER_AGENT = "carpool-backend (gzip)";
+
+    private final long connectTimeoutMs;
+    private final long readTimeoutMs;
+    private final long poolTimeoutMs;
+    private final long keepAliveMs;
+    private final int maxPerRoute;
+    private final int maxTotal;
+    private final int warmUpConnections;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+
+    @Autowired
+    public OutboundHttpClientFactory(@Value("${google.http.connect-timeout-ms:3000}") long connectTimeoutMs,
+                                     @Value("${google.http.read-timeout-ms:60000}") long readTimeoutMs,
+                                     @Value("${google.http.pool-timeout-ms:5000}") long poolTimeoutMs,
+                                     @Value("${google.http.keep-alive-ms:120000}") long keepAliveMs,
+                                     @Value("${google.http.max-per-route:20}") int maxPerRoute,
+                                     @Value("${google.http.max-total:40}") int maxTotal,
+                                     @Value("${google.http.warm-up-connections:2}") int warmUpConnections,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        this(connectTimeoutMs, readTimeoutMs, poolTimeoutMs, keepAliveMs, maxPerRoute, maxTotal, warmUpConnections,
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    public OutboundHttpClientFactory(long connectTimeoutMs,
+                                     long readTimeoutMs,
+                                     long poolTimeoutMs,
+                                     long keepAliveMs,
+                                     int maxPerRoute,
+                                     int maxTotal,
+                                     int warmUpConnections,
+                                     MeterRegistry meterRegistry) {
+        this.connectTimeoutMs = Math.max(1, connectTimeoutMs);
+        this.readTimeoutMs = Math.max(1, readTimeoutMs);
+        this.poolTimeoutMs = Math.max(1, poolTimeoutMs);
+        this.keepAliveMs = Math.max(1, keepAliveMs);
+        this.maxPerRoute = Math.max(1, maxPerRoute);
+        this.maxTotal = Math.max(this.maxPerRoute, maxTotal);
+        this.warmUpConnections = Math.max(0, warmUpConnections);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Default settings and no warm-up; for code paths built outside Spring. */
+    public static OutboundHttpClientFactory defaults() {
+        return new OutboundHttpClientFactory(3_000, 60_000, 5_000, 120_000, 20, 40, 0, new SimpleMeterRegistry());
+    }
+
+    /** RestClient builder on the pooled client {@code name}, with {@code baseUrl} registered for warm-up. */
+    public RestClient.Builder restClient(String name, String baseUrl) {
+        return RestClient.builder()
+                .baseUrl(baseUrl)
+                .requestFactory(requestFactory(name, baseUrl));
+    }
+
+    /** Request factory on the pooled client {@code name}; {@code warmUpUrl} may be null. */
+    public ClientHttpRequestFactory requestFactory(String name, String warmUpUrl) {
+        Client client = clients.computeIfAbsent(name, this::createClient);
+        if (warmUpUrl != null && !warmUpUrl.isBlank()) {
+            client.warmUpUrls.add(warmUpUrl);
+        }
+        return client.requestFactory;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        if (warmUpConnections == 0) {
+            return;
+        }
+        Thread thread = new Thread(() -> warmUp(warmUpConnections), "http-client-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Opens up to {@code connections} pooled connections to each registered warm-up URL with concurrent GET requests
+     * and waits for them; the status codes do not matter, only that the connections end up idle in the pool. GET
+     * rather than HEAD because some servers (the JDK one among them) close the connection after a HEAD.
+     */
+    public void warmUp(int connections) {
+        List<Thread> threads = new ArrayList<>();
+        for (Map.Entry<String, Client> entry : clients.entrySet()) {
+            for (String url : entry.getValue().warmUpUrls) {
+                for (int i = 0; i < connections; i++) {
+                    Thread thread = new Thread(() -> {
+                        try {
+                            entry.getValue().httpClient.execute(new HttpGet(url), response -> null);
+                        } catch (IOException | RuntimeException e) {
+                            log.debug("Warm-up of {} ({}) failed", url, entry.getKey(), e);
+                        }
+                    }, "http-client-warm-up-" + entry.getKey());
+                    thread.setDaemon(true);
+                    threads.add(thread);
+                }
+            }
+        }
+        threads.forEach(Thread::start);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(connectTimeoutMs + readTimeoutMs);
+        try {
+            for (Thread thread : threads) {
+                thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Client client : clients.values()) {
+            client.httpClient.close(CloseMode.GRACEFUL);
+        }
+        clients.clear();
+    }
+
+    private Client createClient(String name) {
+        Timer handshakes = Timer.builder("http.client.tls.handshake").tag("client", name)
+                .description("TLS handshakes on new outbound connections").register(meterRegistry);
+        Timer leaseWait = Timer.builder("http.client.pool.wait").tag("client", name)
+                .description("Time spent waiting for a pooled connection").register(meterRegistry);
+        PoolingHttpClientConnectionManager pool = PoolingHttpClientConnectionManagerBuilder.create()
+                .setTlsSocketStrategy(new TimedTlsSocketStrategy(DefaultClientTlsStrategy.createDefault(), handshakes))
+                .setMaxConnPerRoute(maxPerRoute)
+                .setMaxConnTotal(maxTotal)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        // Google drops idle connections on its side; check before reusing one that sat a while
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        registerPoolGauges(name, pool);
+        // content compression is on by default: Accept-Encoding is sent and gzip/deflate bodies are decoded
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(new TimedConnectionManager(pool, leaseWait))
+                .setUserAgent(USER_AGENT)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                        // idle connections past this are discarded on the next lease instead of reused
+                        .setDefaultKeepAlive(keepAliveMs, TimeUnit.MILLISECONDS)
+                        .build())
+                .build();
+        return new Client(httpClient, new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    private void registerPoolGauges(String name, PoolingHttpClientConnectionManager pool) {
+        Gauge.builder("http.client.pool.leased", pool, p -> p.getTotalStats().getLeased()).tag("client", name)
+                .description("Connections in use").register(meterRegistry);
+        Gauge.builder("http.client.pool.available", pool, p -> p.getTotalStats().getAvailable()).tag("client", name)
+                .description("Idle connections ready for reuse").register(meterRegistry);
+        Gauge.builder("http.client.pool.pending", pool, p -> p.getTotalStats().getPending()).tag("client", name)
+                .description("Requests waiting for a connection").register(meterRegistry);
+        Gauge.builder("http.client.pool.max", pool, p -> p.getTotalStats().getMax()).tag("client", name)
+                .description("Connection limit").register(meterRegistry);
+    }
+
+    private static final class Client {
+        private final CloseableHttpClient httpClient;
+        private final ClientHttpRequestFactory requestFactory;
+        private final Set<String> warmUpUrls = ConcurrentHashMap.newKeySet();
+
+        private Client(CloseableHttpClient httpClient, ClientHttpRequestFactory requestFactory) {
+            this.httpClient = httpClient;
+            this.requestFactory = requestFactory;
+        }
+    }
+
+    /** Records how long each handshake of a new TLS connection takes. */
+    private record TimedTlsSocketStrategy(TlsSocketStrategy delegate, Timer handshakes) implements TlsSocketStrategy {
+
+        @Override
+        public SSLSocket upgrade(Socket socket, String target, int port, Object attachment, HttpContext context)
+                throws IOException {
+            long startedAt = System.nanoTime();
+            try {
+                return delegate.upgrade(socket, target, port, attachment, context);
+            } finally {
+                handshakes.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /** Pass-through connection manager that records the wait for every pooled connection lease. */
+    private record TimedConnectionManager(HttpClientConnectionManager delegate, Timer leaseWait)
+            implements HttpClientConnectionManager {
+
+        @Override
+        public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+            LeaseRequest lease = delegate.lease(id, route, requestTimeout, state);
+            return new LeaseRequest() {
+                @Override
+                public ConnectionEndpoint get(Timeout timeout)
+                        throws InterruptedException, ExecutionException, TimeoutException {
+                    long startedAt = System.nanoTime();
+                    try {
+                        return lease.get(timeout);
+                    } finally {
+                        leaseWait.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    }
+                }
+
+                @Override
+                public boolean cancel() {
+                    return lease.cancel();
+                }
+            };
+        }
+
+        @Override
+        public void release(ConnectionEndpoint endpoint, Object newState, TimeValue validDuration) {
+            delegate.release(endpoint, newState, validDuration);
+        }
+
+        @Override
+        public void connect(ConnectionEndpoint endpoint, TimeValue connectTimeout, HttpContext context)
+                throws IOException {
+            delegate.connect(endpoint, connectTimeout, context);
+        }
+
+        @Override
+        public void upgrade(ConnectionEndpoint endpoint, HttpContext context) throws IOException {
+            delegate.upgrade(endpoint, context);
+        }
+
+        @Override
+        public void close(CloseMode closeMode) {
+            delegate.close(closeMode);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.carpool.backend.controller;
 
 import com.carpool.backend.entity.DestinationEntity;
 import com.carpool.backend.repository.DestinationRepository;
+import com.carpool.backend.service.RosterMatrixService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -12,9 +13,11 @@ import java.util.List;
 public class DestinationController {
 
     private final DestinationRepository repo;
+    private final RosterMatrixService rosterMatrix;
 
-    public DestinationController(DestinationRepository repo) {
+    public DestinationController(DestinationRepository repo, RosterMatrixService rosterMatrix) {
         this.repo = repo;
+        this.rosterMatrix = rosterMatrix;
     }
 
     @GetMapping
@@ -29,7 +32,9 @@ public class DestinationController {
 
     @PostMapping
     public DestinationEntity create(@RequestBody DestinationEntity body) {
-        return repo.save(body);
+        DestinationEntity saved = repo.save(body);
+        rosterMatrix.destinationSaved(saved);
+        return saved;
     }
 
     @PutMapping("/{id}")
@@ -40,7 +45,9 @@ public class DestinationController {
                     d.setAddress(body.getAddress());
                     d.setLat(body.getLat());
                     d.setLng(body.getLng());
-                    return ResponseEntity.ok(repo.save(d));
+                    DestinationEntity saved = repo.save(d);
+                    rosterMatrix.destinationSaved(saved);
+                    return ResponseEntity.ok(saved);
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -50,7 +57,7 @@ public class DestinationController {
         return repo.findById(id)
                 .map(d -> {
                     d.setActive(false);
-                    repo.save(d);
+                    rosterMatrix.destinationSaved(repo.save(d));
                     return ResponseEntity.noContent().build();
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -61,7 +68,7 @@ public class DestinationController {
         return repo.findById(id)
                 .map(d -> {
                     d.setActive(true);
-                    repo.save(d);
+                    rosterMatrix.destinationSaved(repo.save(d));
                     return ResponseEntity.noContent().build();
                 })
                 .orElse(ResponseEntity.notFound().build());
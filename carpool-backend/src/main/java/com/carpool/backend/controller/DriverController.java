@@ -7,15 +7,18 @@ import org.springframework.web.bind.annotation.*;
 
 import com.carpool.backend.entity.DriverEntity;
 import com.carpool.backend.repository.DriverRepository;
+import com.carpool.backend.service.RosterMatrixService;
 
 @RestController
 @RequestMapping("/api/drivers")
 public class DriverController {
 
     private final DriverRepository driverRepository;
+    private final RosterMatrixService rosterMatrix;
 
-    public DriverController(DriverRepository driverRepository) {
+    public DriverController(DriverRepository driverRepository, RosterMatrixService rosterMatrix) {
         this.driverRepository = driverRepository;
+        this.rosterMatrix = rosterMatrix;
     }
 
     @GetMapping
@@ -30,7 +33,9 @@ public class DriverController {
 
     @PostMapping
     public DriverEntity createDriver(@RequestBody DriverEntity body) {
-        return driverRepository.save(body);
+        DriverEntity saved = driverRepository.save(body);
+        rosterMatrix.driverSaved(saved);
+        return saved;
     }
 
     @PutMapping("/{id}")
@@ -46,7 +51,9 @@ public class DriverController {
         d.setLat(body.getLat());
         d.setLng(body.getLng());
 
-        return driverRepository.save(d);
+        DriverEntity saved = driverRepository.save(d);
+        rosterMatrix.driverSaved(saved);
+        return saved;
     }
 
     @DeleteMapping("/{id}")
@@ -54,7 +61,7 @@ public class DriverController {
         return driverRepository.findById(id)
                 .map(d -> {
                     d.setActive(false);
-                    driverRepository.save(d);
+                    rosterMatrix.driverSaved(driverRepository.save(d));
                     return ResponseEntity.noContent().build();
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -65,7 +72,7 @@ public class DriverController {
         return driverRepository.findById(id)
                 .map(d -> {
                     d.setActive(true);
-                    driverRepository.save(d);
+                    rosterMatrix.driverSaved(driverRepository.save(d));
                     return ResponseEntity.noContent().build();
                 })
                 .orElse(ResponseEntity.notFound().build());
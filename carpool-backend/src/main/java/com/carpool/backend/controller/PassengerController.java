@@ -7,15 +7,18 @@ import org.springframework.web.bind.annotation.*;
 
 import com.carpool.backend.entity.PassengerEntity;
 import com.carpool.backend.repository.PassengerRepository;
+import com.carpool.backend.service.RosterMatrixService;
 
 @RestController
 @RequestMapping("/api/passengers")
 public class PassengerController {
 
     private final PassengerRepository passengerRepository;
+    private final RosterMatrixService rosterMatrix;
 
-    public PassengerController(PassengerRepository passengerRepository) {
+    public PassengerController(PassengerRepository passengerRepository, RosterMatrixService rosterMatrix) {
         this.passengerRepository = passengerRepository;
+        this.rosterMatrix = rosterMatrix;
     }
 
     // GET /api/passengers
@@ -32,7 +35,9 @@ public class PassengerController {
     // POST /api/passengers
     @PostMapping
     public PassengerEntity createPassenger(@RequestBody PassengerEntity body) {
-        return passengerRepository.save(body);
+        PassengerEntity saved = passengerRepository.save(body);
+        rosterMatrix.passengerSaved(saved);
+        return saved;
     }
 
     // Update
@@ -47,7 +52,9 @@ public class PassengerController {
         p.setLat(body.getLat());
         p.setLng(body.getLng());
 
-        return passengerRepository.save(p);
+        PassengerEntity saved = passengerRepository.save(p);
+        rosterMatrix.passengerSaved(saved);
+        return saved;
     }
 
     // Delete
@@ -56,7 +63,7 @@ public class PassengerController {
         return passengerRepository.findById(id)
                 .map(p -> {
                     p.setActive(false);
-                    passengerRepository.save(p);
+                    rosterMatrix.passengerSaved(passengerRepository.save(p));
                     return ResponseEntity.noContent().build();
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -67,7 +74,7 @@ public class PassengerController {
         return passengerRepository.findById(id)
                 .map(p -> {
                     p.setActive(true);
-                    passengerRepository.save(p);
+                    rosterMatrix.passengerSaved(passengerRepository.save(p));
                     return ResponseEntity.noContent().build();
                 })
                 .orElse(ResponseEntity.notFound().build());
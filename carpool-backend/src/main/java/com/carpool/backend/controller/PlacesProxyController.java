@@ -1,5 +1,6 @@
 package com.carpool.backend.controller;
 
+import com.carpool.backend.config.OutboundHttpClientFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.util.StringUtils;
@@ -20,10 +21,8 @@ public class PlacesProxyController {
     @Value("${google.maps.api-key}")
     private String apiKey;
 
-    public PlacesProxyController() {
-        this.restClient = RestClient.builder()
-                .baseUrl("https://maps.googleapis.com")
-                .build();
+    public PlacesProxyController(OutboundHttpClientFactory httpClients) {
+        this.restClient = httpClients.restClient("maps", "https://maps.googleapis.com").build();
     }
 
     @GetMapping(value = "/autocomplete", produces = MediaType.APPLICATION_JSON_VALUE)
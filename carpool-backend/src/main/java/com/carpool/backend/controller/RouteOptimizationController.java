@@ -1,39 +1,79 @@
 package com.carpool.backend.controller;
 
-import com.google.auth.oauth2.AccessToken;
-import com.google.auth.oauth2.GoogleCredentials;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.carpool.backend.config.OutboundHttpClientFactory;
+import com.carpool.backend.dto.BatchOptimizeRequestDTO;
+import com.carpool.backend.dto.EventPlansDTO;
+import com.carpool.backend.dto.IncrementalOptimizeRequestDTO;
 import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeJobDTO;
 import com.carpool.backend.dto.OptimizeRequestDTO;
+import com.carpool.backend.dto.OptimizeToursRequestDTO;
 import com.carpool.backend.dto.RoutePlanDTO;
 import com.carpool.backend.dto.TimelineEntryDTO;
+import com.carpool.backend.service.GoogleAccessTokenProvider;
+import com.carpool.backend.service.OptimizationJobService;
+import com.carpool.backend.service.OptimizeToursCache;
+import com.carpool.backend.service.OptimizeToursCircuitBreaker;
+import com.carpool.backend.service.OptimizeToursExecutor;
+import com.carpool.backend.service.RoadNetworkService;
+import com.carpool.backend.service.RosterMatrixService;
+import com.carpool.backend.service.SeatRepairStage;
+import com.carpool.backend.solver.CostMatrix;
+import com.carpool.backend.solver.EventDriverAssigner;
+import com.carpool.backend.solver.ExactRouteSolver;
+import com.carpool.backend.solver.GreedyAssigner;
+import com.carpool.backend.solver.InterRouteImprover;
+import com.carpool.backend.solver.LocalVrpSolver;
+import com.carpool.backend.solver.MinCostFlowAssigner;
+import com.carpool.backend.solver.RoadNetworkRouter;
+import com.carpool.backend.solver.RouteImprover;
+import com.carpool.backend.solver.RoutePlanAssembler;
+import com.carpool.backend.solver.SweepPartitioner;
+import com.carpool.backend.solver.TravelTimeModel;
+import com.carpool.backend.solver.VrpInstance;
+import com.carpool.backend.solver.VrpSolution;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 @RestController
 @RequestMapping("/api/optimize")
@@ -42,21 +82,112 @@ public class RouteOptimizationController {
     private static final Logger log = LoggerFactory.getLogger(RouteOptimizationController.class);
     private static final String MODE_GLOBAL_MIN_TIME = "GLOBAL_MIN_TIME";
     private static final String MODE_PER_VEHICLE_MIN_TIME = "PER_VEHICLE_MIN_TIME";
+    private static final String MODE_LOCAL_MIN_TIME = "LOCAL_MIN_TIME";
+    private static final String ASSIGNMENT_GREEDY = "GREEDY";
+    private static final String ASSIGNMENT_MIN_COST_FLOW = "MIN_COST_FLOW";
+    private static final String FALLBACK_LOCAL_GREEDY = "LOCAL_GREEDY";
+    private static final String DEFAULT_BASE_URL = "https://routeoptimization.googleapis.com";
+    // same 4xx/5xx exceptions retrieve() would throw
+    private static final DefaultResponseErrorHandler RESPONSE_ERROR_HANDLER = new DefaultResponseErrorHandler();
+    private static final OptimizeToursRequestDTO.LoadDemands ONE_SEAT =
+            new OptimizeToursRequestDTO.LoadDemands(new OptimizeToursRequestDTO.Load("1"));
+    private static final List<OptimizeToursRequestDTO.Objective> MIN_TRAVEL_TIME =
+            List.of(new OptimizeToursRequestDTO.Objective("MIN_TRAVEL_TIME"));
     private static final DateTimeFormatter UTC_SECONDS_FORMATTER =
             DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'Z'").withZone(ZoneOffset.UTC);
     private final RestClient rest;
     private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectWriter bodyWriter = mapper.writerFor(OptimizeToursRequestDTO.class);
+    private final OptimizeToursExecutor optimizeToursExecutor;
+    private final OptimizationJobService optimizationJobService;
+    private final OptimizeToursCache optimizeToursCache;
+    private final GoogleAccessTokenProvider accessTokenProvider;
+    private final OptimizeToursCircuitBreaker circuitBreaker;
+    private final SeatRepairStage seatRepairStage;
+    private final RoadNetworkService roadNetwork;
+    private final RosterMatrixService rosterMatrix;
 
     @Value("${google.gcp.project-id}")
     private String projectId;
 
-    // 简单缓存 token（避免每次都刷新）
-    private volatile AccessToken cachedToken;
+    @Value("${optimize.per-vehicle.assignment:GREEDY}")
+    private String defaultAssignment;
 
-    public RouteOptimizationController() {
-        this.rest = RestClient.builder()
-                .baseUrl("https://routeoptimization.googleapis.com")
-                .build();
+    @Value("${optimize.local.time-budget-ms:200}")
+    private long localTimeBudgetMs;
+
+    @Value("${optimize.local.max-iterations:20000}")
+    private int localMaxIterations;
+
+    @Value("${optimize.local.seed:1}")
+    private long localSeed;
+
+    @Value("${optimize.local.average-speed-kmh:40}")
+    private double localAverageSpeedKmh;
+
+    @Value("${optimize.local.road-factor:1.3}")
+    private double localRoadFactor;
+
+    @Value("${optimize.local.speed-profile:}")
+    private String localSpeedProfile;
+
+    @Value("${optimize.local.service-seconds:0}")
+    private double localServiceSeconds;
+
+    @Value("${optimize.local.time-zone:UTC}")
+    private String localTimeZone;
+
+    @Value("${optimize.per-vehicle.exact-max-stops:8}")
+    private int exactMaxStops;
+
+    @Value("${optimize.post-optimization.time-budget-ms:20}")
+    private long postOptimizationTimeBudgetMs;
+
+    @Value("${optimize.inter-route.time-budget-ms:100}")
+    private long interRouteTimeBudgetMs;
+
+    @Value("${optimize.inter-route.starts:0}")
+    private int interRouteStarts;
+
+    @Value("${optimize.cluster.max-students:300}")
+    private int clusterMaxStudents;
+
+    @Value("${optimize.log.request-body-max-bytes:2048}")
+    private int requestLogMaxBytes;
+
+    @Value("${optimize.breaker.fallback:LOCAL_GREEDY}")
+    private String breakerFallback;
+
+    public RouteOptimizationController(OptimizeToursExecutor optimizeToursExecutor,
+                                       OptimizationJobService optimizationJobService,
+                                       OptimizeToursCache optimizeToursCache) {
+        this(optimizeToursExecutor, optimizationJobService, optimizeToursCache,
+                GoogleAccessTokenProvider.applicationDefault(), OutboundHttpClientFactory.defaults(),
+                OptimizeToursCircuitBreaker.defaults(), SeatRepairStage.defaults(), RoadNetworkService.disabled(),
+                RosterMatrixService.disabled(), DEFAULT_BASE_URL);
+    }
+
+    @Autowired
+    public RouteOptimizationController(OptimizeToursExecutor optimizeToursExecutor,
+                                       OptimizationJobService optimizationJobService,
+                                       OptimizeToursCache optimizeToursCache,
+                                       GoogleAccessTokenProvider accessTokenProvider,
+                                       OutboundHttpClientFactory httpClients,
+                                       OptimizeToursCircuitBreaker circuitBreaker,
+                                       SeatRepairStage seatRepairStage,
+                                       RoadNetworkService roadNetwork,
+                                       RosterMatrixService rosterMatrix,
+                                       @Value("${google.route-optimization.base-url:" + DEFAULT_BASE_URL + "}")
+                                       String baseUrl) {
+        this.rest = httpClients.restClient("route-optimization", baseUrl).build();
+        this.optimizeToursExecutor = optimizeToursExecutor;
+        this.optimizationJobService = optimizationJobService;
+        this.optimizeToursCache = optimizeToursCache;
+        this.accessTokenProvider = accessTokenProvider;
+        this.circuitBreaker = circuitBreaker;
+        this.seatRepairStage = seatRepairStage;
+        this.roadNetwork = roadNetwork;
+        this.rosterMatrix = rosterMatrix;
     }
 
     @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
@@ -65,6 +196,39 @@ public class RouteOptimizationController {
         return executeOptimization(request);
     }
 
+    @PostMapping(value = "/incremental", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<RoutePlanDTO> optimizeIncremental(@RequestBody IncrementalOptimizeRequestDTO request) throws IOException {
+        validateIncrementalRequest(request);
+        return executeIncrementalOptimization(request);
+    }
+
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<EventPlansDTO> optimizeBatch(@RequestBody BatchOptimizeRequestDTO request) throws IOException {
+        validateBatchRequest(request);
+        return executeBatchOptimization(request);
+    }
+
+    @PostMapping(value = "/jobs", produces = MediaType.APPLICATION_JSON_VALUE, consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<OptimizeJobDTO> submitJob(@RequestBody OptimizeRequestDTO request) {
+        validateRequest(request);
+        OptimizeJobDTO job = optimizationJobService.submit(() -> executeOptimization(request));
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/optimize/jobs/" + job.id))
+                .body(job);
+    }
+
+    @GetMapping(value = "/jobs/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public OptimizeJobDTO getJob(@PathVariable String jobId) {
+        return optimizationJobService.find(jobId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown job " + jobId));
+    }
+
+    @DeleteMapping(value = "/jobs/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public OptimizeJobDTO cancelJob(@PathVariable String jobId) {
+        return optimizationJobService.cancel(jobId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown job " + jobId));
+    }
+
     @PostMapping(value = "/test", produces = MediaType.APPLICATION_JSON_VALUE)
     public List<RoutePlanDTO> testOptimize() throws IOException {
         OptimizeRequestDTO request = new OptimizeRequestDTO();
@@ -85,43 +249,131 @@ public class RouteOptimizationController {
     }
 
     private List<RoutePlanDTO> executeOptimization(OptimizeRequestDTO request) throws IOException {
-        String token = getAccessToken();
+        if (shouldDecompose(request)) {
+            return executeClusteredOptimization(request);
+        }
+        if (isLocalMode(request.mode)) {
+            return executeLocalOptimization(request);
+        }
         if (isPerVehicleMode(request.mode)) {
-            return executePerVehicleOptimization(request, token);
+            return executePerVehicleOptimization(request);
         }
+        String token = getAccessToken();
 
-        Map<String, Object> body = buildOptimizeBody(
+        OptimizeToursRequestDTO body = buildOptimizeBody(
                 request.event.location,
                 request.drivers,
                 request.students,
                 request.globalStartTime,
                 request.globalEndTime
         );
-        String response = callOptimizeTours(token, body);
-        List<RoutePlanDTO> plans = buildRoutePlans(response, request);
-        if (hasSeatCapacityViolation(plans, request)) {
-            log.warn("Detected seat-capacity violation from global optimize result. Falling back to PER_VEHICLE_MIN_TIME.");
-            return executePerVehicleOptimization(request, token);
+        return enforceSeatCapacity(optimizeTours(token, body, request), request);
+    }
+
+    /** Repairs a global optimize result that broke a seat limit, or else redoes the request per vehicle. */
+    private List<RoutePlanDTO> enforceSeatCapacity(List<RoutePlanDTO> plans, OptimizeRequestDTO request)
+            throws IOException {
+        if (!hasSeatCapacityViolation(plans, request)) {
+            return plans;
         }
-        return plans;
+        if (seatRepairStage.isEnabled()) {
+            log.warn("Detected seat-capacity violation from global optimize result. Repairing the affected routes.");
+            return seatRepairStage.repair(plans, request, this::optimizePerVehicle);
+        }
+        log.warn("Detected seat-capacity violation from global optimize result. Falling back to PER_VEHICLE_MIN_TIME.");
+        return executePerVehicleOptimization(request);
     }
 
-    private String getAccessToken() throws IOException {
-        // token 还有效就复用（提前 60s 刷新）
-        if (cachedToken != null && cachedToken.getExpirationTime() != null) {
-            Instant exp = cachedToken.getExpirationTime().toInstant();
-            if (exp.isAfter(Instant.now().plusSeconds(60))) {
-                return cachedToken.getTokenValue();
+    /**
+     * Solves several events that share one driver pool. {@link EventDriverAssigner} sends every driver to one event
+     * from a single driver&times;event matrix, and each event is then solved as its own request. Events that go to
+     * optimizeTours in one piece share one access token and one fan-out on {@link OptimizeToursExecutor} (and so the
+     * pooled HTTP client and the result cache); clustered, local and per-vehicle events already fan out on their own
+     * and are solved one after another. Students that no plan picks up are listed per event.
+     */
+    private List<EventPlansDTO> executeBatchOptimization(BatchOptimizeRequestDTO request) throws IOException {
+        List<BatchOptimizeRequestDTO.EventDTO> events = request.events;
+        int[] eventOf = EventDriverAssigner.assign(
+                request.drivers,
+                events.stream().map(event -> event.location).toList(),
+                events.stream().mapToInt(event -> event.students.size()).toArray(),
+                roadNetwork.router());
+        log.info("Split batch optimization across events. events={}, drivers={}, mode={}",
+                events.size(), request.drivers.size(), request.mode);
+
+        List<OptimizeRequestDTO> eventRequests = new ArrayList<>(events.size());
+        for (int e = 0; e < events.size(); e++) {
+            OptimizeRequestDTO eventRequest = new OptimizeRequestDTO();
+            eventRequest.event = new OptimizeRequestDTO.EventDTO();
+            eventRequest.event.location = events.get(e).location;
+            eventRequest.drivers = new ArrayList<>();
+            eventRequest.students = events.get(e).students;
+            eventRequest.globalStartTime = request.globalStartTime;
+            eventRequest.globalEndTime = request.globalEndTime;
+            eventRequest.mode = request.mode;
+            eventRequest.assignment = request.assignment;
+            eventRequests.add(eventRequest);
+        }
+        for (int d = 0; d < eventOf.length; d++) {
+            eventRequests.get(eventOf[d]).drivers.add(request.drivers.get(d));
+        }
+
+        List<List<RoutePlanDTO>> plans = new ArrayList<>(events.size());
+        List<Integer> pooled = new ArrayList<>();
+        for (int e = 0; e < events.size(); e++) {
+            OptimizeRequestDTO eventRequest = eventRequests.get(e);
+            plans.add(List.of());
+            if (eventRequest.drivers.isEmpty()) {
+                log.warn("No drivers left for event {}. students={}", events.get(e).id, eventRequest.students.size());
+            } else if (shouldDecompose(eventRequest) || isLocalMode(request.mode) || isPerVehicleMode(request.mode)) {
+                plans.set(e, executeOptimization(eventRequest));
+            } else {
+                pooled.add(e);
+            }
+        }
+        if (!pooled.isEmpty()) {
+            String token = getAccessToken();
+            List<Callable<List<RoutePlanDTO>>> calls = new ArrayList<>();
+            for (int e : pooled) {
+                OptimizeRequestDTO eventRequest = eventRequests.get(e);
+                OptimizeToursRequestDTO body = buildOptimizeBody(
+                        eventRequest.event.location,
+                        eventRequest.drivers,
+                        eventRequest.students,
+                        eventRequest.globalStartTime,
+                        eventRequest.globalEndTime
+                );
+                calls.add(() -> optimizeTours(token, body, eventRequest));
+            }
+            List<List<RoutePlanDTO>> solved = optimizeToursExecutor.invokeAll(calls);
+            for (int i = 0; i < pooled.size(); i++) {
+                int e = pooled.get(i);
+                plans.set(e, enforceSeatCapacity(solved.get(i), eventRequests.get(e)));
             }
         }
 
-        GoogleCredentials creds = GoogleCredentials.getApplicationDefault()
-                .createScoped(List.of("https://www.googleapis.com/auth/cloud-platform"));
+        List<EventPlansDTO> grouped = new ArrayList<>(events.size());
+        for (int e = 0; e < events.size(); e++) {
+            Set<String> seated = new HashSet<>();
+            for (RoutePlanDTO plan : plans.get(e)) {
+                for (OptimizeRequestDTO.StudentDTO pickup : pickups(plan)) {
+                    seated.add(pickup.id);
+                }
+            }
+            List<String> unassignedStudentIds = events.get(e).students.stream()
+                    .map(student -> student.id)
+                    .filter(id -> !seated.contains(id))
+                    .toList();
+            if (!unassignedStudentIds.isEmpty()) {
+                log.warn("Unassigned students in event {}: {}", events.get(e).id, unassignedStudentIds);
+            }
+            grouped.add(new EventPlansDTO(events.get(e).id, plans.get(e), unassignedStudentIds));
+        }
+        return grouped;
+    }
 
-        // 兼容不同版本 auth library：没有 refreshIfExpired 就用 refreshAccessToken
-        AccessToken token = creds.refreshAccessToken();
-        cachedToken = token;
-        return token.getTokenValue();
+    private String getAccessToken() throws IOException {
+        return accessTokenProvider.getAccessToken();
     }
 
     private static OptimizeRequestDTO.DriverDTO driver(String id, double lat, double lng, int seats) {
@@ -146,19 +398,85 @@ public class RouteOptimizationController {
         return location;
     }
 
-    private List<RoutePlanDTO> executePerVehicleOptimization(OptimizeRequestDTO request, String token) throws IOException {
-        Map<String, List<OptimizeRequestDTO.StudentDTO>> assignments = assignStudentsGreedy(
-                request.drivers,
-                request.students,
-                request.event.location
-        );
+    private List<RoutePlanDTO> executePerVehicleOptimization(OptimizeRequestDTO request) throws IOException {
+        return optimizePerVehicle(request, improveSeatSplit(request, assignStudents(request)));
+    }
 
-        List<RoutePlanDTO> merged = new ArrayList<>();
+    /**
+     * Revisits the seat split with {@link InterRouteImprover} (relocate / swap / cross-exchange between cars, multi-start
+     * on all cores) before the per-vehicle solves, so each car is solved with the students that suit it best.
+     */
+    private Map<String, List<OptimizeRequestDTO.StudentDTO>> improveSeatSplit(
+            OptimizeRequestDTO request,
+            Map<String, List<OptimizeRequestDTO.StudentDTO>> assignments) {
+        if (interRouteTimeBudgetMs <= 0 || request.drivers.size() < 2) {
+            return assignments;
+        }
+        List<OptimizeRequestDTO.StudentDTO> students = new ArrayList<>();
+        int[][] routes = new int[request.drivers.size()][];
+        int[] capacity = new int[request.drivers.size()];
+        for (int v = 0; v < request.drivers.size(); v++) {
+            OptimizeRequestDTO.DriverDTO driver = request.drivers.get(v);
+            List<OptimizeRequestDTO.StudentDTO> assigned = assignments.getOrDefault(driver.id, List.of());
+            routes[v] = new int[assigned.size()];
+            for (int i = 0; i < assigned.size(); i++) {
+                routes[v][i] = students.size();
+                students.add(assigned.get(i));
+            }
+            capacity[v] = driver.seatCapacity;
+        }
+        VrpInstance instance = new VrpInstance(
+                costMatrix(request.drivers, students, request.event.location, true), capacity);
+        double beforeKm = totalRouteKm(instance, routes);
+        int[][] improved = new InterRouteImprover(interRouteTimeBudgetMs, interRouteStarts, localSeed)
+                .improve(instance, routes);
+        log.info("Seat split improved between cars. students={}, drivers={}, costKmBefore={}, costKmAfter={}",
+                students.size(), request.drivers.size(), beforeKm, totalRouteKm(instance, improved));
+
+        Map<String, List<OptimizeRequestDTO.StudentDTO>> improvedAssignments = new LinkedHashMap<>();
+        for (int v = 0; v < request.drivers.size(); v++) {
+            List<OptimizeRequestDTO.StudentDTO> assigned = new ArrayList<>(improved[v].length);
+            for (int s : improved[v]) {
+                assigned.add(students.get(s));
+            }
+            improvedAssignments.put(request.drivers.get(v).id, assigned);
+        }
+        return improvedAssignments;
+    }
+
+    private static double totalRouteKm(VrpInstance instance, int[][] routes) {
+        double km = 0;
+        for (int v = 0; v < routes.length; v++) {
+            km += instance.routeCost(v, routes[v], routes[v].length);
+        }
+        return km;
+    }
+
+    private List<RoutePlanDTO> optimizePerVehicle(OptimizeRequestDTO request,
+                                                  Map<String, List<OptimizeRequestDTO.StudentDTO>> assignments)
+            throws IOException {
+        // cars with few stops are ordered exactly in-process; only the rest need Google (and a token)
+        String token = null;
+        for (List<OptimizeRequestDTO.StudentDTO> assigned : assignments.values()) {
+            if (!solvesExactly(assigned.size())) {
+                token = getAccessToken();
+                break;
+            }
+        }
+        RoutePlanAssembler assembler = localAssembler();
+        Instant start = localStart(request.globalStartTime);
+
+        // one sub-request per driver with students, fanned out in parallel and merged back in driver order
+        List<Callable<List<RoutePlanDTO>>> calls = new ArrayList<>();
         for (OptimizeRequestDTO.DriverDTO driver : request.drivers) {
             List<OptimizeRequestDTO.StudentDTO> assigned = assignments.get(driver.id);
             if (assigned == null || assigned.isEmpty()) {
                 continue;
             }
+            if (solvesExactly(assigned.size())) {
+                calls.add(() -> List.of(solveExactly(driver, assigned, request.event.location, assembler, start)));
+                continue;
+            }
 
             OptimizeRequestDTO driverScopedRequest = new OptimizeRequestDTO();
             driverScopedRequest.event = request.event;
@@ -168,131 +486,814 @@ public class RouteOptimizationController {
             driverScopedRequest.globalEndTime = request.globalEndTime;
             driverScopedRequest.mode = MODE_GLOBAL_MIN_TIME;
 
-            Map<String, Object> body = buildOptimizeBody(
+            OptimizeToursRequestDTO body = buildOptimizeBody(
                     request.event.location,
                     driverScopedRequest.drivers,
                     driverScopedRequest.students,
                     request.globalStartTime,
                     request.globalEndTime
             );
-            String response = callOptimizeTours(token, body);
-            merged.addAll(buildRoutePlans(response, driverScopedRequest));
+            String remoteToken = token;
+            calls.add(() -> optimizeTours(remoteToken, body, driverScopedRequest));
+        }
+
+        List<RoutePlanDTO> merged = new ArrayList<>();
+        for (List<RoutePlanDTO> plans : optimizeToursExecutor.invokeAll(calls)) {
+            merged.addAll(plans);
         }
         return merged;
     }
 
-    private String callOptimizeTours(String token, Map<String, Object> body) throws IOException {
-        log.info("Route optimization request body: {}", mapper.writeValueAsString(body));
+    private boolean solvesExactly(int stops) {
+        return stops <= Math.min(exactMaxStops, ExactRouteSolver.MAX_STOPS);
+    }
+
+    private RoutePlanDTO solveExactly(OptimizeRequestDTO.DriverDTO driver,
+                                      List<OptimizeRequestDTO.StudentDTO> assigned,
+                                      LatLngDTO eventLocation,
+                                      RoutePlanAssembler assembler,
+                                      Instant start) {
+        int[] order = ExactRouteSolver.solve(costMatrix(List.of(driver), assigned, eventLocation, true), 0);
+        List<OptimizeRequestDTO.StudentDTO> stops = new ArrayList<>(order.length);
+        for (int s : order) {
+            stops.add(assigned.get(s));
+        }
+        return assembler.assemble(driver, eventLocation, stops, start);
+    }
+
+    private List<RoutePlanDTO> executeLocalOptimization(OptimizeRequestDTO request) {
+        List<OptimizeRequestDTO.DriverDTO> drivers = request.drivers;
+        List<OptimizeRequestDTO.StudentDTO> students = request.students;
+        LatLngDTO eventLocation = request.event.location;
+
+        int[] capacity = new int[drivers.size()];
+        for (int i = 0; i < drivers.size(); i++) {
+            capacity[i] = drivers.get(i).seatCapacity;
+        }
+        VrpInstance instance = new VrpInstance(costMatrix(drivers, students, eventLocation, true), capacity);
+        VrpSolution solution = new LocalVrpSolver(localTimeBudgetMs, localMaxIterations, localSeed)
+                .solve(instance);
+        log.info("Local optimization finished. students={}, drivers={}, iterations={}, costKm={}",
+                students.size(), drivers.size(), solution.iterations(), solution.totalCostKm());
+        if (solution.unassigned().length > 0) {
+            List<String> unassignedStudentIds = new ArrayList<>();
+            for (int s : solution.unassigned()) {
+                unassignedStudentIds.add(students.get(s).id);
+            }
+            log.warn("Unassigned students due to seat limits: {}", unassignedStudentIds);
+        }
+
+        RoutePlanAssembler assembler = localAssembler();
+        Instant start = localStart(request.globalStartTime);
+        List<RoutePlanDTO> plans = new ArrayList<>();
+        for (int v = 0; v < drivers.size(); v++) {
+            int[] route = solution.route(v);
+            if (route.length == 0) {
+                continue;
+            }
+            List<OptimizeRequestDTO.StudentDTO> stops = new ArrayList<>(route.length);
+            for (int s : route) {
+                stops.add(students.get(s));
+            }
+            plans.add(assembler.assemble(drivers.get(v), eventLocation, stops, start));
+        }
+        return plans;
+    }
+
+    private boolean shouldDecompose(OptimizeRequestDTO request) {
+        return clusterMaxStudents > 0
+                && request.students.size() > clusterMaxStudents
+                && !isPerVehicleMode(request.mode);
+    }
+
+    /**
+     * Splits a large request into sweep clusters of at most {@code optimize.cluster.max-students} students (see
+     * {@link SweepPartitioner}), solves them in parallel and stitches the plans back together.
+     */
+    private List<RoutePlanDTO> executeClusteredOptimization(OptimizeRequestDTO request) throws IOException {
+        List<SweepPartitioner.Cluster> clusters = SweepPartitioner.partition(
+                request.drivers, request.students, request.event.location, clusterMaxStudents);
+        log.info("Decomposed optimization into {} clusters. students={}, drivers={}, mode={}",
+                clusters.size(), request.students.size(), request.drivers.size(), request.mode);
+        if (isLocalMode(request.mode)) {
+            return executeClusteredLocalOptimization(request, clusters);
+        }
+        return executeClusteredGlobalOptimization(request, clusters, getAccessToken());
+    }
+
+    private List<RoutePlanDTO> executeClusteredGlobalOptimization(OptimizeRequestDTO request,
+                                                                  List<SweepPartitioner.Cluster> clusters,
+                                                                  String token) throws IOException {
+        List<OptimizeRequestDTO> clusterRequests = new ArrayList<>();
+        List<Callable<List<RoutePlanDTO>>> calls = new ArrayList<>();
+        for (SweepPartitioner.Cluster cluster : clusters) {
+            OptimizeRequestDTO clusterRequest = clusterRequest(request, cluster);
+            clusterRequests.add(clusterRequest);
+            OptimizeToursRequestDTO body = buildOptimizeBody(
+                    request.event.location,
+                    clusterRequest.drivers,
+                    clusterRequest.students,
+                    request.globalStartTime,
+                    request.globalEndTime
+            );
+            calls.add(() -> optimizeTours(token, body, clusterRequest));
+        }
+        List<List<RoutePlanDTO>> solved = optimizeToursExecutor.invokeAll(calls);
+
+        // clusters whose solve broke a seat limit are repaired, or else redone per vehicle, all in one fan-out
+        List<RoutePlanDTO> plans = new ArrayList<>();
+        List<OptimizeRequestDTO.DriverDTO> fallbackDrivers = new ArrayList<>();
+        Map<String, List<OptimizeRequestDTO.StudentDTO>> fallbackAssignments = new HashMap<>();
+        for (int c = 0; c < clusters.size(); c++) {
+            OptimizeRequestDTO clusterRequest = clusterRequests.get(c);
+            boolean violated = hasSeatCapacityViolation(solved.get(c), clusterRequest);
+            if (violated && seatRepairStage.isEnabled()) {
+                log.warn("Detected seat-capacity violation in cluster {}. Repairing the affected routes.", c);
+                plans.addAll(seatRepairStage.repair(solved.get(c), clusterRequest, this::optimizePerVehicle));
+            } else if (violated) {
+                fallbackDrivers.addAll(clusterRequest.drivers);
+                fallbackAssignments.putAll(assignStudents(clusterRequest));
+            } else {
+                plans.addAll(solved.get(c));
+            }
+        }
+        if (!fallbackDrivers.isEmpty()) {
+            log.warn("Detected seat-capacity violation in cluster results. Falling back to PER_VEHICLE_MIN_TIME for drivers={}",
+                    fallbackDrivers.size());
+            OptimizeRequestDTO fallbackRequest = new OptimizeRequestDTO();
+            fallbackRequest.event = request.event;
+            fallbackRequest.drivers = fallbackDrivers;
+            fallbackRequest.globalStartTime = request.globalStartTime;
+            fallbackRequest.globalEndTime = request.globalEndTime;
+            plans.addAll(optimizePerVehicle(fallbackRequest, fallbackAssignments));
+        }
+        return rebalanceClusterBoundaries(request, clusters, plans);
+    }
+
+    /**
+     * Boundary pass for the stitched GLOBAL result: the seat split of each pair of neighbouring clusters, as solved, is
+     * revisited with {@link InterRouteImprover} over both clusters' drivers, in the same two rounds as the local path
+     * so that a pair never shares a driver with another pair of its round. Drivers whose students changed are then
+     * re-solved per vehicle in one fan-out; every other plan is returned as it came from Google.
+     */
+    List<RoutePlanDTO> rebalanceClusterBoundaries(OptimizeRequestDTO request,
+                                                  List<SweepPartitioner.Cluster> clusters,
+                                                  List<RoutePlanDTO> plans) throws IOException {
+        if (clusters.size() < 2) {
+            return plans;
+        }
+        Map<String, OptimizeRequestDTO.StudentDTO> studentsById = new HashMap<>();
+        for (OptimizeRequestDTO.StudentDTO student : request.students) {
+            studentsById.put(student.id, student);
+        }
+        Map<String, Set<String>> before = new HashMap<>();
+        Map<String, List<OptimizeRequestDTO.StudentDTO>> assignments = new HashMap<>();
+        for (RoutePlanDTO plan : plans) {
+            List<OptimizeRequestDTO.StudentDTO> seated = new ArrayList<>();
+            for (OptimizeRequestDTO.StudentDTO pickup : pickups(plan)) {
+                OptimizeRequestDTO.StudentDTO student = studentsById.get(pickup.id);
+                if (student != null) {
+                    seated.add(student);
+                }
+            }
+            assignments.put(plan.driverId, seated);
+            before.put(plan.driverId, studentIds(seated));
+        }
+
+        for (int round = 0; round < 2; round++) {
+            for (int c = round; c + 1 < clusters.size(); c += 2) {
+                OptimizeRequestDTO pair = new OptimizeRequestDTO();
+                pair.event = request.event;
+                pair.drivers = Arrays.stream(concat(clusters.get(c).drivers(), clusters.get(c + 1).drivers()))
+                        .mapToObj(request.drivers::get)
+                        .toList();
+                assignments.putAll(improveSeatSplit(pair, assignments));
+            }
+        }
+
+        Map<String, List<OptimizeRequestDTO.StudentDTO>> changed = new LinkedHashMap<>();
+        List<OptimizeRequestDTO.DriverDTO> changedDrivers = new ArrayList<>();
+        for (OptimizeRequestDTO.DriverDTO driver : request.drivers) {
+            List<OptimizeRequestDTO.StudentDTO> assigned = assignments.getOrDefault(driver.id, List.of());
+            if (!studentIds(assigned).equals(before.getOrDefault(driver.id, Set.of()))) {
+                changed.put(driver.id, assigned);
+                changedDrivers.add(driver);
+            }
+        }
+        if (changed.isEmpty()) {
+            return plans;
+        }
+        log.info("Rebalanced students across cluster boundaries. clusters={}, resolvedDrivers={}",
+                clusters.size(), changed.size());
+        List<RoutePlanDTO> rebalanced = new ArrayList<>();
+        for (RoutePlanDTO plan : plans) {
+            if (!changed.containsKey(plan.driverId)) {
+                rebalanced.add(plan);
+            }
+        }
+        OptimizeRequestDTO resolveRequest = new OptimizeRequestDTO();
+        resolveRequest.event = request.event;
+        resolveRequest.drivers = changedDrivers;
+        resolveRequest.globalStartTime = request.globalStartTime;
+        resolveRequest.globalEndTime = request.globalEndTime;
+        rebalanced.addAll(optimizePerVehicle(resolveRequest, changed));
+        return rebalanced;
+    }
+
+    private static Set<String> studentIds(List<OptimizeRequestDTO.StudentDTO> students) {
+        Set<String> ids = new HashSet<>();
+        for (OptimizeRequestDTO.StudentDTO student : students) {
+            ids.add(student.id);
+        }
+        return ids;
+    }
+
+    /**
+     * Solves every cluster locally in parallel, then re-solves each pair of neighbouring clusters together, starting
+     * from the routes already found, so students near a sector boundary can move to the better driver across it.
+     * Pairs are done in two rounds ((0,1), (2,3), ... then (1,2), (3,4), ...) so that concurrent solves never share a
+     * driver.
+     */
+    private List<RoutePlanDTO> executeClusteredLocalOptimization(OptimizeRequestDTO request,
+                                                                 List<SweepPartitioner.Cluster> clusters)
+            throws IOException {
+        List<OptimizeRequestDTO.DriverDTO> drivers = request.drivers;
+        List<OptimizeRequestDTO.StudentDTO> students = request.students;
+        int[][] routes = new int[drivers.size()][0];
+        int[][] clusterDrivers = new int[clusters.size()][];
+        int[][] clusterStudents = new int[clusters.size()][];
+        for (int c = 0; c < clusters.size(); c++) {
+            clusterDrivers[c] = clusters.get(c).drivers();
+            clusterStudents[c] = clusters.get(c).students();
+        }
+
+        List<Callable<Void>> solves = new ArrayList<>();
+        for (int c = 0; c < clusters.size(); c++) {
+            int cluster = c;
+            solves.add(() -> {
+                solveLocalClusters(request, clusterDrivers, clusterStudents, routes, cluster, cluster);
+                return null;
+            });
+        }
+        optimizeToursExecutor.invokeAll(solves);
+
+        for (int round = 0; round < 2; round++) {
+            List<Callable<Void>> boundaries = new ArrayList<>();
+            for (int c = round; c + 1 < clusters.size(); c += 2) {
+                int first = c;
+                boundaries.add(() -> {
+                    solveLocalClusters(request, clusterDrivers, clusterStudents, routes, first, first + 1);
+                    return null;
+                });
+            }
+            optimizeToursExecutor.invokeAll(boundaries);
+        }
+
+        boolean[] seated = new boolean[students.size()];
+        RoutePlanAssembler assembler = localAssembler();
+        Instant start = localStart(request.globalStartTime);
+        List<RoutePlanDTO> plans = new ArrayList<>();
+        for (int d = 0; d < drivers.size(); d++) {
+            if (routes[d].length == 0) {
+                continue;
+            }
+            List<OptimizeRequestDTO.StudentDTO> stops = new ArrayList<>(routes[d].length);
+            for (int s : routes[d]) {
+                stops.add(students.get(s));
+                seated[s] = true;
+            }
+            plans.add(assembler.assemble(drivers.get(d), request.event.location, stops, start));
+        }
+        List<String> unassignedStudentIds = new ArrayList<>();
+        for (int s = 0; s < students.size(); s++) {
+            if (!seated[s]) {
+                unassignedStudentIds.add(students.get(s).id);
+            }
+        }
+        if (!unassignedStudentIds.isEmpty()) {
+            log.warn("Unassigned students due to seat limits: {}", unassignedStudentIds);
+        }
+        return plans;
+    }
+
+    /**
+     * Solves the students of clusters {@code first} and {@code second} (the same cluster to solve one alone) over
+     * their drivers, starting from the routes those drivers already have, and writes the routes and the students'
+     * cluster membership back. Unseated students stay in the cluster they came from.
+     */
+    private void solveLocalClusters(OptimizeRequestDTO request,
+                                    int[][] clusterDrivers,
+                                    int[][] clusterStudents,
+                                    int[][] routes,
+                                    int first,
+                                    int second) {
+        int[] driverIds = first == second ? clusterDrivers[first] : concat(clusterDrivers[first], clusterDrivers[second]);
+        int[] studentIds = first == second ? clusterStudents[first] : concat(clusterStudents[first], clusterStudents[second]);
+        int firstDriverCount = clusterDrivers[first].length;
+        int firstStudentCount = clusterStudents[first].length;
+
+        List<OptimizeRequestDTO.DriverDTO> drivers = new ArrayList<>(driverIds.length);
+        int[] capacity = new int[driverIds.length];
+        for (int v = 0; v < driverIds.length; v++) {
+            drivers.add(request.drivers.get(driverIds[v]));
+            capacity[v] = request.drivers.get(driverIds[v]).seatCapacity;
+        }
+        List<OptimizeRequestDTO.StudentDTO> students = new ArrayList<>(studentIds.length);
+        Map<Integer, Integer> localIndex = new HashMap<>();
+        for (int s = 0; s < studentIds.length; s++) {
+            students.add(request.students.get(studentIds[s]));
+            localIndex.put(studentIds[s], s);
+        }
+        int[][] initialRoutes = new int[driverIds.length][];
+        boolean seeded = false;
+        for (int v = 0; v < driverIds.length; v++) {
+            initialRoutes[v] = Arrays.stream(routes[driverIds[v]]).map(localIndex::get).toArray();
+            seeded |= initialRoutes[v].length > 0;
+        }
+
+        VrpInstance instance = new VrpInstance(costMatrix(drivers, students, request.event.location, true), capacity);
+        LocalVrpSolver solver = new LocalVrpSolver(localTimeBudgetMs, localMaxIterations, localSeed);
+        VrpSolution solution = seeded ? solver.solve(instance, initialRoutes) : solver.solve(instance);
+
+        List<Integer> firstStudents = new ArrayList<>();
+        List<Integer> secondStudents = new ArrayList<>();
+        for (int v = 0; v < driverIds.length; v++) {
+            int[] route = solution.route(v);
+            int[] globalRoute = new int[route.length];
+            for (int i = 0; i < route.length; i++) {
+                globalRoute[i] = studentIds[route[i]];
+                (v < firstDriverCount ? firstStudents : secondStudents).add(globalRoute[i]);
+            }
+            routes[driverIds[v]] = globalRoute;
+        }
+        for (int s : solution.unassigned()) {
+            (s < firstStudentCount ? firstStudents : secondStudents).add(studentIds[s]);
+        }
+        if (first == second) {
+            firstStudents.addAll(secondStudents);
+        } else {
+            clusterStudents[second] = secondStudents.stream().mapToInt(Integer::intValue).toArray();
+        }
+        clusterStudents[first] = firstStudents.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static OptimizeRequestDTO clusterRequest(OptimizeRequestDTO request, SweepPartitioner.Cluster cluster) {
+        OptimizeRequestDTO clusterRequest = new OptimizeRequestDTO();
+        clusterRequest.event = request.event;
+        clusterRequest.drivers = Arrays.stream(cluster.drivers()).mapToObj(request.drivers::get).toList();
+        clusterRequest.students = Arrays.stream(cluster.students()).mapToObj(request.students::get).toList();
+        clusterRequest.globalStartTime = request.globalStartTime;
+        clusterRequest.globalEndTime = request.globalEndTime;
+        clusterRequest.mode = request.mode;
+        clusterRequest.assignment = request.assignment;
+        return clusterRequest;
+    }
+
+    private static int[] concat(int[] first, int[] second) {
+        int[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return joined;
+    }
+
+    private List<RoutePlanDTO> executeIncrementalOptimization(IncrementalOptimizeRequestDTO request) throws IOException {
+        LatLngDTO eventLocation = request.event.location;
+        Set<String> removedDriverIds = new HashSet<>(orEmpty(request.removedDriverIds));
+        Set<String> removedStudentIds = new HashSet<>(orEmpty(request.removedStudentIds));
+        Map<String, OptimizeRequestDTO.StudentDTO> addedStudents = new LinkedHashMap<>();
+        for (OptimizeRequestDTO.StudentDTO student : orEmpty(request.addedStudents)) {
+            addedStudents.put(student.id, student);
+        }
+
+        // roster after the delta; an added driver with a known id replaces it (e.g. new seat capacity)
+        Map<String, OptimizeRequestDTO.DriverDTO> roster = new LinkedHashMap<>();
+        for (OptimizeRequestDTO.DriverDTO driver : request.drivers) {
+            roster.put(driver.id, driver);
+        }
+        for (OptimizeRequestDTO.DriverDTO driver : orEmpty(request.addedDrivers)) {
+            roster.put(driver.id, driver);
+        }
+        roster.keySet().removeAll(removedDriverIds);
+        List<OptimizeRequestDTO.DriverDTO> drivers = new ArrayList<>(roster.values());
+
+        // students still riding keep their previous car and order; added ones (and riders of removed drivers) are pending
+        Map<String, RoutePlanDTO> previousPlans = new HashMap<>();
+        Map<String, List<String>> previousStops = new HashMap<>();
+        List<OptimizeRequestDTO.StudentDTO> students = new ArrayList<>();
+        Map<String, Integer> studentIndex = new HashMap<>();
+        for (RoutePlanDTO plan : request.previousPlans) {
+            List<String> stops = new ArrayList<>();
+            for (OptimizeRequestDTO.StudentDTO student : pickups(plan)) {
+                stops.add(student.id);
+                if (!removedStudentIds.contains(student.id) && !addedStudents.containsKey(student.id)
+                        && !studentIndex.containsKey(student.id)) {
+                    studentIndex.put(student.id, students.size());
+                    students.add(student);
+                }
+            }
+            previousPlans.put(plan.driverId, plan);
+            previousStops.put(plan.driverId, stops);
+        }
+        for (OptimizeRequestDTO.StudentDTO student : addedStudents.values()) {
+            if (!removedStudentIds.contains(student.id)) {
+                studentIndex.put(student.id, students.size());
+                students.add(student);
+            }
+        }
+
+        int[] capacity = new int[drivers.size()];
+        int[][] routes = new int[drivers.size()][];
+        for (int v = 0; v < drivers.size(); v++) {
+            capacity[v] = drivers.get(v).seatCapacity;
+            List<String> stops = previousStops.getOrDefault(drivers.get(v).id, List.of());
+            routes[v] = stops.stream().filter(studentIndex::containsKey).mapToInt(studentIndex::get).toArray();
+        }
+        VrpInstance instance = new VrpInstance(costMatrix(drivers, students, eventLocation, true), capacity);
+        VrpSolution solution = LocalVrpSolver.repair(instance, routes);
+
+        Map<String, List<OptimizeRequestDTO.StudentDTO>> touched = new LinkedHashMap<>();
+        for (int v = 0; v < drivers.size(); v++) {
+            List<OptimizeRequestDTO.StudentDTO> stops = new ArrayList<>();
+            List<String> stopIds = new ArrayList<>();
+            for (int s : solution.route(v)) {
+                stops.add(students.get(s));
+                stopIds.add(students.get(s).id);
+            }
+            if (!stopIds.equals(previousStops.getOrDefault(drivers.get(v).id, List.of()))) {
+                touched.put(drivers.get(v).id, stops);
+            }
+        }
+        log.info("Incremental optimization finished. students={}, drivers={}, touchedVehicles={}",
+                students.size(), drivers.size(), touched.keySet());
+        if (solution.unassigned().length > 0) {
+            List<String> unassignedStudentIds = new ArrayList<>();
+            for (int s : solution.unassigned()) {
+                unassignedStudentIds.add(students.get(s).id);
+            }
+            log.warn("Unassigned students due to seat limits: {}", unassignedStudentIds);
+        }
+
+        Map<String, RoutePlanDTO> repairedPlans = new HashMap<>();
+        if (Boolean.TRUE.equals(request.resolveTouched) && !touched.isEmpty()) {
+            OptimizeRequestDTO touchedRequest = new OptimizeRequestDTO();
+            touchedRequest.event = request.event;
+            touchedRequest.drivers = drivers.stream().filter(driver -> touched.containsKey(driver.id)).toList();
+            touchedRequest.globalStartTime = request.globalStartTime;
+            touchedRequest.globalEndTime = request.globalEndTime;
+            for (RoutePlanDTO plan : optimizePerVehicle(touchedRequest, touched)) {
+                repairedPlans.put(plan.driverId, plan);
+            }
+        }
+        RoutePlanAssembler assembler = localAssembler();
+        Instant start = localStart(request.globalStartTime);
+
+        List<RoutePlanDTO> plans = new ArrayList<>();
+        for (int v = 0; v < drivers.size(); v++) {
+            OptimizeRequestDTO.DriverDTO driver = drivers.get(v);
+            if (solution.route(v).length == 0) {
+                continue;
+            }
+            if (!touched.containsKey(driver.id)) {
+                plans.add(previousPlans.get(driver.id));
+            } else if (repairedPlans.containsKey(driver.id)) {
+                plans.add(repairedPlans.get(driver.id));
+            } else {
+                plans.add(assembler.assemble(driver, eventLocation, touched.get(driver.id), start));
+            }
+        }
+        return plans;
+    }
+
+    /** Students picked up along a plan, in visiting order, located where the plan picked them up. */
+    private static List<OptimizeRequestDTO.StudentDTO> pickups(RoutePlanDTO plan) {
+        List<OptimizeRequestDTO.StudentDTO> pickups = new ArrayList<>();
+        if (plan.timeline == null) {
+            return pickups;
+        }
+        List<TimelineEntryDTO> timeline = new ArrayList<>(plan.timeline);
+        timeline.sort(Comparator.comparingInt(entry -> entry.sequence));
+        for (TimelineEntryDTO entry : timeline) {
+            if ("pickup".equals(entry.type) && !isBlank(entry.studentId)) {
+                OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+                student.id = entry.studentId;
+                student.home = entry.location;
+                pickups.add(student);
+            }
+        }
+        return pickups;
+    }
+
+    /**
+     * Distances for the local solvers, over the road graph when one is loaded; roster drivers and students are read
+     * from the on-disk roster matrix instead of routed again.
+     */
+    private CostMatrix costMatrix(List<OptimizeRequestDTO.DriverDTO> drivers,
+                                  List<OptimizeRequestDTO.StudentDTO> students,
+                                  LatLngDTO eventLocation,
+                                  boolean studentPairs) {
+        return CostMatrix.of(drivers, students, eventLocation, studentPairs, roadNetwork.router(),
+                rosterMatrix.store());
+    }
+
+    private RoutePlanAssembler localAssembler() {
+        return new RoutePlanAssembler(TravelTimeModel.of(
+                localAverageSpeedKmh, localRoadFactor, localServiceSeconds, localSpeedProfile, localTimeZone)
+                .withRouter(roadNetwork.router()));
+    }
+
+    private static Instant localStart(String globalStartTime) {
+        return isBlank(globalStartTime) ? Instant.EPOCH : Instant.parse(normalizeUtcTimestamp(globalStartTime));
+    }
+
+    private static <T> List<T> orEmpty(List<T> values) {
+        return values == null ? List.of() : values;
+    }
+
+    /**
+     * Solves one optimizeTours body, answering from the cache when the same model was solved recently. The cache key
+     * is hashed from the body's records; the body is serialized once, only on a miss, and the debug log and the HTTP
+     * request (including retries) read the same bytes. Google is called through {@link OptimizeToursCircuitBreaker};
+     * while its circuit is open the request is answered with {@link #estimatePlans} instead (never cached), unless
+     * {@code optimize.breaker.fallback} is {@code NONE}.
+     */
+    private List<RoutePlanDTO> optimizeTours(String token, OptimizeToursRequestDTO body, OptimizeRequestDTO request)
+            throws IOException {
+        try {
+            return optimizeToursCache.get(body, () -> {
+                byte[] payload = serializeBody(body);
+                return improveRoutePlans(circuitBreaker.call(() -> callOptimizeTours(token, payload, request)));
+            });
+        } catch (OptimizeToursCircuitBreaker.CircuitOpenException e) {
+            if (!FALLBACK_LOCAL_GREEDY.equalsIgnoreCase(breakerFallback)) {
+                throw e;
+            }
+            log.warn("optimizeTours circuit is open. Answering with estimated plans. students={}, drivers={}",
+                    request.students.size(), request.drivers.size());
+            return estimatePlans(request);
+        }
+    }
+
+    /**
+     * Greedy seat split with each car's pickups ordered in-process and timed by {@link RoutePlanAssembler}; every plan
+     * is marked {@code estimated} in its metrics.
+     */
+    List<RoutePlanDTO> estimatePlans(OptimizeRequestDTO request) {
+        Map<String, List<OptimizeRequestDTO.StudentDTO>> assignments =
+                assignStudentsGreedy(request.drivers, request.students, request.event.location);
+        RoutePlanAssembler assembler = localAssembler();
+        Instant start = localStart(request.globalStartTime);
+        List<RoutePlanDTO> plans = new ArrayList<>();
+        for (OptimizeRequestDTO.DriverDTO driver : request.drivers) {
+            List<OptimizeRequestDTO.StudentDTO> assigned = assignments.get(driver.id);
+            if (assigned == null || assigned.isEmpty()) {
+                continue;
+            }
+            RoutePlanDTO plan = solvesExactly(assigned.size())
+                    ? solveExactly(driver, assigned, request.event.location, assembler, start)
+                    : assembler.assemble(driver, request.event.location,
+                            improvedOrder(driver, assigned, request.event.location), start);
+            plan.metrics.put("estimated", true);
+            plans.add(plan);
+        }
+        return plans;
+    }
+
+    private List<OptimizeRequestDTO.StudentDTO> improvedOrder(OptimizeRequestDTO.DriverDTO driver,
+                                                              List<OptimizeRequestDTO.StudentDTO> assigned,
+                                                              LatLngDTO eventLocation) {
+        int[] order = new int[assigned.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        order = new RouteImprover(postOptimizationTimeBudgetMs)
+                .improve(costMatrix(List.of(driver), assigned, eventLocation, true), 0, order);
+        List<OptimizeRequestDTO.StudentDTO> stops = new ArrayList<>(order.length);
+        for (int s : order) {
+            stops.add(assigned.get(s));
+        }
+        return stops;
+    }
+
+    byte[] serializeBody(OptimizeToursRequestDTO body) throws IOException {
+        return bodyWriter.writeValueAsBytes(body);
+    }
+
+    /**
+     * Polishes the pickup order of each route with {@link RouteImprover} on local distances. A reordered route keeps
+     * its start and pace as implied by Google's times: pickups and the arrival are re-timed along the new order, and
+     * the estimated saving goes into {@code metrics}. Routes whose timeline cannot be re-timed are left as they are.
+     */
+    List<RoutePlanDTO> improveRoutePlans(List<RoutePlanDTO> plans) {
+        if (postOptimizationTimeBudgetMs <= 0) {
+            return plans;
+        }
+        RouteImprover improver = new RouteImprover(postOptimizationTimeBudgetMs);
+        List<RoutePlanDTO> improved = new ArrayList<>(plans.size());
+        for (RoutePlanDTO plan : plans) {
+            improved.add(improveRoutePlan(plan, improver));
+        }
+        return improved;
+    }
+
+    private RoutePlanDTO improveRoutePlan(RoutePlanDTO plan, RouteImprover improver) {
+        List<TimelineEntryDTO> pickups = new ArrayList<>();
+        List<TimelineEntryDTO> dropoffs = new ArrayList<>();
+        for (TimelineEntryDTO entry : plan.timeline) {
+            if ("pickup".equals(entry.type) && dropoffs.isEmpty() && entry.location != null) {
+                pickups.add(entry);
+            } else if ("dropoff".equals(entry.type)) {
+                dropoffs.add(entry);
+            } else {
+                // interleaved or unlocated stops: not a plain pickups-then-event route
+                return plan;
+            }
+        }
+        if (pickups.size() < 2 || dropoffs.isEmpty() || plan.driverHome == null || plan.eventLocation == null) {
+            return plan;
+        }
+
+        int n = pickups.size();
+        OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+        driver.id = plan.driverId;
+        driver.home = plan.driverHome;
+        List<OptimizeRequestDTO.StudentDTO> students = new ArrayList<>(n);
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+            student.id = pickups.get(i).studentId;
+            student.home = pickups.get(i).location;
+            students.add(student);
+            order[i] = i;
+        }
+        // the same metric as the local solvers, so 2-opt/Or-opt and the reported saving agree on what a km is
+        RoadNetworkRouter router = roadNetwork.router();
+        CostMatrix costs = CostMatrix.of(List.of(driver), students, plan.eventLocation, true, router);
+        int[] better = improver.improve(costs, 0, order);
+        double beforeKm = ExactRouteSolver.routeKm(costs, 0, order);
+        double savedKm = beforeKm - ExactRouteSolver.routeKm(costs, 0, better);
+        if (savedKm <= 1e-9) {
+            return plan;
+        }
+
+        // seconds per cost-matrix km, from Google's own first pickup and arrival times
+        Instant firstPickup;
+        Instant arrival;
+        try {
+            firstPickup = Instant.parse(pickups.get(0).time);
+            arrival = Instant.parse(dropoffs.get(0).time);
+        } catch (RuntimeException e) {
+            return plan;
+        }
+        double firstLegKm = costs.driverToStudentKm(0, 0);
+        double pace = (arrival.toEpochMilli() - firstPickup.toEpochMilli()) / 1000.0 / (beforeKm - firstLegKm);
+        if (!(pace > 0) || Double.isInfinite(pace)) {
+            return plan;
+        }
+        Instant start = firstPickup.minusMillis(Math.round(firstLegKm * pace * 1000));
+
+        List<TimelineEntryDTO> timeline = new ArrayList<>(plan.timeline.size());
+        double km = 0;
+        for (int i = 0; i < n; i++) {
+            km += i == 0
+                    ? costs.driverToStudentKm(0, better[0])
+                    : costs.studentToStudentKm(better[i - 1], better[i]);
+            TimelineEntryDTO pickup = pickups.get(better[i]);
+            timeline.add(new TimelineEntryDTO(timeline.size(), offset(start, km * pace), pickup.type,
+                    pickup.studentId, pickup.shipmentLabel, pickup.visitLabel, pickup.location));
+        }
+        km += costs.studentToEventKm(better[n - 1]);
+        String arrivalTime = offset(start, km * pace);
+        for (TimelineEntryDTO dropoff : dropoffs) {
+            timeline.add(new TimelineEntryDTO(timeline.size(), arrivalTime, dropoff.type,
+                    dropoff.studentId, dropoff.shipmentLabel, dropoff.visitLabel, dropoff.location));
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>(plan.metrics);
+        // routed km are already road km; straight-line km are scaled like local travel times
+        double savedRoadKm = router != null ? savedKm : savedKm * localRoadFactor;
+        metrics.put("postOptimizationSavingMeters", Math.round(savedRoadKm * 1000));
+        metrics.put("postOptimizationSavingSeconds", Math.round(savedKm * pace));
+        log.debug("Post-optimized route. driverId={}, savedKm={}", plan.driverId, savedKm);
+        return new RoutePlanDTO(plan.driverId, plan.driverHome, plan.eventLocation, timeline, metrics);
+    }
+
+    private static String offset(Instant start, double seconds) {
+        return start.plusMillis(Math.round(seconds * 1000)).truncatedTo(ChronoUnit.SECONDS).toString();
+    }
+
+    /** Posts the serialized body and reads the plans straight off the response stream. */
+    private List<RoutePlanDTO> callOptimizeTours(String token, byte[] payload, OptimizeRequestDTO request) {
+        if (log.isDebugEnabled()) {
+            int logged = Math.min(payload.length, Math.max(0, requestLogMaxBytes));
+            log.debug("Route optimization request body ({} bytes): {}{}", payload.length,
+                    new String(payload, 0, logged, StandardCharsets.UTF_8), logged < payload.length ? "..." : "");
+        }
         return rest.post()
                 .uri("/v1/projects/{projectId}:optimizeTours", projectId)
                 .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(body)
-                .retrieve()
-                .body(String.class);
+                .body(payload)
+                .exchange((httpRequest, httpResponse) -> {
+                    if (RESPONSE_ERROR_HANDLER.hasError(httpResponse)) {
+                        RESPONSE_ERROR_HANDLER.handleError(httpRequest.getURI(), httpRequest.getMethod(), httpResponse);
+                    }
+                    return buildRoutePlans(httpResponse.getBody(), request);
+                });
     }
 
-    private Map<String, Object> buildOptimizeBody(LatLngDTO eventLocation,
-                                                  List<OptimizeRequestDTO.DriverDTO> drivers,
-                                                  List<OptimizeRequestDTO.StudentDTO> students,
-                                                  String globalStartTime,
-                                                  String globalEndTime) {
-        List<Map<String, Object>> vehicles = new ArrayList<>();
+    OptimizeToursRequestDTO buildOptimizeBody(LatLngDTO eventLocation,
+                                              List<OptimizeRequestDTO.DriverDTO> drivers,
+                                              List<OptimizeRequestDTO.StudentDTO> students,
+                                              String globalStartTime,
+                                              String globalEndTime) {
+        OptimizeToursRequestDTO.LatLng event = latLng(eventLocation);
+
+        List<OptimizeToursRequestDTO.Vehicle> vehicles = new ArrayList<>(drivers.size());
         for (OptimizeRequestDTO.DriverDTO driver : drivers) {
-            vehicles.add(Map.of(
-                    "name", "drivers/" + driver.id,
-                    "label", driver.id,
-                    "startLocation", latLng(driver.home),
-                    "endLocation", latLng(eventLocation),
-                    "loadLimits", Map.of(
-                            "seats", Map.of("maxLoad", String.valueOf(driver.seatCapacity))
+            vehicles.add(new OptimizeToursRequestDTO.Vehicle(
+                    "drivers/" + driver.id,
+                    driver.id,
+                    latLng(driver.home),
+                    event,
+                    new OptimizeToursRequestDTO.LoadLimits(
+                            new OptimizeToursRequestDTO.LoadLimit(String.valueOf(driver.seatCapacity))
                     )
             ));
         }
 
-        List<Map<String, Object>> shipments = new ArrayList<>();
+        List<OptimizeToursRequestDTO.Shipment> shipments = new ArrayList<>(students.size());
         for (OptimizeRequestDTO.StudentDTO student : students) {
-            shipments.add(Map.of(
-                    "name", "students/" + student.id,
-                    "loadDemands", Map.of(
-                            "seats", Map.of("amount", "1")
-                    ),
-                    "pickups", List.of(
-                            Map.of(
-                                    "arrivalLocation", latLng(student.home),
-                                    "label", "pickup_student_" + student.id
-                            )
-                    ),
-                    "deliveries", List.of(
-                            Map.of(
-                                    "arrivalLocation", latLng(eventLocation),
-                                    "label", "dropoff_student_" + student.id
-                            )
-                    )
+            shipments.add(new OptimizeToursRequestDTO.Shipment(
+                    "students/" + student.id,
+                    ONE_SEAT,
+                    List.of(new OptimizeToursRequestDTO.VisitRequest(
+                            latLng(student.home),
+                            "pickup_student_" + student.id
+                    )),
+                    List.of(new OptimizeToursRequestDTO.VisitRequest(
+                            event,
+                            "dropoff_student_" + student.id
+                    ))
             ));
         }
 
-        Map<String, Object> model = new LinkedHashMap<>();
-        model.put("vehicles", vehicles);
-        model.put("shipments", shipments);
-        model.put("objectives", List.of(
-                Map.of("type", "MIN_TRAVEL_TIME")
-        ));
-        if (!isBlank(globalStartTime)) {
-            model.put("globalStartTime", normalizeUtcTimestamp(globalStartTime));
+        OptimizeToursRequestDTO.Model model = new OptimizeToursRequestDTO.Model(
+                vehicles,
+                shipments,
+                MIN_TRAVEL_TIME,
+                isBlank(globalStartTime) ? null : normalizeUtcTimestamp(globalStartTime),
+                isBlank(globalEndTime) ? null : normalizeUtcTimestamp(globalEndTime)
+        );
+        return new OptimizeToursRequestDTO(model, "RETURN_FAST");
+    }
+
+    private Map<String, List<OptimizeRequestDTO.StudentDTO>> assignStudents(OptimizeRequestDTO request) {
+        String strategy = isBlank(request.assignment) ? defaultAssignment : request.assignment;
+        if (ASSIGNMENT_MIN_COST_FLOW.equalsIgnoreCase(strategy)) {
+            return assignStudentsMinCostFlow(request.drivers, request.students, request.event.location);
         }
-        if (!isBlank(globalEndTime)) {
-            model.put("globalEndTime", normalizeUtcTimestamp(globalEndTime));
+        if (!isBlank(strategy) && !ASSIGNMENT_GREEDY.equalsIgnoreCase(strategy)) {
+            log.warn("Unknown assignment strategy {}. Falling back to {}.", strategy, ASSIGNMENT_GREEDY);
         }
+        return assignStudentsGreedy(request.drivers, request.students, request.event.location);
+    }
 
-        Map<String, Object> body = new LinkedHashMap<>();
-        body.put("model", model);
-        body.put("searchMode", "RETURN_FAST");
-        return body;
+    static Map<String, List<OptimizeRequestDTO.StudentDTO>> assignStudentsMinCostFlow(
+            List<OptimizeRequestDTO.DriverDTO> drivers,
+            List<OptimizeRequestDTO.StudentDTO> students,
+            LatLngDTO eventLocation
+    ) {
+        CostMatrix costs = CostMatrix.of(drivers, students, eventLocation, false);
+        int[] capacity = new int[drivers.size()];
+        for (int d = 0; d < drivers.size(); d++) {
+            capacity[d] = drivers.get(d).seatCapacity;
+        }
+        return toAssignments(drivers, students, MinCostFlowAssigner.assign(costs, capacity));
     }
 
     static Map<String, List<OptimizeRequestDTO.StudentDTO>> assignStudentsGreedy(
             List<OptimizeRequestDTO.DriverDTO> drivers,
             List<OptimizeRequestDTO.StudentDTO> students,
             LatLngDTO eventLocation
+    ) {
+        return toAssignments(drivers, students, GreedyAssigner.assign(drivers, students, eventLocation));
+    }
+
+    private static Map<String, List<OptimizeRequestDTO.StudentDTO>> toAssignments(
+            List<OptimizeRequestDTO.DriverDTO> drivers,
+            List<OptimizeRequestDTO.StudentDTO> students,
+            int[] driverOf
     ) {
         Map<String, List<OptimizeRequestDTO.StudentDTO>> assignments = new LinkedHashMap<>();
-        Map<String, Integer> remainingSeats = new LinkedHashMap<>();
-        List<String> unassignedStudentIds = new ArrayList<>();
         for (OptimizeRequestDTO.DriverDTO driver : drivers) {
             assignments.put(driver.id, new ArrayList<>());
-            remainingSeats.put(driver.id, driver.seatCapacity);
         }
-
-        List<OptimizeRequestDTO.StudentDTO> sortedStudents = new ArrayList<>(students);
-        sortedStudents.sort((left, right) -> Double.compare(
-                minAssignmentCost(right, drivers, eventLocation),
-                minAssignmentCost(left, drivers, eventLocation)
-        ));
-
-        for (OptimizeRequestDTO.StudentDTO student : sortedStudents) {
-            OptimizeRequestDTO.DriverDTO bestDriver = null;
-            double bestCost = Double.MAX_VALUE;
-
-            for (OptimizeRequestDTO.DriverDTO driver : drivers) {
-                Integer seatsLeft = remainingSeats.get(driver.id);
-                if (seatsLeft == null || seatsLeft <= 0) {
-                    continue;
-                }
-                double cost = assignmentCost(driver.home, student.home, eventLocation);
-                if (cost < bestCost) {
-                    bestCost = cost;
-                    bestDriver = driver;
-                }
-            }
-
-            if (bestDriver == null) {
-                unassignedStudentIds.add(student.id);
-                continue;
+        List<String> unassignedStudentIds = new ArrayList<>();
+        for (int s = 0; s < students.size(); s++) {
+            if (driverOf[s] == MinCostFlowAssigner.UNASSIGNED) {
+                unassignedStudentIds.add(students.get(s).id);
+            } else {
+                assignments.get(drivers.get(driverOf[s]).id).add(students.get(s));
             }
-
-            assignments.get(bestDriver.id).add(student);
-            remainingSeats.put(bestDriver.id, remainingSeats.get(bestDriver.id) - 1);
         }
 
         if (!unassignedStudentIds.isEmpty()) {
@@ -302,36 +1303,14 @@ public class RouteOptimizationController {
         return assignments;
     }
 
-    private static double minAssignmentCost(OptimizeRequestDTO.StudentDTO student,
-                                            List<OptimizeRequestDTO.DriverDTO> drivers,
-                                            LatLngDTO eventLocation) {
-        double best = Double.MAX_VALUE;
-        for (OptimizeRequestDTO.DriverDTO driver : drivers) {
-            best = Math.min(best, assignmentCost(driver.home, student.home, eventLocation));
-        }
-        return best;
-    }
-
-    private static double assignmentCost(LatLngDTO driverHome, LatLngDTO studentHome, LatLngDTO eventLocation) {
-        return haversineKm(driverHome, studentHome) + haversineKm(studentHome, eventLocation);
-    }
-
-    private static double haversineKm(LatLngDTO a, LatLngDTO b) {
-        final double earthRadiusKm = 6371.0088;
-        double lat1 = Math.toRadians(a.lat);
-        double lat2 = Math.toRadians(b.lat);
-        double dLat = lat2 - lat1;
-        double dLng = Math.toRadians(b.lng - a.lng);
-        double h = Math.pow(Math.sin(dLat / 2), 2)
-                + Math.cos(lat1) * Math.cos(lat2) * Math.pow(Math.sin(dLng / 2), 2);
-        double c = 2 * Math.atan2(Math.sqrt(h), Math.sqrt(1 - h));
-        return earthRadiusKm * c;
-    }
-
     private static boolean isPerVehicleMode(String mode) {
         return MODE_PER_VEHICLE_MIN_TIME.equalsIgnoreCase(mode);
     }
 
+    private static boolean isLocalMode(String mode) {
+        return MODE_LOCAL_MIN_TIME.equalsIgnoreCase(mode);
+    }
+
     static boolean hasSeatCapacityViolation(List<RoutePlanDTO> plans, OptimizeRequestDTO request) {
         Map<String, Integer> capacityByDriverId = new HashMap<>();
         for (OptimizeRequestDTO.DriverDTO driver : request.drivers) {
@@ -368,110 +1347,191 @@ public class RouteOptimizationController {
         return UTC_SECONDS_FORMATTER.format(truncated);
     }
 
-    private static Map<String, Object> latLng(LatLngDTO location) {
-        return Map.of("latitude", location.lat, "longitude", location.lng);
+    private static OptimizeToursRequestDTO.LatLng latLng(LatLngDTO location) {
+        return new OptimizeToursRequestDTO.LatLng(location.lat, location.lng);
     }
 
-    private List<RoutePlanDTO> buildRoutePlans(String responseJson, OptimizeRequestDTO request) throws IOException {
-        JsonNode root = mapper.readTree(responseJson);
-        JsonNode routes = root.path("routes");
+    List<RoutePlanDTO> buildRoutePlans(String responseJson, OptimizeRequestDTO request) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(responseJson)) {
+            return new RoutePlanReader(request).read(parser);
+        }
+    }
 
-        Map<String, String> vehicleNameToDriverId = new LinkedHashMap<>();
-        for (OptimizeRequestDTO.DriverDTO driver : request.drivers) {
-            vehicleNameToDriverId.put("drivers/" + driver.id, driver.id);
-            vehicleNameToDriverId.put(driver.id, driver.id);
+    List<RoutePlanDTO> buildRoutePlans(InputStream responseBody, OptimizeRequestDTO request) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(responseBody)) {
+            return new RoutePlanReader(request).read(parser);
         }
+    }
 
-        Map<String, LatLngDTO> studentHomeById = new LinkedHashMap<>();
-        for (OptimizeRequestDTO.StudentDTO student : request.students) {
-            studentHomeById.put(student.id, student.home);
+    /**
+     * Builds route plans from an optimizeTours response in one pass over the token stream, without a tree or an
+     * intermediate copy of the body. Locations are copied from the request once per student (and once for the event)
+     * and shared by every entry that refers to them; nothing downstream mutates a plan's locations.
+     */
+    private final class RoutePlanReader {
+
+        private final OptimizeRequestDTO request;
+        private final Map<String, String> vehicleNameToDriverId = new LinkedHashMap<>();
+        private final Map<String, LatLngDTO> studentHomeById = new HashMap<>();
+        private final Map<String, LatLngDTO> sharedStudentHomes = new HashMap<>();
+        private final LatLngDTO sharedEventLocation;
+
+        RoutePlanReader(OptimizeRequestDTO request) {
+            this.request = request;
+            for (OptimizeRequestDTO.DriverDTO driver : request.drivers) {
+                vehicleNameToDriverId.put("drivers/" + driver.id, driver.id);
+                vehicleNameToDriverId.put(driver.id, driver.id);
+            }
+            for (OptimizeRequestDTO.StudentDTO student : request.students) {
+                studentHomeById.put(student.id, student.home);
+            }
+            this.sharedEventLocation = copyLocation(request.event.location);
         }
 
-        List<RoutePlanDTO> plans = new ArrayList<>();
-        if (routes.isArray()) {
-            int routeOrder = 0;
-            for (JsonNode route : routes) {
-                JsonNode visits = route.path("visits");
-
-                List<TimelineEntryDTO> timeline = new ArrayList<>();
-                if (visits.isArray()) {
-                    int sequence = 0;
-                    for (JsonNode visit : visits) {
-                        String visitLabel = firstNonBlank(
-                                visit.path("label").asText(null),
-                                visit.path("visitLabel").asText(null)
-                        );
-                        String shipmentLabel = visit.path("shipmentLabel").asText(null);
-                        String time = visit.path("startTime").asText(null);
-                        if (isBlank(visitLabel) || isBlank(time)) {
-                            log.warn("Skipping visit due to missing required fields. label={}, startTime={}", visitLabel, time);
-                            continue;
+        List<RoutePlanDTO> read(JsonParser parser) throws IOException {
+            List<RoutePlanDTO> plans = new ArrayList<>();
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return plans;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && "routes".equals(field)) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        plans.add(readRoute(parser, plans.size()));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return plans;
+        }
+
+        private RoutePlanDTO readRoute(JsonParser parser, int routeOrder) throws IOException {
+            int vehicleIndex = -1;
+            String vehicleName = null;
+            String vehicleLabel = null;
+            List<TimelineEntryDTO> timeline = new ArrayList<>();
+            Map<String, Object> metrics = null;
+
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken value = parser.nextToken();
+                    switch (field) {
+                        case "vehicleIndex" -> vehicleIndex = value == JsonToken.VALUE_NUMBER_INT
+                                || value == JsonToken.VALUE_STRING ? parser.getValueAsInt(-1) : -1;
+                        case "vehicleName" -> vehicleName = scalarText(parser, value);
+                        case "vehicleLabel" -> vehicleLabel = scalarText(parser, value);
+                        case "visits" -> {
+                            if (value == JsonToken.START_ARRAY) {
+                                readVisits(parser, timeline);
+                            }
+                        }
+                        case "metrics" -> {
+                            if (value == JsonToken.START_OBJECT) {
+                                metrics = mapper.readValue(parser, new TypeReference<Map<String, Object>>() {});
+                            }
+                        }
+                        default -> {
                         }
-                        String type = inferType(visitLabel);
-                        String studentId = extractStudentId(visitLabel, shipmentLabel);
-
-                        timeline.add(new TimelineEntryDTO(
-                                sequence++,
-                                time,
-                                type,
-                                studentId,
-                                shipmentLabel,
-                                visitLabel,
-                                resolveVisitLocation(
-                                        type,
-                                        studentId,
-                                        studentHomeById,
-                                        request.event.location
-                                )
-                        ));
                     }
+                    parser.skipChildren();
                 }
+            } else {
+                parser.skipChildren();
+            }
 
-                Map<String, Object> metrics = mapper.convertValue(
-                        route.path("metrics"),
-                        new TypeReference<Map<String, Object>>() {}
-                );
-                if (metrics == null) {
-                    metrics = Map.of();
+            LatLngDTO driverHome = resolveDriverHome(
+                    vehicleIndex,
+                    vehicleName,
+                    vehicleLabel,
+                    request,
+                    vehicleNameToDriverId
+            );
+            String driverId = resolveDriverId(
+                    vehicleIndex,
+                    vehicleName,
+                    vehicleLabel,
+                    request,
+                    vehicleNameToDriverId,
+                    routeOrder
+            );
+            log.debug(
+                    "Route mapping resolved. vehicleIndex={}, vehicleName={}, vehicleLabel={}, driverId={}",
+                    vehicleIndex,
+                    vehicleName,
+                    vehicleLabel,
+                    driverId
+            );
+            return new RoutePlanDTO(
+                    driverId,
+                    driverHome,
+                    sharedEventLocation,
+                    timeline,
+                    metrics == null ? Map.of() : metrics
+            );
+        }
+
+        private void readVisits(JsonParser parser, List<TimelineEntryDTO> timeline) throws IOException {
+            int sequence = 0;
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                String label = null;
+                String visitLabelField = null;
+                String shipmentLabel = null;
+                String time = null;
+                if (parser.currentToken() == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String field = parser.currentName();
+                        JsonToken value = parser.nextToken();
+                        switch (field) {
+                            case "label" -> label = scalarText(parser, value);
+                            case "visitLabel" -> visitLabelField = scalarText(parser, value);
+                            case "shipmentLabel" -> shipmentLabel = scalarText(parser, value);
+                            case "startTime" -> time = scalarText(parser, value);
+                            default -> {
+                            }
+                        }
+                        parser.skipChildren();
+                    }
+                } else {
+                    parser.skipChildren();
                 }
 
-                int vehicleIndex = route.path("vehicleIndex").asInt(-1);
-                String vehicleName = route.path("vehicleName").asText(null);
-                String vehicleLabel = route.path("vehicleLabel").asText(null);
-                LatLngDTO driverHome = resolveDriverHome(
-                        vehicleIndex,
-                        vehicleName,
-                        vehicleLabel,
-                        request,
-                        vehicleNameToDriverId
-                );
-                String driverId = resolveDriverId(
-                        vehicleIndex,
-                        vehicleName,
-                        vehicleLabel,
-                        request,
-                        vehicleNameToDriverId,
-                        routeOrder
-                );
-                log.debug(
-                        "Route mapping resolved. vehicleIndex={}, vehicleName={}, vehicleLabel={}, driverId={}",
-                        vehicleIndex,
-                        vehicleName,
-                        vehicleLabel,
-                        driverId
-                );
-                plans.add(new RoutePlanDTO(
-                        driverId,
-                        driverHome,
-                        copyLocation(request.event.location),
-                        timeline,
-                        metrics
+                String visitLabel = firstNonBlank(label, visitLabelField);
+                if (isBlank(visitLabel) || isBlank(time)) {
+                    log.warn("Skipping visit due to missing required fields. label={}, startTime={}", visitLabel, time);
+                    continue;
+                }
+                String type = inferType(visitLabel);
+                String studentId = extractStudentId(visitLabel, shipmentLabel);
+
+                timeline.add(new TimelineEntryDTO(
+                        sequence++,
+                        time,
+                        type,
+                        studentId,
+                        shipmentLabel,
+                        visitLabel,
+                        visitLocation(type, studentId)
                 ));
-                routeOrder++;
             }
         }
 
-        return plans;
+        private LatLngDTO visitLocation(String type, String studentId) {
+            if ("pickup".equals(type)) {
+                LatLngDTO home = studentHomeById.get(studentId);
+                return home == null ? null : sharedStudentHomes.computeIfAbsent(studentId, id -> copyLocation(home));
+            }
+            if ("dropoff".equals(type)) {
+                return sharedEventLocation;
+            }
+            return null;
+        }
+    }
+
+    /** Text of a scalar value, {@code null} for JSON null, objects and arrays. */
+    private static String scalarText(JsonParser parser, JsonToken value) throws IOException {
+        return value != null && value.isScalarValue() && value != JsonToken.VALUE_NULL ? parser.getText() : null;
     }
 
     private String resolveDriverId(int vehicleIndex,
@@ -522,40 +1582,136 @@ public class RouteOptimizationController {
         if (request == null) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Request body is required");
         }
-        if (request.event == null || request.event.location == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "event.location is required");
+        validateEvent(request.event);
+
+        if (request.drivers == null || request.drivers.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "drivers must not be empty");
+        }
+        validateDrivers(request.drivers, "drivers");
+
+        if (request.students == null || request.students.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "students must not be empty");
+        }
+        validateStudents(request.students, "students");
+    }
+
+    private void validateBatchRequest(BatchOptimizeRequestDTO request) {
+        if (request == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Request body is required");
+        }
+        if (request.events == null || request.events.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "events must not be empty");
+        }
+        Set<String> eventIds = new HashSet<>();
+        Set<String> studentIds = new HashSet<>();
+        for (int i = 0; i < request.events.size(); i++) {
+            BatchOptimizeRequestDTO.EventDTO event = request.events.get(i);
+            String field = "events[" + i + "]";
+            if (event == null || isBlank(event.id)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + ".id is required");
+            }
+            if (!eventIds.add(event.id)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + ".id " + event.id + " is used twice");
+            }
+            if (event.location == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + ".location is required");
+            }
+            validateLocation(event.location, field + ".location");
+            if (event.students == null || event.students.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + ".students must not be empty");
+            }
+            validateStudents(event.students, field + ".students");
+            for (OptimizeRequestDTO.StudentDTO student : event.students) {
+                if (!studentIds.add(student.id)) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                            "student " + student.id + " appears in more than one event");
+                }
+            }
+        }
+
+        if (request.drivers == null || request.drivers.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "drivers must not be empty");
+        }
+        validateDrivers(request.drivers, "drivers");
+        if (request.drivers.size() < request.events.size()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "drivers must cover every event: "
+                    + request.drivers.size() + " drivers for " + request.events.size() + " events");
+        }
+        int seats = request.drivers.stream().mapToInt(driver -> driver.seatCapacity).sum();
+        if (seats < studentIds.size()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "drivers have " + seats + " seats for " + studentIds.size() + " students");
+        }
+    }
+
+    private void validateIncrementalRequest(IncrementalOptimizeRequestDTO request) {
+        if (request == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Request body is required");
         }
-        validateLocation(request.event.location, "event.location");
+        validateEvent(request.event);
 
         if (request.drivers == null || request.drivers.isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "drivers must not be empty");
         }
-        for (int i = 0; i < request.drivers.size(); i++) {
-            OptimizeRequestDTO.DriverDTO driver = request.drivers.get(i);
+        validateDrivers(request.drivers, "drivers");
+        validateDrivers(orEmpty(request.addedDrivers), "addedDrivers");
+        validateStudents(orEmpty(request.addedStudents), "addedStudents");
+
+        if (request.previousPlans == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "previousPlans is required");
+        }
+        for (int i = 0; i < request.previousPlans.size(); i++) {
+            RoutePlanDTO plan = request.previousPlans.get(i);
+            if (plan == null || isBlank(plan.driverId)) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "previousPlans[" + i + "].driverId is required");
+            }
+            List<TimelineEntryDTO> timeline = orEmpty(plan.timeline);
+            for (int j = 0; j < timeline.size(); j++) {
+                TimelineEntryDTO entry = timeline.get(j);
+                if (entry != null && "pickup".equals(entry.type)) {
+                    String fieldPath = "previousPlans[" + i + "].timeline[" + j + "].location";
+                    if (entry.location == null) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, fieldPath + " is required");
+                    }
+                    validateLocation(entry.location, fieldPath);
+                }
+            }
+        }
+    }
+
+    private static void validateEvent(OptimizeRequestDTO.EventDTO event) {
+        if (event == null || event.location == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "event.location is required");
+        }
+        validateLocation(event.location, "event.location");
+    }
+
+    private static void validateDrivers(List<OptimizeRequestDTO.DriverDTO> drivers, String field) {
+        for (int i = 0; i < drivers.size(); i++) {
+            OptimizeRequestDTO.DriverDTO driver = drivers.get(i);
             if (driver == null || isBlank(driver.id)) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "drivers[" + i + "].id is required");
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + "[" + i + "].id is required");
             }
             if (driver.home == null) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "drivers[" + i + "].home is required");
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + "[" + i + "].home is required");
             }
-            validateLocation(driver.home, "drivers[" + i + "].home");
+            validateLocation(driver.home, field + "[" + i + "].home");
             if (driver.seatCapacity == null || driver.seatCapacity <= 0) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "drivers[" + i + "].seatCapacity must be > 0");
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + "[" + i + "].seatCapacity must be > 0");
             }
         }
+    }
 
-        if (request.students == null || request.students.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "students must not be empty");
-        }
-        for (int i = 0; i < request.students.size(); i++) {
-            OptimizeRequestDTO.StudentDTO student = request.students.get(i);
+    private static void validateStudents(List<OptimizeRequestDTO.StudentDTO> students, String field) {
+        for (int i = 0; i < students.size(); i++) {
+            OptimizeRequestDTO.StudentDTO student = students.get(i);
             if (student == null || isBlank(student.id)) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "students[" + i + "].id is required");
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + "[" + i + "].id is required");
             }
             if (student.home == null) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "students[" + i + "].home is required");
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, field + "[" + i + "].home is required");
             }
-            validateLocation(student.home, "students[" + i + "].home");
+            validateLocation(student.home, field + "[" + i + "].home");
         }
     }
 
@@ -590,19 +1746,6 @@ public class RouteOptimizationController {
         return label.substring(idx + 1);
     }
 
-    private static LatLngDTO resolveVisitLocation(String type,
-                                                  String studentId,
-                                                  Map<String, LatLngDTO> studentHomeById,
-                                                  LatLngDTO eventLocation) {
-        if ("pickup".equals(type)) {
-            return copyLocation(studentHomeById.get(studentId));
-        }
-        if ("dropoff".equals(type)) {
-            return copyLocation(eventLocation);
-        }
-        return null;
-    }
-
     private static LatLngDTO copyLocation(LatLngDTO source) {
         if (source == null) {
             return null;
@@ -0,0 +1,20 @@
+package com.carpool.backend.dto;
+
+import java.util.List;
+
+public class BatchOptimizeRequestDTO {
+    // events in the same time slot, each with its own students
+    public List<EventDTO> events;
+    // shared pool; every driver is sent to exactly one event
+    public List<OptimizeRequestDTO.DriverDTO> drivers;
+    public String globalStartTime;
+    public String globalEndTime;
+    public String mode;
+    public String assignment;
+
+    public static class EventDTO {
+        public String id;
+        public LatLngDTO location;
+        public List<OptimizeRequestDTO.StudentDTO> students;
+    }
+}
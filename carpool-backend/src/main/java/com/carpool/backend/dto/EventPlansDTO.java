@@ -0,0 +1,19 @@
+package com.carpool.backend.dto;
+
+import java.util.List;
+
+public class EventPlansDTO {
+    public String eventId;
+    public List<RoutePlanDTO> plans;
+    // students of this event that no plan picks up, e.g. because its drivers ran out of seats
+    public List<String> unassignedStudentIds;
+
+    public EventPlansDTO() {
+    }
+
+    public EventPlansDTO(String eventId, List<RoutePlanDTO> plans, List<String> unassignedStudentIds) {
+        this.eventId = eventId;
+        this.plans = plans;
+        this.unassignedStudentIds = unassignedStudentIds;
+    }
+}
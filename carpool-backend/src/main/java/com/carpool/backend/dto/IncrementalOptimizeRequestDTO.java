@@ -0,0 +1,19 @@
+package com.carpool.backend.dto;
+
+import java.util.List;
+
+public class IncrementalOptimizeRequestDTO {
+    public OptimizeRequestDTO.EventDTO event;
+    // drivers the previous plan was computed for, with their seat capacities
+    public List<OptimizeRequestDTO.DriverDTO> drivers;
+    // result of an earlier optimize call; pickups are read from each timeline
+    public List<RoutePlanDTO> previousPlans;
+    public List<OptimizeRequestDTO.StudentDTO> addedStudents;
+    public List<String> removedStudentIds;
+    public List<OptimizeRequestDTO.DriverDTO> addedDrivers;
+    public List<String> removedDriverIds;
+    public String globalStartTime;
+    public String globalEndTime;
+    // re-solve the changed vehicles with optimizeTours instead of timing them locally
+    public Boolean resolveTouched;
+}
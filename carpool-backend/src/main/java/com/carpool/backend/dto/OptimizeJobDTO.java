@@ -0,0 +1,24 @@
+package com.carpool.backend.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public class OptimizeJobDTO {
+    public String id;
+    public Status status;
+    public Instant submittedAt;
+    public Instant startedAt;
+    public Instant finishedAt;
+    // set once status is SUCCEEDED
+    public List<RoutePlanDTO> result;
+    // set once status is FAILED
+    public String error;
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED
+    }
+}
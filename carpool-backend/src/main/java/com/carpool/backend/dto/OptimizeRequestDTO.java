@@ -9,6 +9,7 @@ public class OptimizeRequestDTO {
     public String globalStartTime;
     public String globalEndTime;
     public String mode;
+    public String assignment;
 
     public static class EventDTO {
         public LatLngDTO location;
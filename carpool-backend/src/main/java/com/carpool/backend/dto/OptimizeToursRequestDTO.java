@@ -0,0 +1,52 @@
+package com.carpool.backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+// optimizeTours request body, limited to the fields we send; components serialize in declaration order
+public record OptimizeToursRequestDTO(Model model, String searchMode) {
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record Model(List<Vehicle> vehicles,
+                        List<Shipment> shipments,
+                        List<Objective> objectives,
+                        String globalStartTime,
+                        String globalEndTime) {
+    }
+
+    public record Vehicle(String name,
+                          String label,
+                          LatLng startLocation,
+                          LatLng endLocation,
+                          LoadLimits loadLimits) {
+    }
+
+    public record LoadLimits(LoadLimit seats) {
+    }
+
+    // int64 in the API, hence a string
+    public record LoadLimit(String maxLoad) {
+    }
+
+    public record Shipment(String name,
+                           LoadDemands loadDemands,
+                           List<VisitRequest> pickups,
+                           List<VisitRequest> deliveries) {
+    }
+
+    public record LoadDemands(Load seats) {
+    }
+
+    public record Load(String amount) {
+    }
+
+    public record VisitRequest(LatLng arrivalLocation, String label) {
+    }
+
+    public record LatLng(double latitude, double longitude) {
+    }
+
+    public record Objective(String type) {
+    }
+}
@@ -10,6 +10,9 @@ public class RoutePlanDTO {
     public List<TimelineEntryDTO> timeline;
     public Map<String, Object> metrics;
 
+    public RoutePlanDTO() {
+    }
+
     public RoutePlanDTO(String driverId,
                         LatLngDTO driverHome,
                         LatLngDTO eventLocation,
@@ -9,6 +9,9 @@ public class TimelineEntryDTO {
     public String visitLabel;
     public LatLngDTO location;
 
+    public TimelineEntryDTO() {
+    }
+
     public TimelineEntryDTO(int sequence, String time, String type,
                             String studentId, String shipmentLabel, String visitLabel, LatLngDTO location) {
         this.sequence = sequence;
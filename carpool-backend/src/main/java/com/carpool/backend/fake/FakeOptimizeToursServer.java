@@ -0,0 +1,379 @@
+package com.carpool.backend.fake;
+
+import com.carpool.backend.solver.GeoDistance;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for the Route Optimization {@code :optimizeTours} endpoint, for load tests and profiling without Google.
+ * It accepts the body {@code buildOptimizeBody} sends and answers with routes shaped like the real response
+ * ({@code routes[].visits/transitions/metrics}, {@code skippedShipments}): shipments go to the vehicle whose last stop
+ * is nearest and that still has a seat, farthest from the destination first, and times assume a constant speed on
+ * straight-line distance times a road factor. Each request can be delayed by a configurable latency distribution and
+ * fail with a 500 or a 429 {@code RESOURCE_EXHAUSTED} at configurable rates.
+ * <p>
+ * Runs on the JDK's built-in HTTP server, so it can be embedded in tests and benchmarks as well as in the application
+ * (profile {@code fake-optimize-tours}).
+ */
+public class FakeOptimizeToursServer {
+
+    private static final Logger log = LoggerFactory.getLogger(FakeOptimizeToursServer.class);
+    private static final String CONTEXT = "/v1/projects/";
+    private static final String METHOD_SUFFIX = ":optimizeTours";
+
+    public enum LatencyDistribution {
+        FIXED, UNIFORM, EXPONENTIAL, LOG_NORMAL
+    }
+
+    public static class Options {
+        /** 0 picks a free port. */
+        public int port = 0;
+        public int threads = 8;
+        public LatencyDistribution latencyDistribution = LatencyDistribution.FIXED;
+        /** The delay for FIXED, the midpoint for UNIFORM, the mean for EXPONENTIAL and the median for LOG_NORMAL. */
+        public long latencyMs = 0;
+        /** Half-width in ms for UNIFORM; sigma of the underlying normal for LOG_NORMAL; unused otherwise. */
+        public double latencySpread = 0;
+        /** Share of requests answered with 500 INTERNAL. */
+        public double errorRate = 0;
+        /** Share of requests answered with 429 RESOURCE_EXHAUSTED. */
+        public double quotaExceededRate = 0;
+        public double averageSpeedKmh = 40;
+        public double roadFactor = 1.3;
+        public long seed = 1;
+    }
+
+    private final Options options;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Random random;
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public FakeOptimizeToursServer(Options options) {
+        this.options = options;
+        this.random = new Random(options.seed);
+    }
+
+    public synchronized void start() throws IOException {
+        if (server != null) {
+            return;
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), options.port), 0);
+        executor = Executors.newFixedThreadPool(Math.max(1, options.threads), runnable -> {
+            Thread thread = new Thread(runnable, "fake-optimize-tours");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        // everything else gets a keep-alive 404 like Google's frontends, so warmed-up connections stay usable
+        server.createContext("/", this::handle);
+        server.start();
+        log.info("Fake optimizeTours server listening on {}", baseUrl());
+    }
+
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        executor.shutdownNow();
+        server = null;
+    }
+
+    public synchronized int port() {
+        if (server == null) {
+            throw new IllegalStateException("server is not running");
+        }
+        return server.getAddress().getPort();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + port();
+    }
+
+    /** Requests received so far, including failed ones. */
+    public int requestCount() {
+        return requests.get();
+    }
+
+    /** The 200 response body for {@code requestBody}, without latency or failures; works while stopped. */
+    public String answer(String requestBody) throws IOException {
+        return mapper.writeValueAsString(solve(mapper.readTree(requestBody).path("model")));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if (!path.startsWith(CONTEXT) || !path.endsWith(METHOD_SUFFIX)) {
+                respond(exchange, 404, error(404, "Method not found.", "NOT_FOUND"));
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, error(405, "Only POST is supported.", "METHOD_NOT_ALLOWED"));
+                return;
+            }
+            requests.incrementAndGet();
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            sleep(drawLatencyMs());
+
+            double outcome = nextDouble();
+            if (outcome < options.quotaExceededRate) {
+                respond(exchange, 429, error(429,
+                        "Quota exceeded for quota metric 'Requests' and limit 'Requests per minute'.",
+                        "RESOURCE_EXHAUSTED"));
+                return;
+            }
+            if (outcome < options.quotaExceededRate + options.errorRate) {
+                respond(exchange, 500, error(500, "Internal error encountered.", "INTERNAL"));
+                return;
+            }
+
+            JsonNode model = body.length == 0 ? null : mapper.readTree(body).path("model");
+            if (model == null || !model.path("vehicles").isArray() || !model.path("shipments").isArray()) {
+                respond(exchange, 400, error(400, "model.vehicles and model.shipments are required.",
+                        "INVALID_ARGUMENT"));
+                return;
+            }
+            respond(exchange, 200, solve(model));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Fake optimizeTours request failed", e);
+        }
+    }
+
+    private ObjectNode solve(JsonNode model) {
+        JsonNode vehicles = model.path("vehicles");
+        JsonNode shipments = model.path("shipments");
+        Instant start = model.hasNonNull("globalStartTime")
+                ? Instant.parse(model.path("globalStartTime").asText())
+                : Instant.EPOCH;
+
+        int vehicleCount = vehicles.size();
+        double[] tailLat = new double[vehicleCount];
+        double[] tailLng = new double[vehicleCount];
+        int[] seatsLeft = new int[vehicleCount];
+        List<List<Integer>> stops = new ArrayList<>();
+        for (int v = 0; v < vehicleCount; v++) {
+            JsonNode vehicle = vehicles.get(v);
+            tailLat[v] = vehicle.path("startLocation").path("latitude").asDouble();
+            tailLng[v] = vehicle.path("startLocation").path("longitude").asDouble();
+            seatsLeft[v] = vehicle.path("loadLimits").path("seats").path("maxLoad").asInt(Integer.MAX_VALUE);
+            stops.add(new ArrayList<>());
+        }
+
+        // farthest from the destination first, each to the nearest car tail with a free seat
+        List<Integer> order = new ArrayList<>();
+        for (int s = 0; s < shipments.size(); s++) {
+            order.add(s);
+        }
+        order.sort(Comparator.comparingDouble((Integer s) -> pickupToDeliveryKm(shipments.get(s))).reversed());
+        ArrayNode skipped = mapper.createArrayNode();
+        for (int s : order) {
+            JsonNode pickup = shipments.get(s).path("pickups").path(0).path("arrivalLocation");
+            int demand = shipments.get(s).path("loadDemands").path("seats").path("amount").asInt(1);
+            int best = -1;
+            double bestKm = Double.MAX_VALUE;
+            for (int v = 0; v < vehicleCount; v++) {
+                if (seatsLeft[v] < demand) {
+                    continue;
+                }
+                double km = GeoDistance.haversineKm(tailLat[v], tailLng[v],
+                        pickup.path("latitude").asDouble(), pickup.path("longitude").asDouble());
+                if (km < bestKm) {
+                    bestKm = km;
+                    best = v;
+                }
+            }
+            if (best < 0) {
+                ObjectNode skip = skipped.addObject();
+                skip.put("index", s);
+                copyText(shipments.get(s), "label", skip, "label");
+                continue;
+            }
+            stops.get(best).add(s);
+            seatsLeft[best] -= demand;
+            tailLat[best] = pickup.path("latitude").asDouble();
+            tailLng[best] = pickup.path("longitude").asDouble();
+        }
+
+        ObjectNode response = mapper.createObjectNode();
+        ArrayNode routes = response.putArray("routes");
+        int usedVehicles = 0;
+        for (int v = 0; v < vehicleCount; v++) {
+            routes.add(route(v, vehicles.get(v), shipments, stops.get(v), start));
+            if (!stops.get(v).isEmpty()) {
+                usedVehicles++;
+            }
+        }
+        if (!skipped.isEmpty()) {
+            response.set("skippedShipments", skipped);
+        }
+        response.putObject("metrics").put("usedVehicleCount", usedVehicles);
+        return response;
+    }
+
+    private ObjectNode route(int vehicleIndex, JsonNode vehicle, JsonNode shipments, List<Integer> stops, Instant start) {
+        ObjectNode route = mapper.createObjectNode();
+        route.put("vehicleIndex", vehicleIndex);
+        copyText(vehicle, "label", route, "vehicleLabel");
+        if (stops.isEmpty()) {
+            return route;
+        }
+
+        ArrayNode visits = route.putArray("visits");
+        ArrayNode transitions = route.putArray("transitions");
+        double lat = vehicle.path("startLocation").path("latitude").asDouble();
+        double lng = vehicle.path("startLocation").path("longitude").asDouble();
+        long elapsed = 0;
+        double meters = 0;
+        for (int s : stops) {
+            JsonNode pickup = shipments.get(s).path("pickups").path(0);
+            double nextLat = pickup.path("arrivalLocation").path("latitude").asDouble();
+            double nextLng = pickup.path("arrivalLocation").path("longitude").asDouble();
+            long leg = legSeconds(lat, lng, nextLat, nextLng);
+            meters += legMeters(lat, lng, nextLat, nextLng);
+            elapsed += leg;
+            transition(transitions, leg);
+            visit(visits, s, true, start.plusSeconds(elapsed), pickup, shipments.get(s));
+            lat = nextLat;
+            lng = nextLng;
+        }
+        boolean first = true;
+        for (int s : stops) {
+            JsonNode delivery = shipments.get(s).path("deliveries").path(0);
+            double nextLat = delivery.path("arrivalLocation").path("latitude").asDouble(lat);
+            double nextLng = delivery.path("arrivalLocation").path("longitude").asDouble(lng);
+            long leg = first ? legSeconds(lat, lng, nextLat, nextLng) : 0;
+            meters += first ? legMeters(lat, lng, nextLat, nextLng) : 0;
+            elapsed += leg;
+            transition(transitions, leg);
+            visit(visits, s, false, start.plusSeconds(elapsed), delivery, shipments.get(s));
+            lat = nextLat;
+            lng = nextLng;
+            first = false;
+        }
+        transition(transitions, 0);
+
+        route.put("vehicleStartTime", start.toString());
+        route.put("vehicleEndTime", start.plusSeconds(elapsed).toString());
+        ObjectNode metrics = route.putObject("metrics");
+        metrics.put("performedShipmentCount", stops.size());
+        metrics.put("travelDuration", elapsed + "s");
+        metrics.put("visitDuration", "0s");
+        metrics.put("totalDuration", elapsed + "s");
+        metrics.put("travelDistanceMeters", Math.round(meters));
+        return route;
+    }
+
+    private void visit(ArrayNode visits, int shipmentIndex, boolean isPickup, Instant time,
+                       JsonNode request, JsonNode shipment) {
+        ObjectNode visit = visits.addObject();
+        visit.put("shipmentIndex", shipmentIndex);
+        visit.put("isPickup", isPickup);
+        visit.put("startTime", time.toString());
+        visit.put("detour", "0s");
+        copyText(request, "label", visit, "label");
+        copyText(shipment, "label", visit, "shipmentLabel");
+    }
+
+    private static void transition(ArrayNode transitions, long seconds) {
+        ObjectNode transition = transitions.addObject();
+        transition.put("travelDuration", seconds + "s");
+        transition.put("waitDuration", "0s");
+        transition.put("totalDuration", seconds + "s");
+    }
+
+    private long legSeconds(double fromLat, double fromLng, double toLat, double toLng) {
+        return Math.round(legMeters(fromLat, fromLng, toLat, toLng) / 1000 / options.averageSpeedKmh * 3600);
+    }
+
+    private double legMeters(double fromLat, double fromLng, double toLat, double toLng) {
+        return GeoDistance.haversineKm(fromLat, fromLng, toLat, toLng) * options.roadFactor * 1000;
+    }
+
+    private static double pickupToDeliveryKm(JsonNode shipment) {
+        JsonNode from = shipment.path("pickups").path(0).path("arrivalLocation");
+        JsonNode to = shipment.path("deliveries").path(0).path("arrivalLocation");
+        return GeoDistance.haversineKm(from.path("latitude").asDouble(), from.path("longitude").asDouble(),
+                to.path("latitude").asDouble(), to.path("longitude").asDouble());
+    }
+
+    private static void copyText(JsonNode source, String field, ObjectNode target, String targetField) {
+        if (source.hasNonNull(field)) {
+            target.put(targetField, source.path(field).asText());
+        }
+    }
+
+    private long drawLatencyMs() {
+        double mean = options.latencyMs;
+        double spread = options.latencySpread;
+        double latency = switch (options.latencyDistribution) {
+            case FIXED -> mean;
+            case UNIFORM -> mean + (nextDouble() * 2 - 1) * spread;
+            case EXPONENTIAL -> -mean * Math.log(1 - nextDouble());
+            case LOG_NORMAL -> mean * Math.exp(spread * nextGaussian());
+        };
+        return Math.max(0, Math.round(latency));
+    }
+
+    private double nextDouble() {
+        synchronized (random) {
+            return random.nextDouble();
+        }
+    }
+
+    private double nextGaussian() {
+        synchronized (random) {
+            return random.nextGaussian();
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ObjectNode error(int code, String message, String status) {
+        ObjectNode body = mapper.createObjectNode();
+        ObjectNode error = body.putObject("error");
+        error.put("code", code);
+        error.put("message", message);
+        error.put("status", status);
+        return body;
+    }
+
+    private void respond(HttpExchange exchange, int status, ObjectNode body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.carpool.backend.service;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OAuth access token for the Route Optimization API. Application Default Credentials are loaded once, and the token
+ * is refreshed on a background thread {@code google.auth.refresh-margin-ms} before it expires, so request threads
+ * only wait when there is no usable token at all (the first call, or after refreshes kept failing past expiry).
+ * Refreshes are single-flight: concurrent callers share the one in progress. A failed background refresh is retried
+ * with jittered exponential backoff while the current token is still good; at most one background refresh is pending
+ * at a time. A non-blank {@code google.route-optimization.static-token} is returned as-is and no credentials are
+ * loaded. Providers built outside Spring share one refresh thread, which exits when no refresh is pending.
+ */
+@Service
+public class GoogleAccessTokenProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(GoogleAccessTokenProvider.class);
+    private static final List<String> SCOPES = List.of("https://www.googleapis.com/auth/cloud-platform");
+    /** A token closer than this to expiry is not handed out. */
+    private static final Duration MIN_VALIDITY = Duration.ofSeconds(60);
+    private static final ScheduledThreadPoolExecutor SHARED_SCHEDULER = newScheduler("google-token-refresh-shared");
+
+    @FunctionalInterface
+    public interface CredentialsLoader {
+        GoogleCredentials load() throws IOException;
+    }
+
+    private final CredentialsLoader credentialsLoader;
+    private final String staticToken;
+    private final Duration refreshMargin;
+    private final long retryMinMs;
+    private final long retryMaxMs;
+    private final ScheduledExecutorService scheduler;
+    private final boolean ownsScheduler;
+    private final Timer refreshSuccess;
+    private final Timer refreshFailure;
+    private final Counter blockedCalls;
+
+    private volatile GoogleCredentials credentials;
+    private volatile AccessToken token;
+    private volatile Instant tokenFetchedAt;
+    // guarded by this
+    private CompletableFuture<AccessToken> inFlight;
+    private int failedAttempts;
+    private ScheduledFuture<?> scheduledRefresh;
+    private boolean shutDown;
+
+    @Autowired
+    public GoogleAccessTokenProvider(@Value("${google.route-optimization.static-token:}") String staticToken,
+                                     @Value("${google.auth.refresh-margin-ms:300000}") long refreshMarginMs,
+                                     @Value("${google.auth.retry-min-ms:1000}") long retryMinMs,
+                                     @Value("${google.auth.retry-max-ms:60000}") long retryMaxMs,
+                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        this(() -> GoogleCredentials.getApplicationDefault().createScoped(SCOPES), staticToken, refreshMarginMs,
+                retryMinMs, retryMaxMs, meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    public GoogleAccessTokenProvider(CredentialsLoader credentialsLoader,
+                                     String staticToken,
+                                     long refreshMarginMs,
+                                     long retryMinMs,
+                                     long retryMaxMs,
+                                     MeterRegistry meterRegistry) {
+        this(credentialsLoader, staticToken, refreshMarginMs, retryMinMs, retryMaxMs,
+                newScheduler("google-token-refresh"), true, meterRegistry);
+    }
+
+    /** Refreshes on {@code scheduler}, which the caller owns: {@link #shutdown()} only cancels this provider's work. */
+    public GoogleAccessTokenProvider(CredentialsLoader credentialsLoader,
+                                     String staticToken,
+                                     long refreshMarginMs,
+                                     long retryMinMs,
+                                     long retryMaxMs,
+                                     ScheduledExecutorService scheduler,
+                                     MeterRegistry meterRegistry) {
+        this(credentialsLoader, staticToken, refreshMarginMs, retryMinMs, retryMaxMs, scheduler, false, meterRegistry);
+    }
+
+    private GoogleAccessTokenProvider(CredentialsLoader credentialsLoader,
+                                      String staticToken,
+                                      long refreshMarginMs,
+                                      long retryMinMs,
+                                      long retryMaxMs,
+                                      ScheduledExecutorService scheduler,
+                                      boolean ownsScheduler,
+                                      MeterRegistry meterRegistry) {
+        this.credentialsLoader = credentialsLoader;
+        this.staticToken = staticToken;
+        this.refreshMargin = Duration.ofMillis(Math.max(0, refreshMarginMs));
+        this.retryMinMs = Math.max(1, retryMinMs);
+        this.retryMaxMs = Math.max(this.retryMinMs, retryMaxMs);
+        this.scheduler = scheduler;
+        this.ownsScheduler = ownsScheduler;
+        this.refreshSuccess = Timer.builder("google.auth.token.refresh").tag("result", "success")
+                .description("Access token refreshes").register(meterRegistry);
+        this.refreshFailure = Timer.builder("google.auth.token.refresh").tag("result", "failure")
+                .description("Access token refreshes").register(meterRegistry);
+        this.blockedCalls = Counter.builder("google.auth.token.blocked")
+                .description("Token requests that had to wait for a refresh").register(meterRegistry);
+        Gauge.builder("google.auth.token.age", this, GoogleAccessTokenProvider::tokenAgeSeconds)
+                .description("Seconds since the current access token was fetched").baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Application Default Credentials with the default timings; for code paths built outside Spring. Refreshes run on
+     * the shared refresh thread, so providers that are never shut down do not each hold a thread.
+     */
+    public static GoogleAccessTokenProvider applicationDefault() {
+        return new GoogleAccessTokenProvider(() -> GoogleCredentials.getApplicationDefault().createScoped(SCOPES),
+                null, 300_000, 1_000, 60_000, SHARED_SCHEDULER, new SimpleMeterRegistry());
+    }
+
+    /** Always answers {@code token}; never loads credentials. */
+    public static GoogleAccessTokenProvider staticToken(String token) {
+        return new GoogleAccessTokenProvider(() -> {
+            throw new IOException("static token provider has no credentials");
+        }, token, 0, 1, 1, SHARED_SCHEDULER, new SimpleMeterRegistry());
+    }
+
+    public String getAccessToken() throws IOException {
+        if (staticToken != null && !staticToken.isBlank()) {
+            return staticToken;
+        }
+        AccessToken current = token;
+        if (isUsable(current)) {
+            return current.getTokenValue();
+        }
+        blockedCalls.increment();
+        return await(refresh()).getTokenValue();
+    }
+
+    /** Cancels the pending background refresh; also stops the refresh thread when this provider created it. */
+    @PreDestroy
+    public void shutdown() {
+        synchronized (this) {
+            shutDown = true;
+            if (scheduledRefresh != null) {
+                scheduledRefresh.cancel(false);
+                scheduledRefresh = null;
+            }
+        }
+        if (ownsScheduler) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private synchronized CompletableFuture<AccessToken> refresh() {
+        if (inFlight == null) {
+            CompletableFuture<AccessToken> refresh = new CompletableFuture<>();
+            inFlight = refresh;
+            scheduler.execute(() -> fetch(refresh));
+        }
+        return inFlight;
+    }
+
+    private void fetch(CompletableFuture<AccessToken> refresh) {
+        long startedAt = System.nanoTime();
+        try {
+            if (credentials == null) {
+                credentials = credentialsLoader.load();
+            }
+            AccessToken fresh = credentials.refreshAccessToken();
+            refreshSuccess.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            token = fresh;
+            tokenFetchedAt = Instant.now();
+            synchronized (this) {
+                failedAttempts = 0;
+                inFlight = null;
+            }
+            scheduleRefresh(refreshDelayMillis(fresh));
+            refresh.complete(fresh);
+        } catch (Throwable e) {
+            refreshFailure.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            int attempts;
+            synchronized (this) {
+                attempts = ++failedAttempts;
+                inFlight = null;
+            }
+            // keep retrying in the background only while there is a token worth keeping fresh
+            if (token != null) {
+                long delay = retryDelayMillis(attempts);
+                log.warn("Access token refresh failed (attempt {}); retrying in {} ms", attempts, delay, e);
+                scheduleRefresh(delay);
+            }
+            refresh.completeExceptionally(e);
+        }
+    }
+
+    /** Replaces the pending background refresh, so foreground refreshes never start a second refresh chain. */
+    private synchronized void scheduleRefresh(long delayMillis) {
+        if (shutDown) {
+            return;
+        }
+        if (scheduledRefresh != null) {
+            scheduledRefresh.cancel(false);
+        }
+        try {
+            scheduledRefresh = scheduler.schedule(this::refresh, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            scheduledRefresh = null;
+            log.debug("Token refresh not scheduled; provider is shut down");
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor newScheduler(String threadName) {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setKeepAliveTime(60, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private long refreshDelayMillis(AccessToken fresh) {
+        if (fresh.getExpirationTime() == null) {
+            return retryMaxMs;
+        }
+        long remaining = Duration.between(Instant.now(), fresh.getExpirationTime().toInstant()).toMillis();
+        // a token that lives shorter than the margin is refreshed halfway instead of immediately
+        long delay = remaining > refreshMargin.toMillis() ? remaining - refreshMargin.toMillis() : remaining / 2;
+        return Math.max(retryMinMs, delay);
+    }
+
+    /** Exponential from {@code retryMinMs}, capped at {@code retryMaxMs}, scaled by a random 50-100%. */
+    private long retryDelayMillis(int attempts) {
+        long base = retryMinMs << Math.min(attempts - 1, 20);
+        long capped = Math.min(retryMaxMs, base);
+        return Math.max(1, (long) (capped * (0.5 + ThreadLocalRandom.current().nextDouble() * 0.5)));
+    }
+
+    private static boolean isUsable(AccessToken candidate) {
+        if (candidate == null) {
+            return false;
+        }
+        // tokens without an expiry are treated as non-expiring, like the auth library does
+        return candidate.getExpirationTime() == null
+                || candidate.getExpirationTime().toInstant().isAfter(Instant.now().plus(MIN_VALIDITY));
+    }
+
+    private double tokenAgeSeconds() {
+        Instant fetchedAt = tokenFetchedAt;
+        return fetchedAt == null ? Double.NaN : Duration.between(fetchedAt, Instant.now()).toMillis() / 1000.0;
+    }
+
+    private static AccessToken await(CompletableFuture<AccessToken> refresh) throws IOException {
+        try {
+            return refresh.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an access token");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
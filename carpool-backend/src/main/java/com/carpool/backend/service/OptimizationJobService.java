@@ -0,0 +1,182 @@
+package com.carpool.backend.service;
+
+import com.carpool.backend.dto.OptimizeJobDTO;
+import com.carpool.backend.dto.RoutePlanDTO;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Background optimization jobs: a request is queued on a small dedicated worker pool and polled by id, so the HTTP
+ * thread and client connection are released as soon as the job is accepted. At most
+ * {@code optimize.jobs.queue-capacity} jobs wait behind {@code optimize.jobs.workers} running ones; beyond that
+ * submissions are refused with 503. Finished jobs keep their result for {@code optimize.jobs.result-ttl-ms} and are
+ * evicted lazily on the next submit or lookup.
+ */
+@Service
+public class OptimizationJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(OptimizationJobService.class);
+
+    private final ThreadPoolExecutor workers;
+    private final Duration resultTtl;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public OptimizationJobService(@Value("${optimize.jobs.workers:2}") int workers,
+                                  @Value("${optimize.jobs.queue-capacity:50}") int queueCapacity,
+                                  @Value("${optimize.jobs.result-ttl-ms:600000}") long resultTtlMs) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(
+                workers, workers, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "optimize-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.workers.allowCoreThreadTimeOut(true);
+        this.resultTtl = Duration.ofMillis(resultTtlMs);
+    }
+
+    public OptimizeJobDTO submit(Callable<List<RoutePlanDTO>> optimization) {
+        evictExpired();
+        Job job = new Job(UUID.randomUUID().toString());
+        job.task = new FutureTask<>(() -> job.run(optimization), null);
+        jobs.put(job.id, job);
+        try {
+            workers.execute(job.task);
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Optimization job queue is full");
+        }
+        return job.snapshot();
+    }
+
+    public Optional<OptimizeJobDTO> find(String id) {
+        evictExpired();
+        return Optional.ofNullable(jobs.get(id)).map(Job::snapshot);
+    }
+
+    /** Cancels a queued or running job; finished jobs are returned unchanged. */
+    public Optional<OptimizeJobDTO> cancel(String id) {
+        evictExpired();
+        Job job = jobs.get(id);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (job.cancel()) {
+            job.task.cancel(true);
+            workers.remove(job.task);
+        }
+        return Optional.of(job.snapshot());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void evictExpired() {
+        Instant cutoff = Instant.now().minus(resultTtl);
+        jobs.values().removeIf(job -> job.finishedBefore(cutoff));
+    }
+
+    private static final class Job {
+        final String id;
+        final Instant submittedAt = Instant.now();
+        FutureTask<Void> task;
+        private OptimizeJobDTO.Status status = OptimizeJobDTO.Status.QUEUED;
+        private Instant startedAt;
+        private Instant finishedAt;
+        private List<RoutePlanDTO> result;
+        private String error;
+
+        Job(String id) {
+            this.id = id;
+        }
+
+        void run(Callable<List<RoutePlanDTO>> optimization) {
+            if (!start()) {
+                return;
+            }
+            try {
+                succeed(optimization.call());
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        private synchronized boolean start() {
+            if (status != OptimizeJobDTO.Status.QUEUED) {
+                return false;
+            }
+            status = OptimizeJobDTO.Status.RUNNING;
+            startedAt = Instant.now();
+            return true;
+        }
+
+        private synchronized void succeed(List<RoutePlanDTO> plans) {
+            if (status != OptimizeJobDTO.Status.RUNNING) {
+                return;
+            }
+            status = OptimizeJobDTO.Status.SUCCEEDED;
+            result = plans;
+            finishedAt = Instant.now();
+        }
+
+        private synchronized void fail(Exception e) {
+            if (status != OptimizeJobDTO.Status.RUNNING) {
+                return;
+            }
+            log.warn("Optimization job {} failed", id, e);
+            status = OptimizeJobDTO.Status.FAILED;
+            error = e instanceof ResponseStatusException statusException && statusException.getReason() != null
+                    ? statusException.getReason()
+                    : e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            finishedAt = Instant.now();
+        }
+
+        synchronized boolean cancel() {
+            if (status != OptimizeJobDTO.Status.QUEUED && status != OptimizeJobDTO.Status.RUNNING) {
+                return false;
+            }
+            status = OptimizeJobDTO.Status.CANCELLED;
+            finishedAt = Instant.now();
+            return true;
+        }
+
+        synchronized boolean finishedBefore(Instant cutoff) {
+            return finishedAt != null && finishedAt.isBefore(cutoff);
+        }
+
+        synchronized OptimizeJobDTO snapshot() {
+            OptimizeJobDTO dto = new OptimizeJobDTO();
+            dto.id = id;
+            dto.status = status;
+            dto.submittedAt = submittedAt;
+            dto.startedAt = startedAt;
+            dto.finishedAt = finishedAt;
+            dto.result = result;
+            dto.error = error;
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,370 @@
+package com.carpool.backend.service;
+
+import com.carpool.backend.dto.OptimizeToursRequestDTO;
+import com.carpool.backend.dto.RoutePlanDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Parsed optimizeTours results keyed by a content hash of the request body, so resubmitting the same roster,
+ * destination and time window (or, per vehicle, the same driver with the same students) skips the Google call.
+ * The key is a SHA-256 fed straight from the body's record fields, with {@code vehicles}/{@code shipments} sorted and
+ * coordinates rounded to {@link #COORDINATE_DECIMALS} decimals; no JSON is written or parsed to compute it. Parsed
+ * plans are cached rather than the raw response because the raw response refers to vehicles by position, which the
+ * canonical form deliberately ignores.
+ * Entries expire after {@code optimize.cache.ttl-ms} and the least recently used ones are dropped beyond
+ * {@code optimize.cache.max-entries}. Cached plans are shared between requests and must not be modified.
+ * Identical calls that arrive while one is already in flight wait for it instead of calling Google again, also when
+ * the cache itself is disabled. Loads run on a pool of {@code optimize.cache.load-threads} threads that callers only
+ * wait on, so a caller that is interrupted or times out never cancels a load other callers are waiting for.
+ */
+@Service
+public class OptimizeToursCache {
+
+    /** Six decimals is about 0.1 m, well below geocoding noise. */
+    static final int COORDINATE_DECIMALS = 6;
+
+    private static final double COORDINATE_SCALE = Math.pow(10, COORDINATE_DECIMALS);
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final Counter coalesced;
+    private final Map<String, CompletableFuture<List<RoutePlanDTO>>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService loads;
+
+    @Autowired
+    public OptimizeToursCache(@Value("${optimize.cache.max-entries:500}") int maxEntries,
+                              @Value("${optimize.cache.ttl-ms:900000}") long ttlMs,
+                              @Value("${optimize.cache.load-threads:32}") int loadThreads,
+                              ObjectProvider<MeterRegistry> meterRegistry) {
+        this(maxEntries, ttlMs, loadThreads, meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    public OptimizeToursCache(int maxEntries, long ttlMs, int loadThreads, MeterRegistry meterRegistry) {
+        if (loadThreads <= 0) {
+            throw new IllegalArgumentException("optimize.cache.load-threads must be > 0");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = Duration.ofMillis(ttlMs).toNanos();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                loadThreads, loadThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "optimize-tours-load-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        this.loads = executor;
+        this.hits = Counter.builder("optimize.cache.requests").tag("result", "hit")
+                .description("optimizeTours lookups answered from the cache").register(meterRegistry);
+        this.misses = Counter.builder("optimize.cache.requests").tag("result", "miss")
+                .description("optimizeTours lookups that called Google").register(meterRegistry);
+        this.evictions = Counter.builder("optimize.cache.evictions")
+                .description("Cached optimizeTours results dropped for size or age").register(meterRegistry);
+        this.coalesced = Counter.builder("optimize.cache.coalesced")
+                .description("optimizeTours lookups that waited for an identical call already in flight")
+                .register(meterRegistry);
+        Gauge.builder("optimize.cache.size", this, OptimizeToursCache::size)
+                .description("Cached optimizeTours results").register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+        List<RoutePlanDTO> load() throws IOException;
+    }
+
+    /**
+     * Returns the cached plans for this body, or calls {@code loader} and caches what it returns. Concurrent calls for
+     * the same body share one load: the first caller starts it on the load pool and every caller, the first one
+     * included, waits for its result. A caller that is interrupted just stops waiting; the load runs on and is cached.
+     */
+    public List<RoutePlanDTO> get(OptimizeToursRequestDTO body, Loader loader) throws IOException {
+        String key = key(body);
+        List<RoutePlanDTO> cached = lookup(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        CompletableFuture<List<RoutePlanDTO>> load = new CompletableFuture<>();
+        while (true) {
+            CompletableFuture<List<RoutePlanDTO>> inFlightLoad = inFlight.putIfAbsent(key, load);
+            if (inFlightLoad != null && !inFlightLoad.isDone()) {
+                coalesced.increment();
+                return await(inFlightLoad);
+            }
+            // a finished load is never joined: its outcome (often a failure) belongs to the callers that waited for it
+            if (inFlightLoad == null || inFlight.replace(key, inFlightLoad, load)) {
+                break;
+            }
+        }
+        try {
+            loads.execute(() -> runLoad(key, load, loader));
+        } catch (RuntimeException e) {
+            inFlight.remove(key, load);
+            load.completeExceptionally(e);
+        }
+        return await(load);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loads.shutdownNow();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /** Hex SHA-256 of the canonical form of an optimizeTours body. */
+    public String key(OptimizeToursRequestDTO body) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        OptimizeToursRequestDTO.Model model = body.model();
+        CanonicalWriter header = new CanonicalWriter();
+        header.string(body.searchMode());
+        if (header.present(model)) {
+            header.string(model.globalStartTime());
+            header.string(model.globalEndTime());
+            header.list(model.objectives(), (out, objective) -> {
+                if (out.present(objective)) {
+                    out.string(objective.type());
+                }
+            });
+        }
+        digest.update(header.toByteArray());
+        if (model != null) {
+            updateSorted(digest, model.vehicles(), OptimizeToursCache::writeVehicle);
+            updateSorted(digest, model.shipments(), OptimizeToursCache::writeShipment);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /** Runs the load and leaves {@link #inFlight} before completing it, so no later caller joins a finished load. */
+    private void runLoad(String key, CompletableFuture<List<RoutePlanDTO>> load, Loader loader) {
+        List<RoutePlanDTO> plans;
+        try {
+            // a load that finished between our lookup and registering this one
+            plans = lookup(key);
+            if (plans != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+                plans = List.copyOf(loader.load());
+                store(key, plans);
+            }
+        } catch (Throwable e) {
+            inFlight.remove(key, load);
+            load.completeExceptionally(e);
+            return;
+        }
+        inFlight.remove(key, load);
+        load.complete(plans);
+    }
+
+    private static List<RoutePlanDTO> await(CompletableFuture<List<RoutePlanDTO>> load) throws IOException {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for optimizeTours");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private synchronized List<RoutePlanDTO> lookup(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.storedAt >= ttlNanos) {
+            entries.remove(key);
+            evictions.increment();
+            return null;
+        }
+        return entry.plans;
+    }
+
+    private synchronized void store(String key, List<RoutePlanDTO> plans) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        entries.put(key, new Entry(plans, System.nanoTime()));
+        Iterator<String> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    /** Encodes each element on its own and feeds them to the digest in byte order, so list order does not count. */
+    private static <T> void updateSorted(MessageDigest digest,
+                                         List<T> elements,
+                                         BiConsumer<CanonicalWriter, T> writer) {
+        CanonicalWriter count = new CanonicalWriter();
+        count.integer(elements == null ? -1 : elements.size());
+        digest.update(count.toByteArray());
+        if (elements == null) {
+            return;
+        }
+        List<byte[]> encoded = new ArrayList<>(elements.size());
+        for (T element : elements) {
+            CanonicalWriter out = new CanonicalWriter();
+            writer.accept(out, element);
+            encoded.add(out.toByteArray());
+        }
+        encoded.sort(Arrays::compare);
+        for (byte[] element : encoded) {
+            CanonicalWriter length = new CanonicalWriter();
+            length.integer(element.length);
+            digest.update(length.toByteArray());
+            digest.update(element);
+        }
+    }
+
+    private static void writeVehicle(CanonicalWriter out, OptimizeToursRequestDTO.Vehicle vehicle) {
+        if (!out.present(vehicle)) {
+            return;
+        }
+        out.string(vehicle.name());
+        out.string(vehicle.label());
+        out.latLng(vehicle.startLocation());
+        out.latLng(vehicle.endLocation());
+        OptimizeToursRequestDTO.LoadLimits limits = vehicle.loadLimits();
+        if (out.present(limits) && out.present(limits.seats())) {
+            out.string(limits.seats().maxLoad());
+        }
+    }
+
+    private static void writeShipment(CanonicalWriter out, OptimizeToursRequestDTO.Shipment shipment) {
+        if (!out.present(shipment)) {
+            return;
+        }
+        out.string(shipment.name());
+        OptimizeToursRequestDTO.LoadDemands demands = shipment.loadDemands();
+        if (out.present(demands) && out.present(demands.seats())) {
+            out.string(demands.seats().amount());
+        }
+        out.list(shipment.pickups(), OptimizeToursCache::writeVisit);
+        out.list(shipment.deliveries(), OptimizeToursCache::writeVisit);
+    }
+
+    private static void writeVisit(CanonicalWriter out, OptimizeToursRequestDTO.VisitRequest visit) {
+        if (out.present(visit)) {
+            out.latLng(visit.arrivalLocation());
+            out.string(visit.label());
+        }
+    }
+
+    /** Length-prefixed binary encoding of record fields; {@code null} is told apart from every value. */
+    private static final class CanonicalWriter {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+
+        void integer(int value) {
+            out.write(value >>> 24);
+            out.write(value >>> 16);
+            out.write(value >>> 8);
+            out.write(value);
+        }
+
+        boolean present(Object value) {
+            out.write(value == null ? 0 : 1);
+            return value != null;
+        }
+
+        void string(String value) {
+            if (value == null) {
+                integer(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            integer(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        void latLng(OptimizeToursRequestDTO.LatLng location) {
+            if (present(location)) {
+                coordinate(location.latitude());
+                coordinate(location.longitude());
+            }
+        }
+
+        <T> void list(List<T> values, BiConsumer<CanonicalWriter, T> writer) {
+            integer(values == null ? -1 : values.size());
+            if (values != null) {
+                for (T value : values) {
+                    writer.accept(this, value);
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+
+        private void coordinate(double value) {
+            long rounded = Math.round(value * COORDINATE_SCALE);
+            integer((int) (rounded >>> 32));
+            integer((int) rounded);
+        }
+    }
+
+    private record Entry(List<RoutePlanDTO> plans, long storedAt) {
+    }
+}
@@ -0,0 +1,435 @@
+package com.carpool.backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Guards the optimizeTours dependency so that a slow or failing Google stops tying up request threads.
+ * <ul>
+ *   <li>Each attempt runs on a pool thread and the caller gives up after {@code optimize.google.call-deadline-ms}
+ *   (504). At most {@code optimize.google.max-in-flight} attempts run at once, counting abandoned ones until their
+ *   thread returns; a call that finds them all taken fails at once with 503 and a hedge is simply not sent.</li>
+ *   <li>The outcomes of the last {@code optimize.breaker.window-size} calls are kept. Once at least
+ *   {@code optimize.breaker.minimum-calls} are known and the share of failures (I/O errors, timeouts, 429 and 5xx)
+ *   reaches {@code optimize.breaker.failure-rate-threshold}, the circuit opens and calls are rejected with
+ *   {@link CircuitOpenException} for {@code optimize.breaker.open-ms}.</li>
+ *   <li>After that, {@code optimize.breaker.half-open-probes} calls are let through. The circuit closes if they all
+ *   succeed and opens again on the first failure.</li>
+ *   <li>With {@code optimize.hedging.enabled}, a call still unanswered after the p95 of recent successful calls (at
+ *   least {@code optimize.hedging.min-delay-ms}) is sent a second time and the first success wins. Only calls that are
+ *   safe to repeat may be passed in.</li>
+ * </ul>
+ * The state is reported as the {@code optimizeToursCircuitBreaker} health component.
+ */
+@Service
+public class OptimizeToursCircuitBreaker implements HealthIndicator {
+
+    private static final Logger log = LoggerFactory.getLogger(OptimizeToursCircuitBreaker.class);
+    private static final Status CIRCUIT_OPEN = new Status("CIRCUIT_OPEN", "optimizeTours calls are being rejected");
+    private static final Status CIRCUIT_HALF_OPEN = new Status("CIRCUIT_HALF_OPEN", "optimizeTours is being probed");
+    /** Successful call latencies kept for the hedging delay. */
+    private static final int LATENCY_SAMPLES = 100;
+    /** No hedging before this many latencies are known. */
+    private static final int MIN_LATENCY_SAMPLES = 20;
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** The circuit is open; optimizeTours was not called. */
+    public static class CircuitOpenException extends ResponseStatusException {
+        public CircuitOpenException() {
+            super(HttpStatus.SERVICE_UNAVAILABLE, "optimizeTours is unavailable (circuit open)");
+        }
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int halfOpenProbes;
+    private final long deadlineNanos;
+    private final boolean hedgingEnabled;
+    private final long hedgeMinDelayNanos;
+    private final int maxInFlight;
+    private final Semaphore attemptSlots;
+    private final ExecutorService pool;
+    private final Counter successes;
+    private final Counter failures;
+    private final Counter rejections;
+    private final Counter saturated;
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+
+    // guarded by this
+    private State state = State.CLOSED;
+    private int generation;
+    private final boolean[] window;
+    private int windowNext;
+    private int windowCount;
+    private int windowFailures;
+    private long openedAt;
+    private int probesStarted;
+    private int probesSucceeded;
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latencyNext;
+    private int latencyCount;
+
+    @Autowired
+    public OptimizeToursCircuitBreaker(@Value("${optimize.breaker.window-size:20}") int windowSize,
+                                       @Value("${optimize.breaker.minimum-calls:10}") int minimumCalls,
+                                       @Value("${optimize.breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                       @Value("${optimize.breaker.open-ms:30000}") long openMs,
+                                       @Value("${optimize.breaker.half-open-probes:2}") int halfOpenProbes,
+                                       @Value("${optimize.google.call-deadline-ms:30000}") long deadlineMs,
+                                       @Value("${optimize.google.max-in-flight:32}") int maxInFlight,
+                                       @Value("${optimize.hedging.enabled:false}") boolean hedgingEnabled,
+                                       @Value("${optimize.hedging.min-delay-ms:1000}") long hedgeMinDelayMs,
+                                       ObjectProvider<MeterRegistry> meterRegistry) {
+        this(windowSize, minimumCalls, failureRateThreshold, openMs, halfOpenProbes, deadlineMs, maxInFlight,
+                hedgingEnabled, hedgeMinDelayMs, meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    public OptimizeToursCircuitBreaker(int windowSize,
+                                       int minimumCalls,
+                                       double failureRateThreshold,
+                                       long openMs,
+                                       int halfOpenProbes,
+                                       long deadlineMs,
+                                       int maxInFlight,
+                                       boolean hedgingEnabled,
+                                       long hedgeMinDelayMs,
+                                       MeterRegistry meterRegistry) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("optimize.google.max-in-flight must be > 0");
+        }
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.min(this.windowSize, Math.max(1, minimumCalls));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, openMs));
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+        this.deadlineNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, deadlineMs));
+        this.hedgingEnabled = hedgingEnabled;
+        this.hedgeMinDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, hedgeMinDelayMs));
+        this.window = new boolean[this.windowSize];
+        this.maxInFlight = maxInFlight;
+        this.attemptSlots = new Semaphore(maxInFlight);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                maxInFlight, maxInFlight, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "optimize-tours-call-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        this.pool = executor;
+        this.successes = Counter.builder("optimize.breaker.calls").tag("result", "success")
+                .description("optimizeTours calls through the circuit breaker").register(meterRegistry);
+        this.failures = Counter.builder("optimize.breaker.calls").tag("result", "failure")
+                .description("optimizeTours calls through the circuit breaker").register(meterRegistry);
+        this.rejections = Counter.builder("optimize.breaker.calls").tag("result", "rejected")
+                .description("optimizeTours calls through the circuit breaker").register(meterRegistry);
+        this.saturated = Counter.builder("optimize.breaker.calls").tag("result", "saturated")
+                .description("optimizeTours calls through the circuit breaker").register(meterRegistry);
+        this.hedgesSent = Counter.builder("optimize.hedging.requests").tag("result", "sent")
+                .description("Second optimizeTours requests sent for slow calls").register(meterRegistry);
+        this.hedgesWon = Counter.builder("optimize.hedging.requests").tag("result", "won")
+                .description("Second optimizeTours requests sent for slow calls").register(meterRegistry);
+        Gauge.builder("optimize.breaker.state", this, breaker -> breaker.state().ordinal())
+                .description("Circuit state: 0 closed, 1 open, 2 half-open").register(meterRegistry);
+    }
+
+    /** Default settings, hedging off; for code paths built outside Spring. */
+    public static OptimizeToursCircuitBreaker defaults() {
+        return new OptimizeToursCircuitBreaker(20, 10, 0.5, 30_000, 2, 30_000, 32, false, 1_000,
+                new SimpleMeterRegistry());
+    }
+
+    /**
+     * Runs {@code call} under the breaker, the deadline and (if enabled) hedging, and returns its result or rethrows
+     * its failure.
+     */
+    public <T> T call(Callable<T> call) throws IOException {
+        int permit = acquire();
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + deadlineNanos;
+        long hedgeDelay = hedgeDelayNanos(permit);
+        boolean hedge = hedgeDelay >= 0 && hedgeDelay < deadlineNanos;
+        long hedgeAt = startedAt + hedgeDelay;
+        BlockingQueue<Future<T>> completed = new LinkedBlockingQueue<>();
+        List<Future<T>> attempts = new ArrayList<>(2);
+        Future<T> first = start(call, completed);
+        if (first == null) {
+            release(permit);
+            saturated.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "optimizeTours is saturated (" + maxInFlight + " calls in flight)");
+        }
+        attempts.add(first);
+        int running = 1;
+        Throwable failure = null;
+        try {
+            while (true) {
+                long waitUntil = hedge ? hedgeAt : deadline;
+                Future<T> done = completed.poll(waitUntil - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (done == null) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        record(permit, false, 0);
+                        throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "optimizeTours call exceeded its "
+                                + TimeUnit.NANOSECONDS.toMillis(deadlineNanos) + " ms deadline");
+                    }
+                    if (hedge) {
+                        hedge = false;
+                        Future<T> second = start(call, completed);
+                        if (second != null) {
+                            hedgesSent.increment();
+                            attempts.add(second);
+                            running++;
+                        }
+                    }
+                    continue;
+                }
+                running--;
+                try {
+                    T result = done.get();
+                    if (done != attempts.get(0)) {
+                        hedgesWon.increment();
+                    }
+                    record(permit, true, System.nanoTime() - startedAt);
+                    return result;
+                } catch (ExecutionException e) {
+                    failure = e.getCause();
+                }
+                // the other attempt may still answer; a failure before the hedge went out is final
+                if (running == 0) {
+                    record(permit, !isDependencyFailure(failure), 0);
+                    throw rethrow(failure);
+                }
+            }
+        } catch (InterruptedException e) {
+            release(permit);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for optimizeTours");
+        } finally {
+            for (Future<T> attempt : attempts) {
+                attempt.cancel(true);
+            }
+        }
+    }
+
+    public synchronized State state() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    @Override
+    public Health health() {
+        State current;
+        int calls;
+        int failed;
+        synchronized (this) {
+            current = state();
+            calls = windowCount;
+            failed = windowFailures;
+        }
+        Health.Builder health = switch (current) {
+            case CLOSED -> Health.up();
+            case OPEN -> Health.status(CIRCUIT_OPEN);
+            case HALF_OPEN -> Health.status(CIRCUIT_HALF_OPEN);
+        };
+        return health.withDetail("state", current)
+                .withDetail("bufferedCalls", calls)
+                .withDetail("failedCalls", failed)
+                .withDetail("failureRateThreshold", failureRateThreshold)
+                .withDetail("hedging", hedgingEnabled)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** Admits a call or throws {@link CircuitOpenException}; returns the state generation the call belongs to. */
+    private synchronized int acquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.OPEN || (state == State.HALF_OPEN && probesStarted >= halfOpenProbes)) {
+            rejections.increment();
+            throw new CircuitOpenException();
+        }
+        if (state == State.HALF_OPEN) {
+            probesStarted++;
+        }
+        return generation;
+    }
+
+    /** Gives back a permit whose outcome says nothing about Google (the caller was interrupted). */
+    private synchronized void release(int permit) {
+        if (permit == generation && state == State.HALF_OPEN) {
+            probesStarted--;
+        }
+    }
+
+    private synchronized void record(int permit, boolean success, long latencyNanos) {
+        (success ? successes : failures).increment();
+        if (success && latencyNanos > 0) {
+            latencies[latencyNext] = latencyNanos;
+            latencyNext = (latencyNext + 1) % LATENCY_SAMPLES;
+            latencyCount = Math.min(LATENCY_SAMPLES, latencyCount + 1);
+        }
+        // outcomes of calls admitted before the last state change no longer count
+        if (permit != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (!success) {
+                transition(State.OPEN);
+            } else if (++probesSucceeded >= halfOpenProbes) {
+                transition(State.CLOSED);
+            }
+            return;
+        }
+        if (windowCount == windowSize && window[windowNext]) {
+            windowFailures--;
+        }
+        window[windowNext] = !success;
+        windowNext = (windowNext + 1) % windowSize;
+        windowCount = Math.min(windowSize, windowCount + 1);
+        if (!success) {
+            windowFailures++;
+        }
+        if (windowCount >= minimumCalls && windowFailures >= failureRateThreshold * windowCount) {
+            transition(State.OPEN);
+        }
+    }
+
+    private void transition(State next) {
+        log.warn("optimizeTours circuit {} -> {} (failed {} of the last {} calls)",
+                state, next, windowFailures, windowCount);
+        state = next;
+        generation++;
+        probesStarted = 0;
+        probesSucceeded = 0;
+        if (next == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+        if (next != State.HALF_OPEN) {
+            Arrays.fill(window, false);
+            windowNext = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+    }
+
+    /** p95 of recent successful calls, at least the minimum delay; -1 when this call must not be hedged. */
+    private synchronized long hedgeDelayNanos(int permit) {
+        if (!hedgingEnabled || state != State.CLOSED || permit != generation || latencyCount < MIN_LATENCY_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        return Math.max(hedgeMinDelayNanos, sorted[(int) Math.ceil(0.95 * sorted.length) - 1]);
+    }
+
+    /**
+     * Starts one attempt, or returns {@code null} when {@code max-in-flight} attempts already hold a thread. The slot
+     * is given back when the call returns, before its outcome is recorded, so a caller that got its answer can call
+     * again at once; a cancelled attempt keeps it until its thread returns. An attempt cancelled before it started
+     * gives it back when the pool skips it.
+     */
+    private <T> Future<T> start(Callable<T> call, BlockingQueue<Future<T>> completed) {
+        if (!attemptSlots.tryAcquire()) {
+            return null;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable releaseSlot = () -> {
+            if (released.compareAndSet(false, true)) {
+                attemptSlots.release();
+            }
+        };
+        FutureTask<T> attempt = new FutureTask<>(() -> {
+            try {
+                return call.call();
+            } finally {
+                releaseSlot.run();
+            }
+        }) {
+            @Override
+            protected void done() {
+                completed.add(this);
+            }
+        };
+        try {
+            pool.execute(() -> {
+                try {
+                    attempt.run();
+                } finally {
+                    releaseSlot.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            releaseSlot.run();
+            throw e;
+        }
+        return attempt;
+    }
+
+    /** Google errors that say the dependency is unhealthy, as opposed to a request it rejected. */
+    private static boolean isDependencyFailure(Throwable failure) {
+        return failure instanceof IOException
+                || failure instanceof ResourceAccessException
+                || failure instanceof HttpServerErrorException
+                || failure instanceof HttpClientErrorException.TooManyRequests;
+    }
+
+    private static IOException rethrow(Throwable cause) {
+        if (cause instanceof IOException io) {
+            return io;
+        }
+        if (cause instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IOException(cause);
+    }
+}
@@ -0,0 +1,170 @@
+package com.carpool.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runs independent optimizeTours sub-requests (one per vehicle) on a shared pool of at most
+ * {@code optimize.per-vehicle.max-concurrency} threads, so a request with many drivers waits for roughly its slowest
+ * batch instead of the sum of all calls, while the pool keeps the total pressure on the API bounded.
+ * Each call gets {@code optimize.per-vehicle.call-timeout-ms} from the moment it starts running; the first failure or
+ * timeout cancels every call still queued or in flight and is rethrown to the caller. The timeout covers the local
+ * work around the Google call as well, so it must be longer than {@code optimize.google.call-deadline-ms}: the
+ * circuit breaker's deadline then fires first and is counted as a failure instead of being cut short here.
+ */
+@Service
+public class OptimizeToursExecutor {
+
+    private static final long NOT_STARTED = Long.MIN_VALUE;
+
+    private final ExecutorService pool;
+    private final long callTimeoutNanos;
+
+    @Autowired
+    public OptimizeToursExecutor(@Value("${optimize.per-vehicle.max-concurrency:8}") int maxConcurrency,
+                                 @Value("${optimize.per-vehicle.call-timeout-ms:35000}") long callTimeoutMs,
+                                 @Value("${optimize.google.call-deadline-ms:30000}") long googleDeadlineMs) {
+        this(maxConcurrency, callTimeoutMs);
+        if (callTimeoutMs <= googleDeadlineMs) {
+            throw new IllegalArgumentException("optimize.per-vehicle.call-timeout-ms (" + callTimeoutMs
+                    + ") must be longer than optimize.google.call-deadline-ms (" + googleDeadlineMs + ")");
+        }
+    }
+
+    public OptimizeToursExecutor(int maxConcurrency, long callTimeoutMs) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("optimize.per-vehicle.max-concurrency must be > 0");
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                maxConcurrency, maxConcurrency, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "optimize-tours-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        this.pool = executor;
+        this.callTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(callTimeoutMs);
+    }
+
+    /** Runs all calls and returns their results in the order the calls were given. */
+    public <T> List<T> invokeAll(List<? extends Callable<T>> calls) throws IOException {
+        int count = calls.size();
+        AtomicLongArray startedAt = new AtomicLongArray(count);
+        BlockingQueue<Integer> completed = new LinkedBlockingQueue<>();
+        List<Future<T>> futures = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            Callable<T> call = calls.get(i);
+            startedAt.set(index, NOT_STARTED);
+            FutureTask<T> future = new FutureTask<>(() -> {
+                startedAt.set(index, System.nanoTime());
+                return call.call();
+            }) {
+                @Override
+                protected void done() {
+                    completed.add(index);
+                }
+            };
+            futures.add(future);
+        }
+        try {
+            for (Future<T> future : futures) {
+                pool.execute((Runnable) future);
+            }
+            int remaining = count;
+            while (remaining > 0) {
+                Integer index = completed.poll(nextDeadlineNanos(startedAt, futures), TimeUnit.NANOSECONDS);
+                if (index == null) {
+                    failOverdueCalls(startedAt, futures);
+                    continue;
+                }
+                rethrowFailure(futures.get(index));
+                remaining--;
+            }
+            List<T> results = new ArrayList<>(count);
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for optimizeTours calls");
+        } catch (ExecutionException e) {
+            // unreachable: every future was checked by rethrowFailure before being read
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /** Nanos until the earliest running call hits its timeout, or one timeout if nothing has started yet. */
+    private long nextDeadlineNanos(AtomicLongArray startedAt, List<? extends Future<?>> futures) {
+        long now = System.nanoTime();
+        long wait = callTimeoutNanos;
+        for (int i = 0; i < futures.size(); i++) {
+            long started = startedAt.get(i);
+            if (started != NOT_STARTED && !futures.get(i).isDone()) {
+                wait = Math.min(wait, started + callTimeoutNanos - now);
+            }
+        }
+        return Math.max(wait, 0);
+    }
+
+    private void failOverdueCalls(AtomicLongArray startedAt, List<? extends Future<?>> futures) {
+        long now = System.nanoTime();
+        for (int i = 0; i < futures.size(); i++) {
+            long started = startedAt.get(i);
+            if (started != NOT_STARTED && !futures.get(i).isDone() && now - started >= callTimeoutNanos) {
+                throw new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT,
+                        "optimizeTours call timed out after " + TimeUnit.NANOSECONDS.toMillis(callTimeoutNanos) + " ms");
+            }
+        }
+    }
+
+    private static void rethrowFailure(Future<?> future) throws IOException, InterruptedException {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
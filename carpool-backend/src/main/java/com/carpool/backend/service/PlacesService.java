@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import com.carpool.backend.config.OutboundHttpClientFactory;
 import com.carpool.backend.dto.PlaceDetails;
 import com.carpool.backend.dto.PlaceSuggestion;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -20,9 +21,13 @@ public class PlacesService {
     @Value("${google.places.api-key}")
     private String apiKey;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final RestTemplate restTemplate;
     private final ObjectMapper mapper = new ObjectMapper();
 
+    public PlacesService(OutboundHttpClientFactory httpClients) {
+        this.restTemplate = new RestTemplate(httpClients.requestFactory("maps", "https://maps.googleapis.com"));
+    }
+
     public List<PlaceSuggestion> autocomplete(String input) throws Exception {
         String encoded = URLEncoder.encode(input, StandardCharsets.UTF_8);
         String url =
@@ -0,0 +1,83 @@
+package com.carpool.backend.service;
+
+import com.carpool.backend.solver.RoadNetworkRouter;
+import com.carpool.backend.solver.TravelTimeModel;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Optional offline road router for the local cost-matrix and ETA stages. When {@code optimize.road-network.path}
+ * names an edge list, it is read and contracted once at startup; no network access is needed afterwards. A blank
+ * path, or a file that cannot be read, leaves {@link #router()} {@code null} and those stages on straight-line
+ * distances.
+ */
+@Service
+public class RoadNetworkService {
+
+    private static final Logger log = LoggerFactory.getLogger(RoadNetworkService.class);
+
+    private final RoadNetworkRouter router;
+
+    @Autowired
+    public RoadNetworkService(@Value("${optimize.road-network.path:}") String path,
+                              @Value("${optimize.local.average-speed-kmh:40}") double averageSpeedKmh,
+                              @Value("${optimize.local.road-factor:1.3}") double roadFactor,
+                              ObjectProvider<MeterRegistry> meterRegistry) {
+        this(load(path, TravelTimeModel.constant(averageSpeedKmh, roadFactor)),
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    public RoadNetworkService(RoadNetworkRouter router, MeterRegistry meterRegistry) {
+        this.router = router;
+        if (router != null) {
+            Gauge.builder("optimize.road-network.nodes", router, RoadNetworkRouter::nodeCount)
+                    .description("Nodes in the offline road graph").register(meterRegistry);
+            Gauge.builder("optimize.road-network.shortcuts", router, RoadNetworkRouter::shortcutCount)
+                    .description("Contraction-hierarchy shortcuts in the offline road graph").register(meterRegistry);
+            FunctionCounter.builder("optimize.road-network.fallbacks", router, RoadNetworkRouter::fallbacks)
+                    .description("Legs the road graph could not answer, costed in a straight line instead")
+                    .register(meterRegistry);
+        }
+    }
+
+    /** No road graph; for code paths built outside Spring. */
+    public static RoadNetworkService disabled() {
+        return new RoadNetworkService(null, new SimpleMeterRegistry());
+    }
+
+    private static RoadNetworkRouter load(String path, TravelTimeModel access) {
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        long startedAt = System.nanoTime();
+        try {
+            RoadNetworkRouter loaded = RoadNetworkRouter.load(Path.of(path), access);
+            log.info("Loaded road network. path={}, nodes={}, shortcuts={}, tookMs={}",
+                    path, loaded.nodeCount(), loaded.shortcutCount(), (System.nanoTime() - startedAt) / 1_000_000);
+            return loaded;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Road network disabled, could not load {}: {}", path, e.toString());
+            return null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return router != null;
+    }
+
+    /** The loaded router, or {@code null} when the road network is off. */
+    public RoadNetworkRouter router() {
+        return router;
+    }
+}
@@ -0,0 +1,185 @@
+package com.carpool.backend.service;
+
+import com.carpool.backend.entity.DestinationEntity;
+import com.carpool.backend.entity.DriverEntity;
+import com.carpool.backend.entity.PassengerEntity;
+import com.carpool.backend.repository.DestinationRepository;
+import com.carpool.backend.repository.DriverRepository;
+import com.carpool.backend.repository.PassengerRepository;
+import com.carpool.backend.solver.RoadNetworkRouter;
+import com.carpool.backend.solver.TravelMatrixStore;
+import com.carpool.backend.solver.TravelTimeModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Keeps the roster's {@link TravelMatrixStore} (every driver, passenger and destination against every other) on disk
+ * at {@code optimize.matrix.path}, so recurring rosters are not recomputed on each run. On startup the file is mapped
+ * as it is and only entities that are new or have moved since it was written are recomputed; after that the roster
+ * controllers report each save, and a deleted (inactive) entity gives its slot back. Cells are road distances and
+ * durations from {@link RoadNetworkService}, and the local solvers read a request's driver and student legs from here
+ * when all of them are roster entities (see {@link com.carpool.backend.solver.CostMatrix}); a file written from
+ * another road network is rebuilt. Straight-line costs are cheaper to compute than to look up, so without a road
+ * network the store stays off, as it does with a blank path or a file that cannot be opened.
+ */
+@Service
+public class RosterMatrixService {
+
+    private static final Logger log = LoggerFactory.getLogger(RosterMatrixService.class);
+
+    private final DriverRepository driverRepository;
+    private final PassengerRepository passengerRepository;
+    private final DestinationRepository destinationRepository;
+    private final TravelMatrixStore store;
+    private final Counter recomputed;
+    private final Counter unchanged;
+    private final Counter removed;
+
+    @Autowired
+    public RosterMatrixService(@Value("${optimize.matrix.path:}") String path,
+                               @Value("${optimize.matrix.initial-capacity:1024}") int initialCapacity,
+                               @Value("${optimize.local.average-speed-kmh:40}") double averageSpeedKmh,
+                               @Value("${optimize.local.road-factor:1.3}") double roadFactor,
+                               DriverRepository driverRepository,
+                               PassengerRepository passengerRepository,
+                               DestinationRepository destinationRepository,
+                               RoadNetworkService roadNetwork,
+                               ObjectProvider<MeterRegistry> meterRegistry) {
+        this(open(path, initialCapacity, averageSpeedKmh, roadFactor, roadNetwork.router()),
+                driverRepository, passengerRepository, destinationRepository,
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    public RosterMatrixService(TravelMatrixStore store,
+                               DriverRepository driverRepository,
+                               PassengerRepository passengerRepository,
+                               DestinationRepository destinationRepository,
+                               MeterRegistry registry) {
+        this.store = store;
+        this.driverRepository = driverRepository;
+        this.passengerRepository = passengerRepository;
+        this.destinationRepository = destinationRepository;
+        this.recomputed = Counter.builder("optimize.matrix.updates").tag("result", "recomputed")
+                .description("Roster saves that recomputed an entity's matrix row and column").register(registry);
+        this.unchanged = Counter.builder("optimize.matrix.updates").tag("result", "unchanged")
+                .description("Roster saves whose coordinates were already in the matrix").register(registry);
+        this.removed = Counter.builder("optimize.matrix.updates").tag("result", "removed")
+                .description("Deleted roster entities whose matrix slot was freed").register(registry);
+        Gauge.builder("optimize.matrix.entities", this, service -> service.store == null ? 0 : service.store.size())
+                .description("Roster entities in the on-disk travel matrix").register(registry);
+    }
+
+    /** No store; for code paths built outside Spring. */
+    public static RosterMatrixService disabled() {
+        return new RosterMatrixService(null, null, null, null, new SimpleMeterRegistry());
+    }
+
+    private static TravelMatrixStore open(String path,
+                                          int initialCapacity,
+                                          double averageSpeedKmh,
+                                          double roadFactor,
+                                          RoadNetworkRouter router) {
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        if (router == null) {
+            log.warn("Roster travel matrix disabled, it needs a road network (optimize.road-network.path). path={}",
+                    path);
+            return null;
+        }
+        // off-graph legs fall back to straight lines at these settings, so they are part of the source too
+        int costSource = Objects.hash(averageSpeedKmh, roadFactor, router.nodeCount(), router.shortcutCount());
+        try {
+            TravelMatrixStore opened =
+                    TravelMatrixStore.open(Path.of(path), initialCapacity,
+                            TravelTimeModel.constant(averageSpeedKmh, roadFactor), router, costSource);
+            log.info("Opened roster travel matrix. path={}, entities={}, capacity={}",
+                    path, opened.size(), opened.capacity());
+            return opened;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Roster travel matrix disabled, could not open {}: {}", path, e.toString());
+            return null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return store != null;
+    }
+
+    /** The mapped matrix for solver lookups, or {@code null} when the store is off. */
+    public TravelMatrixStore store() {
+        return store;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void syncRoster() {
+        if (store == null) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        driverRepository.findAll().forEach(this::driverSaved);
+        passengerRepository.findAll().forEach(this::passengerSaved);
+        destinationRepository.findAll().forEach(this::destinationSaved);
+        store.force();
+        log.info("Synced roster travel matrix. entities={}, tookMs={}",
+                store.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    /** Stores an active driver, or frees the slot of one that was deleted. */
+    public void driverSaved(DriverEntity driver) {
+        put(TravelMatrixStore.Kind.DRIVER, driver.getId(), driver.getActive(), driver.getLat(), driver.getLng());
+    }
+
+    public void passengerSaved(PassengerEntity passenger) {
+        put(TravelMatrixStore.Kind.PASSENGER, passenger.getId(), passenger.getActive(),
+                passenger.getLat(), passenger.getLng());
+    }
+
+    public void destinationSaved(DestinationEntity destination) {
+        put(TravelMatrixStore.Kind.DESTINATION, destination.getId(), destination.getActive(),
+                destination.getLat(), destination.getLng());
+    }
+
+    private void put(TravelMatrixStore.Kind kind, Long id, Boolean active, Double lat, Double lng) {
+        if (store == null || id == null) {
+            return;
+        }
+        if (Boolean.FALSE.equals(active) || lat == null || lng == null) {
+            if (store.remove(TravelMatrixStore.key(kind, id))) {
+                removed.increment();
+            }
+            return;
+        }
+        try {
+            if (store.put(TravelMatrixStore.key(kind, id), lat, lng)) {
+                recomputed.increment();
+            } else {
+                unchanged.increment();
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.warn("Could not update roster travel matrix for {} {}: {}", kind, id, e.toString());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+}
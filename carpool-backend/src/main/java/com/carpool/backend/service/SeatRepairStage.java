@@ -0,0 +1,237 @@
+package com.carpool.backend.service;
+
+import com.carpool.backend.dto.OptimizeRequestDTO;
+import com.carpool.backend.dto.RoutePlanDTO;
+import com.carpool.backend.dto.TimelineEntryDTO;
+import com.carpool.backend.solver.CostMatrix;
+import com.carpool.backend.solver.RoutePlanAssembler;
+import com.carpool.backend.solver.SeatRepair;
+import com.carpool.backend.solver.TravelTimeModel;
+import com.carpool.backend.solver.VrpInstance;
+import com.carpool.backend.solver.VrpSolution;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Repair stage for a global solve that put more students in some car than it has seats. Instead of re-solving every
+ * vehicle, the routes that fit are kept exactly as Google returned them, the over-full ones give up their costliest
+ * stops ({@link SeatRepair}), and those students, together with any the solve left out, are reseated into cars with
+ * room. Only the vehicles whose stops changed are solved again: through the caller's per-vehicle solve when
+ * {@code optimize.repair.resolve} is {@code REMOTE}, or timed in-process along the repaired order when it is
+ * {@code LOCAL}. Runs, re-solved vehicles and the per-vehicle solves saved are counted under {@code optimize.repair.*}.
+ */
+@Service
+public class SeatRepairStage {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatRepairStage.class);
+    private static final String RESOLVE_LOCAL = "LOCAL";
+
+    /** Solves the given vehicles with the given students each; the controller's per-vehicle path. */
+    @FunctionalInterface
+    public interface VehicleSolver {
+        List<RoutePlanDTO> solve(OptimizeRequestDTO request,
+                                 Map<String, List<OptimizeRequestDTO.StudentDTO>> assignments) throws IOException;
+    }
+
+    private final boolean enabled;
+    private final boolean resolveLocally;
+    private final TravelTimeModel travelTimes;
+    private final Counter runs;
+    private final Counter resolvedVehicles;
+    private final Counter savedSolves;
+
+    @Autowired
+    public SeatRepairStage(@Value("${optimize.repair.enabled:true}") boolean enabled,
+                           @Value("${optimize.repair.resolve:REMOTE}") String resolve,
+                           @Value("${optimize.local.average-speed-kmh:40}") double averageSpeedKmh,
+                           @Value("${optimize.local.road-factor:1.3}") double roadFactor,
+                           @Value("${optimize.local.service-seconds:0}") double serviceSeconds,
+                           @Value("${optimize.local.speed-profile:}") String speedProfile,
+                           @Value("${optimize.local.time-zone:UTC}") String timeZone,
+                           RoadNetworkService roadNetwork,
+                           ObjectProvider<MeterRegistry> meterRegistry) {
+        this(enabled, resolve,
+                TravelTimeModel.of(averageSpeedKmh, roadFactor, serviceSeconds, speedProfile, timeZone)
+                        .withRouter(roadNetwork.router()),
+                meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    public SeatRepairStage(boolean enabled,
+                           String resolve,
+                           TravelTimeModel travelTimes,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.resolveLocally = RESOLVE_LOCAL.equalsIgnoreCase(resolve);
+        this.travelTimes = travelTimes;
+        this.runs = Counter.builder("optimize.repair.runs")
+                .description("Seat-capacity repairs of a global solve").register(meterRegistry);
+        this.resolvedVehicles = Counter.builder("optimize.repair.vehicles")
+                .description("Vehicles solved again by a repair").register(meterRegistry);
+        this.savedSolves = Counter.builder("optimize.repair.solves.saved")
+                .description("Per-vehicle solves a repair avoided compared with re-solving every vehicle")
+                .register(meterRegistry);
+    }
+
+    /** Enabled, remote re-solve, default local speeds; for code paths built outside Spring. */
+    public static SeatRepairStage defaults() {
+        return new SeatRepairStage(true, "REMOTE", TravelTimeModel.constant(40, 1.3), new SimpleMeterRegistry());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Seat-feasible plans for {@code request} built from {@code plans}: untouched routes as they were, then the
+     * re-solved ones, in driver order. Plans for drivers the request does not know are passed through.
+     */
+    public List<RoutePlanDTO> repair(List<RoutePlanDTO> plans,
+                                     OptimizeRequestDTO request,
+                                     VehicleSolver solver) throws IOException {
+        runs.increment();
+        Map<String, Integer> driverIndex = new HashMap<>();
+        for (int v = 0; v < request.drivers.size(); v++) {
+            driverIndex.put(request.drivers.get(v).id, v);
+        }
+
+        // students riding with an unknown driver stay there; everyone else is placed by the repair
+        List<RoutePlanDTO> passedThrough = new ArrayList<>();
+        Set<String> passedThroughStudents = new LinkedHashSet<>();
+        Map<Integer, RoutePlanDTO> planByVehicle = new HashMap<>();
+        for (RoutePlanDTO plan : plans) {
+            Integer v = driverIndex.get(plan.driverId);
+            if (v == null || planByVehicle.containsKey(v)) {
+                passedThrough.add(plan);
+                passedThroughStudents.addAll(pickupIds(plan));
+            } else {
+                planByVehicle.put(v, plan);
+            }
+        }
+        List<OptimizeRequestDTO.StudentDTO> students = new ArrayList<>();
+        Map<String, Integer> studentIndex = new HashMap<>();
+        for (OptimizeRequestDTO.StudentDTO student : request.students) {
+            if (!passedThroughStudents.contains(student.id) && !studentIndex.containsKey(student.id)) {
+                studentIndex.put(student.id, students.size());
+                students.add(student);
+            }
+        }
+
+        int[] capacity = new int[request.drivers.size()];
+        int[][] routes = new int[request.drivers.size()][];
+        for (int v = 0; v < request.drivers.size(); v++) {
+            capacity[v] = request.drivers.get(v).seatCapacity;
+            RoutePlanDTO plan = planByVehicle.get(v);
+            routes[v] = plan == null ? new int[0] : pickupIds(plan).stream()
+                    .filter(studentIndex::containsKey).mapToInt(studentIndex::get).toArray();
+        }
+        CostMatrix costs = CostMatrix.of(request.drivers, students, request.event.location, true, travelTimes.router());
+        VrpInstance instance = new VrpInstance(costs, capacity);
+        VrpSolution solution = SeatRepair.repair(instance, routes);
+
+        Map<String, List<OptimizeRequestDTO.StudentDTO>> touched = new LinkedHashMap<>();
+        int kept = 0;
+        for (int v = 0; v < request.drivers.size(); v++) {
+            if (Arrays.equals(routes[v], solution.route(v))) {
+                kept += routes[v].length > 0 ? 1 : 0;
+                continue;
+            }
+            List<OptimizeRequestDTO.StudentDTO> stops = new ArrayList<>();
+            for (int s : solution.route(v)) {
+                stops.add(students.get(s));
+            }
+            touched.put(request.drivers.get(v).id, stops);
+        }
+        if (solution.unassigned().length > 0) {
+            List<String> unassignedStudentIds = new ArrayList<>();
+            for (int s : solution.unassigned()) {
+                unassignedStudentIds.add(students.get(s).id);
+            }
+            log.warn("Unassigned students due to seat limits: {}", unassignedStudentIds);
+        }
+        resolvedVehicles.increment(touched.size());
+        savedSolves.increment(kept);
+        log.info("Repaired seat-capacity violation. keptVehicles={}, resolvedVehicles={}, resolve={}",
+                kept, touched.keySet(), resolveLocally ? RESOLVE_LOCAL : "REMOTE");
+
+        Map<String, RoutePlanDTO> resolved = new HashMap<>();
+        for (RoutePlanDTO plan : resolve(request, touched, solver)) {
+            resolved.put(plan.driverId, plan);
+        }
+        List<RoutePlanDTO> repaired = new ArrayList<>();
+        for (int v = 0; v < request.drivers.size(); v++) {
+            String driverId = request.drivers.get(v).id;
+            if (!touched.containsKey(driverId)) {
+                if (planByVehicle.containsKey(v)) {
+                    repaired.add(planByVehicle.get(v));
+                }
+            } else if (resolved.containsKey(driverId)) {
+                repaired.add(resolved.get(driverId));
+            }
+        }
+        repaired.addAll(passedThrough);
+        return repaired;
+    }
+
+    private List<RoutePlanDTO> resolve(OptimizeRequestDTO request,
+                                       Map<String, List<OptimizeRequestDTO.StudentDTO>> touched,
+                                       VehicleSolver solver) throws IOException {
+        List<OptimizeRequestDTO.DriverDTO> drivers = request.drivers.stream()
+                .filter(driver -> touched.containsKey(driver.id) && !touched.get(driver.id).isEmpty())
+                .toList();
+        if (drivers.isEmpty()) {
+            return List.of();
+        }
+        if (resolveLocally) {
+            RoutePlanAssembler assembler = new RoutePlanAssembler(travelTimes);
+            Instant start = request.globalStartTime == null || request.globalStartTime.isBlank()
+                    ? Instant.EPOCH
+                    : Instant.parse(request.globalStartTime);
+            List<RoutePlanDTO> plans = new ArrayList<>(drivers.size());
+            for (OptimizeRequestDTO.DriverDTO driver : drivers) {
+                plans.add(assembler.assemble(driver, request.event.location, touched.get(driver.id), start));
+            }
+            return plans;
+        }
+        OptimizeRequestDTO touchedRequest = new OptimizeRequestDTO();
+        touchedRequest.event = request.event;
+        touchedRequest.drivers = drivers;
+        touchedRequest.globalStartTime = request.globalStartTime;
+        touchedRequest.globalEndTime = request.globalEndTime;
+        return solver.solve(touchedRequest, touched);
+    }
+
+    /** Distinct student ids picked up along a plan, in visiting order. */
+    private static List<String> pickupIds(RoutePlanDTO plan) {
+        Set<String> ids = new LinkedHashSet<>();
+        if (plan.timeline == null) {
+            return List.of();
+        }
+        List<TimelineEntryDTO> timeline = new ArrayList<>(plan.timeline);
+        timeline.sort(Comparator.comparingInt(entry -> entry.sequence));
+        for (TimelineEntryDTO entry : timeline) {
+            if ("pickup".equals(entry.type) && entry.studentId != null && !entry.studentId.isBlank()) {
+                ids.add(entry.studentId);
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+}
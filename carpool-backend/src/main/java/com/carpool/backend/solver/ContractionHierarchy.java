@@ -0,0 +1,470 @@
+package com.carpool.backend.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Contraction hierarchy over a {@link RoadGraph}, minimizing travel seconds. Nodes are contracted in edge-difference
+ * order (lazily re-evaluated); a shortcut is added only when a bounded witness search finds no path at least as fast
+ * around the contracted node. Queries search upward from both ends only, so a many-to-many matrix costs one small
+ * backward search per target, whose settled nodes are kept in buckets, plus one forward search per source that scans
+ * them. Meters are carried along the fastest path.
+ */
+final class ContractionHierarchy {
+
+    /** Nodes a single witness search may settle before giving up and keeping the shortcut. */
+    static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final int nodeCount;
+    private final int shortcutCount;
+    // upward edges u->w (rank[w] > rank[u]), stored at u
+    private final int[] upStart;
+    private final int[] upTo;
+    private final double[] upSeconds;
+    private final double[] upMeters;
+    // reversed upward edges for backward searches: edge u->w with rank[u] > rank[w], stored at w as u
+    private final int[] downStart;
+    private final int[] downTo;
+    private final double[] downSeconds;
+    private final double[] downMeters;
+
+    private ContractionHierarchy(int nodeCount, int shortcutCount,
+                                 int[] upStart, int[] upTo, double[] upSeconds, double[] upMeters,
+                                 int[] downStart, int[] downTo, double[] downSeconds, double[] downMeters) {
+        this.nodeCount = nodeCount;
+        this.shortcutCount = shortcutCount;
+        this.upStart = upStart;
+        this.upTo = upTo;
+        this.upSeconds = upSeconds;
+        this.upMeters = upMeters;
+        this.downStart = downStart;
+        this.downTo = downTo;
+        this.downSeconds = downSeconds;
+        this.downMeters = downMeters;
+    }
+
+    static ContractionHierarchy build(RoadGraph graph) {
+        return new Builder(graph).contract();
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    int shortcutCount() {
+        return shortcutCount;
+    }
+
+    /**
+     * Fastest seconds (and the meters of that path) from every source node to every target node, row-major by source.
+     * Unreachable pairs are {@link Double#POSITIVE_INFINITY}.
+     */
+    double[][] manyToMany(int[] sources, int[] targets) {
+        double[] seconds = new double[sources.length * targets.length];
+        double[] meters = new double[sources.length * targets.length];
+        Arrays.fill(seconds, Double.POSITIVE_INFINITY);
+        Arrays.fill(meters, Double.POSITIVE_INFINITY);
+        Search search = new Search(nodeCount);
+
+        // backward searches: bucket entries (target, seconds, meters) per settled node, grouped by node afterwards
+        List<int[]> settledNodes = new ArrayList<>(targets.length);
+        List<double[]> settledSeconds = new ArrayList<>(targets.length);
+        List<double[]> settledMeters = new ArrayList<>(targets.length);
+        int[] bucketSize = new int[nodeCount + 1];
+        for (int target : targets) {
+            search.run(target, downStart, downTo, downSeconds, downMeters);
+            settledNodes.add(Arrays.copyOf(search.settled, search.settledCount));
+            double[] s = new double[search.settledCount];
+            double[] m = new double[search.settledCount];
+            for (int i = 0; i < search.settledCount; i++) {
+                int node = search.settled[i];
+                s[i] = search.seconds[node];
+                m[i] = search.meters[node];
+                bucketSize[node + 1]++;
+            }
+            settledSeconds.add(s);
+            settledMeters.add(m);
+            search.reset();
+        }
+        int[] bucketStart = bucketSize;
+        for (int node = 0; node < nodeCount; node++) {
+            bucketStart[node + 1] += bucketStart[node];
+        }
+        int entries = bucketStart[nodeCount];
+        int[] bucketTarget = new int[entries];
+        double[] bucketSeconds = new double[entries];
+        double[] bucketMeters = new double[entries];
+        int[] fill = Arrays.copyOf(bucketStart, nodeCount);
+        for (int t = 0; t < targets.length; t++) {
+            int[] nodes = settledNodes.get(t);
+            for (int i = 0; i < nodes.length; i++) {
+                int slot = fill[nodes[i]]++;
+                bucketTarget[slot] = t;
+                bucketSeconds[slot] = settledSeconds.get(t)[i];
+                bucketMeters[slot] = settledMeters.get(t)[i];
+            }
+        }
+
+        for (int s = 0; s < sources.length; s++) {
+            search.run(sources[s], upStart, upTo, upSeconds, upMeters);
+            int row = s * targets.length;
+            for (int i = 0; i < search.settledCount; i++) {
+                int node = search.settled[i];
+                double up = search.seconds[node];
+                for (int b = bucketStart[node]; b < bucketStart[node + 1]; b++) {
+                    int cell = row + bucketTarget[b];
+                    double total = up + bucketSeconds[b];
+                    if (total < seconds[cell]) {
+                        seconds[cell] = total;
+                        meters[cell] = search.meters[node] + bucketMeters[b];
+                    }
+                }
+            }
+            search.reset();
+        }
+        return new double[][]{seconds, meters};
+    }
+
+    /** Plain Dijkstra over one CSR direction with reusable state; every reachable node is settled. */
+    private static final class Search {
+
+        final double[] seconds;
+        final double[] meters;
+        final int[] settled;
+        int settledCount;
+        private final int[] touched;
+        private int touchedCount;
+        private final MinHeap heap = new MinHeap();
+
+        Search(int nodeCount) {
+            seconds = new double[nodeCount];
+            meters = new double[nodeCount];
+            settled = new int[nodeCount];
+            touched = new int[nodeCount];
+            Arrays.fill(seconds, Double.POSITIVE_INFINITY);
+        }
+
+        void run(int origin, int[] start, int[] to, double[] edgeSeconds, double[] edgeMeters) {
+            relax(origin, 0, 0);
+            while (!heap.isEmpty()) {
+                double key = heap.peekKey();
+                int node = heap.pop();
+                if (key > seconds[node]) {
+                    continue;
+                }
+                settled[settledCount++] = node;
+                for (int e = start[node]; e < start[node + 1]; e++) {
+                    relax(to[e], key + edgeSeconds[e], meters[node] + edgeMeters[e]);
+                }
+            }
+        }
+
+        private void relax(int node, double s, double m) {
+            if (s < seconds[node]) {
+                if (seconds[node] == Double.POSITIVE_INFINITY) {
+                    touched[touchedCount++] = node;
+                }
+                seconds[node] = s;
+                meters[node] = m;
+                heap.push(s, node);
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < touchedCount; i++) {
+                seconds[touched[i]] = Double.POSITIVE_INFINITY;
+            }
+            touchedCount = 0;
+            settledCount = 0;
+            heap.clear();
+        }
+    }
+
+    /** Binary min-heap of (seconds, node) with duplicates allowed; stale entries are skipped by the caller. */
+    private static final class MinHeap {
+
+        private double[] keys = new double[64];
+        private int[] nodes = new int[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void push(double key, int node) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                nodes[i] = nodes[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            if (size > 0) {
+                double key = keys[size];
+                int node = nodes[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && keys[child + 1] < keys[child]) {
+                        child++;
+                    }
+                    if (keys[child] >= key) {
+                        break;
+                    }
+                    keys[i] = keys[child];
+                    nodes[i] = nodes[child];
+                    i = child;
+                }
+                keys[i] = key;
+                nodes[i] = node;
+            }
+            return top;
+        }
+    }
+
+    /** Working graph during contraction: adjacency maps of (seconds, meters), both directions. */
+    private static final class Builder {
+
+        private final int n;
+        private final List<Map<Integer, double[]>> out;
+        private final List<Map<Integer, double[]>> in;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbours;
+        private final int[] rank;
+        private final double[] witnessSeconds;
+        private final int[] witnessTouched;
+        private final MinHeap witnessHeap = new MinHeap();
+        private int witnessTouchedCount;
+        private int shortcuts;
+
+        Builder(RoadGraph graph) {
+            n = graph.nodeCount();
+            out = new ArrayList<>(n);
+            in = new ArrayList<>(n);
+            for (int v = 0; v < n; v++) {
+                out.add(new HashMap<>());
+                in.add(new HashMap<>());
+            }
+            for (int e = 0; e < graph.edgeCount(); e++) {
+                if (graph.from(e) != graph.to(e)) {
+                    addEdge(graph.from(e), graph.to(e), graph.seconds(e), graph.meters(e));
+                }
+            }
+            contracted = new boolean[n];
+            contractedNeighbours = new int[n];
+            rank = new int[n];
+            witnessSeconds = new double[n];
+            witnessTouched = new int[n];
+            Arrays.fill(witnessSeconds, Double.POSITIVE_INFINITY);
+        }
+
+        ContractionHierarchy contract() {
+            PriorityQueue<int[]> queue = new PriorityQueue<>((a, b) -> a[0] != b[0]
+                    ? Integer.compare(a[0], b[0])
+                    : Integer.compare(a[1], b[1]));
+            for (int v = 0; v < n; v++) {
+                queue.add(new int[]{priority(v), v});
+            }
+            int next = 0;
+            while (!queue.isEmpty()) {
+                int v = queue.poll()[1];
+                if (contracted[v]) {
+                    continue;
+                }
+                int current = priority(v);
+                if (!queue.isEmpty() && current > queue.peek()[0]) {
+                    queue.add(new int[]{current, v});
+                    continue;
+                }
+                shortcuts += addShortcuts(v, true);
+                contracted[v] = true;
+                rank[v] = next++;
+                for (int neighbour : out.get(v).keySet()) {
+                    contractedNeighbours[neighbour]++;
+                }
+                for (int neighbour : in.get(v).keySet()) {
+                    contractedNeighbours[neighbour]++;
+                }
+            }
+            return split();
+        }
+
+        private int priority(int v) {
+            int degree = 0;
+            for (int w : out.get(v).keySet()) {
+                degree += contracted[w] ? 0 : 1;
+            }
+            for (int u : in.get(v).keySet()) {
+                degree += contracted[u] ? 0 : 1;
+            }
+            return addShortcuts(v, false) - degree + contractedNeighbours[v];
+        }
+
+        /** Shortcuts needed to contract {@code v}; added to the graph when {@code apply}. */
+        private int addShortcuts(int v, boolean apply) {
+            int needed = 0;
+            List<int[]> pending = apply ? new ArrayList<>() : null;
+            List<double[]> pendingCosts = apply ? new ArrayList<>() : null;
+            for (Map.Entry<Integer, double[]> incoming : in.get(v).entrySet()) {
+                int u = incoming.getKey();
+                if (contracted[u]) {
+                    continue;
+                }
+                double limit = 0;
+                for (Map.Entry<Integer, double[]> outgoing : out.get(v).entrySet()) {
+                    int w = outgoing.getKey();
+                    if (w != u && !contracted[w]) {
+                        limit = Math.max(limit, incoming.getValue()[0] + outgoing.getValue()[0]);
+                    }
+                }
+                witnessSearch(u, v, limit);
+                for (Map.Entry<Integer, double[]> outgoing : out.get(v).entrySet()) {
+                    int w = outgoing.getKey();
+                    if (w == u || contracted[w]) {
+                        continue;
+                    }
+                    double viaSeconds = incoming.getValue()[0] + outgoing.getValue()[0];
+                    if (witnessSeconds[w] <= viaSeconds) {
+                        continue;
+                    }
+                    needed++;
+                    if (apply) {
+                        pending.add(new int[]{u, w});
+                        pendingCosts.add(new double[]{viaSeconds, incoming.getValue()[1] + outgoing.getValue()[1]});
+                    }
+                }
+                resetWitness();
+            }
+            if (apply) {
+                for (int i = 0; i < pending.size(); i++) {
+                    addEdge(pending.get(i)[0], pending.get(i)[1], pendingCosts.get(i)[0], pendingCosts.get(i)[1]);
+                }
+            }
+            return needed;
+        }
+
+        /** Dijkstra from {@code source} over uncontracted nodes other than {@code skip}, up to {@code limit} seconds. */
+        private void witnessSearch(int source, int skip, double limit) {
+            witnessSeconds[source] = 0;
+            witnessTouched[witnessTouchedCount++] = source;
+            witnessHeap.push(0, source);
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+                double key = witnessHeap.peekKey();
+                int node = witnessHeap.pop();
+                if (key > witnessSeconds[node]) {
+                    continue;
+                }
+                if (key > limit) {
+                    break;
+                }
+                settled++;
+                for (Map.Entry<Integer, double[]> edge : out.get(node).entrySet()) {
+                    int next = edge.getKey();
+                    if (next == skip || contracted[next]) {
+                        continue;
+                    }
+                    double s = key + edge.getValue()[0];
+                    if (s < witnessSeconds[next]) {
+                        if (witnessSeconds[next] == Double.POSITIVE_INFINITY) {
+                            witnessTouched[witnessTouchedCount++] = next;
+                        }
+                        witnessSeconds[next] = s;
+                        witnessHeap.push(s, next);
+                    }
+                }
+            }
+        }
+
+        private void resetWitness() {
+            for (int i = 0; i < witnessTouchedCount; i++) {
+                witnessSeconds[witnessTouched[i]] = Double.POSITIVE_INFINITY;
+            }
+            witnessTouchedCount = 0;
+            witnessHeap.clear();
+        }
+
+        private void addEdge(int u, int w, double seconds, double meters) {
+            double[] existing = out.get(u).get(w);
+            if (existing != null && existing[0] <= seconds) {
+                return;
+            }
+            double[] cost = {seconds, meters};
+            out.get(u).put(w, cost);
+            in.get(w).put(u, cost);
+        }
+
+        private ContractionHierarchy split() {
+            int[] upStart = new int[n + 1];
+            int[] downStart = new int[n + 1];
+            for (int u = 0; u < n; u++) {
+                for (int w : out.get(u).keySet()) {
+                    if (rank[w] > rank[u]) {
+                        upStart[u + 1]++;
+                    } else {
+                        downStart[w + 1]++;
+                    }
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                upStart[v + 1] += upStart[v];
+                downStart[v + 1] += downStart[v];
+            }
+            int[] upTo = new int[upStart[n]];
+            double[] upSeconds = new double[upStart[n]];
+            double[] upMeters = new double[upStart[n]];
+            int[] downTo = new int[downStart[n]];
+            double[] downSeconds = new double[downStart[n]];
+            double[] downMeters = new double[downStart[n]];
+            int[] upFill = Arrays.copyOf(upStart, n);
+            int[] downFill = Arrays.copyOf(downStart, n);
+            for (int u = 0; u < n; u++) {
+                for (Map.Entry<Integer, double[]> edge : out.get(u).entrySet()) {
+                    int w = edge.getKey();
+                    if (rank[w] > rank[u]) {
+                        int slot = upFill[u]++;
+                        upTo[slot] = w;
+                        upSeconds[slot] = edge.getValue()[0];
+                        upMeters[slot] = edge.getValue()[1];
+                    } else {
+                        int slot = downFill[w]++;
+                        downTo[slot] = u;
+                        downSeconds[slot] = edge.getValue()[0];
+                        downMeters[slot] = edge.getValue()[1];
+                    }
+                }
+            }
+            return new ContractionHierarchy(n, shortcuts, upStart, upTo, upSeconds, upMeters,
+                    downStart, downTo, downSeconds, downMeters);
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.carpool.backend.solver;
+
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Distances (km) for one request, computed once with {@link GeoDistance#fastKm} into flat arrays:
+ * driver&rarr;student (student-major, so scanning all drivers for a student is sequential),
+ * student&rarr;event, driver&rarr;event and, when requested, student&rarr;student.
+ * Assignment code and the local solvers read from here instead of re-evaluating haversine.
+ * Built with a {@link RoadNetworkRouter}, the same arrays hold road kilometres along the fastest route instead,
+ * filled by one many-to-many query (student pairs become direction-dependent). When every driver and student is a
+ * roster entity already in the {@link TravelMatrixStore}, their legs are read from it and only the event is routed.
+ */
+public final class CostMatrix {
+
+    /** Student pair distances are kept in a dense matrix up to this many students, otherwise computed on demand. */
+    static final int DENSE_STUDENT_PAIR_LIMIT = 1500;
+
+    private final int driverCount;
+    private final int studentCount;
+    private final double[] studentLatRad;
+    private final double[] studentLngRad;
+    private final double[] studentCos;
+    private final double[] studentSin;
+    private final double[] driverToStudent;
+    private final double[] studentToEvent;
+    private final double[] driverToEvent;
+    private final double[] minAssignmentCost;
+    private final double[] studentToStudent;
+    private final boolean studentPairs;
+    private final RoadNetworkRouter router;
+    private final double[] studentLat;
+    private final double[] studentLng;
+    private final TravelMatrixStore roster;
+    private final int[] studentSlots;
+
+    private CostMatrix(double[] driverLat, double[] driverLng,
+                       double[] studentLat, double[] studentLng,
+                       double eventLat, double eventLng,
+                       boolean studentPairs) {
+        this.driverCount = driverLat.length;
+        this.studentCount = studentLat.length;
+        this.studentPairs = studentPairs;
+        this.router = null;
+        this.studentLat = null;
+        this.studentLng = null;
+        this.roster = null;
+        this.studentSlots = null;
+
+        double[] driverLatRad = toRadians(driverLat);
+        double[] driverLngRad = toRadians(driverLng);
+        double[] driverCos = cos(driverLatRad);
+        double[] driverSin = sin(driverLatRad);
+        this.studentLatRad = toRadians(studentLat);
+        this.studentLngRad = toRadians(studentLng);
+        this.studentCos = cos(studentLatRad);
+        this.studentSin = sin(studentLatRad);
+        double eventLatRad = Math.toRadians(eventLat);
+        double eventLngRad = Math.toRadians(eventLng);
+        double eventCos = Math.cos(eventLatRad);
+        double eventSin = Math.sin(eventLatRad);
+
+        this.studentToEvent = new double[studentCount];
+        for (int s = 0; s < studentCount; s++) {
+            studentToEvent[s] = GeoDistance.fastKm(
+                    studentLatRad[s], studentLngRad[s], studentCos[s], studentSin[s],
+                    eventLatRad, eventLngRad, eventCos, eventSin);
+        }
+
+        this.driverToEvent = new double[driverCount];
+        for (int d = 0; d < driverCount; d++) {
+            driverToEvent[d] = GeoDistance.fastKm(
+                    driverLatRad[d], driverLngRad[d], driverCos[d], driverSin[d],
+                    eventLatRad, eventLngRad, eventCos, eventSin);
+        }
+
+        this.driverToStudent = new double[studentCount * driverCount];
+        this.minAssignmentCost = new double[studentCount];
+        for (int s = 0; s < studentCount; s++) {
+            int row = s * driverCount;
+            double nearest = Double.MAX_VALUE;
+            for (int d = 0; d < driverCount; d++) {
+                double km = GeoDistance.fastKm(
+                        driverLatRad[d], driverLngRad[d], driverCos[d], driverSin[d],
+                        studentLatRad[s], studentLngRad[s], studentCos[s], studentSin[s]);
+                driverToStudent[row + d] = km;
+                nearest = Math.min(nearest, km);
+            }
+            minAssignmentCost[s] = driverCount == 0 ? Double.MAX_VALUE : nearest + studentToEvent[s];
+        }
+
+        if (studentPairs && studentCount <= DENSE_STUDENT_PAIR_LIMIT) {
+            this.studentToStudent = new double[studentCount * studentCount];
+            for (int a = 0; a < studentCount; a++) {
+                for (int b = a + 1; b < studentCount; b++) {
+                    double km = pairKm(a, b);
+                    studentToStudent[a * studentCount + b] = km;
+                    studentToStudent[b * studentCount + a] = km;
+                }
+            }
+        } else {
+            this.studentToStudent = null;
+        }
+    }
+
+    /** Road-network costs: rows are drivers then students (when pairs fit densely), columns students then the event. */
+    private CostMatrix(double[] driverLat, double[] driverLng,
+                       double[] studentLat, double[] studentLng,
+                       double eventLat, double eventLng,
+                       boolean studentPairs,
+                       RoadNetworkRouter router) {
+        this.driverCount = driverLat.length;
+        this.studentCount = studentLat.length;
+        this.studentPairs = studentPairs;
+        this.router = router;
+        this.studentLat = studentLat;
+        this.studentLng = studentLng;
+        this.roster = null;
+        this.studentSlots = null;
+        this.studentLatRad = null;
+        this.studentLngRad = null;
+        this.studentCos = null;
+        this.studentSin = null;
+
+        boolean densePairs = studentPairs && studentCount <= DENSE_STUDENT_PAIR_LIMIT;
+        int rows = driverCount + (densePairs ? studentCount : 0);
+        double[] fromLat = new double[rows];
+        double[] fromLng = new double[rows];
+        System.arraycopy(driverLat, 0, fromLat, 0, driverCount);
+        System.arraycopy(driverLng, 0, fromLng, 0, driverCount);
+        if (densePairs) {
+            System.arraycopy(studentLat, 0, fromLat, driverCount, studentCount);
+            System.arraycopy(studentLng, 0, fromLng, driverCount, studentCount);
+        }
+        double[] toLat = Arrays.copyOf(studentLat, studentCount + 1);
+        double[] toLng = Arrays.copyOf(studentLng, studentCount + 1);
+        toLat[studentCount] = eventLat;
+        toLng[studentCount] = eventLng;
+        RoadNetworkRouter.Matrix roads = router.matrix(fromLat, fromLng, toLat, toLng);
+        RoadNetworkRouter.Matrix studentRoads = densePairs
+                ? roads
+                : router.matrix(studentLat, studentLng, new double[]{eventLat}, new double[]{eventLng});
+
+        this.studentToEvent = new double[studentCount];
+        for (int s = 0; s < studentCount; s++) {
+            studentToEvent[s] = densePairs ? roads.km(driverCount + s, studentCount) : studentRoads.km(s, 0);
+        }
+        this.driverToEvent = new double[driverCount];
+        this.driverToStudent = new double[studentCount * driverCount];
+        for (int d = 0; d < driverCount; d++) {
+            driverToEvent[d] = roads.km(d, studentCount);
+            for (int s = 0; s < studentCount; s++) {
+                driverToStudent[s * driverCount + d] = roads.km(d, s);
+            }
+        }
+        this.minAssignmentCost = minAssignmentCosts(driverToStudent, studentToEvent, driverCount);
+        if (densePairs) {
+            this.studentToStudent = new double[studentCount * studentCount];
+            for (int a = 0; a < studentCount; a++) {
+                for (int b = 0; b < studentCount; b++) {
+                    studentToStudent[a * studentCount + b] = a == b ? 0 : roads.km(driverCount + a, b);
+                }
+            }
+        } else {
+            this.studentToStudent = null;
+        }
+    }
+
+    /** Roster costs: driver and student legs from {@code roster} (filled from {@code router}), the event routed. */
+    private CostMatrix(double[] driverLat, double[] driverLng,
+                       double[] studentLat, double[] studentLng,
+                       double eventLat, double eventLng,
+                       boolean studentPairs,
+                       RoadNetworkRouter router,
+                       TravelMatrixStore roster,
+                       int[] driverSlots,
+                       int[] studentSlots) {
+        this.driverCount = driverLat.length;
+        this.studentCount = studentLat.length;
+        this.studentPairs = studentPairs;
+        this.router = router;
+        this.studentLat = studentLat;
+        this.studentLng = studentLng;
+        this.roster = roster;
+        this.studentSlots = studentSlots;
+        this.studentLatRad = null;
+        this.studentLngRad = null;
+        this.studentCos = null;
+        this.studentSin = null;
+
+        double[] fromLat = Arrays.copyOf(driverLat, driverCount + studentCount);
+        double[] fromLng = Arrays.copyOf(driverLng, driverCount + studentCount);
+        System.arraycopy(studentLat, 0, fromLat, driverCount, studentCount);
+        System.arraycopy(studentLng, 0, fromLng, driverCount, studentCount);
+        RoadNetworkRouter.Matrix toEvent =
+                router.matrix(fromLat, fromLng, new double[]{eventLat}, new double[]{eventLng});
+
+        this.driverToEvent = new double[driverCount];
+        for (int d = 0; d < driverCount; d++) {
+            driverToEvent[d] = toEvent.km(d, 0);
+        }
+        this.studentToEvent = new double[studentCount];
+        for (int s = 0; s < studentCount; s++) {
+            studentToEvent[s] = toEvent.km(driverCount + s, 0);
+        }
+        this.driverToStudent = new double[studentCount * driverCount];
+        for (int s = 0; s < studentCount; s++) {
+            for (int d = 0; d < driverCount; d++) {
+                driverToStudent[s * driverCount + d] = roster.distanceKm(driverSlots[d], studentSlots[s]);
+            }
+        }
+        this.minAssignmentCost = minAssignmentCosts(driverToStudent, studentToEvent, driverCount);
+        if (studentPairs && studentCount <= DENSE_STUDENT_PAIR_LIMIT) {
+            this.studentToStudent = new double[studentCount * studentCount];
+            for (int a = 0; a < studentCount; a++) {
+                for (int b = 0; b < studentCount; b++) {
+                    studentToStudent[a * studentCount + b] =
+                            a == b ? 0 : roster.distanceKm(studentSlots[a], studentSlots[b]);
+                }
+            }
+        } else {
+            this.studentToStudent = null;
+        }
+    }
+
+    public static CostMatrix build(double[] driverLat, double[] driverLng,
+                                   double[] studentLat, double[] studentLng,
+                                   double eventLat, double eventLng,
+                                   boolean studentPairs) {
+        return new CostMatrix(driverLat, driverLng, studentLat, studentLng, eventLat, eventLng, studentPairs);
+    }
+
+    public static CostMatrix of(List<OptimizeRequestDTO.DriverDTO> drivers,
+                                List<OptimizeRequestDTO.StudentDTO> students,
+                                LatLngDTO eventLocation,
+                                boolean studentPairs) {
+        double[] driverLat = new double[drivers.size()];
+        double[] driverLng = new double[drivers.size()];
+        for (int i = 0; i < drivers.size(); i++) {
+            driverLat[i] = drivers.get(i).home.lat;
+            driverLng[i] = drivers.get(i).home.lng;
+        }
+        double[] studentLat = new double[students.size()];
+        double[] studentLng = new double[students.size()];
+        for (int i = 0; i < students.size(); i++) {
+            studentLat[i] = students.get(i).home.lat;
+            studentLng[i] = students.get(i).home.lng;
+        }
+        return new CostMatrix(driverLat, driverLng, studentLat, studentLng,
+                eventLocation.lat, eventLocation.lng, studentPairs);
+    }
+
+    /** {@link #of(List, List, LatLngDTO, boolean)} over the road graph; a {@code null} router means haversine. */
+    public static CostMatrix of(List<OptimizeRequestDTO.DriverDTO> drivers,
+                                List<OptimizeRequestDTO.StudentDTO> students,
+                                LatLngDTO eventLocation,
+                                boolean studentPairs,
+                                RoadNetworkRouter router) {
+        if (router == null) {
+            return of(drivers, students, eventLocation, studentPairs);
+        }
+        double[] driverLat = new double[drivers.size()];
+        double[] driverLng = new double[drivers.size()];
+        for (int i = 0; i < drivers.size(); i++) {
+            driverLat[i] = drivers.get(i).home.lat;
+            driverLng[i] = drivers.get(i).home.lng;
+        }
+        double[] studentLat = new double[students.size()];
+        double[] studentLng = new double[students.size()];
+        for (int i = 0; i < students.size(); i++) {
+            studentLat[i] = students.get(i).home.lat;
+            studentLng[i] = students.get(i).home.lng;
+        }
+        return new CostMatrix(driverLat, driverLng, studentLat, studentLng,
+                eventLocation.lat, eventLocation.lng, studentPairs, router);
+    }
+
+    /**
+     * {@link #of(List, List, LatLngDTO, boolean, RoadNetworkRouter)}, reading driver and student legs from
+     * {@code roster} when every driver id names a roster driver and every student id a roster passenger stored at the
+     * request's coordinates. {@code roster} must have been filled from {@code router}; without a router, or when any
+     * id does not match, it is not used.
+     */
+    public static CostMatrix of(List<OptimizeRequestDTO.DriverDTO> drivers,
+                                List<OptimizeRequestDTO.StudentDTO> students,
+                                LatLngDTO eventLocation,
+                                boolean studentPairs,
+                                RoadNetworkRouter router,
+                                TravelMatrixStore roster) {
+        if (router == null || roster == null) {
+            return of(drivers, students, eventLocation, studentPairs, router);
+        }
+        int[] driverSlots = new int[drivers.size()];
+        for (int i = 0; i < drivers.size(); i++) {
+            driverSlots[i] = rosterSlot(roster, TravelMatrixStore.Kind.DRIVER, drivers.get(i).id, drivers.get(i).home);
+            if (driverSlots[i] < 0) {
+                return of(drivers, students, eventLocation, studentPairs, router);
+            }
+        }
+        int[] studentSlots = new int[students.size()];
+        for (int i = 0; i < students.size(); i++) {
+            studentSlots[i] =
+                    rosterSlot(roster, TravelMatrixStore.Kind.PASSENGER, students.get(i).id, students.get(i).home);
+            if (studentSlots[i] < 0) {
+                return of(drivers, students, eventLocation, studentPairs, router);
+            }
+        }
+        double[] driverLat = new double[drivers.size()];
+        double[] driverLng = new double[drivers.size()];
+        for (int i = 0; i < drivers.size(); i++) {
+            driverLat[i] = drivers.get(i).home.lat;
+            driverLng[i] = drivers.get(i).home.lng;
+        }
+        double[] studentLat = new double[students.size()];
+        double[] studentLng = new double[students.size()];
+        for (int i = 0; i < students.size(); i++) {
+            studentLat[i] = students.get(i).home.lat;
+            studentLng[i] = students.get(i).home.lng;
+        }
+        return new CostMatrix(driverLat, driverLng, studentLat, studentLng,
+                eventLocation.lat, eventLocation.lng, studentPairs, router, roster, driverSlots, studentSlots);
+    }
+
+    public int driverCount() {
+        return driverCount;
+    }
+
+    public int studentCount() {
+        return studentCount;
+    }
+
+    public double driverToStudentKm(int driver, int student) {
+        return driverToStudent[student * driverCount + driver];
+    }
+
+    public double studentToEventKm(int student) {
+        return studentToEvent[student];
+    }
+
+    public double driverToEventKm(int driver) {
+        return driverToEvent[driver];
+    }
+
+    /** Detour metric used for seat assignment: driver home &rarr; student home &rarr; event. */
+    public double assignmentCost(int driver, int student) {
+        return driverToStudent[student * driverCount + driver] + studentToEvent[student];
+    }
+
+    /** {@link #assignmentCost} against the nearest driver, i.e. how hard a student is to seat. */
+    public double minAssignmentCost(int student) {
+        return minAssignmentCost[student];
+    }
+
+    public double studentToStudentKm(int a, int b) {
+        if (studentToStudent != null) {
+            return studentToStudent[a * studentCount + b];
+        }
+        if (!studentPairs) {
+            throw new IllegalStateException("CostMatrix was built without student pairs");
+        }
+        return pairKm(a, b);
+    }
+
+    private double pairKm(int a, int b) {
+        if (roster != null) {
+            return a == b ? 0 : roster.distanceKm(studentSlots[a], studentSlots[b]);
+        }
+        if (router != null) {
+            return router.leg(studentLat[a], studentLng[a], studentLat[b], studentLng[b]).km();
+        }
+        return GeoDistance.fastKm(
+                studentLatRad[a], studentLngRad[a], studentCos[a], studentSin[a],
+                studentLatRad[b], studentLngRad[b], studentCos[b], studentSin[b]);
+    }
+
+    /** Slot of the roster entity with this numeric id at exactly {@code home}, or {@code -1}. */
+    private static int rosterSlot(TravelMatrixStore roster, TravelMatrixStore.Kind kind, String id, LatLngDTO home) {
+        long entityId;
+        try {
+            entityId = Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        return roster.slot(kind, entityId, home.lat, home.lng);
+    }
+
+    private static double[] minAssignmentCosts(double[] driverToStudent, double[] studentToEvent, int driverCount) {
+        double[] costs = new double[studentToEvent.length];
+        for (int s = 0; s < costs.length; s++) {
+            double nearest = Double.MAX_VALUE;
+            for (int d = 0; d < driverCount; d++) {
+                nearest = Math.min(nearest, driverToStudent[s * driverCount + d]);
+            }
+            costs[s] = driverCount == 0 ? Double.MAX_VALUE : nearest + studentToEvent[s];
+        }
+        return costs;
+    }
+
+    private static double[] toRadians(double[] degrees) {
+        double[] radians = new double[degrees.length];
+        for (int i = 0; i < degrees.length; i++) {
+            radians[i] = Math.toRadians(degrees[i]);
+        }
+        return radians;
+    }
+
+    private static double[] cos(double[] radians) {
+        double[] values = new double[radians.length];
+        for (int i = 0; i < radians.length; i++) {
+            values[i] = Math.cos(radians[i]);
+        }
+        return values;
+    }
+
+    private static double[] sin(double[] radians) {
+        double[] values = new double[radians.length];
+        for (int i = 0; i < radians.length; i++) {
+            values[i] = Math.sin(radians[i]);
+        }
+        return values;
+    }
+}
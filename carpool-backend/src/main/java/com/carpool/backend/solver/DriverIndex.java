@@ -0,0 +1,301 @@
+package com.carpool.backend.solver;
+
+import java.util.Arrays;
+
+/**
+ * k-d tree over driver homes, built once per request, answering "k nearest drivers that still have seats".
+ * Drivers are {@linkplain #close closed} as their seats run out and every subtree keeps a count of open drivers, so
+ * exhausted regions are skipped without being searched. Distances are {@link GeoDistance#fastKm}, the metric
+ * {@link CostMatrix} uses, and pruning only uses lower bounds on it, so results match a full scan (ties go to the
+ * lower driver index).
+ */
+public final class DriverIndex {
+
+    /**
+     * Keeps the longitude pruning bound below the great-circle distance too, which {@link GeoDistance#fastKm}
+     * falls back to for wide pairs and which runs slightly shorter than the parallel between two points.
+     */
+    private static final double LONGITUDE_BOUND_SLACK = 0.99;
+
+    private final int size;
+    private final double[] latRad;
+    private final double[] lngRad;
+    private final double[] cosLat;
+    private final double[] sinLat;
+    private final double minCosLat;
+
+    /** Driver stored at each tree position; the subtree over {@code [lo, hi)} is rooted at {@code (lo + hi) >>> 1}. */
+    private final int[] tree;
+    private final boolean[] splitsOnLat;
+    private final int[] positionOf;
+    private final int[] openCount;
+    private final boolean[] open;
+
+    public DriverIndex(double[] driverLat, double[] driverLng) {
+        if (driverLat.length != driverLng.length) {
+            throw new IllegalArgumentException("driver latitude and longitude arrays must have the same length");
+        }
+        this.size = driverLat.length;
+        this.latRad = new double[size];
+        this.lngRad = new double[size];
+        this.cosLat = new double[size];
+        this.sinLat = new double[size];
+        double lowestCos = 1;
+        for (int d = 0; d < size; d++) {
+            latRad[d] = Math.toRadians(driverLat[d]);
+            lngRad[d] = Math.toRadians(driverLng[d]);
+            cosLat[d] = Math.cos(latRad[d]);
+            sinLat[d] = Math.sin(latRad[d]);
+            lowestCos = Math.min(lowestCos, cosLat[d]);
+        }
+        this.minCosLat = lowestCos;
+
+        this.tree = new int[size];
+        for (int d = 0; d < size; d++) {
+            tree[d] = d;
+        }
+        this.splitsOnLat = new boolean[size];
+        build(0, size);
+
+        this.positionOf = new int[size];
+        for (int p = 0; p < size; p++) {
+            positionOf[tree[p]] = p;
+        }
+        this.openCount = new int[size];
+        countSubtrees(0, size);
+        this.open = new boolean[size];
+        Arrays.fill(open, true);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isOpen(int driver) {
+        return open[driver];
+    }
+
+    /** Removes a driver from future queries, e.g. once its last seat is taken. */
+    public void close(int driver) {
+        if (!open[driver]) {
+            return;
+        }
+        open[driver] = false;
+        int position = positionOf[driver];
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            openCount[mid]--;
+            if (position == mid) {
+                return;
+            }
+            if (position < mid) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+    }
+
+    /** Distance from a driver's home to a point, in the index metric. */
+    public double distanceKm(int driver, double latDeg, double lngDeg) {
+        double lat = Math.toRadians(latDeg);
+        return GeoDistance.fastKm(latRad[driver], lngRad[driver], cosLat[driver], sinLat[driver],
+                lat, Math.toRadians(lngDeg), Math.cos(lat), Math.sin(lat));
+    }
+
+    /** Up to {@code k} open drivers nearest to the point, nearest first. */
+    public int[] nearestOpen(double latDeg, double lngDeg, int k) {
+        if (k <= 0 || size == 0 || openCount[size >>> 1] == 0) {
+            return new int[0];
+        }
+        Query query = new Query(latDeg, lngDeg, minCosLat, Math.min(k, size));
+        search(0, size, query);
+        return query.sortedDrivers();
+    }
+
+    private void search(int lo, int hi, Query query) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (openCount[mid] == 0) {
+            return;
+        }
+        int driver = tree[mid];
+        if (open[driver]) {
+            query.offer(driver, GeoDistance.fastKm(latRad[driver], lngRad[driver], cosLat[driver], sinLat[driver],
+                    query.lat, query.lng, query.cos, query.sin));
+        }
+
+        double delta = splitsOnLat[mid] ? query.lat - latRad[driver] : query.lng - lngRad[driver];
+        boolean nearIsLow = delta < 0;
+        search(nearIsLow ? lo : mid + 1, nearIsLow ? mid : hi, query);
+
+        double bound = splitsOnLat[mid]
+                ? GeoDistance.EARTH_RADIUS_KM * Math.abs(delta)
+                : GeoDistance.EARTH_RADIUS_KM * Math.abs(delta) * query.lowestCos * LONGITUDE_BOUND_SLACK;
+        if (!query.full() || bound <= query.worstDistance()) {
+            search(nearIsLow ? mid + 1 : lo, nearIsLow ? hi : mid, query);
+        }
+    }
+
+    private void build(int lo, int hi) {
+        if (hi - lo <= 1) {
+            if (hi - lo == 1) {
+                splitsOnLat[lo] = true;
+            }
+            return;
+        }
+        double minLat = Double.POSITIVE_INFINITY;
+        double maxLat = Double.NEGATIVE_INFINITY;
+        double minLng = Double.POSITIVE_INFINITY;
+        double maxLng = Double.NEGATIVE_INFINITY;
+        for (int p = lo; p < hi; p++) {
+            int d = tree[p];
+            minLat = Math.min(minLat, latRad[d]);
+            maxLat = Math.max(maxLat, latRad[d]);
+            minLng = Math.min(minLng, lngRad[d]);
+            maxLng = Math.max(maxLng, lngRad[d]);
+        }
+        // split on whichever axis spans more ground
+        boolean onLat = maxLat - minLat >= (maxLng - minLng) * Math.cos(0.5 * (minLat + maxLat));
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, onLat ? latRad : lngRad);
+        splitsOnLat[mid] = onLat;
+        build(lo, mid);
+        build(mid + 1, hi);
+    }
+
+    /** Quickselect: reorders {@code tree[lo..hi]} so position {@code nth} holds its order statistic by key. */
+    private void select(int lo, int hi, int nth, double[] key) {
+        while (lo < hi) {
+            double pivot = key[tree[(lo + hi) >>> 1]];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (key[tree[i]] < pivot) {
+                    i++;
+                }
+                while (key[tree[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = tree[i];
+                    tree[i] = tree[j];
+                    tree[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (nth <= j) {
+                hi = j;
+            } else if (nth >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private int countSubtrees(int lo, int hi) {
+        if (lo >= hi) {
+            return 0;
+        }
+        int mid = (lo + hi) >>> 1;
+        openCount[mid] = 1 + countSubtrees(lo, mid) + countSubtrees(mid + 1, hi);
+        return openCount[mid];
+    }
+
+    /** Query point plus a bounded max-heap of the best {@code k} (distance, driver) pairs found so far. */
+    private static final class Query {
+        final double lat;
+        final double lng;
+        final double cos;
+        final double sin;
+        /** Lowest cosine of latitude over the drivers and the query point, for the longitude lower bound. */
+        final double lowestCos;
+        final int[] drivers;
+        final double[] distances;
+        int count;
+
+        Query(double latDeg, double lngDeg, double driversLowestCos, int k) {
+            this.lat = Math.toRadians(latDeg);
+            this.lng = Math.toRadians(lngDeg);
+            this.cos = Math.cos(lat);
+            this.sin = Math.sin(lat);
+            this.lowestCos = Math.min(driversLowestCos, cos);
+            this.drivers = new int[k];
+            this.distances = new double[k];
+        }
+
+        boolean full() {
+            return count == drivers.length;
+        }
+
+        double worstDistance() {
+            return distances[0];
+        }
+
+        void offer(int driver, double distance) {
+            if (!full()) {
+                int i = count++;
+                while (i > 0 && worse(distance, driver, (i - 1) >>> 1)) {
+                    moveDown((i - 1) >>> 1, i);
+                    i = (i - 1) >>> 1;
+                }
+                drivers[i] = driver;
+                distances[i] = distance;
+                return;
+            }
+            if (!worse(distances[0], drivers[0], distance, driver)) {
+                return;
+            }
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= count) {
+                    break;
+                }
+                if (child + 1 < count && worse(distances[child + 1], drivers[child + 1], distances[child], drivers[child])) {
+                    child++;
+                }
+                if (!worse(distances[child], drivers[child], distance, driver)) {
+                    break;
+                }
+                moveDown(child, i);
+                i = child;
+            }
+            drivers[i] = driver;
+            distances[i] = distance;
+        }
+
+        int[] sortedDrivers() {
+            Integer[] order = new Integer[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> worse(distances[a], drivers[a], distances[b], drivers[b]) ? 1
+                    : worse(distances[b], drivers[b], distances[a], drivers[a]) ? -1 : 0);
+            int[] sorted = new int[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = drivers[order[i]];
+            }
+            return sorted;
+        }
+
+        private boolean worse(double distance, int driver, int slot) {
+            return worse(distance, driver, distances[slot], drivers[slot]);
+        }
+
+        private static boolean worse(double distance, int driver, double otherDistance, int otherDriver) {
+            return distance > otherDistance || (distance == otherDistance && driver > otherDriver);
+        }
+
+        private void moveDown(int from, int to) {
+            drivers[to] = drivers[from];
+            distances[to] = distances[from];
+        }
+    }
+}
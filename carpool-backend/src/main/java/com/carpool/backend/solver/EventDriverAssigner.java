@@ -0,0 +1,108 @@
+package com.carpool.backend.solver;
+
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a shared driver pool across several events in the same time slot, so every driver serves exactly one
+ * event. (driver, event) pairs are taken in order of increasing driver-to-event distance and a driver joins an event
+ * while that event still has fewer seats than students, except that as many drivers are held back as there are events
+ * still without one, so with at least one driver per event no event is left empty. Drivers left over join the nearest
+ * event that is still short of seats, or their nearest event as spare capacity. The driver&times;event distances are
+ * one matrix, over the road graph when one is loaded.
+ */
+public final class EventDriverAssigner {
+
+    private EventDriverAssigner() {
+    }
+
+    /** Returns the event index for every driver. {@code router} may be {@code null} for straight-line distances. */
+    public static int[] assign(List<OptimizeRequestDTO.DriverDTO> drivers,
+                               List<LatLngDTO> eventLocations,
+                               int[] studentCounts,
+                               RoadNetworkRouter router) {
+        int driverCount = drivers.size();
+        int eventCount = eventLocations.size();
+        double[] km = driverEventKm(drivers, eventLocations, router);
+
+        Integer[] pairs = new Integer[driverCount * eventCount];
+        for (int p = 0; p < pairs.length; p++) {
+            pairs[p] = p;
+        }
+        Arrays.sort(pairs, (left, right) -> Double.compare(km[left], km[right]));
+
+        int[] eventOf = new int[driverCount];
+        Arrays.fill(eventOf, -1);
+        int[] seats = new int[eventCount];
+        int[] driversOf = new int[eventCount];
+        int unassigned = driverCount;
+        int withoutDriver = eventCount;
+        for (int p : pairs) {
+            int d = p / eventCount;
+            int e = p % eventCount;
+            if (eventOf[d] >= 0 || seats[e] >= studentCounts[e]) {
+                continue;
+            }
+            boolean first = driversOf[e] == 0;
+            if (!first && unassigned <= withoutDriver) {
+                continue;
+            }
+            eventOf[d] = e;
+            seats[e] += drivers.get(d).seatCapacity;
+            driversOf[e]++;
+            unassigned--;
+            if (first) {
+                withoutDriver--;
+            }
+        }
+        for (int d = 0; d < driverCount; d++) {
+            if (eventOf[d] >= 0) {
+                continue;
+            }
+            int nearest = -1;
+            boolean nearestShort = false;
+            for (int e = 0; e < eventCount; e++) {
+                boolean isShort = seats[e] < studentCounts[e];
+                if (nearest < 0 || (isShort && !nearestShort)
+                        || (isShort == nearestShort && km[d * eventCount + e] < km[d * eventCount + nearest])) {
+                    nearest = e;
+                    nearestShort = isShort;
+                }
+            }
+            eventOf[d] = nearest;
+            seats[nearest] += drivers.get(d).seatCapacity;
+        }
+        return eventOf;
+    }
+
+    private static double[] driverEventKm(List<OptimizeRequestDTO.DriverDTO> drivers,
+                                          List<LatLngDTO> eventLocations,
+                                          RoadNetworkRouter router) {
+        double[] driverLat = new double[drivers.size()];
+        double[] driverLng = new double[drivers.size()];
+        for (int d = 0; d < drivers.size(); d++) {
+            driverLat[d] = drivers.get(d).home.lat;
+            driverLng[d] = drivers.get(d).home.lng;
+        }
+        double[] eventLat = new double[eventLocations.size()];
+        double[] eventLng = new double[eventLocations.size()];
+        for (int e = 0; e < eventLocations.size(); e++) {
+            eventLat[e] = eventLocations.get(e).lat;
+            eventLng[e] = eventLocations.get(e).lng;
+        }
+        if (router != null) {
+            return router.matrix(driverLat, driverLng, eventLat, eventLng).km();
+        }
+        double[] km = new double[driverLat.length * eventLat.length];
+        for (int d = 0; d < driverLat.length; d++) {
+            for (int e = 0; e < eventLat.length; e++) {
+                km[d * eventLat.length + e] =
+                        GeoDistance.haversineKm(driverLat[d], driverLng[d], eventLat[e], eventLng[e]);
+            }
+        }
+        return km;
+    }
+}
@@ -0,0 +1,138 @@
+package com.carpool.backend.solver;
+
+import java.util.Arrays;
+
+/**
+ * Exact pickup order for a single car: Held-Karp dynamic programming over subsets of students for the shortest path
+ * driver home &rarr; every student &rarr; event on {@link CostMatrix} distances. States that cannot beat the
+ * nearest-neighbour route (or a better one found meanwhile) are not expanded. O(2<sup>n</sup>&middot;n<sup>2</sup>)
+ * time and O(2<sup>n</sup>&middot;n) memory, so it only takes up to {@link #MAX_STOPS} students.
+ */
+public final class ExactRouteSolver {
+
+    public static final int MAX_STOPS = 16;
+
+    private ExactRouteSolver() {
+    }
+
+    /** Order (student indices) in which {@code driver} should visit every student of {@code costs}. */
+    public static int[] solve(CostMatrix costs, int driver) {
+        int n = costs.studentCount();
+        if (n > MAX_STOPS) {
+            throw new IllegalArgumentException("at most " + MAX_STOPS + " stops, got " + n);
+        }
+        if (n <= 1) {
+            return n == 0 ? new int[0] : new int[]{0};
+        }
+
+        int[] bestOrder = nearestNeighbour(costs, driver);
+        double best = routeKm(costs, driver, bestOrder);
+
+        // admissible bound on what is left: each unvisited student is entered by at least its cheapest edge,
+        // and the car still has to reach the event from some student
+        double[] minIn = new double[n];
+        double minToEvent = Double.MAX_VALUE;
+        for (int s = 0; s < n; s++) {
+            minIn[s] = costs.driverToStudentKm(driver, s);
+            for (int other = 0; other < n; other++) {
+                if (other != s) {
+                    minIn[s] = Math.min(minIn[s], costs.studentToStudentKm(other, s));
+                }
+            }
+            minToEvent = Math.min(minToEvent, costs.studentToEventKm(s));
+        }
+
+        int full = (1 << n) - 1;
+        double[] cost = new double[(full + 1) * n];
+        int[] previous = new int[(full + 1) * n];
+        Arrays.fill(cost, Double.POSITIVE_INFINITY);
+        for (int s = 0; s < n; s++) {
+            cost[(1 << s) * n + s] = costs.driverToStudentKm(driver, s);
+        }
+
+        int bestLast = -1;
+        // every subset is finished before any of its supersets, since a superset is numerically larger
+        for (int mask = 1; mask <= full; mask++) {
+            double remaining = minToEvent;
+            for (int s = 0; s < n; s++) {
+                if ((mask & (1 << s)) == 0) {
+                    remaining += minIn[s];
+                }
+            }
+            for (int last = 0; last < n; last++) {
+                double reached = cost[mask * n + last];
+                if (reached == Double.POSITIVE_INFINITY || reached + remaining >= best - 1e-12) {
+                    continue;
+                }
+                if (mask == full) {
+                    double total = reached + costs.studentToEventKm(last);
+                    if (total < best - 1e-12) {
+                        best = total;
+                        bestLast = last;
+                    }
+                    continue;
+                }
+                for (int next = 0; next < n; next++) {
+                    if ((mask & (1 << next)) != 0) {
+                        continue;
+                    }
+                    int state = (mask | (1 << next)) * n + next;
+                    double extended = reached + costs.studentToStudentKm(last, next);
+                    if (extended < cost[state]) {
+                        cost[state] = extended;
+                        previous[state] = last;
+                    }
+                }
+            }
+        }
+
+        if (bestLast < 0) {
+            return bestOrder;
+        }
+        int[] order = new int[n];
+        int mask = full;
+        int last = bestLast;
+        for (int i = n - 1; i >= 0; i--) {
+            order[i] = last;
+            int before = previous[mask * n + last];
+            mask &= ~(1 << last);
+            last = before;
+        }
+        return order;
+    }
+
+    /** Driver home, then {@code order}, then the event. */
+    public static double routeKm(CostMatrix costs, int driver, int[] order) {
+        if (order.length == 0) {
+            return 0;
+        }
+        double km = costs.driverToStudentKm(driver, order[0]);
+        for (int i = 1; i < order.length; i++) {
+            km += costs.studentToStudentKm(order[i - 1], order[i]);
+        }
+        return km + costs.studentToEventKm(order[order.length - 1]);
+    }
+
+    private static int[] nearestNeighbour(CostMatrix costs, int driver) {
+        int n = costs.studentCount();
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            int nearest = -1;
+            double nearestKm = Double.MAX_VALUE;
+            for (int s = 0; s < n; s++) {
+                if (visited[s]) {
+                    continue;
+                }
+                double km = i == 0 ? costs.driverToStudentKm(driver, s) : costs.studentToStudentKm(order[i - 1], s);
+                if (km < nearestKm) {
+                    nearestKm = km;
+                    nearest = s;
+                }
+            }
+            order[i] = nearest;
+            visited[nearest] = true;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,52 @@
+package com.carpool.backend.solver;
+
+public final class GeoDistance {
+
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    /**
+     * Largest latitude or longitude difference (degrees) for which {@link #fastKm} uses the
+     * equirectangular projection. Within this span its relative error against haversine stays below
+     * {@link #FAST_KERNEL_MAX_RELATIVE_ERROR} for latitudes up to 70°; wider pairs fall back to haversine.
+     */
+    public static final double FAST_KERNEL_MAX_SPAN_DEG = 0.5;
+    public static final double FAST_KERNEL_MAX_RELATIVE_ERROR = 5e-4;
+
+    private static final double FAST_KERNEL_MAX_SPAN_RAD = Math.toRadians(FAST_KERNEL_MAX_SPAN_DEG);
+
+    private GeoDistance() {
+    }
+
+    public static double haversineKm(double lat1Deg, double lng1Deg, double lat2Deg, double lng2Deg) {
+        double lat1 = Math.toRadians(lat1Deg);
+        double lat2 = Math.toRadians(lat2Deg);
+        double dLat = lat2 - lat1;
+        double dLng = Math.toRadians(lng2Deg - lng1Deg);
+        double sinLat = Math.sin(dLat / 2);
+        double sinLng = Math.sin(dLng / 2);
+        double h = sinLat * sinLat + Math.cos(lat1) * Math.cos(lat2) * sinLng * sinLng;
+        double c = 2 * Math.atan2(Math.sqrt(h), Math.sqrt(1 - h));
+        return EARTH_RADIUS_KM * c;
+    }
+
+    /**
+     * Distance between two points given in radians together with their precomputed {@code cos}/{@code sin}
+     * of latitude. Uses the equirectangular projection at the mean latitude (one {@code sqrt} for the mean
+     * cosine, one for the length, no trigonometry) and falls back to haversine beyond
+     * {@link #FAST_KERNEL_MAX_SPAN_DEG}.
+     */
+    public static double fastKm(double lat1Rad, double lng1Rad, double cosLat1, double sinLat1,
+                                double lat2Rad, double lng2Rad, double cosLat2, double sinLat2) {
+        double dLat = lat2Rad - lat1Rad;
+        double dLng = lng2Rad - lng1Rad;
+        if (Math.abs(dLat) > FAST_KERNEL_MAX_SPAN_RAD || Math.abs(dLng) > FAST_KERNEL_MAX_SPAN_RAD) {
+            return haversineKm(Math.toDegrees(lat1Rad), Math.toDegrees(lng1Rad),
+                    Math.toDegrees(lat2Rad), Math.toDegrees(lng2Rad));
+        }
+        // cos((a + b) / 2) = sqrt((1 + cos(a + b)) / 2), exact for latitudes in [-90°, 90°]
+        double cosSum = cosLat1 * cosLat2 - sinLat1 * sinLat2;
+        double cosMean = Math.sqrt(0.5 * (1 + cosSum));
+        double x = dLng * cosMean;
+        return EARTH_RADIUS_KM * Math.sqrt(x * x + dLat * dLat);
+    }
+}
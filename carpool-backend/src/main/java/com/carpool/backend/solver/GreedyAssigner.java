@@ -0,0 +1,81 @@
+package com.carpool.backend.solver;
+
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hardest-student-first greedy seat assignment on the {@link CostMatrix#assignmentCost} metric: students are
+ * taken in order of decreasing distance to their nearest driver and each goes to the nearest driver that still has
+ * a seat. Both lookups go through a {@link DriverIndex}, so a request costs O(S log D) index queries instead of
+ * O(S&middot;D) distance evaluations and never materialises the full driver&times;student matrix.
+ */
+public final class GreedyAssigner {
+
+    private GreedyAssigner() {
+    }
+
+    /** Returns the driver index for every student, or {@link MinCostFlowAssigner#UNASSIGNED}. */
+    public static int[] assign(List<OptimizeRequestDTO.DriverDTO> drivers,
+                               List<OptimizeRequestDTO.StudentDTO> students,
+                               LatLngDTO eventLocation) {
+        double[] driverLat = new double[drivers.size()];
+        double[] driverLng = new double[drivers.size()];
+        int[] remainingSeats = new int[drivers.size()];
+        for (int d = 0; d < drivers.size(); d++) {
+            driverLat[d] = drivers.get(d).home.lat;
+            driverLng[d] = drivers.get(d).home.lng;
+            remainingSeats[d] = drivers.get(d).seatCapacity;
+        }
+        DriverIndex index = new DriverIndex(driverLat, driverLng);
+
+        // hardest student first: the one whose nearest driver (seats or not) is farthest away
+        double eventLat = Math.toRadians(eventLocation.lat);
+        double eventLng = Math.toRadians(eventLocation.lng);
+        double eventCos = Math.cos(eventLat);
+        double eventSin = Math.sin(eventLat);
+        double[] minAssignmentCost = new double[students.size()];
+        for (int s = 0; s < students.size(); s++) {
+            LatLngDTO home = students.get(s).home;
+            int[] nearest = index.nearestOpen(home.lat, home.lng, 1);
+            if (nearest.length == 0) {
+                minAssignmentCost[s] = Double.MAX_VALUE;
+                continue;
+            }
+            double lat = Math.toRadians(home.lat);
+            minAssignmentCost[s] = index.distanceKm(nearest[0], home.lat, home.lng)
+                    + GeoDistance.fastKm(lat, Math.toRadians(home.lng), Math.cos(lat), Math.sin(lat),
+                    eventLat, eventLng, eventCos, eventSin);
+        }
+        Integer[] order = new Integer[students.size()];
+        for (int s = 0; s < order.length; s++) {
+            order[s] = s;
+        }
+        Arrays.sort(order, (left, right) -> Double.compare(minAssignmentCost[right], minAssignmentCost[left]));
+
+        for (int d = 0; d < remainingSeats.length; d++) {
+            if (remainingSeats[d] <= 0) {
+                index.close(d);
+            }
+        }
+
+        int[] driverOf = new int[students.size()];
+        Arrays.fill(driverOf, MinCostFlowAssigner.UNASSIGNED);
+        for (int s : order) {
+            LatLngDTO home = students.get(s).home;
+            // the student's own leg to the event is the same for every driver, so nearest is cheapest
+            int[] nearest = index.nearestOpen(home.lat, home.lng, 1);
+            if (nearest.length == 0) {
+                continue;
+            }
+            int driver = nearest[0];
+            driverOf[s] = driver;
+            if (--remainingSeats[driver] == 0) {
+                index.close(driver);
+            }
+        }
+        return driverOf;
+    }
+}
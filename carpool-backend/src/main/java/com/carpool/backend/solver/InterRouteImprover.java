@@ -0,0 +1,407 @@
+package com.carpool.backend.solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Improves a seat split between cars by moving students across routes: relocate (one student to another car),
+ * swap (two students of different cars trade places) and cross-exchange (two runs of up to two stops trade places),
+ * never exceeding a car's capacity. Once no such move helps, each route's own order is polished with
+ * {@link RouteImprover}, and the search continues if that changed anything.
+ * <p>
+ * Several starts run in parallel: the calling thread runs the first, the others go to a pool of one daemon thread per
+ * extra core that all improvers share, and the caller takes back and runs any start the pool has not picked up by the
+ * time its own start ends. The starts share the best solution found so far: whenever a start reaches a local optimum
+ * it publishes it if it is better, then continues from the shared best with a few random relocations applied, until
+ * the time budget runs out or restarts stop paying off. Which of two equally short solutions wins depends on timing.
+ * Students the input leaves unseated stay unseated.
+ */
+public final class InterRouteImprover {
+
+    private static final double EPSILON_KM = 1e-9;
+    private static final int MAX_CROSS_SEGMENT = 2;
+    /** A start gives up after this many restarts in a row that did not improve the shared best. */
+    private static final int MAX_IDLE_RESTARTS = 25;
+    static final ThreadPoolExecutor POOL = newPool();
+
+    private final long timeBudgetNanos;
+    private final int starts;
+    private final long seed;
+
+    /** {@code starts <= 0} means one start per available processor. */
+    public InterRouteImprover(long timeBudgetMillis, int starts, long seed) {
+        this.timeBudgetNanos = Math.max(0, timeBudgetMillis) * 1_000_000L;
+        this.starts = starts > 0 ? starts : Runtime.getRuntime().availableProcessors();
+        this.seed = seed;
+    }
+
+    /**
+     * Returns improved routes (student indices per vehicle, in visiting order) for the same students as
+     * {@code routes}; the result is never longer in total than the input.
+     */
+    public int[][] improve(VrpInstance instance, int[][] routes) {
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        Routes initial = new Routes(instance, routes);
+        AtomicReference<Routes> best = new AtomicReference<>(initial.copy());
+
+        List<FutureTask<Void>> helpers = new ArrayList<>(starts - 1);
+        List<AtomicBoolean> claimed = new ArrayList<>(starts - 1);
+        for (int start = 1; start < starts; start++) {
+            SplittableRandom random = new SplittableRandom(seed + start);
+            AtomicBoolean taken = new AtomicBoolean();
+            FutureTask<Void> helper = new FutureTask<>(() -> {
+                if (taken.compareAndSet(false, true)) {
+                    search(initial.copy(), best, random, true, deadline);
+                }
+            }, null);
+            claimed.add(taken);
+            helpers.add(helper);
+            POOL.execute(helper);
+        }
+        search(initial.copy(), best, new SplittableRandom(seed), false, deadline);
+        List<FutureTask<Void>> started = new ArrayList<>(helpers.size());
+        for (int i = 0; i < helpers.size(); i++) {
+            FutureTask<Void> helper = helpers.get(i);
+            if (claimed.get(i).compareAndSet(false, true)) {
+                // the pool never started it: take it out of the shared queue rather than wait for a thread to drop it
+                helper.cancel(false);
+                POOL.remove(helper);
+                search(initial.copy(), best, new SplittableRandom(seed + i + 1), true, deadline);
+            } else {
+                started.add(helper);
+            }
+        }
+        try {
+            for (FutureTask<Void> helper : started) {
+                helper.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return best.get().toArray();
+    }
+
+    private static ThreadPoolExecutor newPool() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger threadNumber = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "inter-route-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static void search(Routes current, AtomicReference<Routes> best, SplittableRandom random,
+                               boolean perturbFirst, long deadline) {
+        if (perturbFirst) {
+            current.perturb(random);
+        }
+        int idleRestarts = 0;
+        while (System.nanoTime() < deadline && idleRestarts < MAX_IDLE_RESTARTS) {
+            descend(current, deadline);
+            Routes found = current.copy();
+            idleRestarts = best.accumulateAndGet(found, InterRouteImprover::better) == found ? 0 : idleRestarts + 1;
+            if (current.assignedCount() < 2 || current.vehicleCount() < 2) {
+                return;
+            }
+            current = best.get().copy();
+            current.perturb(random);
+        }
+    }
+
+    private static void descend(Routes routes, long deadline) {
+        boolean improved = true;
+        while (improved && System.nanoTime() < deadline) {
+            improved = routes.relocate(deadline) || routes.swap(deadline) || routes.crossExchange(deadline);
+            if (!improved) {
+                improved = routes.polishOrders(deadline);
+            }
+        }
+    }
+
+    /** {@code right} wins only if it is shorter by more than rounding noise. */
+    private static Routes better(Routes left, Routes right) {
+        return right.total < left.total - EPSILON_KM ? right : left;
+    }
+
+    private static final class Routes {
+        final VrpInstance instance;
+        final int[][] stops;
+        final int[] size;
+        final double[] cost;
+        double total;
+
+        Routes(VrpInstance instance, int[][] routes) {
+            this.instance = instance;
+            int vehicleCount = instance.vehicleCount();
+            this.stops = new int[vehicleCount][];
+            this.size = new int[vehicleCount];
+            this.cost = new double[vehicleCount];
+            for (int v = 0; v < vehicleCount; v++) {
+                stops[v] = Arrays.copyOf(routes[v], Math.max(routes[v].length, instance.capacity(v)));
+                size[v] = routes[v].length;
+                cost[v] = instance.routeCost(v, stops[v], size[v]);
+                total += cost[v];
+            }
+        }
+
+        private Routes(Routes other) {
+            this.instance = other.instance;
+            this.stops = new int[other.stops.length][];
+            for (int v = 0; v < stops.length; v++) {
+                stops[v] = other.stops[v].clone();
+            }
+            this.size = other.size.clone();
+            this.cost = other.cost.clone();
+            this.total = other.total;
+        }
+
+        Routes copy() {
+            return new Routes(this);
+        }
+
+        int vehicleCount() {
+            return stops.length;
+        }
+
+        int assignedCount() {
+            int count = 0;
+            for (int routeSize : size) {
+                count += routeSize;
+            }
+            return count;
+        }
+
+        int[][] toArray() {
+            int[][] routes = new int[stops.length][];
+            for (int v = 0; v < stops.length; v++) {
+                routes[v] = Arrays.copyOf(stops[v], size[v]);
+            }
+            return routes;
+        }
+
+        /** Moves the first student whose insertion somewhere in another car with a free seat shortens the total. */
+        boolean relocate(long deadline) {
+            for (int from = 0; from < stops.length; from++) {
+                if (System.nanoTime() >= deadline) {
+                    return false;
+                }
+                for (int i = 0; i < size[from]; i++) {
+                    int student = stops[from][i];
+                    double removal = removalDelta(from, i);
+                    for (int to = 0; to < stops.length; to++) {
+                        if (to == from || size[to] >= instance.capacity(to)) {
+                            continue;
+                        }
+                        for (int j = 0; j <= size[to]; j++) {
+                            double delta = removal + insertionDelta(to, j, student);
+                            if (delta < -EPSILON_KM) {
+                                remove(from, i);
+                                insert(to, j, student);
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        /** Exchanges the first pair of students in different cars whose trade (in place) shortens the total. */
+        boolean swap(long deadline) {
+            for (int a = 0; a < stops.length; a++) {
+                if (System.nanoTime() >= deadline) {
+                    return false;
+                }
+                for (int b = a + 1; b < stops.length; b++) {
+                    for (int i = 0; i < size[a]; i++) {
+                        for (int j = 0; j < size[b]; j++) {
+                            double delta = replacementDelta(a, i, stops[b][j]) + replacementDelta(b, j, stops[a][i]);
+                            if (delta < -EPSILON_KM) {
+                                int swapped = stops[a][i];
+                                stops[a][i] = stops[b][j];
+                                stops[b][j] = swapped;
+                                recost(a);
+                                recost(b);
+                                return true;
+                            }
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        /** Trades the first pair of runs (one to {@link #MAX_CROSS_SEGMENT} stops each) that shortens the total. */
+        boolean crossExchange(long deadline) {
+            for (int a = 0; a < stops.length; a++) {
+                if (System.nanoTime() >= deadline) {
+                    return false;
+                }
+                for (int b = a + 1; b < stops.length; b++) {
+                    for (int lengthA = 1; lengthA <= MAX_CROSS_SEGMENT; lengthA++) {
+                        for (int lengthB = 1; lengthB <= MAX_CROSS_SEGMENT; lengthB++) {
+                            if (lengthA == 1 && lengthB == 1) {
+                                continue; // a plain swap
+                            }
+                            if (size[a] - lengthA + lengthB > instance.capacity(a)
+                                    || size[b] - lengthB + lengthA > instance.capacity(b)) {
+                                continue;
+                            }
+                            for (int i = 0; i + lengthA <= size[a]; i++) {
+                                for (int j = 0; j + lengthB <= size[b]; j++) {
+                                    int[] newA = exchanged(a, i, lengthA, b, j, lengthB);
+                                    int[] newB = exchanged(b, j, lengthB, a, i, lengthA);
+                                    double newCostA = instance.routeCost(a, newA, newA.length);
+                                    double newCostB = instance.routeCost(b, newB, newB.length);
+                                    if (newCostA + newCostB < cost[a] + cost[b] - EPSILON_KM) {
+                                        replace(a, newA);
+                                        replace(b, newB);
+                                        return true;
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        /** Re-sequences every route with {@link RouteImprover}; true if any got shorter. */
+        boolean polishOrders(long deadline) {
+            RouteImprover improver = new RouteImprover(Math.max(0, (deadline - System.nanoTime()) / 1_000_000L));
+            boolean improved = false;
+            for (int v = 0; v < stops.length; v++) {
+                if (size[v] < 2) {
+                    continue;
+                }
+                int[] order = improver.improve(instance.costs(), v, Arrays.copyOf(stops[v], size[v]));
+                double orderCost = instance.routeCost(v, order, order.length);
+                if (orderCost < cost[v] - EPSILON_KM) {
+                    replace(v, order);
+                    improved = true;
+                }
+            }
+            return improved;
+        }
+
+        /** A handful of random relocations to leave the current local optimum. */
+        void perturb(SplittableRandom random) {
+            int moves = Math.max(2, assignedCount() / 10);
+            for (int m = 0; m < moves; m++) {
+                int from = random.nextInt(stops.length);
+                int to = random.nextInt(stops.length);
+                if (from == to || size[from] == 0 || size[to] >= instance.capacity(to)) {
+                    continue;
+                }
+                int student = stops[from][random.nextInt(size[from])];
+                remove(from, indexOf(from, student));
+                insert(to, random.nextInt(size[to] + 1), student);
+            }
+        }
+
+        private int indexOf(int vehicle, int student) {
+            for (int i = 0; i < size[vehicle]; i++) {
+                if (stops[vehicle][i] == student) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private double removalDelta(int vehicle, int position) {
+            if (size[vehicle] == 1) {
+                return -cost[vehicle];
+            }
+            int student = stops[vehicle][position];
+            return edge(vehicle, position - 1, next(vehicle, position + 1))
+                    - edge(vehicle, position - 1, student)
+                    - edgeFrom(student, next(vehicle, position + 1));
+        }
+
+        private double insertionDelta(int vehicle, int position, int student) {
+            if (size[vehicle] == 0) {
+                return instance.startToStudent(vehicle, student) + instance.studentToEvent(student);
+            }
+            int next = next(vehicle, position);
+            return edge(vehicle, position - 1, student) + edgeFrom(student, next)
+                    - edge(vehicle, position - 1, next);
+        }
+
+        /** Change in the route's cost when the student at {@code position} is replaced by {@code student}. */
+        private double replacementDelta(int vehicle, int position, int student) {
+            int current = stops[vehicle][position];
+            int next = next(vehicle, position + 1);
+            return edge(vehicle, position - 1, student) + edgeFrom(student, next)
+                    - edge(vehicle, position - 1, current) - edgeFrom(current, next);
+        }
+
+        /** Student at {@code position}, or -1 for the event past the end of the route. */
+        private int next(int vehicle, int position) {
+            return position < size[vehicle] ? stops[vehicle][position] : -1;
+        }
+
+        /** Distance from route position {@code from} (-1 = the driver's home) to a student or, at -1, the event. */
+        private double edge(int vehicle, int from, int to) {
+            if (from < 0) {
+                return to < 0 ? instance.costs().driverToEventKm(vehicle) : instance.startToStudent(vehicle, to);
+            }
+            return edgeFrom(stops[vehicle][from], to);
+        }
+
+        private double edgeFrom(int student, int to) {
+            return to < 0 ? instance.studentToEvent(student) : instance.studentToStudent(student, to);
+        }
+
+        private int[] exchanged(int vehicle, int position, int length, int other, int otherPosition, int otherLength) {
+            int[] route = new int[size[vehicle] - length + otherLength];
+            System.arraycopy(stops[vehicle], 0, route, 0, position);
+            System.arraycopy(stops[other], otherPosition, route, position, otherLength);
+            System.arraycopy(stops[vehicle], position + length, route, position + otherLength,
+                    size[vehicle] - position - length);
+            return route;
+        }
+
+        private void remove(int vehicle, int position) {
+            System.arraycopy(stops[vehicle], position + 1, stops[vehicle], position, size[vehicle] - position - 1);
+            size[vehicle]--;
+            recost(vehicle);
+        }
+
+        private void insert(int vehicle, int position, int student) {
+            System.arraycopy(stops[vehicle], position, stops[vehicle], position + 1, size[vehicle] - position);
+            stops[vehicle][position] = student;
+            size[vehicle]++;
+            recost(vehicle);
+        }
+
+        private void replace(int vehicle, int[] route) {
+            System.arraycopy(route, 0, stops[vehicle], 0, route.length);
+            size[vehicle] = route.length;
+            recost(vehicle);
+        }
+
+        private void recost(int vehicle) {
+            total -= cost[vehicle];
+            cost[vehicle] = instance.routeCost(vehicle, stops[vehicle], size[vehicle]);
+            total += cost[vehicle];
+        }
+    }
+}
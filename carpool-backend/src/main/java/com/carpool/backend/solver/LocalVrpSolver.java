@@ -0,0 +1,539 @@
+package com.carpool.backend.solver;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * In-process solver for {@link VrpInstance}: a hardest-first cheapest-insertion construction followed by
+ * adaptive large neighbourhood search (random / worst / related removal, greedy / regret-2 repair,
+ * simulated-annealing acceptance) until the time budget or the iteration cap is reached.
+ */
+public final class LocalVrpSolver {
+
+    /** Cost charged per unseated student so that seating everyone always beats a shorter route. */
+    static final double UNASSIGNED_PENALTY_KM = 100_000;
+
+    private static final int DESTROY_RANDOM = 0;
+    private static final int DESTROY_WORST = 1;
+    private static final int DESTROY_RELATED = 2;
+    private static final int REPAIR_GREEDY = 0;
+    private static final int REPAIR_REGRET = 1;
+
+    private static final double SCORE_NEW_BEST = 33;
+    private static final double SCORE_IMPROVED = 9;
+    private static final double SCORE_ACCEPTED = 13;
+    private static final double REACTION = 0.1;
+    private static final int SEGMENT_LENGTH = 100;
+    private static final double REMOVAL_DETERMINISM = 3;
+    private static final int MAX_REMOVED = 60;
+
+    private final long timeBudgetNanos;
+    private final int maxIterations;
+    private final long seed;
+
+    public LocalVrpSolver(long timeBudgetMillis, int maxIterations, long seed) {
+        this.timeBudgetNanos = Math.max(0, timeBudgetMillis) * 1_000_000L;
+        this.maxIterations = Math.max(0, maxIterations);
+        this.seed = seed;
+    }
+
+    public VrpSolution solve(VrpInstance instance) {
+        long startedAt = System.nanoTime();
+        State current = new State(instance);
+        construct(current);
+        return search(current, startedAt);
+    }
+
+    /**
+     * Like {@link #solve(VrpInstance)}, but searches from {@code initialRoutes} (completed as in {@link #repair})
+     * instead of constructing a solution, so the result is never worse than that starting point.
+     */
+    public VrpSolution solve(VrpInstance instance, int[][] initialRoutes) {
+        long startedAt = System.nanoTime();
+        return search(seed(instance, initialRoutes), startedAt);
+    }
+
+    private VrpSolution search(State current, long startedAt) {
+        VrpInstance instance = current.instance;
+        SplittableRandom random = new SplittableRandom(seed);
+        State best = current.copy();
+
+        int studentCount = instance.studentCount();
+        int iterations = 0;
+        if (studentCount >= 2 && instance.vehicleCount() > 0) {
+            State candidate = current.copy();
+            double[] destroyWeights = {1, 1, 1};
+            double[] repairWeights = {1, 1};
+            double[] destroyScores = new double[3];
+            double[] repairScores = new double[2];
+            int[] destroyUses = new int[3];
+            int[] repairUses = new int[2];
+            int[] removed = new int[studentCount];
+            double initialTemperature = Math.max(1e-6, 0.05 * current.total / -Math.log(0.5));
+
+            while (iterations < maxIterations) {
+                long elapsed = System.nanoTime() - startedAt;
+                if (elapsed >= timeBudgetNanos) {
+                    break;
+                }
+                double progress = Math.max(
+                        (double) elapsed / Math.max(1, timeBudgetNanos),
+                        (double) iterations / Math.max(1, maxIterations)
+                );
+                double temperature = initialTemperature * (1 - progress) + 1e-9;
+
+                int destroy = pick(destroyWeights, random);
+                int repair = pick(repairWeights, random);
+                candidate.copyFrom(current);
+
+                int assigned = studentCount - candidate.unassignedCount;
+                int maxRemove = Math.min(MAX_REMOVED, Math.max(2, (int) Math.ceil(assigned * 0.3)));
+                int toRemove = Math.min(assigned, 1 + random.nextInt(maxRemove));
+                int removedCount = switch (destroy) {
+                    case DESTROY_WORST -> destroyWorst(candidate, toRemove, removed, random);
+                    case DESTROY_RELATED -> destroyRelated(candidate, toRemove, removed, random);
+                    default -> destroyRandom(candidate, toRemove, removed, random);
+                };
+                int pendingCount = collectPending(candidate, removed, removedCount);
+                if (repair == REPAIR_REGRET) {
+                    repairRegret(candidate, removed, pendingCount);
+                } else {
+                    repairGreedy(candidate, removed, pendingCount, random);
+                }
+
+                double score = 0;
+                double candidateObjective = candidate.objective();
+                double currentObjective = current.objective();
+                if (candidateObjective < best.objective() - 1e-9) {
+                    best.copyFrom(candidate);
+                    current.copyFrom(candidate);
+                    score = SCORE_NEW_BEST;
+                } else if (candidateObjective < currentObjective - 1e-9) {
+                    current.copyFrom(candidate);
+                    score = SCORE_IMPROVED;
+                } else if (random.nextDouble() < Math.exp((currentObjective - candidateObjective) / temperature)) {
+                    current.copyFrom(candidate);
+                    score = SCORE_ACCEPTED;
+                }
+                destroyScores[destroy] += score;
+                repairScores[repair] += score;
+                destroyUses[destroy]++;
+                repairUses[repair]++;
+
+                iterations++;
+                if (iterations % SEGMENT_LENGTH == 0) {
+                    updateWeights(destroyWeights, destroyScores, destroyUses);
+                    updateWeights(repairWeights, repairScores, repairUses);
+                }
+            }
+        }
+
+        return best.toSolution(iterations);
+    }
+
+    /**
+     * Keeps {@code routes} (student indices per vehicle, in visiting order) and seats every student missing from them
+     * by regret-2 cheapest insertion, without searching further. Stops beyond a vehicle's capacity are reinserted
+     * like missing ones. Meant for small edits to an existing plan, where re-solving everything is not worth it.
+     */
+    public static VrpSolution repair(VrpInstance instance, int[][] routes) {
+        return seed(instance, routes).toSolution(0);
+    }
+
+    private static State seed(VrpInstance instance, int[][] routes) {
+        if (routes.length != instance.vehicleCount()) {
+            throw new IllegalArgumentException("routes length must match vehicle count");
+        }
+        State state = new State(instance);
+        for (int v = 0; v < routes.length; v++) {
+            for (int student : routes[v]) {
+                if (state.size[v] < instance.capacity(v) && state.vehicleOf[student] < 0) {
+                    state.insert(student, v, state.size[v]);
+                }
+            }
+        }
+        int[] pending = new int[state.unassignedCount];
+        int pendingCount = 0;
+        for (int s = 0; s < instance.studentCount(); s++) {
+            if (state.vehicleOf[s] < 0) {
+                pending[pendingCount++] = s;
+            }
+        }
+        repairRegret(state, pending, pendingCount);
+        return state;
+    }
+
+    private static void construct(State state) {
+        VrpInstance instance = state.instance;
+        int studentCount = instance.studentCount();
+        CostMatrix costs = instance.costs();
+        Integer[] order = new Integer[studentCount];
+        for (int s = 0; s < studentCount; s++) {
+            order[s] = s;
+        }
+        Arrays.sort(order, (left, right) -> Double.compare(costs.minAssignmentCost(right), costs.minAssignmentCost(left)));
+        for (int s : order) {
+            insertBest(state, s);
+        }
+    }
+
+    private static int destroyRandom(State state, int count, int[] removed, SplittableRandom random) {
+        int[] assigned = state.assignedStudents();
+        shuffle(assigned, random);
+        int removedCount = Math.min(count, assigned.length);
+        for (int i = 0; i < removedCount; i++) {
+            removed[i] = assigned[i];
+            state.remove(assigned[i]);
+        }
+        return removedCount;
+    }
+
+    private static int destroyWorst(State state, int count, int[] removed, SplittableRandom random) {
+        int[] assigned = state.assignedStudents();
+        double[] saving = new double[state.instance.studentCount()];
+        for (int s : assigned) {
+            saving[s] = state.removalSaving(s);
+        }
+        Integer[] ranked = boxed(assigned);
+        Arrays.sort(ranked, (left, right) -> Double.compare(saving[right], saving[left]));
+        return removeRanked(state, ranked, count, removed, random);
+    }
+
+    private static int destroyRelated(State state, int count, int[] removed, SplittableRandom random) {
+        int[] assigned = state.assignedStudents();
+        if (assigned.length == 0) {
+            return 0;
+        }
+        int seedStudent = assigned[random.nextInt(assigned.length)];
+        VrpInstance instance = state.instance;
+        double[] relatedness = new double[instance.studentCount()];
+        for (int s : assigned) {
+            relatedness[s] = instance.studentToStudent(seedStudent, s);
+        }
+        Integer[] ranked = boxed(assigned);
+        Arrays.sort(ranked, (left, right) -> Double.compare(relatedness[left], relatedness[right]));
+        return removeRanked(state, ranked, count, removed, random);
+    }
+
+    private static int removeRanked(State state, Integer[] ranked, int count, int[] removed, SplittableRandom random) {
+        int remaining = ranked.length;
+        int removedCount = 0;
+        while (removedCount < count && remaining > 0) {
+            int index = (int) (Math.pow(random.nextDouble(), REMOVAL_DETERMINISM) * remaining);
+            int student = ranked[index];
+            System.arraycopy(ranked, index + 1, ranked, index, remaining - index - 1);
+            remaining--;
+            removed[removedCount++] = student;
+            state.remove(student);
+        }
+        return removedCount;
+    }
+
+    /** Appends students left unseated by earlier iterations so that every repair gets another chance at them. */
+    private static int collectPending(State state, int[] removed, int removedCount) {
+        int pending = removedCount;
+        boolean[] listed = new boolean[state.instance.studentCount()];
+        for (int i = 0; i < removedCount; i++) {
+            listed[removed[i]] = true;
+        }
+        for (int s = 0; s < state.vehicleOf.length; s++) {
+            if (state.vehicleOf[s] < 0 && !listed[s]) {
+                removed[pending++] = s;
+            }
+        }
+        return pending;
+    }
+
+    private static void repairGreedy(State state, int[] pending, int count, SplittableRandom random) {
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = pending[i];
+            pending[i] = pending[j];
+            pending[j] = tmp;
+        }
+        for (int i = 0; i < count; i++) {
+            insertBest(state, pending[i]);
+        }
+    }
+
+    private static void repairRegret(State state, int[] pending, int count) {
+        VrpInstance instance = state.instance;
+        int remaining = count;
+        while (remaining > 0) {
+            int chosenIndex = -1;
+            int chosenVehicle = -1;
+            int chosenPosition = -1;
+            double chosenRegret = -1;
+            double chosenCost = Double.MAX_VALUE;
+
+            for (int i = 0; i < remaining; i++) {
+                int student = pending[i];
+                double bestCost = Double.MAX_VALUE;
+                double secondCost = Double.MAX_VALUE;
+                int bestVehicle = -1;
+                int bestPosition = -1;
+                for (int v = 0; v < instance.vehicleCount(); v++) {
+                    if (state.size[v] >= instance.capacity(v)) {
+                        continue;
+                    }
+                    int position = state.bestPosition(v, student);
+                    double cost = state.lastInsertionCost;
+                    if (cost < bestCost) {
+                        secondCost = bestCost;
+                        bestCost = cost;
+                        bestVehicle = v;
+                        bestPosition = position;
+                    } else if (cost < secondCost) {
+                        secondCost = cost;
+                    }
+                }
+                if (bestVehicle < 0) {
+                    continue;
+                }
+                double regret = secondCost == Double.MAX_VALUE ? UNASSIGNED_PENALTY_KM : secondCost - bestCost;
+                if (regret > chosenRegret || (regret == chosenRegret && bestCost < chosenCost)) {
+                    chosenRegret = regret;
+                    chosenCost = bestCost;
+                    chosenIndex = i;
+                    chosenVehicle = bestVehicle;
+                    chosenPosition = bestPosition;
+                }
+            }
+
+            if (chosenIndex < 0) {
+                return;
+            }
+            state.insert(pending[chosenIndex], chosenVehicle, chosenPosition);
+            pending[chosenIndex] = pending[--remaining];
+        }
+    }
+
+    private static boolean insertBest(State state, int student) {
+        VrpInstance instance = state.instance;
+        double bestCost = Double.MAX_VALUE;
+        int bestVehicle = -1;
+        int bestPosition = -1;
+        for (int v = 0; v < instance.vehicleCount(); v++) {
+            if (state.size[v] >= instance.capacity(v)) {
+                continue;
+            }
+            int position = state.bestPosition(v, student);
+            if (state.lastInsertionCost < bestCost) {
+                bestCost = state.lastInsertionCost;
+                bestVehicle = v;
+                bestPosition = position;
+            }
+        }
+        if (bestVehicle < 0) {
+            return false;
+        }
+        state.insert(student, bestVehicle, bestPosition);
+        return true;
+    }
+
+    private static int pick(double[] weights, SplittableRandom random) {
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double target = random.nextDouble() * total;
+        for (int i = 0; i < weights.length; i++) {
+            target -= weights[i];
+            if (target <= 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    private static void updateWeights(double[] weights, double[] scores, int[] uses) {
+        for (int i = 0; i < weights.length; i++) {
+            if (uses[i] > 0) {
+                weights[i] = Math.max(0.05, weights[i] * (1 - REACTION) + REACTION * scores[i] / uses[i]);
+            }
+            scores[i] = 0;
+            uses[i] = 0;
+        }
+    }
+
+    private static void shuffle(int[] values, SplittableRandom random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+
+    private static Integer[] boxed(int[] values) {
+        Integer[] boxed = new Integer[values.length];
+        for (int i = 0; i < values.length; i++) {
+            boxed[i] = values[i];
+        }
+        return boxed;
+    }
+
+    /** Mutable solution; route arrays are sized to seat capacity so copies never reallocate. */
+    private static final class State {
+        final VrpInstance instance;
+        final int[][] stops;
+        final int[] size;
+        final double[] routeCost;
+        final int[] vehicleOf;
+        int unassignedCount;
+        double total;
+        double lastInsertionCost;
+
+        State(VrpInstance instance) {
+            this.instance = instance;
+            int vehicleCount = instance.vehicleCount();
+            this.stops = new int[vehicleCount][];
+            for (int v = 0; v < vehicleCount; v++) {
+                stops[v] = new int[Math.max(0, instance.capacity(v))];
+            }
+            this.size = new int[vehicleCount];
+            this.routeCost = new double[vehicleCount];
+            this.vehicleOf = new int[instance.studentCount()];
+            Arrays.fill(vehicleOf, -1);
+            this.unassignedCount = instance.studentCount();
+        }
+
+        State copy() {
+            State copy = new State(instance);
+            copy.copyFrom(this);
+            return copy;
+        }
+
+        void copyFrom(State other) {
+            for (int v = 0; v < stops.length; v++) {
+                System.arraycopy(other.stops[v], 0, stops[v], 0, other.size[v]);
+            }
+            System.arraycopy(other.size, 0, size, 0, size.length);
+            System.arraycopy(other.routeCost, 0, routeCost, 0, routeCost.length);
+            System.arraycopy(other.vehicleOf, 0, vehicleOf, 0, vehicleOf.length);
+            unassignedCount = other.unassignedCount;
+            total = other.total;
+        }
+
+        double objective() {
+            return total + unassignedCount * UNASSIGNED_PENALTY_KM;
+        }
+
+        int[] assignedStudents() {
+            int[] assigned = new int[vehicleOf.length - unassignedCount];
+            int n = 0;
+            for (int s = 0; s < vehicleOf.length; s++) {
+                if (vehicleOf[s] >= 0) {
+                    assigned[n++] = s;
+                }
+            }
+            return assigned;
+        }
+
+        /** Returns the cheapest insertion position of {@code student} in {@code vehicle}; its cost is left in {@link #lastInsertionCost}. */
+        int bestPosition(int vehicle, int student) {
+            int n = size[vehicle];
+            int[] route = stops[vehicle];
+            if (n == 0) {
+                lastInsertionCost = instance.startToStudent(vehicle, student) + instance.studentToEvent(student);
+                return 0;
+            }
+            double best = instance.startToStudent(vehicle, student)
+                    + instance.studentToStudent(student, route[0])
+                    - instance.startToStudent(vehicle, route[0]);
+            int bestPosition = 0;
+            for (int p = 1; p < n; p++) {
+                double delta = instance.studentToStudent(route[p - 1], student)
+                        + instance.studentToStudent(student, route[p])
+                        - instance.studentToStudent(route[p - 1], route[p]);
+                if (delta < best) {
+                    best = delta;
+                    bestPosition = p;
+                }
+            }
+            double tail = instance.studentToStudent(route[n - 1], student)
+                    + instance.studentToEvent(student)
+                    - instance.studentToEvent(route[n - 1]);
+            if (tail < best) {
+                best = tail;
+                bestPosition = n;
+            }
+            lastInsertionCost = best;
+            return bestPosition;
+        }
+
+        double removalSaving(int student) {
+            int vehicle = vehicleOf[student];
+            int[] route = stops[vehicle];
+            int n = size[vehicle];
+            if (n == 1) {
+                return routeCost[vehicle];
+            }
+            int p = indexOf(route, n, student);
+            double before = p == 0 ? instance.startToStudent(vehicle, student) : instance.studentToStudent(route[p - 1], student);
+            double after = p == n - 1 ? instance.studentToEvent(student) : instance.studentToStudent(student, route[p + 1]);
+            double bridge;
+            if (p == 0) {
+                bridge = instance.startToStudent(vehicle, route[1]);
+            } else if (p == n - 1) {
+                bridge = instance.studentToEvent(route[n - 2]);
+            } else {
+                bridge = instance.studentToStudent(route[p - 1], route[p + 1]);
+            }
+            return before + after - bridge;
+        }
+
+        void insert(int student, int vehicle, int position) {
+            int[] route = stops[vehicle];
+            System.arraycopy(route, position, route, position + 1, size[vehicle] - position);
+            route[position] = student;
+            size[vehicle]++;
+            vehicleOf[student] = vehicle;
+            unassignedCount--;
+            refresh(vehicle);
+        }
+
+        void remove(int student) {
+            int vehicle = vehicleOf[student];
+            int[] route = stops[vehicle];
+            int p = indexOf(route, size[vehicle], student);
+            System.arraycopy(route, p + 1, route, p, size[vehicle] - p - 1);
+            size[vehicle]--;
+            vehicleOf[student] = -1;
+            unassignedCount++;
+            refresh(vehicle);
+        }
+
+        private void refresh(int vehicle) {
+            double updated = instance.routeCost(vehicle, stops[vehicle], size[vehicle]);
+            total += updated - routeCost[vehicle];
+            routeCost[vehicle] = updated;
+        }
+
+        VrpSolution toSolution(int iterations) {
+            int[][] routes = new int[stops.length][];
+            double cost = 0;
+            for (int v = 0; v < stops.length; v++) {
+                routes[v] = Arrays.copyOf(stops[v], size[v]);
+                cost += instance.routeCost(v, routes[v], routes[v].length);
+            }
+            int[] unassigned = new int[unassignedCount];
+            int n = 0;
+            for (int s = 0; s < vehicleOf.length; s++) {
+                if (vehicleOf[s] < 0) {
+                    unassigned[n++] = s;
+                }
+            }
+            return new VrpSolution(routes, unassigned, cost, iterations);
+        }
+
+        private static int indexOf(int[] route, int size, int student) {
+            for (int i = 0; i < size; i++) {
+                if (route[i] == student) {
+                    return i;
+                }
+            }
+            throw new IllegalStateException("Student " + student + " not found in route");
+        }
+    }
+}
@@ -0,0 +1,595 @@
+package com.carpool.backend.solver;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Exact capacitated student&rarr;driver assignment (transportation problem) on the
+ * {@link CostMatrix#assignmentCost} metric, solved by successive shortest paths.
+ *
+ * <p>Units of the scarcer side are placed one at a time: students when there are enough seats, otherwise seats.
+ * Each placement runs Dijkstra with node potentials on the residual graph from the new unit and stops as soon as
+ * the sink is settled, so while the other side still has room the search only touches a handful of nodes. The
+ * result seats the maximum number of students and, among those assignments, minimises total cost. All graph
+ * state lives in primitive arrays; edges are implicit (unit&rarr;candidate, candidate&rarr;units placed on it,
+ * candidate&harr;sink).
+ *
+ * <p>{@link #assign} keeps the search sparse by pricing: it solves over each student's cheapest drivers, then
+ * checks every omitted edge's reduced cost against the final potentials. Violating edges, and edges between
+ * unseated students and drivers with free seats, are added to the live solver one at a time; each addition cancels
+ * the negative cycle it closes, if any, so the next round only has to place the units still outstanding. When no
+ * omitted edge violates the potentials the sparse optimum is optimal for the full problem.
+ */
+public final class MinCostFlowAssigner {
+
+    public static final int UNASSIGNED = -1;
+
+    /** Cheapest drivers per student in the first pricing round. */
+    static final int INITIAL_CANDIDATES = 16;
+    private static final int MAX_PRICING_ROUNDS = 8;
+    private static final double PRICING_TOLERANCE = 1e-7;
+    /** Priced-in edges are repaired in place while there are at most {@code nodes / REPAIR_DIVISOR} of them. */
+    private static final int REPAIR_DIVISOR = 32;
+
+    private final CostMatrix costs;
+    private final int[] capacity;
+
+    /** {@code true}: left nodes are students and right nodes drivers; {@code false}: the other way round. */
+    private final boolean studentsAreUnits;
+    private final int leftCount;
+    private final int rightCount;
+    private final int sink;
+    private final int[] supply;
+    private final int[] room;
+    /** Right nodes reachable from each left node; {@code null} means all of them. */
+    private final int[][] adjacency;
+    private final int[] degree;
+
+    private final int[][] members;
+    private final int[] memberCount;
+    private final int[] used;
+    /** Right node a left node was last placed on; only meaningful while units are students. */
+    private final int[] placedOn;
+
+    private final double[] potential;
+    private final double[] dist;
+    private final int[] parent;
+    private final boolean[] settled;
+    private final int[] touched;
+    private int touchedCount;
+    private final Heap heap;
+
+    /**
+     * @param candidates optional per-student driver lists restricting which edges exist; {@code null} means every
+     *                   driver is a candidate for every student
+     */
+    public MinCostFlowAssigner(CostMatrix costs, int[] capacity, int[][] candidates) {
+        if (capacity.length != costs.driverCount()) {
+            throw new IllegalArgumentException("capacity length must match driver count");
+        }
+        this.costs = costs;
+        this.capacity = capacity;
+        int studentCount = costs.studentCount();
+        int driverCount = costs.driverCount();
+        int[] ones = new int[studentCount];
+        Arrays.fill(ones, 1);
+        int[] seats = new int[driverCount];
+        long totalSeats = 0;
+        for (int d = 0; d < driverCount; d++) {
+            seats[d] = Math.max(0, capacity[d]);
+            totalSeats += seats[d];
+        }
+
+        this.studentsAreUnits = studentCount <= totalSeats;
+        if (studentsAreUnits) {
+            this.leftCount = studentCount;
+            this.rightCount = driverCount;
+            this.supply = ones;
+            this.room = seats;
+            this.adjacency = candidates == null ? null : copy(candidates);
+        } else {
+            this.leftCount = driverCount;
+            this.rightCount = studentCount;
+            this.supply = seats;
+            this.room = ones;
+            this.adjacency = candidates == null ? null : transpose(candidates, driverCount);
+        }
+        this.sink = leftCount + rightCount;
+        this.degree = new int[leftCount];
+        if (adjacency != null) {
+            for (int l = 0; l < leftCount; l++) {
+                degree[l] = adjacency[l].length;
+            }
+        }
+
+        this.members = new int[rightCount][];
+        for (int r = 0; r < rightCount; r++) {
+            members[r] = new int[room[r]];
+        }
+        this.memberCount = new int[rightCount];
+        this.used = new int[leftCount];
+        this.placedOn = new int[leftCount];
+        Arrays.fill(placedOn, UNASSIGNED);
+
+        int nodeCount = sink + 1;
+        this.potential = new double[nodeCount];
+        this.dist = new double[nodeCount];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        this.parent = new int[nodeCount];
+        this.settled = new boolean[nodeCount];
+        this.touched = new int[nodeCount];
+        this.heap = new Heap(Math.max(16, nodeCount));
+    }
+
+    /**
+     * Optimal assignment over the full bipartite graph, solved on sparse candidate lists that are widened by
+     * pricing until no omitted edge could improve the result.
+     */
+    public static int[] assign(CostMatrix costs, int[] capacity) {
+        int studentCount = costs.studentCount();
+        int driverCount = costs.driverCount();
+        if (driverCount <= INITIAL_CANDIDATES) {
+            return new MinCostFlowAssigner(costs, capacity, null).solve();
+        }
+
+        int[][] candidates = new int[studentCount][];
+        for (int s = 0; s < studentCount; s++) {
+            int student = s;
+            candidates[s] = cheapest(driverCount, INITIAL_CANDIDATES, d -> costs.driverToStudentKm(d, student));
+        }
+
+        MinCostFlowAssigner assigner = new MinCostFlowAssigner(costs, capacity, candidates);
+        int[] driverOf = assigner.solve();
+        for (int round = 0; round < MAX_PRICING_ROUNDS; round++) {
+            int[] added = assigner.violatedEdges(candidates, driverOf);
+            if (added.length == 0) {
+                return driverOf;
+            }
+            if (added.length / 2 <= (assigner.sink + 1) / REPAIR_DIVISOR) {
+                assigner.addEdges(added);
+            } else {
+                // each in-place repair may search most of the graph; past a handful a fresh solve is cheaper
+                assigner = new MinCostFlowAssigner(costs, capacity, candidates);
+            }
+            driverOf = assigner.solve();
+        }
+        return new MinCostFlowAssigner(costs, capacity, null).solve();
+    }
+
+    /** Returns the driver index for every student, or {@link #UNASSIGNED}. */
+    public int[] solve() {
+        for (int left = 0; left < leftCount; left++) {
+            while (used[left] < supply[left]) {
+                if (!augmentFrom(left)) {
+                    // nothing changed, so the remaining units of this node cannot be placed either
+                    break;
+                }
+            }
+        }
+        return driverOf();
+    }
+
+    private int[] driverOf() {
+        int[] driverOf = new int[costs.studentCount()];
+        Arrays.fill(driverOf, UNASSIGNED);
+        for (int r = 0; r < rightCount; r++) {
+            for (int i = 0; i < memberCount[r]; i++) {
+                if (studentsAreUnits) {
+                    driverOf[members[r][i]] = r;
+                } else {
+                    driverOf[r] = members[r][i];
+                }
+            }
+        }
+        return driverOf;
+    }
+
+    private boolean augmentFrom(int source) {
+        double sinkDistance = shortestPaths(source, sink);
+        boolean reached = sinkDistance != Double.POSITIVE_INFINITY;
+        if (reached) {
+            updatePotentials(sinkDistance);
+            applyPath(sink);
+        }
+        resetSearch();
+        return reached;
+    }
+
+    /**
+     * Adds edge {@code left -> right} to the live graph and restores non-negative reduced costs: a shortest path
+     * from {@code right} back to {@code left} either closes a negative cycle with the new edge, which is then
+     * cancelled, or proves there is none, in which case the potentials are shifted to price the edge at zero or
+     * more.
+     */
+    private void addEdge(int left, int right) {
+        int rightNode = leftCount + right;
+        double reduced = cost(left, right) + potential[left] - potential[rightNode];
+        if (degree[left] == adjacency[left].length) {
+            adjacency[left] = Arrays.copyOf(adjacency[left], Math.max(4, degree[left] * 2));
+        }
+        adjacency[left][degree[left]++] = right;
+        if (reduced >= 0) {
+            return;
+        }
+        if (used[left] == 0) {
+            // no residual edge enters a node that has placed nothing, so its potential can simply rise
+            potential[left] -= reduced;
+            return;
+        }
+
+        double back = shortestPaths(rightNode, left);
+        if (back == Double.POSITIVE_INFINITY) {
+            // nothing reachable from the new edge's head leads back to its tail: lower that whole region instead
+            for (int i = 0; i < touchedCount; i++) {
+                potential[touched[i]] += reduced;
+            }
+        } else {
+            updatePotentials(back);
+            if (reduced + back < 0) {
+                applyPath(left);
+                place(left, right);
+            }
+        }
+        resetSearch();
+    }
+
+    /**
+     * Dijkstra on reduced costs from {@code source}, stopping once {@code target} is settled. Returns the target's
+     * distance, or infinity when it is unreachable (every reachable node is then settled).
+     */
+    private double shortestPaths(int source, int target) {
+        touchedCount = 0;
+        heap.clear();
+        dist[source] = 0;
+        parent[source] = -1;
+        touched[touchedCount++] = source;
+        heap.push(0, source);
+
+        while (!heap.isEmpty()) {
+            int u = heap.peekNode();
+            double du = heap.peekKey();
+            heap.pop();
+            if (settled[u] || du > dist[u]) {
+                continue;
+            }
+            settled[u] = true;
+            if (u == target) {
+                return du;
+            }
+
+            if (u == sink) {
+                // reverse sink edges: a right node may hand one of its units back
+                for (int r = 0; r < rightCount; r++) {
+                    if (memberCount[r] > 0) {
+                        relax(u, leftCount + r, du, 0);
+                    }
+                }
+            } else if (u < leftCount) {
+                if (adjacency == null) {
+                    for (int r = 0; r < rightCount; r++) {
+                        relaxForward(u, r, du);
+                    }
+                } else {
+                    int[] reachable = adjacency[u];
+                    for (int i = 0; i < degree[u]; i++) {
+                        relaxForward(u, reachable[i], du);
+                    }
+                }
+            } else {
+                int r = u - leftCount;
+                int[] placed = members[r];
+                for (int i = 0; i < memberCount[r]; i++) {
+                    relax(u, placed[i], du, -cost(placed[i], r));
+                }
+                if (memberCount[r] < room[r]) {
+                    relax(u, sink, du, 0);
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    private void relaxForward(int left, int right, double fromDistance) {
+        boolean carriesFlow = studentsAreUnits
+                ? placedOn[left] == right
+                : memberCount[right] > 0 && members[right][0] == left;
+        if (!carriesFlow) {
+            relax(left, leftCount + right, fromDistance, cost(left, right));
+        }
+    }
+
+    private void relax(int from, int to, double fromDistance, double cost) {
+        if (settled[to]) {
+            return;
+        }
+        double reduced = cost + potential[from] - potential[to];
+        if (reduced < 0) {
+            // potentials are exact up to floating-point drift
+            reduced = 0;
+        }
+        double distance = fromDistance + reduced;
+        if (distance < dist[to]) {
+            if (dist[to] == Double.POSITIVE_INFINITY) {
+                touched[touchedCount++] = to;
+            }
+            dist[to] = distance;
+            parent[to] = from;
+            heap.push(distance, to);
+        }
+    }
+
+    /** Keeps every residual edge non-negative: settled nodes move by their distance relative to the target. */
+    private void updatePotentials(double targetDistance) {
+        for (int i = 0; i < touchedCount; i++) {
+            int v = touched[i];
+            if (settled[v]) {
+                potential[v] += dist[v] - targetDistance;
+            }
+        }
+    }
+
+    private void resetSearch() {
+        for (int i = 0; i < touchedCount; i++) {
+            int v = touched[i];
+            dist[v] = Double.POSITIVE_INFINITY;
+            settled[v] = false;
+        }
+    }
+
+    private double cost(int left, int right) {
+        return studentsAreUnits ? costs.assignmentCost(right, left) : costs.assignmentCost(left, right);
+    }
+
+    /**
+     * Walks the search tree back from {@code target}; left&rarr;right edges place a unit, right&rarr;left edges
+     * release one and edges touching the sink only change how many units a right node passes on.
+     */
+    private void applyPath(int target) {
+        int v = target;
+        while (parent[v] >= 0) {
+            int u = parent[v];
+            if (u < leftCount) {
+                place(u, v - leftCount);
+            } else if (u < sink && v < leftCount) {
+                release(v, u - leftCount);
+            }
+            v = u;
+        }
+    }
+
+    private void place(int left, int right) {
+        // paths are applied back to front, so a right node always releases a unit before it takes one
+        members[right][memberCount[right]++] = left;
+        used[left]++;
+        placedOn[left] = right;
+    }
+
+    private void release(int left, int right) {
+        int[] placed = members[right];
+        for (int i = 0; i < memberCount[right]; i++) {
+            if (placed[i] == left) {
+                placed[i] = placed[--memberCount[right]];
+                used[left]--;
+                return;
+            }
+        }
+        throw new IllegalStateException("Node " + left + " not placed on " + right);
+    }
+
+    /**
+     * Appends to {@code lists} every omitted student&rarr;driver edge whose reduced cost under the current
+     * potentials is negative, and every edge between an unseated student and a driver with a free seat. Returns the
+     * added edges as flattened (student, driver) pairs; none means the current assignment is optimal for the full
+     * graph.
+     */
+    private int[] violatedEdges(int[][] lists, int[] driverOf) {
+        int studentCount = costs.studentCount();
+        int driverCount = costs.driverCount();
+        int[] seated = new int[driverCount];
+        boolean seatsLeft = false;
+        for (int d : driverOf) {
+            if (d != UNASSIGNED) {
+                seated[d]++;
+            }
+        }
+        for (int d = 0; d < driverCount; d++) {
+            seatsLeft |= seated[d] < Math.max(0, capacity[d]);
+        }
+
+        int[] pairs = new int[64];
+        int pairCount = 0;
+        boolean[] listed = new boolean[driverCount];
+        int[] extra = new int[driverCount];
+        for (int s = 0; s < studentCount; s++) {
+            for (int d : lists[s]) {
+                listed[d] = true;
+            }
+            boolean unseatedWithSeatsLeft = seatsLeft && driverOf[s] == UNASSIGNED;
+            int studentNode = studentsAreUnits ? s : leftCount + s;
+            int extraCount = 0;
+            for (int d = 0; d < driverCount; d++) {
+                if (listed[d]) {
+                    continue;
+                }
+                int driverNode = studentsAreUnits ? leftCount + d : d;
+                double reduced = studentsAreUnits
+                        ? costs.assignmentCost(d, s) + potential[studentNode] - potential[driverNode]
+                        : costs.assignmentCost(d, s) + potential[driverNode] - potential[studentNode];
+                double tolerance = PRICING_TOLERANCE
+                        * (1 + Math.abs(potential[studentNode]) + Math.abs(potential[driverNode]));
+                if (reduced < -tolerance || (unseatedWithSeatsLeft && seated[d] < capacity[d])) {
+                    extra[extraCount++] = d;
+                }
+            }
+            for (int d : lists[s]) {
+                listed[d] = false;
+            }
+            if (extraCount > 0) {
+                int[] merged = Arrays.copyOf(lists[s], lists[s].length + extraCount);
+                System.arraycopy(extra, 0, merged, lists[s].length, extraCount);
+                lists[s] = merged;
+                for (int i = 0; i < extraCount; i++) {
+                    if (pairCount + 2 > pairs.length) {
+                        pairs = Arrays.copyOf(pairs, pairs.length * 2);
+                    }
+                    pairs[pairCount++] = s;
+                    pairs[pairCount++] = extra[i];
+                }
+            }
+        }
+
+        return Arrays.copyOf(pairs, pairCount);
+    }
+
+    private void addEdges(int[] pairs) {
+        // potentials move with every addition, so each edge is re-priced as it goes in
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (studentsAreUnits) {
+                addEdge(pairs[i], pairs[i + 1]);
+            } else {
+                addEdge(pairs[i + 1], pairs[i]);
+            }
+        }
+    }
+
+    private static int[][] copy(int[][] lists) {
+        int[][] copy = new int[lists.length][];
+        for (int i = 0; i < lists.length; i++) {
+            copy[i] = lists[i].clone();
+        }
+        return copy;
+    }
+
+    private static int[][] transpose(int[][] candidates, int driverCount) {
+        int[] degree = new int[driverCount];
+        for (int[] list : candidates) {
+            for (int d : list) {
+                degree[d]++;
+            }
+        }
+        int[][] students = new int[driverCount][];
+        for (int d = 0; d < driverCount; d++) {
+            students[d] = new int[degree[d]];
+        }
+        Arrays.fill(degree, 0);
+        for (int s = 0; s < candidates.length; s++) {
+            for (int d : candidates[s]) {
+                students[d][degree[d]++] = s;
+            }
+        }
+        return students;
+    }
+
+    /** Indexes of the {@code k} smallest keys among {@code 0..n-1}, via a bounded max-heap in O(n log k). */
+    private static int[] cheapest(int n, int k, IntToDoubleFunction key) {
+        k = Math.min(k, n);
+        int[] heapIndexes = new int[k];
+        double[] heapKeys = new double[k];
+        int size = 0;
+        for (int j = 0; j < n; j++) {
+            double value = key.applyAsDouble(j);
+            if (size < k) {
+                int i = size++;
+                while (i > 0 && heapKeys[(i - 1) >>> 1] < value) {
+                    heapKeys[i] = heapKeys[(i - 1) >>> 1];
+                    heapIndexes[i] = heapIndexes[(i - 1) >>> 1];
+                    i = (i - 1) >>> 1;
+                }
+                heapKeys[i] = value;
+                heapIndexes[i] = j;
+            } else if (value < heapKeys[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= k) {
+                        break;
+                    }
+                    if (child + 1 < k && heapKeys[child + 1] > heapKeys[child]) {
+                        child++;
+                    }
+                    if (heapKeys[child] <= value) {
+                        break;
+                    }
+                    heapKeys[i] = heapKeys[child];
+                    heapIndexes[i] = heapIndexes[child];
+                    i = child;
+                }
+                heapKeys[i] = value;
+                heapIndexes[i] = j;
+            }
+        }
+        return heapIndexes;
+    }
+
+    /** Binary min-heap of (distance, node) pairs with lazy deletion. */
+    private static final class Heap {
+        private double[] keys;
+        private int[] nodes;
+        private int size;
+
+        Heap(int initialCapacity) {
+            this.keys = new double[initialCapacity];
+            this.nodes = new int[initialCapacity];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        int peekNode() {
+            return nodes[0];
+        }
+
+        double peekKey() {
+            return keys[0];
+        }
+
+        void push(double key, int node) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int up = (i - 1) >>> 1;
+                if (keys[up] <= key) {
+                    break;
+                }
+                keys[i] = keys[up];
+                nodes[i] = nodes[up];
+                i = up;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+
+        void pop() {
+            size--;
+            if (size == 0) {
+                return;
+            }
+            double key = keys[size];
+            int node = nodes[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                keys[i] = keys[child];
+                nodes[i] = nodes[child];
+                i = child;
+            }
+            keys[i] = key;
+            nodes[i] = node;
+        }
+    }
+}
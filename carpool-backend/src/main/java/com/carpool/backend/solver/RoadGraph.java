@@ -0,0 +1,168 @@
+package com.carpool.backend.solver;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Directed road graph read from a preprocessed edge list (e.g. exported once from an OSM extract), one record per line:
+ * <pre>
+ * n &lt;nodeId&gt; &lt;lat&gt; &lt;lng&gt;
+ * e &lt;fromId&gt; &lt;toId&gt; &lt;seconds&gt; &lt;meters&gt; [oneway]
+ * </pre>
+ * Edges are two-way unless marked {@code oneway}; blank lines and lines starting with {@code #} are ignored. Nodes
+ * are renumbered {@code 0..nodeCount-1} in file order.
+ */
+public final class RoadGraph {
+
+    private final double[] lat;
+    private final double[] lng;
+    private final int[] from;
+    private final int[] to;
+    private final double[] seconds;
+    private final double[] meters;
+
+    RoadGraph(double[] lat, double[] lng, int[] from, int[] to, double[] seconds, double[] meters) {
+        this.lat = lat;
+        this.lng = lng;
+        this.from = from;
+        this.to = to;
+        this.seconds = seconds;
+        this.meters = meters;
+    }
+
+    public static RoadGraph read(Path file) throws IOException {
+        Builder builder = new Builder();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = trimmed.split("\\s+");
+                try {
+                    if ("n".equals(fields[0]) && fields.length == 4) {
+                        builder.node(Long.parseLong(fields[1]),
+                                Double.parseDouble(fields[2]), Double.parseDouble(fields[3]));
+                    } else if ("e".equals(fields[0]) && (fields.length == 5 || fields.length == 6)) {
+                        boolean oneway = fields.length == 6 && "oneway".equals(fields[5]);
+                        if (fields.length == 6 && !oneway) {
+                            throw new IllegalArgumentException("unknown edge flag " + fields[5]);
+                        }
+                        builder.edge(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+                                Double.parseDouble(fields[3]), Double.parseDouble(fields[4]), oneway);
+                    } else {
+                        throw new IllegalArgumentException("expected 'n id lat lng' or 'e from to seconds meters'");
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    public int nodeCount() {
+        return lat.length;
+    }
+
+    public int edgeCount() {
+        return from.length;
+    }
+
+    double lat(int node) {
+        return lat[node];
+    }
+
+    double lng(int node) {
+        return lng[node];
+    }
+
+    int from(int edge) {
+        return from[edge];
+    }
+
+    int to(int edge) {
+        return to[edge];
+    }
+
+    double seconds(int edge) {
+        return seconds[edge];
+    }
+
+    double meters(int edge) {
+        return meters[edge];
+    }
+
+    /** Collects nodes and edges by external id; used by {@link #read} and by tests that build graphs in code. */
+    public static final class Builder {
+
+        private final Map<Long, Integer> index = new HashMap<>();
+        private double[] lat = new double[16];
+        private double[] lng = new double[16];
+        private int nodes;
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private double[] seconds = new double[16];
+        private double[] meters = new double[16];
+        private int edges;
+
+        public Builder node(long id, double nodeLat, double nodeLng) {
+            if (index.putIfAbsent(id, nodes) != null) {
+                throw new IllegalArgumentException("duplicate node " + id);
+            }
+            if (nodes == lat.length) {
+                lat = Arrays.copyOf(lat, nodes * 2);
+                lng = Arrays.copyOf(lng, nodes * 2);
+            }
+            lat[nodes] = nodeLat;
+            lng[nodes] = nodeLng;
+            nodes++;
+            return this;
+        }
+
+        public Builder edge(long fromId, long toId, double edgeSeconds, double edgeMeters, boolean oneway) {
+            Integer u = index.get(fromId);
+            Integer v = index.get(toId);
+            if (u == null || v == null) {
+                throw new IllegalArgumentException("edge " + fromId + "->" + toId + " refers to an unknown node");
+            }
+            if (edgeSeconds < 0 || edgeMeters < 0) {
+                throw new IllegalArgumentException("edge " + fromId + "->" + toId + " has a negative cost");
+            }
+            add(u, v, edgeSeconds, edgeMeters);
+            if (!oneway) {
+                add(v, u, edgeSeconds, edgeMeters);
+            }
+            return this;
+        }
+
+        private void add(int u, int v, double edgeSeconds, double edgeMeters) {
+            if (edges == from.length) {
+                from = Arrays.copyOf(from, edges * 2);
+                to = Arrays.copyOf(to, edges * 2);
+                seconds = Arrays.copyOf(seconds, edges * 2);
+                meters = Arrays.copyOf(meters, edges * 2);
+            }
+            from[edges] = u;
+            to[edges] = v;
+            seconds[edges] = edgeSeconds;
+            meters[edges] = edgeMeters;
+            edges++;
+        }
+
+        public RoadGraph build() {
+            return new RoadGraph(Arrays.copyOf(lat, nodes), Arrays.copyOf(lng, nodes),
+                    Arrays.copyOf(from, edges), Arrays.copyOf(to, edges),
+                    Arrays.copyOf(seconds, edges), Arrays.copyOf(meters, edges));
+        }
+    }
+}
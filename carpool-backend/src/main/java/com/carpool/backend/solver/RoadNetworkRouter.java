@@ -0,0 +1,173 @@
+package com.carpool.backend.solver;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline road routing: points are snapped to the nearest node of a {@link RoadGraph} within
+ * {@link #MAX_SNAP_KM}, and the legs between them are answered by a {@link ContractionHierarchy}. The straight walk
+ * from a point to its node is costed by {@code access} (haversine times road factor, at its default speed). Pairs
+ * that cannot be snapped, that snap to the same node, or that the graph does not connect fall back to {@code access}
+ * end to end and are counted in {@link #fallbacks()}.
+ */
+public final class RoadNetworkRouter {
+
+    /** Farthest a point may be from the road graph and still be routed on it. */
+    public static final double MAX_SNAP_KM = 1.0;
+
+    private static final double CELL_DEG = 0.01;
+
+    private final RoadGraph graph;
+    private final ContractionHierarchy hierarchy;
+    private final TravelTimeModel access;
+    private final Map<Long, int[]> cells = new HashMap<>();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    /** Distances and durations between two point lists, row-major by origin. */
+    public record Matrix(int rows, int cols, double[] km, double[] seconds) {
+
+        public double km(int row, int col) {
+            return km[row * cols + col];
+        }
+
+        public double seconds(int row, int col) {
+            return seconds[row * cols + col];
+        }
+    }
+
+    private RoadNetworkRouter(RoadGraph graph, ContractionHierarchy hierarchy, TravelTimeModel access) {
+        this.graph = graph;
+        this.hierarchy = hierarchy;
+        this.access = access;
+        Map<Long, List<Integer>> grouped = new HashMap<>();
+        for (int node = 0; node < graph.nodeCount(); node++) {
+            grouped.computeIfAbsent(cell(graph.lat(node), graph.lng(node)), key -> new ArrayList<>()).add(node);
+        }
+        grouped.forEach((key, nodes) -> cells.put(key, nodes.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    public static RoadNetworkRouter build(RoadGraph graph, TravelTimeModel access) {
+        return new RoadNetworkRouter(graph, ContractionHierarchy.build(graph), access);
+    }
+
+    public static RoadNetworkRouter load(Path edgeList, TravelTimeModel access) throws IOException {
+        return build(RoadGraph.read(edgeList), access);
+    }
+
+    public int nodeCount() {
+        return hierarchy.nodeCount();
+    }
+
+    public int shortcutCount() {
+        return hierarchy.shortcutCount();
+    }
+
+    /** Pairs answered by {@code access} instead of the road graph so far. */
+    public long fallbacks() {
+        return fallbacks.get();
+    }
+
+    public TravelTimeModel.Leg leg(double fromLat, double fromLng, double toLat, double toLng) {
+        Matrix matrix = matrix(new double[]{fromLat}, new double[]{fromLng}, new double[]{toLat}, new double[]{toLng});
+        return new TravelTimeModel.Leg(matrix.km(0, 0), matrix.seconds(0, 0));
+    }
+
+    public Matrix matrix(double[] fromLat, double[] fromLng, double[] toLat, double[] toLng) {
+        int rows = fromLat.length;
+        int cols = toLat.length;
+        int[] fromNode = new int[rows];
+        int[] toNode = new int[cols];
+        Map<Integer, Integer> sourceIndex = new HashMap<>();
+        Map<Integer, Integer> targetIndex = new HashMap<>();
+        for (int i = 0; i < rows; i++) {
+            fromNode[i] = nearest(fromLat[i], fromLng[i]);
+            if (fromNode[i] >= 0) {
+                sourceIndex.putIfAbsent(fromNode[i], sourceIndex.size());
+            }
+        }
+        for (int j = 0; j < cols; j++) {
+            toNode[j] = nearest(toLat[j], toLng[j]);
+            if (toNode[j] >= 0) {
+                targetIndex.putIfAbsent(toNode[j], targetIndex.size());
+            }
+        }
+        int[] sources = new int[sourceIndex.size()];
+        sourceIndex.forEach((node, index) -> sources[index] = node);
+        int[] targets = new int[targetIndex.size()];
+        targetIndex.forEach((node, index) -> targets[index] = node);
+        double[][] network = hierarchy.manyToMany(sources, targets);
+
+        double[] km = new double[rows * cols];
+        double[] seconds = new double[rows * cols];
+        long fellBack = 0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int cell = i * cols + j;
+                if (fromLat[i] == toLat[j] && fromLng[i] == toLng[j]) {
+                    continue;
+                }
+                double networkSeconds = Double.POSITIVE_INFINITY;
+                double networkMeters = 0;
+                if (fromNode[i] >= 0 && toNode[j] >= 0 && fromNode[i] != toNode[j]) {
+                    int pair = sourceIndex.get(fromNode[i]) * targets.length + targetIndex.get(toNode[j]);
+                    networkSeconds = network[0][pair];
+                    networkMeters = network[1][pair];
+                }
+                if (networkSeconds == Double.POSITIVE_INFINITY) {
+                    km[cell] = access.roadKm(fromLat[i], fromLng[i], toLat[j], toLng[j]);
+                    seconds[cell] = access.travelSeconds(km[cell]);
+                    fellBack++;
+                    continue;
+                }
+                double accessKm = access.roadKm(fromLat[i], fromLng[i], graph.lat(fromNode[i]), graph.lng(fromNode[i]))
+                        + access.roadKm(graph.lat(toNode[j]), graph.lng(toNode[j]), toLat[j], toLng[j]);
+                km[cell] = accessKm + networkMeters / 1000.0;
+                seconds[cell] = access.travelSeconds(accessKm) + networkSeconds;
+            }
+        }
+        if (fellBack > 0) {
+            fallbacks.addAndGet(fellBack);
+        }
+        return new Matrix(rows, cols, km, seconds);
+    }
+
+    /** Nearest graph node within {@link #MAX_SNAP_KM}, or {@code -1}. */
+    int nearest(double lat, double lng) {
+        int latCells = (int) Math.ceil(MAX_SNAP_KM / (CELL_DEG * 111.0)) + 1;
+        double cos = Math.max(0.01, Math.cos(Math.toRadians(lat)));
+        int lngCells = (int) Math.ceil(MAX_SNAP_KM / (CELL_DEG * 111.0 * cos)) + 1;
+        long latCell = (long) Math.floor(lat / CELL_DEG);
+        long lngCell = (long) Math.floor(lng / CELL_DEG);
+        int best = -1;
+        double bestKm = MAX_SNAP_KM;
+        for (long a = latCell - latCells; a <= latCell + latCells; a++) {
+            for (long b = lngCell - lngCells; b <= lngCell + lngCells; b++) {
+                int[] nodes = cells.get(key(a, b));
+                if (nodes == null) {
+                    continue;
+                }
+                for (int node : nodes) {
+                    double km = GeoDistance.haversineKm(lat, lng, graph.lat(node), graph.lng(node));
+                    if (km <= bestKm) {
+                        bestKm = km;
+                        best = node;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private static long cell(double lat, double lng) {
+        return key((long) Math.floor(lat / CELL_DEG), (long) Math.floor(lng / CELL_DEG));
+    }
+
+    private static long key(long latCell, long lngCell) {
+        return (latCell << 32) ^ (lngCell & 0xffffffffL);
+    }
+}
@@ -0,0 +1,119 @@
+package com.carpool.backend.solver;
+
+/**
+ * Local search on the pickup order of a single car: 2-opt segment reversals and Or-opt moves of one to three
+ * consecutive stops, applied first-improvement until no move helps or the time budget runs out. The driver's home and
+ * the event are fixed ends of the path. Meant to polish orders that came from a fast remote solve or a greedy split.
+ */
+public final class RouteImprover {
+
+    private static final int MAX_OR_OPT_SEGMENT = 3;
+    private static final double EPSILON_KM = 1e-9;
+
+    private final long timeBudgetNanos;
+
+    public RouteImprover(long timeBudgetMillis) {
+        this.timeBudgetNanos = Math.max(0, timeBudgetMillis) * 1_000_000L;
+    }
+
+    /** Improved copy of {@code order} (student indices of {@code costs}); never longer than the input. */
+    public int[] improve(CostMatrix costs, int driver, int[] order) {
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        int[] route = order.clone();
+        boolean improved = route.length >= 2;
+        while (improved && System.nanoTime() < deadline) {
+            improved = twoOpt(costs, driver, route) || orOpt(costs, driver, route);
+        }
+        return route;
+    }
+
+    /**
+     * Reverses the first segment whose reversal shortens the route. Road costs are direction-dependent, so the legs
+     * inside the segment are summed both ways as it grows instead of assuming they cancel out.
+     */
+    private static boolean twoOpt(CostMatrix costs, int driver, int[] route) {
+        int n = route.length;
+        for (int i = 0; i < n - 1; i++) {
+            double forward = 0;
+            double backward = 0;
+            for (int j = i + 1; j < n; j++) {
+                forward += costs.studentToStudentKm(route[j - 1], route[j]);
+                backward += costs.studentToStudentKm(route[j], route[j - 1]);
+                double before = leg(costs, driver, route, i - 1, i) + forward + leg(costs, driver, route, j, j + 1);
+                double after = legBetween(costs, driver, route, i - 1, route[j]) + backward
+                        + legFrom(costs, route[i], route, j + 1);
+                if (after < before - EPSILON_KM) {
+                    reverse(route, i, j);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Moves the first run of up to {@link #MAX_OR_OPT_SEGMENT} stops whose relocation shortens the route. */
+    private static boolean orOpt(CostMatrix costs, int driver, int[] route) {
+        int n = route.length;
+        for (int length = 1; length <= Math.min(MAX_OR_OPT_SEGMENT, n - 1); length++) {
+            for (int i = 0; i + length <= n; i++) {
+                int last = i + length - 1;
+                double removed = leg(costs, driver, route, i - 1, i) + leg(costs, driver, route, last, last + 1)
+                        - legBetween(costs, driver, route, i - 1, last + 1 < n ? route[last + 1] : -1);
+                // insert between positions k-1 and k of the route, outside the segment itself
+                for (int k = 0; k <= n; k++) {
+                    if (k >= i && k <= last + 1) {
+                        continue;
+                    }
+                    double added = legBetween(costs, driver, route, k - 1, route[i])
+                            + legFrom(costs, route[last], route, k)
+                            - leg(costs, driver, route, k - 1, k);
+                    if (added < removed - EPSILON_KM) {
+                        move(route, i, length, k);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Distance between route positions {@code from} and {@code to}; -1 is the driver's home, {@code n} the event. */
+    private static double leg(CostMatrix costs, int driver, int[] route, int from, int to) {
+        return legBetween(costs, driver, route, from, to < route.length ? route[to] : -1);
+    }
+
+    /** Distance from route position {@code from} (or the home at -1) to a student, or to the event when -1. */
+    private static double legBetween(CostMatrix costs, int driver, int[] route, int from, int student) {
+        if (from < 0) {
+            return student < 0 ? costs.driverToEventKm(driver) : costs.driverToStudentKm(driver, student);
+        }
+        return student < 0 ? costs.studentToEventKm(route[from]) : costs.studentToStudentKm(route[from], student);
+    }
+
+    /** Distance from a student to route position {@code to}, or to the event past the end. */
+    private static double legFrom(CostMatrix costs, int student, int[] route, int to) {
+        return to < route.length ? costs.studentToStudentKm(student, route[to]) : costs.studentToEventKm(student);
+    }
+
+    private static void reverse(int[] route, int from, int to) {
+        while (from < to) {
+            int swap = route[from];
+            route[from++] = route[to];
+            route[to--] = swap;
+        }
+    }
+
+    /** Moves {@code route[from, from + length)} so that it starts before what is now position {@code to}. */
+    private static void move(int[] route, int from, int length, int to) {
+        int[] segment = new int[length];
+        System.arraycopy(route, from, segment, 0, length);
+        if (to < from) {
+            System.arraycopy(route, to, route, to + length, from - to);
+            System.arraycopy(segment, 0, route, to, length);
+        } else {
+            int shifted = to - from - length;
+            System.arraycopy(route, from + length, route, from, shifted);
+            System.arraycopy(segment, 0, route, from + shifted, length);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.carpool.backend.solver;
+
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+import com.carpool.backend.dto.RoutePlanDTO;
+import com.carpool.backend.dto.TimelineEntryDTO;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a locally computed pickup order into the same {@link RoutePlanDTO} shape that
+ * {@code buildRoutePlans} produces from an optimizeTours response: one pickup per student in order,
+ * followed by every dropoff at the event once the car arrives. Times come from a {@link TravelTimeModel}, so these
+ * plans carry a full timeline without a remote call.
+ */
+public final class RoutePlanAssembler {
+
+    private final TravelTimeModel travelTimes;
+
+    public RoutePlanAssembler(double averageSpeedKmh, double roadFactor) {
+        this(TravelTimeModel.constant(averageSpeedKmh, roadFactor));
+    }
+
+    public RoutePlanAssembler(TravelTimeModel travelTimes) {
+        this.travelTimes = travelTimes;
+    }
+
+    public RoutePlanDTO assemble(OptimizeRequestDTO.DriverDTO driver,
+                                 LatLngDTO eventLocation,
+                                 List<OptimizeRequestDTO.StudentDTO> stops,
+                                 Instant start) {
+        List<TimelineEntryDTO> timeline = new ArrayList<>();
+        int sequence = 0;
+        double elapsedSeconds = 0;
+        double travelSeconds = 0;
+        double distanceKm = 0;
+        LatLngDTO previous = driver.home;
+        for (OptimizeRequestDTO.StudentDTO student : stops) {
+            TravelTimeModel.Leg leg = travelTimes.leg(previous, student.home, at(start, elapsedSeconds));
+            distanceKm += leg.km();
+            travelSeconds += leg.seconds();
+            elapsedSeconds += leg.seconds();
+            timeline.add(new TimelineEntryDTO(
+                    sequence++,
+                    format(start, elapsedSeconds),
+                    "pickup",
+                    student.id,
+                    "student_" + student.id,
+                    "pickup_student_" + student.id,
+                    copy(student.home)
+            ));
+            elapsedSeconds += travelTimes.serviceSeconds();
+            previous = student.home;
+        }
+
+        if (!stops.isEmpty()) {
+            TravelTimeModel.Leg leg = travelTimes.leg(previous, eventLocation, at(start, elapsedSeconds));
+            distanceKm += leg.km();
+            travelSeconds += leg.seconds();
+            elapsedSeconds += leg.seconds();
+            String arrival = format(start, elapsedSeconds);
+            for (OptimizeRequestDTO.StudentDTO student : stops) {
+                timeline.add(new TimelineEntryDTO(
+                        sequence++,
+                        arrival,
+                        "dropoff",
+                        student.id,
+                        "student_" + student.id,
+                        "dropoff_student_" + student.id,
+                        copy(eventLocation)
+                ));
+            }
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("performedShipmentCount", stops.size());
+        metrics.put("travelDuration", Math.round(travelSeconds) + "s");
+        if (elapsedSeconds > travelSeconds) {
+            metrics.put("visitDuration", Math.round(elapsedSeconds - travelSeconds) + "s");
+        }
+        metrics.put("travelDistanceMeters", Math.round(distanceKm * 1000));
+
+        return new RoutePlanDTO(driver.id, copy(driver.home), copy(eventLocation), timeline, metrics);
+    }
+
+    private static Instant at(Instant start, double elapsedSeconds) {
+        return start.plusSeconds(Math.round(elapsedSeconds));
+    }
+
+    private static String format(Instant start, double elapsedSeconds) {
+        return at(start, elapsedSeconds).truncatedTo(ChronoUnit.SECONDS).toString();
+    }
+
+    private static LatLngDTO copy(LatLngDTO source) {
+        if (source == null) {
+            return null;
+        }
+        LatLngDTO copy = new LatLngDTO();
+        copy.lat = source.lat;
+        copy.lng = source.lng;
+        return copy;
+    }
+}
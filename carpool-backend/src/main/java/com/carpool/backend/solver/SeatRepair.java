@@ -0,0 +1,61 @@
+package com.carpool.backend.solver;
+
+import java.util.Arrays;
+
+/**
+ * Makes a plan that overfills some cars seat-feasible while leaving every other route alone. Each over-full route sheds
+ * the stops whose removal shortens it most until it fits, and the shed students (plus any the plan left out) are
+ * reseated by {@link LocalVrpSolver#repair} into cars that still have room.
+ */
+public final class SeatRepair {
+
+    private SeatRepair() {
+    }
+
+    public static VrpSolution repair(VrpInstance instance, int[][] routes) {
+        int[][] trimmed = new int[routes.length][];
+        for (int v = 0; v < routes.length; v++) {
+            trimmed[v] = trim(instance, v, routes[v]);
+        }
+        return LocalVrpSolver.repair(instance, trimmed);
+    }
+
+    /** {@code route} cut down to the vehicle's capacity, dropping the most expensive stop one at a time. */
+    static int[] trim(VrpInstance instance, int vehicle, int[] route) {
+        int[] kept = route.clone();
+        int size = kept.length;
+        int capacity = Math.max(0, instance.capacity(vehicle));
+        while (size > capacity) {
+            int worst = 0;
+            double worstSaving = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < size; i++) {
+                double saving = removalSaving(instance, vehicle, kept, size, i);
+                if (saving > worstSaving) {
+                    worstSaving = saving;
+                    worst = i;
+                }
+            }
+            System.arraycopy(kept, worst + 1, kept, worst, size - worst - 1);
+            size--;
+        }
+        return size == kept.length ? kept : Arrays.copyOf(kept, size);
+    }
+
+    /** Distance saved by skipping position {@code i}: the detour into it minus the direct leg that replaces it. */
+    private static double removalSaving(VrpInstance instance, int vehicle, int[] route, int size, int i) {
+        int student = route[i];
+        double in = i == 0 ? instance.startToStudent(vehicle, student) : instance.studentToStudent(route[i - 1], student);
+        double out = i == size - 1 ? instance.studentToEvent(student) : instance.studentToStudent(student, route[i + 1]);
+        double direct;
+        if (size == 1) {
+            direct = instance.costs().driverToEventKm(vehicle);
+        } else if (i == 0) {
+            direct = instance.startToStudent(vehicle, route[1]);
+        } else if (i == size - 1) {
+            direct = instance.studentToEvent(route[i - 1]);
+        } else {
+            direct = instance.studentToStudent(route[i - 1], route[i + 1]);
+        }
+        return in + out - direct;
+    }
+}
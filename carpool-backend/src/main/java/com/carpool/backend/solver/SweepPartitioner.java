@@ -0,0 +1,114 @@
+package com.carpool.backend.solver;
+
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Cluster-first decomposition of a large request into angular sectors around the event. Students are first
+ * seat-assigned with {@link GreedyAssigner}; drivers, each carrying its students, are then swept by polar angle around
+ * the event, starting just after the widest empty sector, and cut into consecutive clusters of at most
+ * {@code maxStudents} students. A driver is never separated from its students, so every cluster has a seat for each
+ * student the greedy pass seated; students left without a seat join the cluster of their nearest driver.
+ */
+public final class SweepPartitioner {
+
+    private SweepPartitioner() {
+    }
+
+    /** Indices into the request's driver and student lists; clusters are returned in sweep order. */
+    public record Cluster(int[] drivers, int[] students) {
+    }
+
+    public static List<Cluster> partition(List<OptimizeRequestDTO.DriverDTO> drivers,
+                                          List<OptimizeRequestDTO.StudentDTO> students,
+                                          LatLngDTO eventLocation,
+                                          int maxStudents) {
+        int driverCount = drivers.size();
+        int[] driverOf = GreedyAssigner.assign(drivers, students, eventLocation);
+
+        double[] driverLat = new double[driverCount];
+        double[] driverLng = new double[driverCount];
+        for (int d = 0; d < driverCount; d++) {
+            driverLat[d] = drivers.get(d).home.lat;
+            driverLng[d] = drivers.get(d).home.lng;
+        }
+        DriverIndex index = new DriverIndex(driverLat, driverLng);
+        int[] load = new int[driverCount];
+        for (int s = 0; s < students.size(); s++) {
+            if (driverOf[s] == MinCostFlowAssigner.UNASSIGNED) {
+                LatLngDTO home = students.get(s).home;
+                driverOf[s] = index.nearestOpen(home.lat, home.lng, 1)[0];
+            }
+            load[driverOf[s]]++;
+        }
+
+        Integer[] order = sweepOrder(driverLat, driverLng, eventLocation);
+        int[] clusterOf = new int[driverCount];
+        int clusterCount = 0;
+        int clusterLoad = 0;
+        for (int d : order) {
+            if (clusterLoad > 0 && clusterLoad + load[d] > maxStudents) {
+                clusterCount++;
+                clusterLoad = 0;
+            }
+            clusterOf[d] = clusterCount;
+            clusterLoad += load[d];
+        }
+        clusterCount++;
+
+        List<List<Integer>> clusterDrivers = new ArrayList<>(clusterCount);
+        List<List<Integer>> clusterStudents = new ArrayList<>(clusterCount);
+        for (int c = 0; c < clusterCount; c++) {
+            clusterDrivers.add(new ArrayList<>());
+            clusterStudents.add(new ArrayList<>());
+        }
+        for (int d : order) {
+            clusterDrivers.get(clusterOf[d]).add(d);
+        }
+        for (int s = 0; s < students.size(); s++) {
+            clusterStudents.get(clusterOf[driverOf[s]]).add(s);
+        }
+        List<Cluster> clusters = new ArrayList<>(clusterCount);
+        for (int c = 0; c < clusterCount; c++) {
+            clusters.add(new Cluster(toArray(clusterDrivers.get(c)), toArray(clusterStudents.get(c))));
+        }
+        return clusters;
+    }
+
+    /** Drivers by polar angle around the event, rotated so the sweep starts after the widest angular gap. */
+    private static Integer[] sweepOrder(double[] driverLat, double[] driverLng, LatLngDTO eventLocation) {
+        int driverCount = driverLat.length;
+        double cosEvent = Math.cos(Math.toRadians(eventLocation.lat));
+        double[] angle = new double[driverCount];
+        Integer[] byAngle = new Integer[driverCount];
+        for (int d = 0; d < driverCount; d++) {
+            angle[d] = Math.atan2(driverLat[d] - eventLocation.lat, (driverLng[d] - eventLocation.lng) * cosEvent);
+            byAngle[d] = d;
+        }
+        Arrays.sort(byAngle, (left, right) -> Double.compare(angle[left], angle[right]));
+
+        int start = 0;
+        double widestGap = -1;
+        for (int i = 0; i < driverCount; i++) {
+            double previous = angle[byAngle[(i + driverCount - 1) % driverCount]];
+            double gap = angle[byAngle[i]] - previous + (i == 0 ? 2 * Math.PI : 0);
+            if (gap > widestGap) {
+                widestGap = gap;
+                start = i;
+            }
+        }
+        Integer[] order = new Integer[driverCount];
+        for (int i = 0; i < driverCount; i++) {
+            order[i] = byAngle[(start + i) % driverCount];
+        }
+        return order;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,330 @@
+package com.carpool.backend.solver;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Road distances and durations between roster entities (drivers, passengers, destinations), persisted in one
+ * memory-mapped file so a restart reopens the whole matrix without recomputing it and without copying it onto the
+ * heap. Every entity owns a slot; {@link #put} fills a new slot's row and column, and recomputes them only when that
+ * entity's coordinates change; {@link #remove} frees the slot for the next new entity. Cells come from the road
+ * router when one is given, otherwise from {@link TravelTimeModel} in a straight line. Lookups by slot are two buffer
+ * reads.
+ *
+ * <p>Layout, little-endian: a 24-byte header ({@code magic, version, capacity, slots used, cost source, reserved}),
+ * {@code capacity} slot records ({@code long key, double lat, double lng}; a freed slot has key {@code -1}), then a
+ * {@code capacity x capacity} row-major grid of {@code (float km, float seconds)} cells. The file is rewritten at
+ * twice the capacity when it fills up.
+ */
+public final class TravelMatrixStore implements AutoCloseable {
+
+    /** Entity table a key refers to. */
+    public enum Kind { DRIVER, PASSENGER, DESTINATION }
+
+    /** Largest capacity whose grid still fits one mapping (2 GiB). */
+    public static final int MAX_CAPACITY = 16_000;
+
+    private static final int MAGIC = 0x43504d58;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 24;
+    private static final int SLOT_BYTES = 24;
+    private static final int CELL_BYTES = 8;
+    private static final long FREE = -1L;
+
+    private final Path file;
+    private final TravelTimeModel travelTimes;
+    private final RoadNetworkRouter router;
+    private final Map<Long, Integer> slots = new ConcurrentHashMap<>();
+    // guarded by this
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+    private volatile Grid grid;
+    /** Slots handed out so far, freed ones included. */
+    private volatile int used;
+
+    /** The mapping and the capacity it was laid out for, swapped together when the file grows. */
+    private record Grid(MappedByteBuffer buffer, int capacity) {
+
+        int cellOffset(int from, int to) {
+            return TravelMatrixStore.cellOffset(capacity, from, to);
+        }
+    }
+
+    private TravelMatrixStore(Path file, TravelTimeModel travelTimes, RoadNetworkRouter router) {
+        this.file = file;
+        this.travelTimes = travelTimes;
+        this.router = router;
+    }
+
+    /** Opens a straight-line store; see {@link #open(Path, int, TravelTimeModel, RoadNetworkRouter, int)}. */
+    public static TravelMatrixStore open(Path file,
+                                         int initialCapacity,
+                                         TravelTimeModel travelTimes) throws IOException {
+        return open(file, initialCapacity, travelTimes, null, 0);
+    }
+
+    /**
+     * Opens {@code file}, or creates it with room for {@code initialCapacity} entities. Cell values come from
+     * {@code router} when it is not {@code null}, otherwise from {@code travelTimes} at its default speed.
+     * {@code costSource} identifies where the cells come from (road graph, speeds); a file written with another cost
+     * source or layout version is discarded and rebuilt.
+     */
+    public static TravelMatrixStore open(Path file,
+                                         int initialCapacity,
+                                         TravelTimeModel travelTimes,
+                                         RoadNetworkRouter router,
+                                         int costSource) throws IOException {
+        if (initialCapacity <= 0 || initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("initialCapacity must be in 1.." + MAX_CAPACITY);
+        }
+        TravelMatrixStore store = new TravelMatrixStore(file, travelTimes, router);
+        if (Files.exists(file) && Files.size(file) >= HEADER_BYTES) {
+            MappedByteBuffer existing = map(file, Files.size(file));
+            int capacity = existing.getInt(8);
+            if (existing.getInt(0) == MAGIC && existing.getInt(4) == VERSION && existing.getInt(16) == costSource
+                    && capacity > 0 && capacity <= MAX_CAPACITY && Files.size(file) == fileBytes(capacity)) {
+                store.load(existing, capacity);
+                return store;
+            }
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Files.deleteIfExists(file);
+        store.grid = new Grid(create(file, initialCapacity, costSource), initialCapacity);
+        return store;
+    }
+
+    public static long key(Kind kind, long id) {
+        return ((long) kind.ordinal() << 56) | id;
+    }
+
+    /** Slot of {@code key}, or {@code -1} when it has never been stored. */
+    public int slot(long key) {
+        Integer slot = slots.get(key);
+        return slot == null ? -1 : slot;
+    }
+
+    public int slot(Kind kind, long id) {
+        return slot(key(kind, id));
+    }
+
+    /** Slot of the entity, or {@code -1} when it is not stored or was stored at other coordinates. */
+    public int slot(Kind kind, long id, double lat, double lng) {
+        Grid current = grid;
+        int slot = slot(key(kind, id));
+        if (slot < 0) {
+            return -1;
+        }
+        int record = slotOffset(slot);
+        boolean same = current.buffer().getDouble(record + 8) == lat && current.buffer().getDouble(record + 16) == lng;
+        return same ? slot : -1;
+    }
+
+    public double distanceKm(int from, int to) {
+        Grid current = grid;
+        return current.buffer().getFloat(current.cellOffset(from, to));
+    }
+
+    public double durationSeconds(int from, int to) {
+        Grid current = grid;
+        return current.buffer().getFloat(current.cellOffset(from, to) + 4);
+    }
+
+    /** Entities currently stored. */
+    public int size() {
+        return slots.size();
+    }
+
+    public int capacity() {
+        return grid.capacity();
+    }
+
+    /**
+     * Stores {@code key} at ({@code lat}, {@code lng}). Returns {@code true} when a row and column were (re)computed,
+     * {@code false} when the key was already stored at exactly these coordinates.
+     */
+    public synchronized boolean put(long key, double lat, double lng) throws IOException {
+        if (key == FREE) {
+            throw new IllegalArgumentException("key -1 marks a free slot");
+        }
+        Integer existing = slots.get(key);
+        int slot;
+        if (existing != null) {
+            slot = existing;
+            int record = slotOffset(slot);
+            if (grid.buffer().getDouble(record + 8) == lat && grid.buffer().getDouble(record + 16) == lng) {
+                return false;
+            }
+        } else if (!freeSlots.isEmpty()) {
+            slot = freeSlots.peek();
+        } else {
+            if (used == grid.capacity()) {
+                grow();
+            }
+            slot = used;
+        }
+        MappedByteBuffer buffer = grid.buffer();
+        int record = slotOffset(slot);
+        // the record is rewritten after its row and column, so a crash mid-put never exposes half-filled cells
+        buffer.putLong(record, FREE);
+        writeCells(slot, lat, lng);
+        buffer.putDouble(record + 8, lat);
+        buffer.putDouble(record + 16, lng);
+        buffer.putLong(record, key);
+        if (existing == null) {
+            if (slot == used) {
+                used++;
+                buffer.putInt(12, used);
+            } else {
+                freeSlots.poll();
+            }
+            slots.put(key, slot);
+        }
+        return true;
+    }
+
+    /** Frees {@code key}'s slot for reuse; returns {@code false} when it was not stored. */
+    public synchronized boolean remove(long key) {
+        Integer slot = slots.remove(key);
+        if (slot == null) {
+            return false;
+        }
+        grid.buffer().putLong(slotOffset(slot), FREE);
+        freeSlots.push(slot);
+        return true;
+    }
+
+    /** Flushes dirty pages to disk. */
+    public synchronized void force() {
+        grid.buffer().force();
+    }
+
+    @Override
+    public synchronized void close() {
+        force();
+    }
+
+    /** Fills {@code slot}'s row and column against every stored entity, in one router query each way. */
+    private void writeCells(int slot, double lat, double lng) {
+        MappedByteBuffer buffer = grid.buffer();
+        int[] others = new int[used];
+        double[] otherLat = new double[used];
+        double[] otherLng = new double[used];
+        int count = 0;
+        for (int other = 0; other < used; other++) {
+            int otherRecord = slotOffset(other);
+            if (other == slot || buffer.getLong(otherRecord) == FREE) {
+                continue;
+            }
+            others[count] = other;
+            otherLat[count] = buffer.getDouble(otherRecord + 8);
+            otherLng[count] = buffer.getDouble(otherRecord + 16);
+            count++;
+        }
+        otherLat = Arrays.copyOf(otherLat, count);
+        otherLng = Arrays.copyOf(otherLng, count);
+        double[] here = {lat};
+        double[] there = {lng};
+        if (router != null) {
+            RoadNetworkRouter.Matrix outbound = router.matrix(here, there, otherLat, otherLng);
+            RoadNetworkRouter.Matrix inbound = router.matrix(otherLat, otherLng, here, there);
+            for (int i = 0; i < count; i++) {
+                writeCell(slot, others[i], outbound.km(0, i), outbound.seconds(0, i));
+                writeCell(others[i], slot, inbound.km(i, 0), inbound.seconds(i, 0));
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                double outKm = travelTimes.roadKm(lat, lng, otherLat[i], otherLng[i]);
+                double inKm = travelTimes.roadKm(otherLat[i], otherLng[i], lat, lng);
+                writeCell(slot, others[i], outKm, travelTimes.travelSeconds(outKm));
+                writeCell(others[i], slot, inKm, travelTimes.travelSeconds(inKm));
+            }
+        }
+        writeCell(slot, slot, 0, 0);
+    }
+
+    private void writeCell(int from, int to, double km, double seconds) {
+        int offset = grid.cellOffset(from, to);
+        grid.buffer().putFloat(offset, (float) km);
+        grid.buffer().putFloat(offset + 4, (float) seconds);
+    }
+
+    private void load(MappedByteBuffer existing, int capacity) {
+        this.grid = new Grid(existing, capacity);
+        this.used = Math.min(existing.getInt(12), capacity);
+        for (int slot = 0; slot < used; slot++) {
+            long key = existing.getLong(slotOffset(slot));
+            if (key == FREE) {
+                freeSlots.add(slot);
+            } else {
+                slots.put(key, slot);
+            }
+        }
+    }
+
+    private void grow() throws IOException {
+        Grid current = grid;
+        if (current.capacity() == MAX_CAPACITY) {
+            throw new IllegalStateException("travel matrix is full (" + MAX_CAPACITY + " entities)");
+        }
+        int grown = Math.min(MAX_CAPACITY, current.capacity() * 2);
+        Path next = file.resolveSibling(file.getFileName() + ".grow");
+        Files.deleteIfExists(next);
+        MappedByteBuffer target = create(next, grown, current.buffer().getInt(16));
+        for (int slot = 0; slot < used; slot++) {
+            for (int i = 0; i < SLOT_BYTES; i += 8) {
+                target.putLong(slotOffset(slot) + i, current.buffer().getLong(slotOffset(slot) + i));
+            }
+            for (int other = 0; other < used; other++) {
+                long cell = current.buffer().getLong(current.cellOffset(slot, other));
+                target.putLong(cellOffset(grown, slot, other), cell);
+            }
+        }
+        target.putInt(12, used);
+        target.force();
+        Files.move(next, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.grid = new Grid(target, grown);
+    }
+
+    private static int slotOffset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private static int cellOffset(int capacity, int from, int to) {
+        return HEADER_BYTES + capacity * SLOT_BYTES + (from * capacity + to) * CELL_BYTES;
+    }
+
+    private static long fileBytes(int capacity) {
+        return HEADER_BYTES + (long) capacity * SLOT_BYTES + (long) capacity * capacity * CELL_BYTES;
+    }
+
+    private static MappedByteBuffer create(Path file, int capacity, int costSource) throws IOException {
+        MappedByteBuffer created = map(file, fileBytes(capacity));
+        created.putInt(0, MAGIC);
+        created.putInt(4, VERSION);
+        created.putInt(8, capacity);
+        created.putInt(12, 0);
+        created.putInt(16, costSource);
+        return created;
+    }
+
+    private static MappedByteBuffer map(Path file, long bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            return mapped;
+        }
+    }
+}
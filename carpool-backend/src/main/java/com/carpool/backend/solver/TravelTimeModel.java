@@ -0,0 +1,193 @@
+package com.carpool.backend.solver;
+
+import com.carpool.backend.dto.LatLngDTO;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local travel-time estimate used wherever a timeline is built without Google: road distance is the haversine
+ * distance times {@code roadFactor}, and a leg is driven at the speed of the time-of-day band it starts in (or
+ * {@code defaultSpeedKmh} outside every band). Each pickup adds {@code serviceSeconds} before the car moves on.
+ * With a {@link RoadNetworkRouter} attached, legs follow the road graph instead, and the bands scale its free-flow
+ * seconds by {@code defaultSpeedKmh / bandSpeed}.
+ */
+public final class TravelTimeModel {
+
+    /** Speed for departures in {@code [from, to)} local time; a band with {@code from > to} wraps past midnight. */
+    public record SpeedBand(LocalTime from, LocalTime to, double speedKmh) {
+
+        boolean contains(LocalTime time) {
+            if (from.isBefore(to)) {
+                return !time.isBefore(from) && time.isBefore(to);
+            }
+            return !time.isBefore(from) || time.isBefore(to);
+        }
+    }
+
+    /** Road kilometres and seconds of one leg. */
+    public record Leg(double km, double seconds) {
+    }
+
+    private final double defaultSpeedKmh;
+    private final double roadFactor;
+    private final double serviceSeconds;
+    private final List<SpeedBand> bands;
+    private final ZoneId zone;
+    private final RoadNetworkRouter router;
+
+    public TravelTimeModel(double defaultSpeedKmh,
+                           double roadFactor,
+                           double serviceSeconds,
+                           List<SpeedBand> bands,
+                           ZoneId zone) {
+        this(defaultSpeedKmh, roadFactor, serviceSeconds, bands, zone, null);
+    }
+
+    private TravelTimeModel(double defaultSpeedKmh,
+                            double roadFactor,
+                            double serviceSeconds,
+                            List<SpeedBand> bands,
+                            ZoneId zone,
+                            RoadNetworkRouter router) {
+        if (defaultSpeedKmh <= 0) {
+            throw new IllegalArgumentException("defaultSpeedKmh must be > 0");
+        }
+        if (serviceSeconds < 0) {
+            throw new IllegalArgumentException("serviceSeconds must be >= 0");
+        }
+        for (SpeedBand band : bands) {
+            if (band.speedKmh() <= 0) {
+                throw new IllegalArgumentException("speed band " + band + " must have speedKmh > 0");
+            }
+        }
+        this.defaultSpeedKmh = defaultSpeedKmh;
+        this.roadFactor = roadFactor;
+        this.serviceSeconds = serviceSeconds;
+        this.bands = List.copyOf(bands);
+        this.zone = zone == null ? ZoneOffset.UTC : zone;
+        this.router = router;
+    }
+
+    /** This model with legs routed over {@code router}; {@code null} goes back to straight-line distances. */
+    public TravelTimeModel withRouter(RoadNetworkRouter router) {
+        return new TravelTimeModel(defaultSpeedKmh, roadFactor, serviceSeconds, bands, zone, router);
+    }
+
+    /** The attached road router, or {@code null}. */
+    public RoadNetworkRouter router() {
+        return router;
+    }
+
+    /** One speed all day, no service time; the model {@code optimize.local.*} described before speed profiles. */
+    public static TravelTimeModel constant(double speedKmh, double roadFactor) {
+        return new TravelTimeModel(speedKmh, roadFactor, 0, List.of(), ZoneOffset.UTC);
+    }
+
+    /**
+     * Model from the {@code optimize.local.*} properties. {@code speedProfile} is a comma-separated list of
+     * {@code HH:mm-HH:mm=kmh} bands, e.g. {@code 07:00-09:00=25,16:00-18:30=28}; blank means no bands.
+     */
+    public static TravelTimeModel of(double defaultSpeedKmh,
+                                     double roadFactor,
+                                     double serviceSeconds,
+                                     String speedProfile,
+                                     String timeZone) {
+        ZoneId zone = timeZone == null || timeZone.isBlank() ? ZoneOffset.UTC : ZoneId.of(timeZone.trim());
+        return new TravelTimeModel(defaultSpeedKmh, roadFactor, serviceSeconds, parseProfile(speedProfile), zone);
+    }
+
+    static List<SpeedBand> parseProfile(String speedProfile) {
+        List<SpeedBand> bands = new ArrayList<>();
+        if (speedProfile == null || speedProfile.isBlank()) {
+            return bands;
+        }
+        for (String entry : speedProfile.split(",")) {
+            String band = entry.trim();
+            int equals = band.indexOf('=');
+            int dash = band.indexOf('-');
+            if (equals < 0 || dash < 0 || dash > equals) {
+                throw new IllegalArgumentException("Invalid speed band '" + band + "', expected HH:mm-HH:mm=kmh");
+            }
+            bands.add(new SpeedBand(
+                    LocalTime.parse(band.substring(0, dash).trim()),
+                    LocalTime.parse(band.substring(dash + 1, equals).trim()),
+                    Double.parseDouble(band.substring(equals + 1).trim())));
+        }
+        return bands;
+    }
+
+    /**
+     * Least-squares speed (km/h) that best explains observed legs, fitted through the origin: {@code roadKm[i]}
+     * road kilometres took {@code seconds[i]}. Used to calibrate {@code optimize.local.average-speed-kmh} against
+     * optimizeTours transitions.
+     */
+    public static double fitSpeedKmh(double[] roadKm, double[] seconds) {
+        if (roadKm.length != seconds.length || roadKm.length == 0) {
+            throw new IllegalArgumentException("roadKm and seconds must be non-empty and of equal length");
+        }
+        double kmSeconds = 0;
+        double kmSquared = 0;
+        for (int i = 0; i < roadKm.length; i++) {
+            kmSeconds += roadKm[i] * seconds[i];
+            kmSquared += roadKm[i] * roadKm[i];
+        }
+        if (kmSeconds <= 0) {
+            throw new IllegalArgumentException("legs must cover some distance in some time");
+        }
+        return kmSquared / kmSeconds * 3600.0;
+    }
+
+    public double roadKm(LatLngDTO from, LatLngDTO to) {
+        return roadKm(from.lat, from.lng, to.lat, to.lng);
+    }
+
+    public double roadKm(double fromLat, double fromLng, double toLat, double toLng) {
+        return GeoDistance.haversineKm(fromLat, fromLng, toLat, toLng) * roadFactor;
+    }
+
+    /** Distance and duration of the leg {@code from -> to} when leaving at {@code departure}. */
+    public Leg leg(LatLngDTO from, LatLngDTO to, Instant departure) {
+        if (router == null) {
+            double km = roadKm(from, to);
+            return new Leg(km, travelSeconds(km, departure));
+        }
+        Leg routed = router.leg(from.lat, from.lng, to.lat, to.lng);
+        return new Leg(routed.km(), routed.seconds() * defaultSpeedKmh / speedKmh(departure));
+    }
+
+    /** Seconds to drive {@code roadKm} at the default speed, for costs that do not depend on the departure time. */
+    public double travelSeconds(double roadKm) {
+        return roadKm / defaultSpeedKmh * 3600.0;
+    }
+
+    /** Seconds to drive {@code roadKm} when leaving at {@code departure}. */
+    public double travelSeconds(double roadKm, Instant departure) {
+        return roadKm / speedKmh(departure) * 3600.0;
+    }
+
+    public double speedKmh(Instant departure) {
+        if (bands.isEmpty()) {
+            return defaultSpeedKmh;
+        }
+        LocalTime time = LocalTime.ofInstant(departure, zone);
+        for (SpeedBand band : bands) {
+            if (band.contains(time)) {
+                return band.speedKmh();
+            }
+        }
+        return defaultSpeedKmh;
+    }
+
+    public double serviceSeconds() {
+        return serviceSeconds;
+    }
+
+    public double roadFactor() {
+        return roadFactor;
+    }
+}
@@ -0,0 +1,66 @@
+package com.carpool.backend.solver;
+
+/**
+ * Primitive view of a single-destination carpool problem: every vehicle starts at its driver's
+ * home, picks up students and ends at the event, where all students are dropped off.
+ * Distances are kilometres and come from a {@link CostMatrix} built with student pairs.
+ */
+public final class VrpInstance {
+
+    private final CostMatrix costs;
+    private final int[] capacity;
+
+    public VrpInstance(CostMatrix costs, int[] capacity) {
+        if (capacity.length != costs.driverCount()) {
+            throw new IllegalArgumentException("capacity length must match driver count");
+        }
+        this.costs = costs;
+        this.capacity = capacity.clone();
+    }
+
+    public VrpInstance(double[] driverLat, double[] driverLng, int[] capacity,
+                       double[] studentLat, double[] studentLng,
+                       double eventLat, double eventLng) {
+        this(CostMatrix.build(driverLat, driverLng, studentLat, studentLng, eventLat, eventLng, true), capacity);
+    }
+
+    public CostMatrix costs() {
+        return costs;
+    }
+
+    public int vehicleCount() {
+        return costs.driverCount();
+    }
+
+    public int studentCount() {
+        return costs.studentCount();
+    }
+
+    public int capacity(int vehicle) {
+        return capacity[vehicle];
+    }
+
+    public double startToStudent(int vehicle, int student) {
+        return costs.driverToStudentKm(vehicle, student);
+    }
+
+    public double studentToEvent(int student) {
+        return costs.studentToEventKm(student);
+    }
+
+    public double studentToStudent(int a, int b) {
+        return costs.studentToStudentKm(a, b);
+    }
+
+    /** Length of the route {@code start(vehicle) -> stops... -> event}; an unused vehicle costs nothing. */
+    public double routeCost(int vehicle, int[] stops, int size) {
+        if (size == 0) {
+            return 0;
+        }
+        double cost = startToStudent(vehicle, stops[0]);
+        for (int i = 1; i < size; i++) {
+            cost += studentToStudent(stops[i - 1], stops[i]);
+        }
+        return cost + studentToEvent(stops[size - 1]);
+    }
+}
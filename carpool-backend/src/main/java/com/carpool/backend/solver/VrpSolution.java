@@ -0,0 +1,40 @@
+package com.carpool.backend.solver;
+
+/**
+ * Result of a local solve. {@code routes[v]} lists the student indices picked up by vehicle {@code v}
+ * in visiting order; students that could not be seated are listed in {@code unassigned}.
+ */
+public final class VrpSolution {
+
+    private final int[][] routes;
+    private final int[] unassigned;
+    private final double totalCostKm;
+    private final int iterations;
+
+    public VrpSolution(int[][] routes, int[] unassigned, double totalCostKm, int iterations) {
+        this.routes = routes;
+        this.unassigned = unassigned;
+        this.totalCostKm = totalCostKm;
+        this.iterations = iterations;
+    }
+
+    public int[][] routes() {
+        return routes;
+    }
+
+    public int[] route(int vehicle) {
+        return routes[vehicle];
+    }
+
+    public int[] unassigned() {
+        return unassigned;
+    }
+
+    public double totalCostKm() {
+        return totalCostKm;
+    }
+
+    public int iterations() {
+        return iterations;
+    }
+}
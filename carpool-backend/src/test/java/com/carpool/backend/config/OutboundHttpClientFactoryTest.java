@@ -0,0 +1,67 @@
+package com.carpool.backend.config;
+
+import com.carpool.backend.fake.FakeOptimizeToursServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.RestClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutboundHttpClientFactoryTest {
+
+    private FakeOptimizeToursServer server;
+    private SimpleMeterRegistry registry;
+    private OutboundHttpClientFactory factory;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new FakeOptimizeToursServer(new FakeOptimizeToursServer.Options());
+        server.start();
+        registry = new SimpleMeterRegistry();
+        factory = new OutboundHttpClientFactory(1_000, 5_000, 1_000, 60_000, 4, 8, 0, registry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        factory.shutdown();
+        server.stop();
+    }
+
+    @Test
+    void restClient_shouldReuseWarmedUpConnections() {
+        RestClient rest = factory.restClient("fake", server.baseUrl()).build();
+
+        factory.warmUp(2);
+        assertEquals(2.0, gauge("http.client.pool.available"));
+
+        String body = rest.post()
+                .uri("/v1/projects/p:optimizeTours")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body("{\"model\":{\"vehicles\":[],\"shipments\":[]}}")
+                .retrieve()
+                .body(String.class);
+
+        assertTrue(body.contains("routes"));
+        assertEquals(1, server.requestCount());
+        // the call went over one of the warmed-up connections instead of opening a third
+        assertEquals(2.0, gauge("http.client.pool.available"));
+        assertEquals(0.0, gauge("http.client.pool.leased"));
+        assertEquals(8.0, gauge("http.client.pool.max"));
+        assertEquals(3, registry.get("http.client.pool.wait").tag("client", "fake").timer().count());
+    }
+
+    @Test
+    void requestFactory_shouldShareOnePoolPerClientName() {
+        assertSame(factory.requestFactory("maps", null), factory.requestFactory("maps", "https://maps.example"));
+        assertEquals(1, registry.find("http.client.pool.max").gauges().size());
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).tag("client", "fake").gauge().value();
+    }
+}
@@ -4,6 +4,10 @@ import com.carpool.backend.dto.LatLngDTO;
 import com.carpool.backend.dto.OptimizeRequestDTO;
 import com.carpool.backend.dto.RoutePlanDTO;
 import com.carpool.backend.dto.TimelineEntryDTO;
+import com.carpool.backend.service.OptimizationJobService;
+import com.carpool.backend.service.OptimizeToursCache;
+import com.carpool.backend.service.OptimizeToursExecutor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
 import java.io.InputStream;
@@ -22,7 +26,7 @@ class RouteOptimizationContractFixtureTest {
     @SuppressWarnings("unchecked")
     @Test
     void buildRoutePlans_shouldParseFixtureWithStableContract() throws Exception {
-        RouteOptimizationController controller = new RouteOptimizationController();
+        RouteOptimizationController controller = newController();
         OptimizeRequestDTO request = buildRequest();
 
         String fixtureJson = loadFixture("fixtures/optimizeTours_real_response.json");
@@ -118,4 +122,12 @@ class RouteOptimizationContractFixtureTest {
         loc.lng = lng;
         return loc;
     }
+
+    private static RouteOptimizationController newController() {
+        return new RouteOptimizationController(
+                new OptimizeToursExecutor(1, 1_000),
+                new OptimizationJobService(1, 1, 60_000),
+                new OptimizeToursCache(0, 0, 4, new SimpleMeterRegistry())
+        );
+    }
 }
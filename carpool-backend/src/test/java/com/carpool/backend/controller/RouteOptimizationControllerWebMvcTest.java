@@ -1,9 +1,23 @@
 package com.carpool.backend.controller;
 
+import com.carpool.backend.config.OutboundHttpClientFactory;
+import com.carpool.backend.dto.BatchOptimizeRequestDTO;
+import com.carpool.backend.dto.IncrementalOptimizeRequestDTO;
 import com.carpool.backend.dto.LatLngDTO;
 import com.carpool.backend.dto.OptimizeRequestDTO;
+import com.carpool.backend.dto.RoutePlanDTO;
+import com.carpool.backend.dto.TimelineEntryDTO;
+import com.carpool.backend.service.GoogleAccessTokenProvider;
+import com.carpool.backend.service.OptimizationJobService;
+import com.carpool.backend.service.OptimizeToursCache;
+import com.carpool.backend.service.OptimizeToursCircuitBreaker;
+import com.carpool.backend.service.OptimizeToursExecutor;
+import com.carpool.backend.service.RoadNetworkService;
+import com.carpool.backend.service.RosterMatrixService;
+import com.carpool.backend.service.SeatRepairStage;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.auth.oauth2.AccessToken;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
@@ -11,34 +25,64 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.client.RestClient;
 
-import java.time.Instant;
-import java.util.Date;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
-@WebMvcTest(RouteOptimizationController.class)
+@WebMvcTest(controllers = RouteOptimizationController.class, properties = "google.http.warm-up-connections=0")
+@Import({OptimizeToursExecutor.class, OptimizationJobService.class, OptimizeToursCache.class,
+        GoogleAccessTokenProvider.class, OutboundHttpClientFactory.class, OptimizeToursCircuitBreaker.class,
+        SeatRepairStage.class, RoadNetworkService.class, RouteOptimizationControllerWebMvcTest.RosterMatrix.class})
 @AutoConfigureMockMvc(addFilters = false)
 class RouteOptimizationControllerWebMvcTest {
 
+    /** The roster matrix needs the JPA repositories, which this slice does not load. */
+    @TestConfiguration
+    static class RosterMatrix {
+        @Bean
+        RosterMatrixService rosterMatrixService() {
+            return RosterMatrixService.disabled();
+        }
+    }
+
     private static final String GOOGLE_RESPONSE_JSON = """
             {
               "routes": [
@@ -156,32 +200,51 @@ class RouteOptimizationControllerWebMvcTest {
     @Autowired
     private RouteOptimizationController controller;
 
+    @Autowired
+    private OptimizeToursCache optimizeToursCache;
+
     private RestClient.RequestBodySpec requestBodySpec;
     private String googleResponseJson;
+    // answers from the body sent on the same thread; by default the fixed googleResponseJson
+    private Function<byte[], String> googleResponder;
+    private final ThreadLocal<byte[]> sentBody = new ThreadLocal<>();
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws IOException {
         RestClient restClient = Mockito.mock(RestClient.class);
         RestClient.RequestBodyUriSpec requestBodyUriSpec = Mockito.mock(RestClient.RequestBodyUriSpec.class);
         requestBodySpec = Mockito.mock(RestClient.RequestBodySpec.class);
-        RestClient.ResponseSpec responseSpec = Mockito.mock(RestClient.ResponseSpec.class);
+        RestClient.RequestHeadersSpec.ConvertibleClientHttpResponse response =
+                Mockito.mock(RestClient.RequestHeadersSpec.ConvertibleClientHttpResponse.class);
 
         googleResponseJson = GOOGLE_RESPONSE_JSON;
+        googleResponder = body -> googleResponseJson;
+        optimizeToursCache.clear();
 
         when(restClient.post()).thenReturn(requestBodyUriSpec);
         doReturn(requestBodySpec).when(requestBodyUriSpec).uri(anyString(), any(Object[].class));
         when(requestBodySpec.header(eq(HttpHeaders.AUTHORIZATION), anyString())).thenReturn(requestBodySpec);
         when(requestBodySpec.contentType(MediaType.APPLICATION_JSON)).thenReturn(requestBodySpec);
-        when(requestBodySpec.body(any(Map.class))).thenReturn(requestBodySpec);
-        when(requestBodySpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.body(String.class)).thenAnswer(invocation -> googleResponseJson);
+        when(requestBodySpec.body(any(byte[].class))).thenAnswer(invocation -> {
+            sentBody.set(invocation.getArgument(0));
+            return requestBodySpec;
+        });
+        when(response.getStatusCode()).thenReturn(HttpStatus.OK);
+        when(response.getBody()).thenAnswer(invocation -> new ByteArrayInputStream(
+                googleResponder.apply(sentBody.get()).getBytes(StandardCharsets.UTF_8)));
+        when(requestBodySpec.exchange(any())).thenAnswer(invocation -> {
+            RestClient.RequestHeadersSpec.ExchangeFunction<?> exchange = invocation.getArgument(0);
+            return exchange.exchange(Mockito.mock(HttpRequest.class), response);
+        });
 
         ReflectionTestUtils.setField(controller, "rest", restClient);
         ReflectionTestUtils.setField(controller, "projectId", "test-project-id");
+        // these tests exercise the optimizeTours path; the in-process exact solver has its own test
+        ReflectionTestUtils.setField(controller, "exactMaxStops", 0);
         ReflectionTestUtils.setField(
                 controller,
-                "cachedToken",
-                new AccessToken("fake-token", Date.from(Instant.now().plusSeconds(3600)))
+                "accessTokenProvider",
+                GoogleAccessTokenProvider.staticToken("fake-token")
         );
     }
 
@@ -220,10 +283,10 @@ class RouteOptimizationControllerWebMvcTest {
                 .andExpect(jsonPath("$[1].timeline[1].location.lat").value(43.0800))
                 .andExpect(jsonPath("$[1].timeline[1].location.lng").value(-89.4000));
 
-        ArgumentCaptor<Map<String, Object>> bodyCaptor = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<byte[]> bodyCaptor = ArgumentCaptor.forClass(byte[].class);
         verify(requestBodySpec).body(bodyCaptor.capture());
 
-        Map<String, Object> outboundBody = bodyCaptor.getValue();
+        Map<String, Object> outboundBody = readBody(bodyCaptor.getValue());
         Map<String, Object> model = (Map<String, Object>) outboundBody.get("model");
         List<Map<String, Object>> objectives = (List<Map<String, Object>>) model.get("objectives");
         List<Map<String, Object>> vehicles = (List<Map<String, Object>>) model.get("vehicles");
@@ -315,10 +378,13 @@ class RouteOptimizationControllerWebMvcTest {
                 .andExpect(jsonPath("$[0].timeline[0]").exists())
                 .andExpect(jsonPath("$[1].timeline[0]").exists());
 
-        ArgumentCaptor<Map<String, Object>> bodyCaptor = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<byte[]> bodyCaptor = ArgumentCaptor.forClass(byte[].class);
         verify(requestBodySpec, atLeast(2)).body(bodyCaptor.capture());
 
-        List<Map<String, Object>> outboundBodies = bodyCaptor.getAllValues();
+        List<Map<String, Object>> outboundBodies = new ArrayList<>();
+        for (byte[] sent : bodyCaptor.getAllValues()) {
+            outboundBodies.add(readBody(sent));
+        }
         for (Map<String, Object> outboundBody : outboundBodies) {
             Map<String, Object> model = (Map<String, Object>) outboundBody.get("model");
             List<Map<String, Object>> vehicles = (List<Map<String, Object>>) model.get("vehicles");
@@ -346,10 +412,13 @@ class RouteOptimizationControllerWebMvcTest {
                 .andExpect(jsonPath("$[1]").exists())
                 .andExpect(jsonPath("$[2]").doesNotExist());
 
-        ArgumentCaptor<Map<String, Object>> bodyCaptor = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<byte[]> bodyCaptor = ArgumentCaptor.forClass(byte[].class);
         verify(requestBodySpec, atLeast(2)).body(bodyCaptor.capture());
 
-        List<Map<String, Object>> outboundBodies = bodyCaptor.getAllValues();
+        List<Map<String, Object>> outboundBodies = new ArrayList<>();
+        for (byte[] sent : bodyCaptor.getAllValues()) {
+            outboundBodies.add(readBody(sent));
+        }
         for (Map<String, Object> outboundBody : outboundBodies) {
             Map<String, Object> model = (Map<String, Object>) outboundBody.get("model");
             List<Map<String, Object>> vehicles = (List<Map<String, Object>>) model.get("vehicles");
@@ -360,6 +429,379 @@ class RouteOptimizationControllerWebMvcTest {
         }
     }
 
+    @Test
+    void optimize_perVehicleMode_shouldServeRepeatedRequestFromCache() throws Exception {
+        googleResponseJson = GOOGLE_RESPONSE_SINGLE_ROUTE_JSON;
+        OptimizeRequestDTO request = buildPerVehicleRequestSatisfiable();
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            mockMvc.perform(post("/api/optimize")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$[0].timeline[0]").exists())
+                    .andExpect(jsonPath("$[1].timeline[0]").exists());
+        }
+
+        // one optimizeTours call per driver, all from the first attempt
+        verify(requestBodySpec, times(2)).body(any(byte[].class));
+    }
+
+    @Test
+    void optimize_perVehicleMode_shouldOrderSmallRoutesInProcess_withoutCallingGoogle() throws Exception {
+        ReflectionTestUtils.setField(controller, "exactMaxStops", 8);
+
+        mockMvc.perform(post("/api/optimize")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(buildPerVehicleRequestSatisfiable())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].driverId").value("d1"))
+                .andExpect(jsonPath("$[0].timeline[0].type").value("pickup"))
+                .andExpect(jsonPath("$[0].timeline[0].time").isNotEmpty())
+                .andExpect(jsonPath("$[0].timeline[2].type").value("dropoff"))
+                .andExpect(jsonPath("$[1].driverId").value("d2"))
+                .andExpect(jsonPath("$[1].metrics.performedShipmentCount").value(2));
+
+        verify(requestBodySpec, never()).body(any(byte[].class));
+    }
+
+    @Test
+    void optimize_localMode_shouldSolveInProcess_withoutCallingGoogle() throws Exception {
+        OptimizeRequestDTO request = buildPerVehicleRequestSatisfiable();
+        request.mode = "LOCAL_MIN_TIME";
+
+        mockMvc.perform(post("/api/optimize")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].driverId").isNotEmpty())
+                .andExpect(jsonPath("$[0].timeline[0].type").value("pickup"))
+                .andExpect(jsonPath("$[0].timeline[0].time").isNotEmpty())
+                .andExpect(jsonPath("$[0].timeline[0].location.lat").exists())
+                .andExpect(jsonPath("$[0].metrics.travelDuration").exists());
+
+        verify(requestBodySpec, never()).body(any(byte[].class));
+    }
+
+    @Test
+    void optimize_localMode_shouldDecomposeLargeRequest_andSeatEveryStudent() throws Exception {
+        ReflectionTestUtils.setField(controller, "clusterMaxStudents", 8);
+        try {
+            OptimizeRequestDTO request = buildClusteredRequest(12, 40);
+            request.mode = "LOCAL_MIN_TIME";
+
+            MvcResult result = mockMvc.perform(post("/api/optimize")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            Set<String> seated = new HashSet<>();
+            for (JsonNode plan : objectMapper.readTree(result.getResponse().getContentAsString())) {
+                int pickups = 0;
+                for (JsonNode entry : plan.path("timeline")) {
+                    if ("pickup".equals(entry.path("type").asText())) {
+                        pickups++;
+                        assertTrue(seated.add(entry.path("studentId").asText()));
+                    }
+                }
+                assertTrue(pickups <= 4);
+            }
+            assertEquals(40, seated.size());
+            verify(requestBodySpec, never()).body(any(byte[].class));
+        } finally {
+            ReflectionTestUtils.setField(controller, "clusterMaxStudents", 300);
+        }
+    }
+
+    @Test
+    void optimizeJobs_shouldAcceptJob_andExposeResultWhenFinished() throws Exception {
+        OptimizeRequestDTO request = buildPerVehicleRequestSatisfiable();
+        request.mode = "LOCAL_MIN_TIME";
+
+        MvcResult submitted = mockMvc.perform(post("/api/optimize/jobs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists(HttpHeaders.LOCATION))
+                .andExpect(jsonPath("$.id").isNotEmpty())
+                .andReturn();
+        String jobId = objectMapper.readTree(submitted.getResponse().getContentAsString()).path("id").asText();
+
+        String jobStatus = "QUEUED";
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!"SUCCEEDED".equals(jobStatus) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+            MvcResult polled = mockMvc.perform(get("/api/optimize/jobs/{jobId}", jobId))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            jobStatus = objectMapper.readTree(polled.getResponse().getContentAsString()).path("status").asText();
+        }
+
+        mockMvc.perform(get("/api/optimize/jobs/{jobId}", jobId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("SUCCEEDED"))
+                .andExpect(jsonPath("$.finishedAt").isNotEmpty())
+                .andExpect(jsonPath("$.result[0].driverId").isNotEmpty())
+                .andExpect(jsonPath("$.result[0].timeline[0].type").value("pickup"));
+    }
+
+    @Test
+    void optimizeJobs_shouldRejectInvalidRequest_beforeQueueing() throws Exception {
+        OptimizeRequestDTO request = buildRequest();
+        request.drivers = List.of();
+
+        mockMvc.perform(post("/api/optimize/jobs")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void optimizeJobs_shouldReturnNotFound_forUnknownJob() throws Exception {
+        mockMvc.perform(get("/api/optimize/jobs/{jobId}", "missing"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(delete("/api/optimize/jobs/{jobId}", "missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void optimizeIncremental_shouldKeepUntouchedPlans_andRetimeChangedOnesLocally() throws Exception {
+        OptimizeRequestDTO request = buildPerVehicleRequestSatisfiable();
+        request.mode = "LOCAL_MIN_TIME";
+        MvcResult solved = mockMvc.perform(post("/api/optimize")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode previous = objectMapper.readTree(solved.getResponse().getContentAsString());
+
+        IncrementalOptimizeRequestDTO incremental = new IncrementalOptimizeRequestDTO();
+        incremental.event = request.event;
+        incremental.drivers = request.drivers;
+        incremental.previousPlans = objectMapper.readValue(solved.getResponse().getContentAsString(),
+                new TypeReference<List<RoutePlanDTO>>() { });
+        incremental.removedStudentIds = List.of("1");
+        incremental.globalStartTime = request.globalStartTime;
+        incremental.globalEndTime = request.globalEndTime;
+
+        MvcResult repaired = mockMvc.perform(post("/api/optimize/incremental")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(incremental)))
+                .andExpect(status().isOk())
+                .andReturn();
+        JsonNode plans = objectMapper.readTree(repaired.getResponse().getContentAsString());
+
+        int pickups = 0;
+        for (JsonNode plan : plans) {
+            JsonNode before = null;
+            for (JsonNode candidate : previous) {
+                if (candidate.path("driverId").equals(plan.path("driverId"))) {
+                    before = candidate;
+                }
+            }
+            boolean hadStudentOne = false;
+            for (JsonNode entry : before.path("timeline")) {
+                hadStudentOne |= "1".equals(entry.path("studentId").asText());
+            }
+            for (JsonNode entry : plan.path("timeline")) {
+                if ("pickup".equals(entry.path("type").asText())) {
+                    pickups++;
+                    assertNotEquals("1", entry.path("studentId").asText());
+                }
+            }
+            if (!hadStudentOne) {
+                assertEquals(before, plan);
+            }
+        }
+        assertEquals(3, pickups);
+        verify(requestBodySpec, never()).body(any(byte[].class));
+    }
+
+    @Test
+    void optimizeIncremental_shouldRejectPickupWithoutLocation() throws Exception {
+        IncrementalOptimizeRequestDTO incremental = new IncrementalOptimizeRequestDTO();
+        OptimizeRequestDTO request = buildRequest();
+        incremental.event = request.event;
+        incremental.drivers = request.drivers;
+        RoutePlanDTO plan = new RoutePlanDTO(List.of(new TimelineEntryDTO(1, null, "pickup", "1", null, null)), Map.of());
+        plan.driverId = "d1";
+        incremental.previousPlans = List.of(plan);
+
+        mockMvc.perform(post("/api/optimize/incremental")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(incremental)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    void optimizeBatch_shouldSplitDriverPool_andGroupPlansByEvent() throws Exception {
+        googleResponder = this::onePickupPerVehicle;
+        BatchOptimizeRequestDTO request = new BatchOptimizeRequestDTO();
+        // a second event about 15 km north, with the two drivers who live next to it
+        request.events = List.of(
+                batchEvent("east", location(43.0800, -89.4000),
+                        student("1", 43.0750, -89.4100), student("2", 43.0700, -89.4200)),
+                batchEvent("north", location(43.2100, -89.4000),
+                        student("3", 43.2050, -89.4100), student("4", 43.2000, -89.3900)));
+        request.drivers = List.of(
+                driver("d1", 43.0731, -89.4012, 1),
+                driver("d3", 43.2030, -89.4020, 1),
+                driver("d2", 43.0680, -89.3980, 1),
+                driver("d4", 43.1900, -89.4050, 1));
+        request.globalStartTime = "2026-01-01T00:00:00Z";
+
+        MvcResult result = mockMvc.perform(post("/api/optimize/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].eventId").value("east"))
+                .andExpect(jsonPath("$[0].unassignedStudentIds").isEmpty())
+                .andExpect(jsonPath("$[1].eventId").value("north"))
+                .andExpect(jsonPath("$[1].unassignedStudentIds").isEmpty())
+                .andReturn();
+
+        // one optimizeTours call per event, each with only that event's drivers and students
+        ArgumentCaptor<byte[]> bodyCaptor = ArgumentCaptor.forClass(byte[].class);
+        verify(requestBodySpec, times(2)).body(bodyCaptor.capture());
+        Set<Set<String>> sentNames = new HashSet<>();
+        for (byte[] sent : bodyCaptor.getAllValues()) {
+            Map<String, Object> model = (Map<String, Object>) readBody(sent).get("model");
+            Set<String> names = new HashSet<>();
+            for (String list : List.of("vehicles", "shipments")) {
+                for (Map<String, Object> entry : (List<Map<String, Object>>) model.get(list)) {
+                    names.add((String) entry.get("name"));
+                }
+            }
+            sentNames.add(names);
+        }
+        assertEquals(Set.of(
+                Set.of("drivers/d1", "drivers/d2", "students/1", "students/2"),
+                Set.of("drivers/d3", "drivers/d4", "students/3", "students/4")), sentNames);
+
+        Map<String, Set<String>> expectedDrivers = Map.of("east", Set.of("d1", "d2"), "north", Set.of("d3", "d4"));
+        Map<String, Set<String>> expectedStudents = Map.of("east", Set.of("1", "2"), "north", Set.of("3", "4"));
+        for (JsonNode group : objectMapper.readTree(result.getResponse().getContentAsString())) {
+            String eventId = group.path("eventId").asText();
+            Set<String> pickedUp = new HashSet<>();
+            for (JsonNode plan : group.path("plans")) {
+                assertTrue(expectedDrivers.get(eventId).contains(plan.path("driverId").asText()));
+                for (JsonNode entry : plan.path("timeline")) {
+                    if ("pickup".equals(entry.path("type").asText())) {
+                        pickedUp.add(entry.path("studentId").asText());
+                    }
+                }
+            }
+            assertEquals(expectedStudents.get(eventId), pickedUp);
+        }
+    }
+
+    @Test
+    void optimizeBatch_shouldRejectDuplicateEventId_studentInTwoEvents_andEmptyDrivers() throws Exception {
+        BatchOptimizeRequestDTO duplicateEvent = new BatchOptimizeRequestDTO();
+        duplicateEvent.events = List.of(
+                batchEvent("a", location(43.0800, -89.4000), student("1", 43.0790, -89.4010)),
+                batchEvent("a", location(43.2000, -89.4000), student("2", 43.2010, -89.4010)));
+        duplicateEvent.drivers = List.of(driver("d1", 43.0810, -89.4000, 4), driver("d2", 43.1990, -89.4000, 4));
+
+        BatchOptimizeRequestDTO sharedStudent = new BatchOptimizeRequestDTO();
+        sharedStudent.events = List.of(
+                batchEvent("a", location(43.0800, -89.4000), student("1", 43.0790, -89.4010)),
+                batchEvent("b", location(43.2000, -89.4000), student("1", 43.0790, -89.4010)));
+        sharedStudent.drivers = duplicateEvent.drivers;
+
+        BatchOptimizeRequestDTO noDrivers = new BatchOptimizeRequestDTO();
+        noDrivers.events = List.of(batchEvent("a", location(43.0800, -89.4000), student("1", 43.0790, -89.4010)));
+        noDrivers.drivers = List.of();
+
+        for (BatchOptimizeRequestDTO request : List.of(duplicateEvent, sharedStudent, noDrivers)) {
+            mockMvc.perform(post("/api/optimize/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(request)))
+                    .andExpect(status().isBadRequest());
+        }
+        verify(requestBodySpec, never()).body(any(byte[].class));
+    }
+
+    @Test
+    void optimizeBatch_shouldReportUnassignedStudents_whenAnEventRunsShortOfSeats() throws Exception {
+        // the big car is nearest the one-student event, which leaves a single seat for four students
+        BatchOptimizeRequestDTO request = new BatchOptimizeRequestDTO();
+        request.events = List.of(
+                batchEvent("small", location(43.0800, -89.4000), student("1", 43.0790, -89.4010)),
+                batchEvent("big", location(43.2000, -89.4000), student("2", 43.2010, -89.4010),
+                        student("3", 43.2020, -89.4020), student("4", 43.2030, -89.4030),
+                        student("5", 43.2040, -89.4040)));
+        request.drivers = List.of(driver("d1", 43.0810, -89.4000, 7), driver("d2", 43.1990, -89.4000, 1));
+        request.globalStartTime = "2026-01-01T00:00:00Z";
+        request.mode = "LOCAL_MIN_TIME";
+
+        MvcResult result = mockMvc.perform(post("/api/optimize/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].eventId").value("small"))
+                .andExpect(jsonPath("$[0].plans[0].driverId").value("d1"))
+                .andExpect(jsonPath("$[0].unassignedStudentIds").isEmpty())
+                .andExpect(jsonPath("$[1].eventId").value("big"))
+                .andExpect(jsonPath("$[1].plans[0].driverId").value("d2"))
+                .andReturn();
+
+        JsonNode unassigned = objectMapper.readTree(result.getResponse().getContentAsString())
+                .path(1).path("unassignedStudentIds");
+        assertEquals(3, unassigned.size());
+    }
+
+    @Test
+    void optimizeBatch_shouldRejectFewerDriversThanEvents_orTooFewSeats() throws Exception {
+        BatchOptimizeRequestDTO request = new BatchOptimizeRequestDTO();
+        request.events = List.of(
+                batchEvent("a", location(43.0800, -89.4000), student("1", 43.0790, -89.4010)),
+                batchEvent("b", location(43.2000, -89.4000), student("2", 43.2010, -89.4010)));
+        request.drivers = List.of(driver("d1", 43.0810, -89.4000, 4));
+
+        mockMvc.perform(post("/api/optimize/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+
+        request.drivers = List.of(driver("d1", 43.0810, -89.4000, 1), driver("d2", 43.1990, -89.4000, 1));
+        request.events.get(1).students = List.of(student("2", 43.2010, -89.4010), student("3", 43.2020, -89.4020));
+
+        mockMvc.perform(post("/api/optimize/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+        verify(requestBodySpec, never()).body(any(byte[].class));
+    }
+
+    private static BatchOptimizeRequestDTO.EventDTO batchEvent(String id,
+                                                               LatLngDTO location,
+                                                               OptimizeRequestDTO.StudentDTO... students) {
+        BatchOptimizeRequestDTO.EventDTO event = new BatchOptimizeRequestDTO.EventDTO();
+        event.id = id;
+        event.location = location;
+        event.students = List.of(students);
+        return event;
+    }
+
+    private static OptimizeRequestDTO.DriverDTO driver(String id, double lat, double lng, int seats) {
+        OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+        driver.id = id;
+        driver.home = location(lat, lng);
+        driver.seatCapacity = seats;
+        return driver;
+    }
+
+    private static OptimizeRequestDTO.StudentDTO student(String id, double lat, double lng) {
+        OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+        student.id = id;
+        student.home = location(lat, lng);
+        return student;
+    }
+
     private static OptimizeRequestDTO buildRequest() {
         OptimizeRequestDTO request = new OptimizeRequestDTO();
 
@@ -470,10 +912,67 @@ class RouteOptimizationControllerWebMvcTest {
         return request;
     }
 
+    private static OptimizeRequestDTO buildClusteredRequest(int driverCount, int studentCount) {
+        OptimizeRequestDTO request = new OptimizeRequestDTO();
+        request.event = new OptimizeRequestDTO.EventDTO();
+        request.event.location = location(43.0800, -89.4000);
+
+        Random random = new Random(42L);
+        List<OptimizeRequestDTO.DriverDTO> drivers = new ArrayList<>();
+        for (int i = 0; i < driverCount; i++) {
+            OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+            driver.id = "d" + i;
+            driver.home = location(43.0 + random.nextDouble() * 0.16, -89.48 + random.nextDouble() * 0.16);
+            driver.seatCapacity = 4;
+            drivers.add(driver);
+        }
+        List<OptimizeRequestDTO.StudentDTO> students = new ArrayList<>();
+        for (int i = 0; i < studentCount; i++) {
+            OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+            student.id = String.valueOf(i);
+            student.home = location(43.0 + random.nextDouble() * 0.16, -89.48 + random.nextDouble() * 0.16);
+            students.add(student);
+        }
+        request.drivers = drivers;
+        request.students = students;
+        request.globalStartTime = "2026-01-01T00:00:00Z";
+        request.globalEndTime = "2026-01-01T06:00:00Z";
+        return request;
+    }
+
     private static LatLngDTO location(double lat, double lng) {
         LatLngDTO loc = new LatLngDTO();
         loc.lat = lat;
         loc.lng = lng;
         return loc;
     }
+
+    /** A minimal optimizeTours answer for {@code body}: vehicle {@code i} picks up shipment {@code i}. */
+    @SuppressWarnings("unchecked")
+    private String onePickupPerVehicle(byte[] body) {
+        try {
+            Map<String, Object> model = (Map<String, Object>) readBody(body).get("model");
+            List<Map<String, Object>> vehicles = (List<Map<String, Object>>) model.get("vehicles");
+            List<Map<String, Object>> shipments = (List<Map<String, Object>>) model.get("shipments");
+            List<Map<String, Object>> routes = new ArrayList<>();
+            for (int v = 0; v < Math.min(vehicles.size(), shipments.size()); v++) {
+                String studentId = ((String) shipments.get(v).get("name")).substring("students/".length());
+                routes.add(Map.of(
+                        "vehicleIndex", v,
+                        "visits", List.of(
+                                Map.of("label", "pickup_student_" + studentId, "shipmentLabel", "student_" + studentId,
+                                        "startTime", "2026-01-01T00:10:00Z"),
+                                Map.of("label", "dropoff_student_" + studentId, "shipmentLabel", "student_" + studentId,
+                                        "startTime", "2026-01-01T00:25:00Z")),
+                        "metrics", Map.of("travelDuration", "900s")));
+            }
+            return objectMapper.writeValueAsString(Map.of("routes", routes));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Map<String, Object> readBody(byte[] body) throws IOException {
+        return objectMapper.readValue(body, new TypeReference<Map<String, Object>>() {});
+    }
 }
@@ -4,16 +4,34 @@ import com.carpool.backend.dto.LatLngDTO;
 import com.carpool.backend.dto.OptimizeRequestDTO;
 import com.carpool.backend.dto.RoutePlanDTO;
 import com.carpool.backend.dto.TimelineEntryDTO;
+import com.carpool.backend.service.OptimizationJobService;
+import com.carpool.backend.service.OptimizeToursCache;
+import com.carpool.backend.service.OptimizeToursExecutor;
+import com.carpool.backend.service.RoadNetworkService;
+import com.carpool.backend.solver.RoadNetworkRouter;
+import com.carpool.backend.solver.SweepPartitioner;
+import com.carpool.backend.solver.TravelTimeModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayInputStream;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 
@@ -95,6 +113,26 @@ class RouteOptimizationMapperTest {
             }
             """;
 
+    private static final String GOOGLE_RESPONSE_STREAMING_LAYOUT_JSON = """
+            {
+              "metrics": {"aggregatedRouteMetrics": {"travelDuration": "900s"}},
+              "routes": [
+                {
+                  "routePolyline": {"points": "abc"},
+                  "transitions": [{"travelDuration": "300s", "routePolyline": {"points": "x"}}],
+                  "visits": [
+                    {"detour": {"ignored": [1, 2]}, "label": "pickup_student_11", "startTime": "2026-01-01T00:05:00Z"},
+                    {"label": "pickup_student_22", "startTime": "2026-01-01T00:10:00Z"},
+                    {"label": "dropoff_student_11", "startTime": "2026-01-01T00:20:00Z"},
+                    {"label": "dropoff_student_22", "startTime": "2026-01-01T00:20:00Z"}
+                  ],
+                  "metrics": {"performedShipmentCount": 2, "travelDuration": "1200s"},
+                  "vehicleIndex": 1
+                }
+              ]
+            }
+            """;
+
     private static final String GOOGLE_RESPONSE_FALLBACK_MAPPING_JSON = """
             {
               "routes": [
@@ -127,7 +165,7 @@ class RouteOptimizationMapperTest {
     @SuppressWarnings("unchecked")
     @Test
     void buildRoutePlans_shouldHandleMultipleRoutes_andParseTimelineWithUnderscoreProtocol() throws Exception {
-        RouteOptimizationController controller = new RouteOptimizationController();
+        RouteOptimizationController controller = newController();
         OptimizeRequestDTO request = buildRequest();
 
         Method buildRoutePlans = RouteOptimizationController.class
@@ -184,7 +222,7 @@ class RouteOptimizationMapperTest {
     @SuppressWarnings("unchecked")
     @Test
     void buildRoutePlans_shouldReturnEmptyList_whenRoutesMissingOrEmpty() throws Exception {
-        RouteOptimizationController controller = new RouteOptimizationController();
+        RouteOptimizationController controller = newController();
         OptimizeRequestDTO request = buildRequest();
 
         Method buildRoutePlans = RouteOptimizationController.class
@@ -205,7 +243,7 @@ class RouteOptimizationMapperTest {
     @SuppressWarnings("unchecked")
     @Test
     void buildRoutePlans_shouldReturnPlanWithEmptyTimeline_whenVisitsMissingOrEmpty() throws Exception {
-        RouteOptimizationController controller = new RouteOptimizationController();
+        RouteOptimizationController controller = newController();
         OptimizeRequestDTO request = buildRequest();
 
         Method buildRoutePlans = RouteOptimizationController.class
@@ -224,7 +262,7 @@ class RouteOptimizationMapperTest {
     @SuppressWarnings("unchecked")
     @Test
     void buildRoutePlans_shouldResolveDriverFromVehicleIndex_andPopulateDriverHome() throws Exception {
-        RouteOptimizationController controller = new RouteOptimizationController();
+        RouteOptimizationController controller = newController();
         OptimizeRequestDTO request = buildRequest();
 
         Method buildRoutePlans = RouteOptimizationController.class
@@ -245,7 +283,7 @@ class RouteOptimizationMapperTest {
     @SuppressWarnings("unchecked")
     @Test
     void buildRoutePlans_shouldResolveFallbackFromVehicleNameOrLabel_andPopulateDriverHome() throws Exception {
-        RouteOptimizationController controller = new RouteOptimizationController();
+        RouteOptimizationController controller = newController();
         OptimizeRequestDTO request = buildRequest();
 
         Method buildRoutePlans = RouteOptimizationController.class
@@ -285,6 +323,23 @@ class RouteOptimizationMapperTest {
         assertTrue(assignments.get("d2").size() <= 2);
     }
 
+    @Test
+    void assignStudentsMinCostFlow_shouldSeatEveryone_whenSeatsAreTight() {
+        OptimizeRequestDTO request = buildRequest();
+        request.drivers.get(0).seatCapacity = 1;
+        request.drivers.get(1).seatCapacity = request.students.size() - 1;
+
+        Map<String, List<OptimizeRequestDTO.StudentDTO>> assignments = RouteOptimizationController.assignStudentsMinCostFlow(
+                request.drivers,
+                request.students,
+                request.event.location
+        );
+
+        assertEquals(List.of("d1", "d2"), new ArrayList<>(assignments.keySet()));
+        assertEquals(1, assignments.get("d1").size());
+        assertEquals(request.students.size() - 1, assignments.get("d2").size());
+    }
+
     @Test
     void hasSeatCapacityViolation_shouldReturnTrue_whenPickupCountExceedsCapacity() {
         OptimizeRequestDTO request = buildRequest();
@@ -314,6 +369,139 @@ class RouteOptimizationMapperTest {
         assertFalse(RouteOptimizationController.hasSeatCapacityViolation(plans, request));
     }
 
+    @Test
+    void improveRoutePlans_shouldReorderPickups_retimeThem_andReportSaving() {
+        RouteOptimizationController controller = newController();
+        ReflectionTestUtils.setField(controller, "postOptimizationTimeBudgetMs", 50L);
+        ReflectionTestUtils.setField(controller, "localRoadFactor", 1.3);
+
+        // stops on a line north of the driver, visited out of order
+        List<TimelineEntryDTO> timeline = new ArrayList<>();
+        timeline.add(new TimelineEntryDTO(0, "2026-01-01T00:05:00Z", "pickup", "33", "student_33", "pickup_student_33", location(43.03, -89.40)));
+        timeline.add(new TimelineEntryDTO(1, "2026-01-01T00:09:00Z", "pickup", "11", "student_11", "pickup_student_11", location(43.01, -89.40)));
+        timeline.add(new TimelineEntryDTO(2, "2026-01-01T00:11:00Z", "pickup", "22", "student_22", "pickup_student_22", location(43.02, -89.40)));
+        timeline.add(new TimelineEntryDTO(3, "2026-01-01T00:17:00Z", "dropoff", "33", "student_33", "dropoff_student_33", location(43.05, -89.40)));
+        timeline.add(new TimelineEntryDTO(4, "2026-01-01T00:17:00Z", "dropoff", "11", "student_11", "dropoff_student_11", location(43.05, -89.40)));
+        timeline.add(new TimelineEntryDTO(5, "2026-01-01T00:17:00Z", "dropoff", "22", "student_22", "dropoff_student_22", location(43.05, -89.40)));
+        RoutePlanDTO plan = new RoutePlanDTO("d1", location(43.00, -89.40), location(43.05, -89.40), timeline,
+                Map.of("travelDuration", "1020s"));
+
+        RoutePlanDTO improved = controller.improveRoutePlans(List.of(plan)).get(0);
+
+        assertEquals(List.of("11", "22", "33"), improved.timeline.subList(0, 3).stream().map(e -> e.studentId).toList());
+        for (int i = 0; i < improved.timeline.size(); i++) {
+            assertEquals(i, improved.timeline.get(i).sequence);
+        }
+        assertTrue(Instant.parse(improved.timeline.get(0).time).isBefore(Instant.parse(improved.timeline.get(1).time)));
+        assertTrue(Instant.parse(improved.timeline.get(2).time).isBefore(Instant.parse(improved.timeline.get(3).time)));
+        assertTrue(Instant.parse(improved.timeline.get(3).time).isBefore(Instant.parse("2026-01-01T00:17:00Z")));
+        assertEquals("1020s", improved.metrics.get("travelDuration"));
+        assertTrue(((Number) improved.metrics.get("postOptimizationSavingMeters")).longValue() > 0);
+        assertTrue(((Number) improved.metrics.get("postOptimizationSavingSeconds")).longValue() > 0);
+        // the input plan is shared with the cache and must stay untouched
+        assertEquals("33", plan.timeline.get(0).studentId);
+    }
+
+    @Test
+    void improveRoutePlans_shouldReportRoadSaving_whenRoadNetworkIsLoaded(@TempDir Path dir) throws Exception {
+        // one road north from the driver through the three pickups to the event, 1 km per pickup gap
+        Path roads = dir.resolve("roads.txt");
+        Files.writeString(roads, String.join("\n",
+                "n 0 43.00 -89.40",
+                "n 1 43.01 -89.40",
+                "n 2 43.02 -89.40",
+                "n 3 43.03 -89.40",
+                "n 4 43.05 -89.40",
+                "e 0 1 60 1000",
+                "e 1 2 60 1000",
+                "e 2 3 60 1000",
+                "e 3 4 120 2000",
+                ""));
+        RoadNetworkRouter router = RoadNetworkRouter.load(roads, TravelTimeModel.constant(40, 1.3));
+        RouteOptimizationController controller = newController();
+        ReflectionTestUtils.setField(controller, "postOptimizationTimeBudgetMs", 50L);
+        ReflectionTestUtils.setField(controller, "localRoadFactor", 1.3);
+        ReflectionTestUtils.setField(controller, "roadNetwork", new RoadNetworkService(router, new SimpleMeterRegistry()));
+
+        List<TimelineEntryDTO> timeline = new ArrayList<>();
+        timeline.add(new TimelineEntryDTO(0, "2026-01-01T00:05:00Z", "pickup", "33", "student_33", "pickup_student_33", location(43.03, -89.40)));
+        timeline.add(new TimelineEntryDTO(1, "2026-01-01T00:09:00Z", "pickup", "11", "student_11", "pickup_student_11", location(43.01, -89.40)));
+        timeline.add(new TimelineEntryDTO(2, "2026-01-01T00:11:00Z", "pickup", "22", "student_22", "pickup_student_22", location(43.02, -89.40)));
+        timeline.add(new TimelineEntryDTO(3, "2026-01-01T00:17:00Z", "dropoff", "33", "student_33", "dropoff_student_33", location(43.05, -89.40)));
+        RoutePlanDTO plan = new RoutePlanDTO("d1", location(43.00, -89.40), location(43.05, -89.40), timeline, Map.of());
+
+        RoutePlanDTO improved = controller.improveRoutePlans(List.of(plan)).get(0);
+
+        assertEquals(List.of("11", "22", "33"), improved.timeline.subList(0, 3).stream().map(e -> e.studentId).toList());
+        // 3 + 2 + 1 + 3 road km before, 1 + 1 + 1 + 2 after; no straight-line road factor on top
+        assertEquals(4000L, ((Number) improved.metrics.get("postOptimizationSavingMeters")).longValue());
+    }
+
+    @Test
+    void rebalanceClusterBoundaries_shouldMoveStudentsAcrossNeighbouringClusters_andResolveOnlyChangedDrivers()
+            throws Exception {
+        RouteOptimizationController controller = newController();
+        ReflectionTestUtils.setField(controller, "interRouteTimeBudgetMs", 50L);
+        ReflectionTestUtils.setField(controller, "interRouteStarts", 1);
+        ReflectionTestUtils.setField(controller, "exactMaxStops", 8);
+        ReflectionTestUtils.setField(controller, "localAverageSpeedKmh", 40.0);
+        ReflectionTestUtils.setField(controller, "localRoadFactor", 1.3);
+
+        OptimizeRequestDTO request = new OptimizeRequestDTO();
+        request.event = new OptimizeRequestDTO.EventDTO();
+        request.event.location = location(43.08, -89.40);
+        request.drivers = List.of(driver("west", 43.00, -89.50, 1), driver("east", 43.00, -89.30, 1),
+                driver("north", 43.15, -89.40, 1));
+        request.students = List.of(student("w", 43.01, -89.49), student("e", 43.01, -89.31),
+                student("n", 43.14, -89.40));
+        request.globalStartTime = "2026-01-01T00:00:00Z";
+        // the sweep cut west and east into different clusters, and each cluster's solve took the far student
+        List<SweepPartitioner.Cluster> clusters = List.of(
+                new SweepPartitioner.Cluster(new int[]{0}, new int[]{1}),
+                new SweepPartitioner.Cluster(new int[]{1, 2}, new int[]{0, 2}));
+        RoutePlanDTO north = pickupPlan("north", "n", location(43.14, -89.40));
+        List<RoutePlanDTO> stitched = List.of(
+                pickupPlan("west", "e", location(43.01, -89.31)),
+                pickupPlan("east", "w", location(43.01, -89.49)),
+                north);
+
+        List<RoutePlanDTO> rebalanced = controller.rebalanceClusterBoundaries(request, clusters, stitched);
+
+        Map<String, List<String>> pickups = new HashMap<>();
+        for (RoutePlanDTO plan : rebalanced) {
+            pickups.put(plan.driverId, plan.timeline.stream()
+                    .filter(entry -> "pickup".equals(entry.type)).map(entry -> entry.studentId).toList());
+        }
+        assertEquals(Map.of("west", List.of("w"), "east", List.of("e"), "north", List.of("n")), pickups);
+        assertTrue(rebalanced.contains(north));
+    }
+
+    @Test
+    void buildRoutePlans_shouldStreamResponse_andShareEventLocationAcrossDropoffs() throws Exception {
+        RouteOptimizationController controller = newController();
+        OptimizeRequestDTO request = buildRequest();
+
+        List<RoutePlanDTO> plans = controller.buildRoutePlans(
+                new ByteArrayInputStream(GOOGLE_RESPONSE_STREAMING_LAYOUT_JSON.getBytes(StandardCharsets.UTF_8)),
+                request
+        );
+
+        assertEquals(1, plans.size());
+        RoutePlanDTO plan = plans.get(0);
+        assertEquals("d2", plan.driverId);
+        assertEquals(43.0680, plan.driverHome.lat);
+        assertEquals(4, plan.timeline.size());
+        assertEquals(43.0750, plan.timeline.get(0).location.lat);
+        assertEquals(2, plan.metrics.get("performedShipmentCount"));
+        assertEquals("1200s", plan.metrics.get("travelDuration"));
+
+        LatLngDTO dropoffLocation = plan.timeline.get(2).location;
+        assertSame(dropoffLocation, plan.timeline.get(3).location);
+        assertSame(dropoffLocation, plan.eventLocation);
+        assertNotSame(request.event.location, dropoffLocation);
+        assertEquals(43.0800, dropoffLocation.lat);
+    }
+
     private static OptimizeRequestDTO buildRequest() {
         OptimizeRequestDTO request = new OptimizeRequestDTO();
 
@@ -349,4 +537,36 @@ class RouteOptimizationMapperTest {
         loc.lng = lng;
         return loc;
     }
+
+    private static OptimizeRequestDTO.DriverDTO driver(String id, double lat, double lng, int seats) {
+        OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+        driver.id = id;
+        driver.home = location(lat, lng);
+        driver.seatCapacity = seats;
+        return driver;
+    }
+
+    private static OptimizeRequestDTO.StudentDTO student(String id, double lat, double lng) {
+        OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+        student.id = id;
+        student.home = location(lat, lng);
+        return student;
+    }
+
+    private static RoutePlanDTO pickupPlan(String driverId, String studentId, LatLngDTO home) {
+        List<TimelineEntryDTO> timeline = new ArrayList<>();
+        timeline.add(new TimelineEntryDTO(0, "2026-01-01T00:05:00Z", "pickup", studentId,
+                "student_" + studentId, "pickup_student_" + studentId, home));
+        timeline.add(new TimelineEntryDTO(1, "2026-01-01T00:20:00Z", "dropoff", studentId,
+                "student_" + studentId, "dropoff_student_" + studentId, location(43.08, -89.40)));
+        return new RoutePlanDTO(driverId, null, location(43.08, -89.40), timeline, new HashMap<>());
+    }
+
+    private static RouteOptimizationController newController() {
+        return new RouteOptimizationController(
+                new OptimizeToursExecutor(1, 1_000),
+                new OptimizationJobService(1, 1, 60_000),
+                new OptimizeToursCache(0, 0, 4, new SimpleMeterRegistry())
+        );
+    }
 }
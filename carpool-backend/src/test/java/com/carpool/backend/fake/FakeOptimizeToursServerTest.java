@@ -0,0 +1,176 @@
+package com.carpool.backend.fake;
+
+import com.carpool.backend.config.OutboundHttpClientFactory;
+import com.carpool.backend.controller.RouteOptimizationController;
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+import com.carpool.backend.dto.RoutePlanDTO;
+import com.carpool.backend.service.GoogleAccessTokenProvider;
+import com.carpool.backend.service.OptimizationJobService;
+import com.carpool.backend.service.OptimizeToursCache;
+import com.carpool.backend.service.OptimizeToursCircuitBreaker;
+import com.carpool.backend.service.OptimizeToursExecutor;
+import com.carpool.backend.service.RoadNetworkService;
+import com.carpool.backend.service.RosterMatrixService;
+import com.carpool.backend.service.SeatRepairStage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FakeOptimizeToursServerTest {
+
+    private FakeOptimizeToursServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void optimize_shouldReturnSeatFeasiblePlans_fromFakeServer() throws Exception {
+        server = start(new FakeOptimizeToursServer.Options());
+        RouteOptimizationController controller = new RouteOptimizationController(
+                new OptimizeToursExecutor(1, 1_000),
+                new OptimizationJobService(1, 1, 60_000),
+                new OptimizeToursCache(0, 0, 4, new SimpleMeterRegistry()),
+                GoogleAccessTokenProvider.staticToken("fake-token"),
+                OutboundHttpClientFactory.defaults(),
+                OptimizeToursCircuitBreaker.defaults(),
+                SeatRepairStage.defaults(),
+                RoadNetworkService.disabled(),
+                RosterMatrixService.disabled(),
+                server.baseUrl()
+        );
+        ReflectionTestUtils.setField(controller, "projectId", "fake-project");
+
+        List<RoutePlanDTO> plans = controller.optimize(buildRequest());
+
+        assertEquals(1, server.requestCount());
+        assertEquals(2, plans.size());
+        Set<String> pickedUp = plans.stream()
+                .flatMap(plan -> plan.timeline.stream())
+                .filter(entry -> "pickup".equals(entry.type))
+                .map(entry -> entry.studentId)
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("1", "2", "3"), pickedUp);
+        for (RoutePlanDTO plan : plans) {
+            long pickups = plan.timeline.stream().filter(entry -> "pickup".equals(entry.type)).count();
+            assertTrue(pickups <= ("d1".equals(plan.driverId) ? 2 : 1), plan.driverId + " over capacity");
+        }
+    }
+
+    @Test
+    void optimize_shouldAnswerWithEstimatedPlans_whenCircuitOpens() throws Exception {
+        FakeOptimizeToursServer.Options options = new FakeOptimizeToursServer.Options();
+        options.errorRate = 1;
+        server = start(options);
+        RouteOptimizationController controller = new RouteOptimizationController(
+                new OptimizeToursExecutor(1, 1_000),
+                new OptimizationJobService(1, 1, 60_000),
+                new OptimizeToursCache(0, 0, 4, new SimpleMeterRegistry()),
+                GoogleAccessTokenProvider.staticToken("fake-token"),
+                OutboundHttpClientFactory.defaults(),
+                new OptimizeToursCircuitBreaker(2, 2, 0.5, 60_000, 1, 5_000, 32, false, 0, new SimpleMeterRegistry()),
+                SeatRepairStage.defaults(),
+                RoadNetworkService.disabled(),
+                RosterMatrixService.disabled(),
+                server.baseUrl()
+        );
+        ReflectionTestUtils.setField(controller, "projectId", "fake-project");
+        ReflectionTestUtils.setField(controller, "breakerFallback", "LOCAL_GREEDY");
+        ReflectionTestUtils.setField(controller, "localAverageSpeedKmh", 40.0);
+        ReflectionTestUtils.setField(controller, "localRoadFactor", 1.3);
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(HttpServerErrorException.class, () -> controller.optimize(buildRequest()));
+        }
+        List<RoutePlanDTO> plans = controller.optimize(buildRequest());
+
+        assertEquals(2, server.requestCount());
+        assertEquals(2, plans.size());
+        for (RoutePlanDTO plan : plans) {
+            assertEquals(true, plan.metrics.get("estimated"));
+        }
+        Set<String> pickedUp = plans.stream()
+                .flatMap(plan -> plan.timeline.stream())
+                .filter(entry -> "pickup".equals(entry.type))
+                .map(entry -> entry.studentId)
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("1", "2", "3"), pickedUp);
+    }
+
+    @Test
+    void optimizeTours_shouldAnswerResourceExhausted_whenQuotaExceeded() throws Exception {
+        FakeOptimizeToursServer.Options options = new FakeOptimizeToursServer.Options();
+        options.quotaExceededRate = 1;
+        server = start(options);
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create(server.baseUrl() + "/v1/projects/p:optimizeTours"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"model\":{\"vehicles\":[],\"shipments\":[]}}"))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(429, response.statusCode());
+        assertTrue(response.body().contains("RESOURCE_EXHAUSTED"));
+        assertEquals(1, server.requestCount());
+    }
+
+    private static FakeOptimizeToursServer start(FakeOptimizeToursServer.Options options) throws Exception {
+        FakeOptimizeToursServer server = new FakeOptimizeToursServer(options);
+        server.start();
+        return server;
+    }
+
+    private static OptimizeRequestDTO buildRequest() {
+        OptimizeRequestDTO request = new OptimizeRequestDTO();
+        request.event = new OptimizeRequestDTO.EventDTO();
+        request.event.location = location(43.0800, -89.4000);
+        request.globalStartTime = "2026-01-10T15:00:00Z";
+        request.drivers = List.of(driver("d1", 43.0731, -89.4012, 2), driver("d2", 43.0680, -89.3980, 1));
+        request.students = List.of(
+                student("1", 43.0750, -89.4100),
+                student("2", 43.0700, -89.4200),
+                student("3", 43.0650, -89.4050));
+        return request;
+    }
+
+    private static OptimizeRequestDTO.DriverDTO driver(String id, double lat, double lng, int seats) {
+        OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+        driver.id = id;
+        driver.home = location(lat, lng);
+        driver.seatCapacity = seats;
+        return driver;
+    }
+
+    private static OptimizeRequestDTO.StudentDTO student(String id, double lat, double lng) {
+        OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+        student.id = id;
+        student.home = location(lat, lng);
+        return student;
+    }
+
+    private static LatLngDTO location(double lat, double lng) {
+        LatLngDTO loc = new LatLngDTO();
+        loc.lat = lat;
+        loc.lng = lng;
+        return loc;
+    }
+}
@@ -0,0 +1,146 @@
+package com.carpool.backend.service;
+
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GoogleAccessTokenProviderTest {
+
+    private GoogleAccessTokenProvider provider;
+
+    @AfterEach
+    void tearDown() {
+        provider.shutdown();
+    }
+
+    @Test
+    void getAccessToken_shouldLoadCredentialsOnce_andShareOneRefreshAcrossCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        FakeCredentials credentials = new FakeCredentials(Duration.ofHours(1), release, 0);
+        AtomicInteger loads = new AtomicInteger();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        provider = new GoogleAccessTokenProvider(() -> {
+            loads.incrementAndGet();
+            return credentials;
+        }, null, 300_000, 10, 100, registry);
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> tokens = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                tokens.add(callers.submit(provider::getAccessToken));
+            }
+            awaitTrue(() -> registry.get("google.auth.token.blocked").counter().count() == 8);
+            release.countDown();
+            for (Future<String> token : tokens) {
+                assertEquals("token-1", token.get(2, TimeUnit.SECONDS));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, credentials.refreshes.get());
+        assertEquals("token-1", provider.getAccessToken());
+        assertEquals(1, registry.get("google.auth.token.refresh").tag("result", "success").timer().count());
+    }
+
+    @Test
+    void getAccessToken_shouldRefreshInBackgroundBeforeExpiry_andRetryFailures() throws Exception {
+        // tokens are due for refresh 20 ms after they arrive; the second and third refreshes fail
+        FakeCredentials credentials = new FakeCredentials(Duration.ofMillis(300_020), null, 2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        provider = new GoogleAccessTokenProvider(() -> credentials, null, 300_000, 10, 40, registry);
+
+        assertEquals("token-1", provider.getAccessToken());
+        awaitTrue(() -> credentials.refreshes.get() >= 4);
+
+        assertTrue(provider.getAccessToken().startsWith("token-"));
+        assertEquals(1.0, registry.get("google.auth.token.blocked").counter().count());
+        assertEquals(2, registry.get("google.auth.token.refresh").tag("result", "failure").timer().count());
+    }
+
+    @Test
+    void getAccessToken_shouldKeepOneBackgroundRefreshPending_acrossForegroundRefreshes() throws Exception {
+        // with no refresh margin the background refresh is a minute away, but the token is unusable after 100 ms
+        FakeCredentials credentials = new FakeCredentials(Duration.ofMillis(60_100), null, 0);
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+        try {
+            provider = new GoogleAccessTokenProvider(() -> credentials, null, 0, 10, 100, scheduler,
+                    new SimpleMeterRegistry());
+
+            for (int i = 1; i <= 4; i++) {
+                assertEquals("token-" + i, provider.getAccessToken());
+                assertEquals(1, scheduler.getQueue().size());
+                Thread.sleep(150);
+            }
+
+            provider.shutdown();
+            assertEquals(0, scheduler.getQueue().size());
+            assertFalse(scheduler.isShutdown());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /** Numbered tokens; optionally waits for {@code release} and fails the refreshes right after the first. */
+    private static final class FakeCredentials extends GoogleCredentials {
+
+        private final Duration lifetime;
+        private final CountDownLatch release;
+        private final int failuresAfterFirst;
+        private final AtomicInteger refreshes = new AtomicInteger();
+        private final AtomicInteger issued = new AtomicInteger();
+
+        FakeCredentials(Duration lifetime, CountDownLatch release, int failuresAfterFirst) {
+            this.lifetime = lifetime;
+            this.release = release;
+            this.failuresAfterFirst = failuresAfterFirst;
+        }
+
+        @Override
+        public AccessToken refreshAccessToken() throws IOException {
+            int attempt = refreshes.incrementAndGet();
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (attempt > 1 && attempt <= 1 + failuresAfterFirst) {
+                throw new IOException("refresh " + attempt + " failed");
+            }
+            return new AccessToken("token-" + issued.incrementAndGet(), Date.from(Instant.now().plus(lifetime)));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.carpool.backend.service;
+
+import com.carpool.backend.dto.OptimizeJobDTO;
+import com.carpool.backend.dto.RoutePlanDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OptimizationJobServiceTest {
+
+    private OptimizationJobService service;
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void submit_shouldRunJob_andKeepResultUntilTtlExpires() throws Exception {
+        service = new OptimizationJobService(1, 4, 200);
+        RoutePlanDTO plan = new RoutePlanDTO(List.of(), Map.of());
+
+        OptimizeJobDTO submitted = service.submit(() -> List.of(plan));
+        OptimizeJobDTO finished = awaitFinished(submitted.id);
+
+        assertEquals(OptimizeJobDTO.Status.SUCCEEDED, finished.status);
+        assertEquals(List.of(plan), finished.result);
+
+        Thread.sleep(300);
+        assertFalse(service.find(submitted.id).isPresent());
+    }
+
+    @Test
+    void submit_shouldRecordFailure() throws Exception {
+        service = new OptimizationJobService(1, 4, 60_000);
+
+        OptimizeJobDTO submitted = service.submit(() -> {
+            throw new IOException("optimizeTours returned 429");
+        });
+        OptimizeJobDTO finished = awaitFinished(submitted.id);
+
+        assertEquals(OptimizeJobDTO.Status.FAILED, finished.status);
+        assertEquals("optimizeTours returned 429", finished.error);
+    }
+
+    @Test
+    void cancel_shouldInterruptRunningJob_andDropQueuedOne() throws Exception {
+        service = new OptimizationJobService(1, 4, 60_000);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        OptimizeJobDTO first = service.submit(() -> {
+            running.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return List.of();
+        });
+        OptimizeJobDTO second = service.submit(List::of);
+        assertTrue(running.await(2, TimeUnit.SECONDS));
+
+        assertEquals(OptimizeJobDTO.Status.CANCELLED, service.cancel(second.id).orElseThrow().status);
+        assertEquals(OptimizeJobDTO.Status.CANCELLED, service.cancel(first.id).orElseThrow().status);
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+        assertEquals(OptimizeJobDTO.Status.CANCELLED, service.find(first.id).orElseThrow().status);
+        assertEquals(OptimizeJobDTO.Status.CANCELLED, service.find(second.id).orElseThrow().status);
+    }
+
+    @Test
+    void submit_shouldRefuseJobs_whenQueueIsFull() throws Exception {
+        service = new OptimizationJobService(1, 1, 60_000);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+
+        service.submit(() -> {
+            running.countDown();
+            release.await();
+            return List.of();
+        });
+        assertTrue(running.await(2, TimeUnit.SECONDS));
+        service.submit(List::of);
+
+        ResponseStatusException refused = assertThrows(ResponseStatusException.class, () -> service.submit(List::of));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, refused.getStatusCode());
+        release.countDown();
+    }
+
+    private OptimizeJobDTO awaitFinished(String id) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            OptimizeJobDTO job = service.find(id).orElseThrow();
+            if (job.finishedAt != null) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("job " + id + " did not finish");
+    }
+}
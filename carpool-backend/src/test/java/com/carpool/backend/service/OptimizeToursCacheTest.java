@@ -0,0 +1,265 @@
+package com.carpool.backend.service;
+
+import com.carpool.backend.dto.OptimizeToursRequestDTO;
+import com.carpool.backend.dto.RoutePlanDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OptimizeToursCacheTest {
+
+    @Test
+    void key_shouldIgnoreVehicleAndShipmentOrder_andCoordinateNoise() {
+        OptimizeToursCache cache = new OptimizeToursCache(10, 60_000, 4, new SimpleMeterRegistry());
+
+        String key = cache.key(body(
+                List.of(vehicle("d1", 43.0731, -89.4012), vehicle("d2", 43.0680, -89.3980)),
+                List.of(shipment("1", 43.0750, -89.4100), shipment("2", 43.0700, -89.4200)),
+                "2026-01-01T00:00:00Z"));
+        String reordered = cache.key(body(
+                List.of(vehicle("d2", 43.0680, -89.3980), vehicle("d1", 43.07310000001, -89.4012)),
+                List.of(shipment("2", 43.0700, -89.4200), shipment("1", 43.0750, -89.4100)),
+                "2026-01-01T00:00:00Z"));
+        String otherWindow = cache.key(body(
+                List.of(vehicle("d1", 43.0731, -89.4012), vehicle("d2", 43.0680, -89.3980)),
+                List.of(shipment("1", 43.0750, -89.4100), shipment("2", 43.0700, -89.4200)),
+                "2026-01-01T01:00:00Z"));
+        String movedStudent = cache.key(body(
+                List.of(vehicle("d1", 43.0731, -89.4012), vehicle("d2", 43.0680, -89.3980)),
+                List.of(shipment("1", 43.0751, -89.4100), shipment("2", 43.0700, -89.4200)),
+                "2026-01-01T00:00:00Z"));
+
+        assertEquals(key, reordered);
+        assertNotEquals(key, otherWindow);
+        assertNotEquals(key, movedStudent);
+    }
+
+    @Test
+    void get_shouldCallLoaderOnce_andCountHitsAndMisses() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OptimizeToursCache cache = new OptimizeToursCache(10, 60_000, 4, registry);
+        AtomicInteger loads = new AtomicInteger();
+        OptimizeToursRequestDTO body = body(List.of(vehicle("d1", 43.07, -89.40)), List.of(shipment("1", 43.08, -89.41)),
+                "2026-01-01T00:00:00Z");
+        List<RoutePlanDTO> plans = List.of(new RoutePlanDTO(List.of(), Map.of()));
+
+        List<RoutePlanDTO> first = cache.get(body, () -> {
+            loads.incrementAndGet();
+            return plans;
+        });
+        List<RoutePlanDTO> second = cache.get(body, () -> {
+            loads.incrementAndGet();
+            return plans;
+        });
+
+        assertEquals(1, loads.get());
+        assertSame(first, second);
+        assertEquals(1.0, registry.get("optimize.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, registry.get("optimize.cache.requests").tag("result", "miss").counter().count());
+        assertEquals(1.0, registry.get("optimize.cache.size").gauge().value());
+    }
+
+    @Test
+    void get_shouldRunItsOwnLoad_rightAfterAnIdenticalLoadFailed() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OptimizeToursCache cache = new OptimizeToursCache(0, 60_000, 4, registry);
+        OptimizeToursRequestDTO body = body(List.of(vehicle("d1", 43.07, -89.40)), List.of(), "2026-01-01T00:00:00Z");
+        List<RoutePlanDTO> plans = List.of(new RoutePlanDTO(List.of(), Map.of()));
+
+        for (int i = 0; i < 200; i++) {
+            assertThrows(IOException.class, () -> cache.get(body, () -> {
+                throw new IOException("optimizeTours failed");
+            }));
+            assertSame(plans, cache.get(body, () -> plans));
+        }
+
+        assertEquals(0.0, registry.get("optimize.cache.coalesced").counter().count());
+        assertEquals(400.0, registry.get("optimize.cache.requests").tag("result", "miss").counter().count());
+        cache.shutdown();
+    }
+
+    @Test
+    void get_shouldEvictLeastRecentlyUsed_andExpiredEntries() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OptimizeToursCache cache = new OptimizeToursCache(2, 100, 4, registry);
+        OptimizeToursRequestDTO a = body(List.of(vehicle("a", 43.0, -89.0)), List.of(), "2026-01-01T00:00:00Z");
+        OptimizeToursRequestDTO b = body(List.of(vehicle("b", 43.0, -89.0)), List.of(), "2026-01-01T00:00:00Z");
+        OptimizeToursRequestDTO c = body(List.of(vehicle("c", 43.0, -89.0)), List.of(), "2026-01-01T00:00:00Z");
+        AtomicInteger loads = new AtomicInteger();
+        OptimizeToursCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            return List.of();
+        };
+
+        cache.get(a, loader);
+        cache.get(b, loader);
+        cache.get(a, loader);
+        cache.get(c, loader);
+        assertEquals(3, loads.get());
+
+        // b was least recently used when c arrived
+        cache.get(b, loader);
+        assertEquals(4, loads.get());
+
+        Thread.sleep(150);
+        cache.get(b, loader);
+        assertEquals(5, loads.get());
+        assertEquals(2, cache.size());
+        assertEquals(3.0, registry.get("optimize.cache.evictions").counter().count());
+    }
+
+    @Test
+    void get_shouldCoalesceConcurrentIdenticalCalls() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OptimizeToursCache cache = new OptimizeToursCache(10, 60_000, 4, registry);
+        OptimizeToursRequestDTO body = body(List.of(vehicle("d1", 43.07, -89.40)), List.of(), "2026-01-01T00:00:00Z");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        List<RoutePlanDTO> plans = List.of(new RoutePlanDTO(List.of(), Map.of()));
+        OptimizeToursCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            await(release);
+            return plans;
+        };
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<RoutePlanDTO>>> results = new ArrayList<>();
+            results.add(callers.submit(() -> cache.get(body, loader)));
+            assertTrue(loading.await(2, TimeUnit.SECONDS));
+            for (int i = 0; i < 3; i++) {
+                results.add(callers.submit(() -> cache.get(body, loader)));
+            }
+            awaitCount(registry, "optimize.cache.coalesced", 3);
+            release.countDown();
+
+            for (Future<List<RoutePlanDTO>> result : results) {
+                assertSame(plans.get(0), result.get(2, TimeUnit.SECONDS).get(0));
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1.0, registry.get("optimize.cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void get_shouldKeepSharedLoadRunning_whenWaitingCallerIsInterrupted() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OptimizeToursCache cache = new OptimizeToursCache(10, 60_000, 4, registry);
+        OptimizeToursRequestDTO body = body(List.of(vehicle("d1", 43.07, -89.40)), List.of(), "2026-01-01T00:00:00Z");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<RoutePlanDTO> plans = List.of(new RoutePlanDTO(List.of(), Map.of()));
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<RoutePlanDTO>> leader = callers.submit(() -> cache.get(body, () -> {
+                loading.countDown();
+                await(release);
+                return plans;
+            }));
+            assertTrue(loading.await(2, TimeUnit.SECONDS));
+            Future<List<RoutePlanDTO>> follower = callers.submit(() -> cache.get(body, List::of));
+            awaitCount(registry, "optimize.cache.coalesced", 1);
+
+            follower.cancel(true);
+            release.countDown();
+
+            assertSame(plans.get(0), leader.get(2, TimeUnit.SECONDS).get(0));
+            assertEquals(1, cache.size());
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    void get_shouldFinishSharedLoad_whenTheCallerThatStartedItIsInterrupted() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OptimizeToursCache cache = new OptimizeToursCache(10, 60_000, 4, registry);
+        OptimizeToursRequestDTO body = body(List.of(vehicle("d1", 43.07, -89.40)), List.of(), "2026-01-01T00:00:00Z");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        List<RoutePlanDTO> plans = List.of(new RoutePlanDTO(List.of(), Map.of()));
+
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<RoutePlanDTO>> leader = callers.submit(() -> cache.get(body, () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return plans;
+            }));
+            assertTrue(loading.await(2, TimeUnit.SECONDS));
+            Future<List<RoutePlanDTO>> follower = callers.submit(() -> cache.get(body, () -> {
+                loads.incrementAndGet();
+                return List.of();
+            }));
+            awaitCount(registry, "optimize.cache.coalesced", 1);
+
+            leader.cancel(true);
+            release.countDown();
+
+            assertSame(plans.get(0), follower.get(2, TimeUnit.SECONDS).get(0));
+            assertEquals(1, loads.get());
+            assertEquals(1, cache.size());
+        } finally {
+            callers.shutdownNow();
+            cache.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) throws IOException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static void awaitCount(SimpleMeterRegistry registry, String name, double expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (registry.get(name).counter().count() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, registry.get(name).counter().count());
+    }
+
+    private static OptimizeToursRequestDTO body(List<OptimizeToursRequestDTO.Vehicle> vehicles,
+                                                List<OptimizeToursRequestDTO.Shipment> shipments,
+                                                String globalStartTime) {
+        return new OptimizeToursRequestDTO(
+                new OptimizeToursRequestDTO.Model(vehicles, shipments, null, globalStartTime, null), "RETURN_FAST");
+    }
+
+    private static OptimizeToursRequestDTO.Vehicle vehicle(String id, double lat, double lng) {
+        return new OptimizeToursRequestDTO.Vehicle("drivers/" + id, null,
+                new OptimizeToursRequestDTO.LatLng(lat, lng), null, null);
+    }
+
+    private static OptimizeToursRequestDTO.Shipment shipment(String id, double lat, double lng) {
+        return new OptimizeToursRequestDTO.Shipment("students/" + id, null,
+                List.of(new OptimizeToursRequestDTO.VisitRequest(new OptimizeToursRequestDTO.LatLng(lat, lng), null)),
+                null);
+    }
+}
@@ -0,0 +1,136 @@
+package com.carpool.backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OptimizeToursCircuitBreakerTest {
+
+    private OptimizeToursCircuitBreaker breaker;
+
+    @AfterEach
+    void tearDown() {
+        breaker.shutdown();
+    }
+
+    @Test
+    void call_shouldOpenOnFailures_andCloseAfterSuccessfulProbe() throws Exception {
+        breaker = new OptimizeToursCircuitBreaker(4, 4, 0.5, 100, 1, 1_000, 32, false, 0, new SimpleMeterRegistry());
+        for (int i = 0; i < 4; i++) {
+            assertThrows(ResourceAccessException.class, () -> breaker.call(() -> {
+                throw new ResourceAccessException("connect timed out");
+            }));
+        }
+        assertEquals(OptimizeToursCircuitBreaker.State.OPEN, breaker.state());
+
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(OptimizeToursCircuitBreaker.CircuitOpenException.class,
+                () -> breaker.call(calls::incrementAndGet));
+        assertEquals(0, calls.get());
+
+        Thread.sleep(150);
+        assertEquals(OptimizeToursCircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertEquals(1, breaker.call(calls::incrementAndGet));
+        assertEquals(OptimizeToursCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void call_shouldStayClosed_whenGoogleRejectsTheRequest() throws Exception {
+        breaker = new OptimizeToursCircuitBreaker(4, 4, 0.5, 60_000, 1, 1_000, 32, false, 0, new SimpleMeterRegistry());
+        for (int i = 0; i < 4; i++) {
+            assertThrows(HttpClientErrorException.class, () -> breaker.call(() -> {
+                throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+            }));
+        }
+        assertEquals(OptimizeToursCircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    void call_shouldFailWithGatewayTimeout_afterDeadline() {
+        breaker = new OptimizeToursCircuitBreaker(4, 4, 0.5, 60_000, 1, 50, 32, false, 0, new SimpleMeterRegistry());
+        long startedAt = System.nanoTime();
+
+        ResponseStatusException error = assertThrows(ResponseStatusException.class, () -> breaker.call(() -> {
+            Thread.sleep(5_000);
+            return "late";
+        }));
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, error.getStatusCode());
+        assertTrue(System.nanoTime() - startedAt < 2_000_000_000L);
+    }
+
+    @Test
+    void call_shouldAnswerFromHedge_whenFirstAttemptIsSlow() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        breaker = new OptimizeToursCircuitBreaker(20, 10, 0.5, 60_000, 1, 5_000, 32, true, 20, registry);
+        for (int i = 0; i < 20; i++) {
+            breaker.call(() -> "warm");
+        }
+        AtomicInteger attempts = new AtomicInteger();
+        long startedAt = System.nanoTime();
+
+        String answer = breaker.call(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                Thread.sleep(5_000);
+                return "primary";
+            }
+            return "hedge";
+        });
+
+        assertEquals("hedge", answer);
+        assertEquals(2, attempts.get());
+        assertTrue(System.nanoTime() - startedAt < 2_000_000_000L);
+        assertEquals(1.0, registry.get("optimize.hedging.requests").tag("result", "won").counter().count());
+    }
+
+    @Test
+    void call_shouldFailFast_whenEveryAttemptSlotIsTaken_withoutOpeningTheCircuit() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        breaker = new OptimizeToursCircuitBreaker(1, 1, 0.5, 60_000, 1, 5_000, 1, false, 0, registry);
+        CountDownLatch slowCallStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> slow = caller.submit(() -> breaker.call(() -> {
+                slowCallStarted.countDown();
+                release.await();
+                return "slow";
+            }));
+            assertTrue(slowCallStarted.await(5, TimeUnit.SECONDS));
+            AtomicInteger calls = new AtomicInteger();
+
+            ResponseStatusException error = assertThrows(ResponseStatusException.class,
+                    () -> breaker.call(calls::incrementAndGet));
+
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, error.getStatusCode());
+            assertEquals(0, calls.get());
+            assertEquals(1.0, registry.get("optimize.breaker.calls").tag("result", "saturated").counter().count());
+            assertEquals(OptimizeToursCircuitBreaker.State.CLOSED, breaker.state());
+            release.countDown();
+            assertEquals("slow", slow.get(5, TimeUnit.SECONDS));
+            // a finished attempt gives its slot back before its caller sees the answer
+            for (int i = 1; i <= 200; i++) {
+                assertEquals(i, breaker.call(calls::incrementAndGet));
+            }
+            assertEquals(1.0, registry.get("optimize.breaker.calls").tag("result", "saturated").counter().count());
+        } finally {
+            release.countDown();
+            caller.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.carpool.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OptimizeToursExecutorTest {
+
+    private OptimizeToursExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void invokeAll_shouldReturnResultsInCallOrder_andStayWithinConcurrencyCap() throws Exception {
+        executor = new OptimizeToursExecutor(3, 5_000);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Callable<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            int value = i;
+            calls.add(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                // later calls finish first, so completion order is the reverse of call order
+                Thread.sleep(5L * (12 - value));
+                running.decrementAndGet();
+                return value;
+            });
+        }
+
+        List<Integer> results = executor.invokeAll(calls);
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11), results);
+        assertTrue(peak.get() <= 3, "peak concurrency " + peak.get());
+    }
+
+    @Test
+    void invokeAll_shouldRethrowFirstFailure_andCancelRemainingCalls() throws Exception {
+        executor = new OptimizeToursExecutor(2, 5_000);
+        CountDownLatch slowCallStarted = new CountDownLatch(1);
+        CountDownLatch slowCallInterrupted = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        List<Callable<String>> calls = new ArrayList<>();
+        calls.add(() -> {
+            started.incrementAndGet();
+            slowCallStarted.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                slowCallInterrupted.countDown();
+                throw e;
+            }
+            return "slow";
+        });
+        calls.add(() -> {
+            started.incrementAndGet();
+            // fail only once the slow call is running, so cancelling it has something to interrupt
+            slowCallStarted.await();
+            throw new IOException("quota exceeded");
+        });
+        for (int i = 0; i < 5; i++) {
+            calls.add(() -> {
+                started.incrementAndGet();
+                Thread.sleep(10_000);
+                return "queued";
+            });
+        }
+
+        IOException failure = assertThrows(IOException.class, () -> executor.invokeAll(calls));
+
+        assertEquals("quota exceeded", failure.getMessage());
+        assertTrue(slowCallInterrupted.await(2, TimeUnit.SECONDS));
+        assertTrue(started.get() < calls.size(), "queued calls should not all have run");
+    }
+
+    @Test
+    void invokeAll_shouldFailWithGatewayTimeout_whenACallRunsPastItsTimeout() {
+        executor = new OptimizeToursExecutor(2, 100);
+        List<Callable<String>> calls = List.of(
+                () -> "fast",
+                () -> {
+                    Thread.sleep(10_000);
+                    return "stuck";
+                }
+        );
+
+        ResponseStatusException failure = assertThrows(ResponseStatusException.class, () -> executor.invokeAll(calls));
+
+        assertEquals(HttpStatus.GATEWAY_TIMEOUT, failure.getStatusCode());
+    }
+
+    @Test
+    void constructor_shouldRejectCallTimeout_notLongerThanGoogleDeadline() {
+        executor = new OptimizeToursExecutor(1, 35_000, 30_000);
+
+        assertThrows(IllegalArgumentException.class, () -> new OptimizeToursExecutor(1, 30_000, 30_000));
+    }
+}
@@ -0,0 +1,118 @@
+package com.carpool.backend.service;
+
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+import com.carpool.backend.dto.RoutePlanDTO;
+import com.carpool.backend.solver.RoutePlanAssembler;
+import com.carpool.backend.solver.TravelTimeModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class SeatRepairStageTest {
+
+    private static final RoutePlanAssembler ASSEMBLER = new RoutePlanAssembler(40, 1.3);
+
+    @Test
+    void repair_shouldKeepValidRoutes_andResolveOnlyAffectedVehicles() throws Exception {
+        OptimizeRequestDTO request = buildRequest();
+        RoutePlanDTO overfull = plan(request, 0, 0, 1);
+        RoutePlanDTO valid = plan(request, 2, 2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SeatRepairStage stage = new SeatRepairStage(true, "REMOTE", TravelTimeModel.constant(40, 1.3), registry);
+        List<OptimizeRequestDTO> solved = new ArrayList<>();
+
+        List<RoutePlanDTO> repaired = stage.repair(List.of(overfull, valid), request, (touched, assignments) -> {
+            solved.add(touched);
+            List<RoutePlanDTO> plans = new ArrayList<>();
+            for (OptimizeRequestDTO.DriverDTO driver : touched.drivers) {
+                plans.add(ASSEMBLER.assemble(driver, request.event.location, assignments.get(driver.id), Instant.EPOCH));
+            }
+            return plans;
+        });
+
+        assertEquals(1, solved.size());
+        assertEquals(List.of("d1", "d2"), solved.get(0).drivers.stream().map(driver -> driver.id).toList());
+        assertEquals(List.of("d1", "d2", "d3"), repaired.stream().map(plan -> plan.driverId).toList());
+        assertSame(valid, repaired.get(2));
+        assertEquals(Map.of("d1", 1L, "d2", 1L, "d3", 1L), pickupCounts(repaired));
+        assertEquals(1.0, registry.get("optimize.repair.runs").counter().count());
+        assertEquals(2.0, registry.get("optimize.repair.vehicles").counter().count());
+        assertEquals(1.0, registry.get("optimize.repair.solves.saved").counter().count());
+    }
+
+    @Test
+    void repair_shouldRetimeAffectedVehiclesLocally_whenConfigured() throws Exception {
+        OptimizeRequestDTO request = buildRequest();
+        SeatRepairStage stage = new SeatRepairStage(true, "LOCAL", TravelTimeModel.constant(40, 1.3),
+                new SimpleMeterRegistry());
+
+        List<RoutePlanDTO> repaired = stage.repair(List.of(plan(request, 0, 0, 1), plan(request, 2, 2)), request,
+                (touched, assignments) -> fail("LOCAL repair must not call the per-vehicle solver"));
+
+        assertEquals(Map.of("d1", 1L, "d2", 1L, "d3", 1L), pickupCounts(repaired));
+    }
+
+    private static Map<String, Long> pickupCounts(List<RoutePlanDTO> plans) {
+        Map<String, Long> counts = new TreeMap<>();
+        for (RoutePlanDTO plan : plans) {
+            counts.put(plan.driverId, plan.timeline.stream().filter(entry -> "pickup".equals(entry.type)).count());
+        }
+        return counts;
+    }
+
+    private static RoutePlanDTO plan(OptimizeRequestDTO request, int driver, int... students) {
+        List<OptimizeRequestDTO.StudentDTO> stops = new ArrayList<>();
+        for (int s : students) {
+            stops.add(request.students.get(s));
+        }
+        return ASSEMBLER.assemble(request.drivers.get(driver), request.event.location, stops, Instant.EPOCH);
+    }
+
+    private static OptimizeRequestDTO buildRequest() {
+        OptimizeRequestDTO request = new OptimizeRequestDTO();
+        request.event = new OptimizeRequestDTO.EventDTO();
+        request.event.location = location(43.0800, -89.4000);
+        request.globalStartTime = "2026-01-10T15:00:00Z";
+        request.drivers = List.of(
+                driver("d1", 43.0731, -89.4012, 1),
+                driver("d2", 43.0680, -89.3980, 2),
+                driver("d3", 43.0600, -89.4300, 1));
+        request.students = List.of(
+                student("1", 43.0750, -89.4100),
+                student("2", 43.0700, -89.3990),
+                student("3", 43.0620, -89.4280));
+        return request;
+    }
+
+    private static OptimizeRequestDTO.DriverDTO driver(String id, double lat, double lng, int seats) {
+        OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+        driver.id = id;
+        driver.home = location(lat, lng);
+        driver.seatCapacity = seats;
+        return driver;
+    }
+
+    private static OptimizeRequestDTO.StudentDTO student(String id, double lat, double lng) {
+        OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+        student.id = id;
+        student.home = location(lat, lng);
+        return student;
+    }
+
+    private static LatLngDTO location(double lat, double lng) {
+        LatLngDTO location = new LatLngDTO();
+        location.lat = lat;
+        location.lng = lng;
+        return location;
+    }
+}
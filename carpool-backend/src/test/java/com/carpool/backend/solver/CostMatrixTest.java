@@ -0,0 +1,68 @@
+package com.carpool.backend.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CostMatrixTest {
+
+    @Test
+    void fastKm_shouldStayWithinDocumentedErrorBound() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            double lat1 = -70 + random.nextDouble() * 140;
+            double lng1 = -180 + random.nextDouble() * 360;
+            double lat2 = lat1 + (random.nextDouble() * 2 - 1) * GeoDistance.FAST_KERNEL_MAX_SPAN_DEG;
+            double lng2 = lng1 + (random.nextDouble() * 2 - 1) * GeoDistance.FAST_KERNEL_MAX_SPAN_DEG;
+
+            double exact = GeoDistance.haversineKm(lat1, lng1, lat2, lng2);
+            double fast = fastKm(lat1, lng1, lat2, lng2);
+
+            if (exact > 1e-6) {
+                double relativeError = Math.abs(fast - exact) / exact;
+                assertTrue(relativeError < GeoDistance.FAST_KERNEL_MAX_RELATIVE_ERROR,
+                        "relative error " + relativeError + " for " + lat1 + "," + lng1 + " -> " + lat2 + "," + lng2);
+            }
+        }
+    }
+
+    @Test
+    void fastKm_shouldFallBackToHaversine_beyondSpan() {
+        double exact = GeoDistance.haversineKm(43.0, -89.4, 41.9, -87.6);
+
+        assertEquals(exact, fastKm(43.0, -89.4, 41.9, -87.6), 1e-9);
+    }
+
+    @Test
+    void build_shouldExposeAssignmentCostAndHardestStudentMetric() {
+        double[] driverLat = {43.0731, 43.0680};
+        double[] driverLng = {-89.4012, -89.3980};
+        double[] studentLat = {43.0750, 43.0700};
+        double[] studentLng = {-89.4100, -89.4200};
+
+        CostMatrix costs = CostMatrix.build(driverLat, driverLng, studentLat, studentLng, 43.08, -89.40, false);
+
+        for (int s = 0; s < 2; s++) {
+            double nearest = Double.MAX_VALUE;
+            for (int d = 0; d < 2; d++) {
+                double expected = GeoDistance.haversineKm(driverLat[d], driverLng[d], studentLat[s], studentLng[s])
+                        + GeoDistance.haversineKm(studentLat[s], studentLng[s], 43.08, -89.40);
+                assertEquals(expected, costs.assignmentCost(d, s), expected * GeoDistance.FAST_KERNEL_MAX_RELATIVE_ERROR);
+                nearest = Math.min(nearest, costs.assignmentCost(d, s));
+            }
+            assertEquals(nearest, costs.minAssignmentCost(s), 1e-12);
+        }
+        assertThrows(IllegalStateException.class, () -> costs.studentToStudentKm(0, 1));
+    }
+
+    private static double fastKm(double lat1, double lng1, double lat2, double lng2) {
+        double a = Math.toRadians(lat1);
+        double b = Math.toRadians(lat2);
+        return GeoDistance.fastKm(a, Math.toRadians(lng1), Math.cos(a), Math.sin(a),
+                b, Math.toRadians(lng2), Math.cos(b), Math.sin(b));
+    }
+}
@@ -0,0 +1,76 @@
+package com.carpool.backend.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DriverIndexTest {
+
+    @Test
+    void nearestOpen_shouldMatchFullScan_asDriversClose() {
+        Random random = new Random(3);
+        for (int round = 0; round < 20; round++) {
+            int drivers = 1 + random.nextInt(300);
+            // alternate between a city-sized cluster and a region wide enough for the haversine fallback
+            double span = round % 2 == 0 ? 0.2 : 3.0;
+            double[] lat = new double[drivers];
+            double[] lng = new double[drivers];
+            for (int d = 0; d < drivers; d++) {
+                lat[d] = 43.0 + random.nextDouble() * span;
+                lng[d] = -89.5 + random.nextDouble() * span;
+            }
+            DriverIndex index = new DriverIndex(lat, lng);
+            boolean[] open = new boolean[drivers];
+            Arrays.fill(open, true);
+
+            for (int query = 0; query < 100; query++) {
+                double queryLat = 43.0 + random.nextDouble() * span;
+                double queryLng = -89.5 + random.nextDouble() * span;
+                int k = 1 + random.nextInt(6);
+
+                int[] expected = fullScan(index, open, queryLat, queryLng, k);
+                assertArrayEquals(expected, index.nearestOpen(queryLat, queryLng, k), "round " + round);
+
+                int closing = random.nextInt(drivers);
+                index.close(closing);
+                open[closing] = false;
+            }
+        }
+    }
+
+    @Test
+    void nearestOpen_shouldReturnNothing_onceEveryDriverIsClosed() {
+        DriverIndex index = new DriverIndex(new double[]{43.07, 43.08}, new double[]{-89.40, -89.41});
+        index.close(0);
+        index.close(1);
+        index.close(1);
+
+        assertEquals(0, index.nearestOpen(43.07, -89.40, 3).length);
+    }
+
+    @Test
+    void nearestOpen_shouldPreferLowerIndex_whenDriversShareAHome() {
+        DriverIndex index = new DriverIndex(new double[]{43.07, 43.07, 43.07}, new double[]{-89.40, -89.40, -89.40});
+
+        assertArrayEquals(new int[]{0, 1}, index.nearestOpen(43.08, -89.41, 2));
+        index.close(0);
+        assertArrayEquals(new int[]{1, 2}, index.nearestOpen(43.08, -89.41, 2));
+    }
+
+    private static int[] fullScan(DriverIndex index, boolean[] open, double lat, double lng, int k) {
+        return IntStream.range(0, open.length)
+                .filter(d -> open[d])
+                .boxed()
+                .sorted(Comparator.<Integer>comparingDouble(d -> index.distanceKm(d, lat, lng))
+                        .thenComparingInt(d -> d))
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
@@ -0,0 +1,70 @@
+package com.carpool.backend.solver;
+
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class EventDriverAssignerTest {
+
+    private static final LatLngDTO WEST = location(43.07, -89.50);
+    private static final LatLngDTO EAST = location(43.07, -89.30);
+
+    @Test
+    void assign_shouldCoverEveryEvent_beforeAddingSpareDrivers() {
+        List<OptimizeRequestDTO.DriverDTO> drivers = List.of(
+                driver(43.07, -89.49, 2),
+                driver(43.07, -89.48, 2),
+                // nearer the west event, but west is already covered once the two drivers above join it
+                driver(43.07, -89.42, 3),
+                driver(43.07, -89.31, 1),
+                driver(43.07, -89.45, 4));
+
+        int[] eventOf = EventDriverAssigner.assign(drivers, List.of(WEST, EAST), new int[]{4, 5}, null);
+
+        // east still needs seats, so the 3- and 4-seat drivers cross over; nothing is left spare
+        assertArrayEquals(new int[]{0, 0, 1, 1, 1}, eventOf);
+    }
+
+    @Test
+    void assign_shouldSendSpareDriversToTheirNearestEvent() {
+        List<OptimizeRequestDTO.DriverDTO> drivers = List.of(
+                driver(43.07, -89.49, 4),
+                driver(43.07, -89.31, 4),
+                driver(43.07, -89.33, 4),
+                driver(43.07, -89.47, 4));
+
+        int[] eventOf = EventDriverAssigner.assign(drivers, List.of(WEST, EAST), new int[]{3, 3}, null);
+
+        assertArrayEquals(new int[]{0, 1, 1, 0}, eventOf);
+    }
+
+    @Test
+    void assign_shouldKeepADriverForEveryEvent_whenTheNearestEventCouldTakeThemAll() {
+        // both drivers are nearest the west event, which alone has more students than either has seats
+        List<OptimizeRequestDTO.DriverDTO> drivers = List.of(
+                driver(43.07, -89.49, 4),
+                driver(43.07, -89.48, 4));
+
+        int[] eventOf = EventDriverAssigner.assign(drivers, List.of(WEST, EAST), new int[]{5, 2}, null);
+
+        assertArrayEquals(new int[]{0, 1}, eventOf);
+    }
+
+    private static OptimizeRequestDTO.DriverDTO driver(double lat, double lng, int seats) {
+        OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+        driver.home = location(lat, lng);
+        driver.seatCapacity = seats;
+        return driver;
+    }
+
+    private static LatLngDTO location(double lat, double lng) {
+        LatLngDTO location = new LatLngDTO();
+        location.lat = lat;
+        location.lng = lng;
+        return location;
+    }
+}
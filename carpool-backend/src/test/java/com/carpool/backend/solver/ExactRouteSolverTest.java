@@ -0,0 +1,57 @@
+package com.carpool.backend.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExactRouteSolverTest {
+
+    @Test
+    void solve_shouldMatchBruteForce_onRandomSmallRoutes() {
+        Random random = new Random(23L);
+        for (int trial = 0; trial < 30; trial++) {
+            int n = 2 + random.nextInt(6);
+            double[] studentLat = new double[n];
+            double[] studentLng = new double[n];
+            for (int s = 0; s < n; s++) {
+                studentLat[s] = 43.0 + random.nextDouble() * 0.2;
+                studentLng[s] = -89.5 + random.nextDouble() * 0.2;
+            }
+            CostMatrix costs = CostMatrix.build(new double[]{43.0 + random.nextDouble() * 0.2},
+                    new double[]{-89.5 + random.nextDouble() * 0.2}, studentLat, studentLng, 43.1, -89.4, true);
+
+            int[] order = ExactRouteSolver.solve(costs, 0);
+
+            assertEquals(bruteForceKm(costs, new int[n], new boolean[n], 0), ExactRouteSolver.routeKm(costs, 0, order),
+                    1e-9);
+        }
+    }
+
+    @Test
+    void solve_shouldVisitStopsOnALineInOrder() {
+        CostMatrix costs = CostMatrix.build(new double[]{43.00}, new double[]{-89.40},
+                new double[]{43.03, 43.01, 43.04, 43.02}, new double[]{-89.40, -89.40, -89.40, -89.40},
+                43.05, -89.40, true);
+
+        assertArrayEquals(new int[]{1, 3, 0, 2}, ExactRouteSolver.solve(costs, 0));
+    }
+
+    private static double bruteForceKm(CostMatrix costs, int[] order, boolean[] used, int depth) {
+        if (depth == order.length) {
+            return ExactRouteSolver.routeKm(costs, 0, order);
+        }
+        double best = Double.MAX_VALUE;
+        for (int s = 0; s < order.length; s++) {
+            if (!used[s]) {
+                used[s] = true;
+                order[depth] = s;
+                best = Math.min(best, bruteForceKm(costs, order, used, depth + 1));
+                used[s] = false;
+            }
+        }
+        return best;
+    }
+}
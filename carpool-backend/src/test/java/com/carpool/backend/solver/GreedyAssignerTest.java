@@ -0,0 +1,80 @@
+package com.carpool.backend.solver;
+
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class GreedyAssignerTest {
+
+    @Test
+    void assign_shouldMatchFullScanGreedy() {
+        Random random = new Random(17);
+        LatLngDTO event = latLng(43.1, -89.4);
+        for (int round = 0; round < 30; round++) {
+            List<OptimizeRequestDTO.DriverDTO> drivers = new ArrayList<>();
+            int driverCount = 1 + random.nextInt(40);
+            for (int d = 0; d < driverCount; d++) {
+                OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+                driver.id = "d" + d;
+                driver.home = latLng(43.0 + random.nextDouble() * 0.2, -89.5 + random.nextDouble() * 0.2);
+                // includes drivers with no seats and fleets too small for everyone
+                driver.seatCapacity = random.nextInt(5);
+                drivers.add(driver);
+            }
+            List<OptimizeRequestDTO.StudentDTO> students = new ArrayList<>();
+            int studentCount = 1 + random.nextInt(120);
+            for (int s = 0; s < studentCount; s++) {
+                OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+                student.id = "s" + s;
+                student.home = latLng(43.0 + random.nextDouble() * 0.2, -89.5 + random.nextDouble() * 0.2);
+                students.add(student);
+            }
+
+            assertArrayEquals(fullScanGreedy(drivers, students, event),
+                    GreedyAssigner.assign(drivers, students, event), "round " + round);
+        }
+    }
+
+    /** The pre-index greedy: every student scans every driver on the dense matrix. */
+    private static int[] fullScanGreedy(List<OptimizeRequestDTO.DriverDTO> drivers,
+                                        List<OptimizeRequestDTO.StudentDTO> students,
+                                        LatLngDTO event) {
+        CostMatrix costs = CostMatrix.of(drivers, students, event, false);
+        int[] remainingSeats = drivers.stream().mapToInt(driver -> driver.seatCapacity).toArray();
+        Integer[] order = new Integer[students.size()];
+        for (int s = 0; s < order.length; s++) {
+            order[s] = s;
+        }
+        Arrays.sort(order, (left, right) -> Double.compare(costs.minAssignmentCost(right), costs.minAssignmentCost(left)));
+
+        int[] driverOf = new int[students.size()];
+        Arrays.fill(driverOf, MinCostFlowAssigner.UNASSIGNED);
+        for (int s : order) {
+            double bestCost = Double.MAX_VALUE;
+            for (int d = 0; d < remainingSeats.length; d++) {
+                if (remainingSeats[d] > 0 && costs.assignmentCost(d, s) < bestCost) {
+                    bestCost = costs.assignmentCost(d, s);
+                    driverOf[s] = d;
+                }
+            }
+            if (driverOf[s] != MinCostFlowAssigner.UNASSIGNED) {
+                remainingSeats[driverOf[s]]--;
+            }
+        }
+        return driverOf;
+    }
+
+    private static LatLngDTO latLng(double lat, double lng) {
+        LatLngDTO latLng = new LatLngDTO();
+        latLng.lat = lat;
+        latLng.lng = lng;
+        return latLng;
+    }
+}
@@ -0,0 +1,88 @@
+package com.carpool.backend.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InterRouteImproverTest {
+
+    @Test
+    void improve_shouldShortenRandomSplit_withinCapacity_andKeepEveryStudent() {
+        VrpInstance instance = LocalVrpSolverTest.randomInstance(6, 4, 20, 13L);
+        // deliberately poor split: students dealt round-robin regardless of where they live
+        int[][] routes = new int[6][];
+        for (int v = 0; v < 6; v++) {
+            routes[v] = v < 2 ? new int[]{v, v + 6, v + 12, v + 18} : new int[]{v, v + 6, v + 12};
+        }
+
+        int[][] improved = new InterRouteImprover(200, 4, 1L).improve(instance, routes);
+
+        Set<Integer> seen = new HashSet<>();
+        for (int v = 0; v < 6; v++) {
+            assertTrue(improved[v].length <= instance.capacity(v));
+            for (int s : improved[v]) {
+                assertTrue(seen.add(s), "student visited twice: " + s);
+            }
+        }
+        assertEquals(20, seen.size());
+        assertTrue(totalKm(instance, improved) < totalKm(instance, routes) - 1e-6);
+    }
+
+    @Test
+    void improve_shouldSwapStudentsSeatedWithTheFarDriver() {
+        // two drivers on opposite sides of the event, each given the other's neighbours
+        VrpInstance instance = new VrpInstance(
+                new double[]{43.00, 43.20}, new double[]{-89.40, -89.40}, new int[]{1, 1},
+                new double[]{43.19, 43.01}, new double[]{-89.40, -89.40}, 43.10, -89.40);
+
+        int[][] improved = new InterRouteImprover(100, 2, 1L).improve(instance, new int[][]{{0}, {1}});
+
+        assertArrayEquals(new int[]{1}, improved[0]);
+        assertArrayEquals(new int[]{0}, improved[1]);
+    }
+
+    @Test
+    void improve_shouldNotWaitOnStartsItTookBack_whilePoolIsBusy() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Future<?>> blockers = new ArrayList<>();
+        for (int i = 0; i < InterRouteImprover.POOL.getMaximumPoolSize(); i++) {
+            blockers.add(InterRouteImprover.POOL.submit(() -> {
+                release.await();
+                return null;
+            }));
+        }
+        try {
+            VrpInstance instance = LocalVrpSolverTest.randomInstance(2, 4, 6, 5L);
+
+            int[][] improved = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                    () -> new InterRouteImprover(0, 4, 1L).improve(instance, new int[][]{{0, 1, 2}, {3, 4, 5}}));
+
+            assertEquals(6, improved[0].length + improved[1].length);
+            assertEquals(0, InterRouteImprover.POOL.getQueue().size());
+        } finally {
+            release.countDown();
+        }
+        for (Future<?> blocker : blockers) {
+            blocker.get();
+        }
+    }
+
+    private static double totalKm(VrpInstance instance, int[][] routes) {
+        double km = 0;
+        for (int v = 0; v < routes.length; v++) {
+            km += instance.routeCost(v, routes[v], routes[v].length);
+        }
+        return km;
+    }
+}
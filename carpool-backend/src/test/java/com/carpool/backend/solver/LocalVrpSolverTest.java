@@ -0,0 +1,121 @@
+package com.carpool.backend.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalVrpSolverTest {
+
+    @Test
+    void solve_shouldSeatEveryStudent_andRespectCapacity_whenSeatsSuffice() {
+        VrpInstance instance = randomInstance(8, 4, 30, 7L);
+
+        VrpSolution solution = new LocalVrpSolver(1_000, 2_000, 1L).solve(instance);
+
+        assertEquals(0, solution.unassigned().length);
+        Set<Integer> seen = new HashSet<>();
+        for (int v = 0; v < instance.vehicleCount(); v++) {
+            assertTrue(solution.route(v).length <= instance.capacity(v));
+            for (int s : solution.route(v)) {
+                assertTrue(seen.add(s), "student visited twice: " + s);
+            }
+        }
+        assertEquals(30, seen.size());
+    }
+
+    @Test
+    void solve_shouldLeaveOverflowUnassigned_whenSeatsInsufficient() {
+        VrpInstance instance = randomInstance(2, 2, 7, 11L);
+
+        VrpSolution solution = new LocalVrpSolver(1_000, 500, 1L).solve(instance);
+
+        assertEquals(3, solution.unassigned().length);
+        assertEquals(2, solution.route(0).length);
+        assertEquals(2, solution.route(1).length);
+    }
+
+    @Test
+    void solve_shouldNotBeWorseThanConstruction() {
+        VrpInstance instance = randomInstance(10, 5, 40, 3L);
+
+        VrpSolution constructed = new LocalVrpSolver(1_000, 0, 1L).solve(instance);
+        VrpSolution improved = new LocalVrpSolver(1_000, 3_000, 1L).solve(instance);
+
+        assertEquals(0, improved.unassigned().length);
+        assertTrue(improved.totalCostKm() <= constructed.totalCostKm() + 1e-9);
+        assertEquals(0, constructed.iterations());
+    }
+
+    @Test
+    void solve_shouldFindOptimalOrder_forSingleVehicleOnALine() {
+        double[] driverLat = {43.00};
+        double[] driverLng = {-89.40};
+        double[] studentLat = {43.03, 43.01, 43.02};
+        double[] studentLng = {-89.40, -89.40, -89.40};
+        VrpInstance instance = new VrpInstance(driverLat, driverLng, new int[]{3},
+                studentLat, studentLng, 43.05, -89.40);
+
+        VrpSolution solution = new LocalVrpSolver(1_000, 500, 1L).solve(instance);
+
+        int[] route = solution.route(0);
+        assertEquals(1, route[0]);
+        assertEquals(2, route[1]);
+        assertEquals(0, route[2]);
+    }
+
+    @Test
+    void repair_shouldKeepGivenRoutes_andInsertMissingStudentsWithinCapacity() {
+        VrpInstance instance = randomInstance(2, 2, 4, 5L);
+
+        VrpSolution solution = LocalVrpSolver.repair(instance, new int[][]{{1, 0, 3}, {}});
+
+        assertEquals(0, solution.unassigned().length);
+        assertEquals(1, solution.route(0)[0]);
+        assertEquals(0, solution.route(0)[1]);
+        assertEquals(2, solution.route(0).length);
+        Set<Integer> second = new HashSet<>();
+        for (int s : solution.route(1)) {
+            second.add(s);
+        }
+        assertEquals(Set.of(2, 3), second);
+    }
+
+    @Test
+    void solve_shouldNotBeWorseThanInitialRoutes() {
+        VrpInstance instance = randomInstance(6, 4, 20, 9L);
+        int[][] initialRoutes = new int[6][];
+        for (int v = 0; v < 6; v++) {
+            initialRoutes[v] = new int[]{v, v + 6, v + 12};
+        }
+
+        VrpSolution start = LocalVrpSolver.repair(instance, initialRoutes);
+        VrpSolution improved = new LocalVrpSolver(1_000, 2_000, 1L).solve(instance, initialRoutes);
+
+        assertEquals(0, improved.unassigned().length);
+        assertTrue(improved.totalCostKm() <= start.totalCostKm() + 1e-9);
+    }
+
+    static VrpInstance randomInstance(int drivers, int seats, int students, long seed) {
+        Random random = new Random(seed);
+        double[] driverLat = new double[drivers];
+        double[] driverLng = new double[drivers];
+        int[] capacity = new int[drivers];
+        for (int i = 0; i < drivers; i++) {
+            driverLat[i] = 43.0 + random.nextDouble() * 0.2;
+            driverLng[i] = -89.5 + random.nextDouble() * 0.2;
+            capacity[i] = seats;
+        }
+        double[] studentLat = new double[students];
+        double[] studentLng = new double[students];
+        for (int i = 0; i < students; i++) {
+            studentLat[i] = 43.0 + random.nextDouble() * 0.2;
+            studentLng[i] = -89.5 + random.nextDouble() * 0.2;
+        }
+        return new VrpInstance(driverLat, driverLng, capacity, studentLat, studentLng, 43.1, -89.4);
+    }
+}
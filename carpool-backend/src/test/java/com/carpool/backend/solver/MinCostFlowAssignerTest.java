@@ -0,0 +1,161 @@
+package com.carpool.backend.solver;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MinCostFlowAssignerTest {
+
+    @Test
+    void assign_shouldMatchBruteForceOptimum_onSmallInstances() {
+        Random random = new Random(5);
+        for (int round = 0; round < 200; round++) {
+            int drivers = 1 + random.nextInt(3);
+            int students = 1 + random.nextInt(7);
+            CostMatrix costs = randomCosts(drivers, students, random);
+            int[] capacity = new int[drivers];
+            for (int d = 0; d < drivers; d++) {
+                capacity[d] = 1 + random.nextInt(3);
+            }
+
+            int[] driverOf = MinCostFlowAssigner.assign(costs, capacity);
+
+            assertCapacity(driverOf, capacity);
+            double[] best = bruteForce(costs, capacity);
+            assertEquals((int) best[0], seatedCount(driverOf), "seated count, round " + round);
+            assertEquals(best[1], totalCost(costs, driverOf), 1e-6, "total cost, round " + round);
+        }
+    }
+
+    @Test
+    void assign_withPricing_shouldMatchDenseSolve() {
+        Random random = new Random(21);
+        for (int round = 0; round < 5; round++) {
+            // oversubscribed, nearly saturated and roomy fleets
+            for (int seats : new int[]{2, 4, 8}) {
+                CostMatrix costs = randomCosts(60, 250, random);
+                int[] capacity = new int[60];
+                for (int d = 0; d < capacity.length; d++) {
+                    capacity[d] = seats + random.nextInt(2);
+                }
+
+                int[] priced = MinCostFlowAssigner.assign(costs, capacity);
+                int[] dense = new MinCostFlowAssigner(costs, capacity, null).solve();
+
+                assertCapacity(priced, capacity);
+                assertEquals(seatedCount(dense), seatedCount(priced));
+                assertEquals(totalCost(costs, dense), totalCost(costs, priced), 1e-6);
+            }
+        }
+    }
+
+    @Test
+    void assign_shouldRespectCandidateLists() {
+        Random random = new Random(9);
+        CostMatrix costs = randomCosts(3, 4, random);
+        int[][] candidates = {{0}, {0}, {1}, {1}};
+
+        int[] driverOf = new MinCostFlowAssigner(costs, new int[]{5, 5, 5}, candidates).solve();
+
+        assertEquals(0, driverOf[0]);
+        assertEquals(0, driverOf[1]);
+        assertEquals(1, driverOf[2]);
+        assertEquals(1, driverOf[3]);
+    }
+
+    @Test
+    void assign_shouldSeatEveryoneQuickly_atDistrictScale() {
+        Random random = new Random(1);
+        int drivers = 400;
+        int students = 3000;
+        CostMatrix costs = randomCosts(drivers, students, random);
+        int[] capacity = new int[drivers];
+        for (int d = 0; d < drivers; d++) {
+            capacity[d] = 8 + random.nextInt(4);
+        }
+
+        long started = System.nanoTime();
+        int[] driverOf = MinCostFlowAssigner.assign(costs, capacity);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertCapacity(driverOf, capacity);
+        assertEquals(students, seatedCount(driverOf));
+        assertTrue(elapsedMs < 5_000, "took " + elapsedMs + " ms");
+    }
+
+    private static CostMatrix randomCosts(int drivers, int students, Random random) {
+        double[] driverLat = new double[drivers];
+        double[] driverLng = new double[drivers];
+        for (int d = 0; d < drivers; d++) {
+            driverLat[d] = 43.0 + random.nextDouble() * 0.2;
+            driverLng[d] = -89.5 + random.nextDouble() * 0.2;
+        }
+        double[] studentLat = new double[students];
+        double[] studentLng = new double[students];
+        for (int s = 0; s < students; s++) {
+            studentLat[s] = 43.0 + random.nextDouble() * 0.2;
+            studentLng[s] = -89.5 + random.nextDouble() * 0.2;
+        }
+        return CostMatrix.build(driverLat, driverLng, studentLat, studentLng, 43.1, -89.4, false);
+    }
+
+    private static void assertCapacity(int[] driverOf, int[] capacity) {
+        int[] used = new int[capacity.length];
+        for (int d : driverOf) {
+            if (d != MinCostFlowAssigner.UNASSIGNED) {
+                used[d]++;
+            }
+        }
+        for (int d = 0; d < capacity.length; d++) {
+            assertTrue(used[d] <= capacity[d]);
+        }
+    }
+
+    private static int seatedCount(int[] driverOf) {
+        int seated = 0;
+        for (int d : driverOf) {
+            if (d != MinCostFlowAssigner.UNASSIGNED) {
+                seated++;
+            }
+        }
+        return seated;
+    }
+
+    private static double totalCost(CostMatrix costs, int[] driverOf) {
+        double total = 0;
+        for (int s = 0; s < driverOf.length; s++) {
+            if (driverOf[s] != MinCostFlowAssigner.UNASSIGNED) {
+                total += costs.assignmentCost(driverOf[s], s);
+            }
+        }
+        return total;
+    }
+
+    /** Returns {max seated, min cost among assignments seating that many}. */
+    private static double[] bruteForce(CostMatrix costs, int[] capacity) {
+        double[] best = {-1, Double.MAX_VALUE};
+        search(costs, capacity, new int[capacity.length], 0, 0, 0, best);
+        return best;
+    }
+
+    private static void search(CostMatrix costs, int[] capacity, int[] used, int student, int seated, double cost, double[] best) {
+        if (student == costs.studentCount()) {
+            if (seated > best[0] || (seated == best[0] && cost < best[1])) {
+                best[0] = seated;
+                best[1] = cost;
+            }
+            return;
+        }
+        search(costs, capacity, used, student + 1, seated, cost, best);
+        for (int d = 0; d < capacity.length; d++) {
+            if (used[d] < capacity[d]) {
+                used[d]++;
+                search(costs, capacity, used, student + 1, seated + 1, cost + costs.assignmentCost(d, student), best);
+                used[d]--;
+            }
+        }
+    }
+}
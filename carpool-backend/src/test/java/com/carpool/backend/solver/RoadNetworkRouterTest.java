@@ -0,0 +1,190 @@
+package com.carpool.backend.solver;
+
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoadNetworkRouterTest {
+
+    private static final TravelTimeModel ACCESS = TravelTimeModel.constant(40, 1.3);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void manyToMany_shouldMatchDijkstra_onRandomDirectedGraph() {
+        Random random = new Random(17L);
+        int n = 150;
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        for (int v = 0; v < n; v++) {
+            builder.node(v, 43.0 + random.nextDouble() * 0.1, -89.4 + random.nextDouble() * 0.1);
+        }
+        for (int e = 0; e < 450; e++) {
+            builder.edge(random.nextInt(n), random.nextInt(n), 10 + random.nextInt(300), 100 + random.nextInt(3000),
+                    random.nextInt(3) == 0);
+        }
+        RoadGraph graph = builder.build();
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+        int[] all = new int[n];
+        Arrays.setAll(all, i -> i);
+
+        double[] seconds = hierarchy.manyToMany(all, all)[0];
+
+        for (int s = 0; s < n; s++) {
+            double[] expected = dijkstra(graph, s);
+            for (int t = 0; t < n; t++) {
+                assertEquals(expected[t], seconds[s * n + t], 1e-6, "seconds " + s + "->" + t);
+            }
+        }
+    }
+
+    @Test
+    void matrix_shouldRouteAroundRiver_andFeedCostMatrixAndTimelines() throws Exception {
+        // two banks of an east-west river at 43.05, joined by a single bridge 0.1° (about 8 km) to the east
+        Path file = dir.resolve("roads.txt");
+        Files.writeString(file, String.join("\n",
+                "# north bank, bridge, south bank",
+                "n 1 43.055 -89.40",
+                "n 2 43.055 -89.35",
+                "n 3 43.055 -89.30",
+                "n 4 43.045 -89.30",
+                "n 5 43.045 -89.35",
+                "n 6 43.045 -89.40",
+                "e 1 2 300 4100",
+                "e 2 3 300 4100",
+                "e 3 4 60 1200",
+                "e 4 5 300 4100",
+                "e 5 6 300 4100",
+                ""));
+        RoadNetworkRouter router = RoadNetworkRouter.load(file, ACCESS);
+
+        TravelTimeModel.Leg leg = router.leg(43.055, -89.40, 43.045, -89.40);
+
+        assertEquals(17.6, leg.km(), 1e-6);
+        assertEquals(1260, leg.seconds(), 1e-6);
+        assertTrue(leg.km() > 10 * ACCESS.roadKm(43.055, -89.40, 43.045, -89.40));
+        assertEquals(0, router.fallbacks());
+
+        CostMatrix costs = CostMatrix.of(
+                List.of(driver(43.055, -89.40)), List.of(student(43.045, -89.40)), location(43.055, -89.35), true, router);
+        assertEquals(17.6, costs.driverToStudentKm(0, 0), 1e-6);
+        assertEquals(13.5, costs.studentToEventKm(0), 1e-6);
+
+        RoutePlanAssembler assembler = new RoutePlanAssembler(
+                TravelTimeModel.of(40, 1.3, 0, "07:00-09:00=20", "UTC").withRouter(router));
+        String pickup = assembler.assemble(driver(43.055, -89.40), location(43.055, -89.35),
+                List.of(student(43.045, -89.40)), Instant.parse("2026-01-10T07:00:00Z")).timeline.get(0).time;
+        // rush hour halves the 40 km/h default, so the 1260 s leg takes twice as long
+        assertEquals("2026-01-10T07:42:00Z", pickup);
+
+        router.leg(44.0, -89.40, 43.045, -89.40);
+        assertEquals(1, router.fallbacks());
+    }
+
+    @Test
+    void costMatrix_shouldReadRosterLegsFromTheStore_onlyWhenEveryIdMatches() throws Exception {
+        Path file = dir.resolve("roads.txt");
+        Files.writeString(file, String.join("\n",
+                "n 1 43.055 -89.40",
+                "n 2 43.055 -89.35",
+                "n 3 43.045 -89.35",
+                "n 4 43.045 -89.40",
+                "e 1 2 300 4100",
+                "e 2 3 60 1200",
+                "e 3 4 300 4100",
+                "e 4 3 300 4100",
+                ""));
+        RoadNetworkRouter router = RoadNetworkRouter.load(file, ACCESS);
+        LatLngDTO event = location(43.055, -89.35);
+        OptimizeRequestDTO.DriverDTO driver = driver(43.055, -89.40);
+        driver.id = "7";
+        OptimizeRequestDTO.StudentDTO first = student(43.045, -89.40);
+        OptimizeRequestDTO.StudentDTO second = student(43.045, -89.35);
+        second.id = "2";
+
+        try (TravelMatrixStore store = TravelMatrixStore.open(dir.resolve("matrix.bin"), 4, ACCESS, router, 1)) {
+            store.put(TravelMatrixStore.key(TravelMatrixStore.Kind.DRIVER, 7), 43.055, -89.40);
+            store.put(TravelMatrixStore.key(TravelMatrixStore.Kind.PASSENGER, 1), 43.045, -89.40);
+            store.put(TravelMatrixStore.key(TravelMatrixStore.Kind.PASSENGER, 2), 43.045, -89.35);
+            int d = store.slot(TravelMatrixStore.Kind.DRIVER, 7);
+            int s1 = store.slot(TravelMatrixStore.Kind.PASSENGER, 1);
+            int s2 = store.slot(TravelMatrixStore.Kind.PASSENGER, 2);
+
+            CostMatrix routed = CostMatrix.of(List.of(driver), List.of(first, second), event, true, router);
+            CostMatrix stored = CostMatrix.of(List.of(driver), List.of(first, second), event, true, router, store);
+
+            assertEquals(store.distanceKm(d, s1), stored.driverToStudentKm(0, 0));
+            assertEquals(store.distanceKm(s2, s1), stored.studentToStudentKm(1, 0));
+            assertEquals(routed.driverToStudentKm(0, 0), stored.driverToStudentKm(0, 0), 1e-5);
+            assertEquals(routed.studentToStudentKm(0, 1), stored.studentToStudentKm(0, 1), 1e-5);
+            assertEquals(routed.studentToEventKm(0), stored.studentToEventKm(0), 1e-9);
+            assertEquals(routed.minAssignmentCost(1), stored.minAssignmentCost(1), 1e-5);
+
+            second.home = location(43.046, -89.35);
+            CostMatrix moved = CostMatrix.of(List.of(driver), List.of(first, second), event, true, router, store);
+            driver.id = "d1";
+            second.home = location(43.045, -89.35);
+            CostMatrix clientIds = CostMatrix.of(List.of(driver), List.of(first, second), event, true, router, store);
+
+            assertEquals(CostMatrix.of(List.of(driver), List.of(first, second), event, true, router)
+                    .driverToStudentKm(0, 0), clientIds.driverToStudentKm(0, 0));
+            assertEquals(routed.driverToStudentKm(0, 0), moved.driverToStudentKm(0, 0));
+        }
+    }
+
+    private static double[] dijkstra(RoadGraph graph, int source) {
+        double[] dist = new double[graph.nodeCount()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        dist[source] = 0;
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        queue.add(new double[]{0, source});
+        while (!queue.isEmpty()) {
+            double[] top = queue.poll();
+            int node = (int) top[1];
+            if (top[0] > dist[node]) {
+                continue;
+            }
+            for (int e = 0; e < graph.edgeCount(); e++) {
+                if (graph.from(e) == node && top[0] + graph.seconds(e) < dist[graph.to(e)]) {
+                    dist[graph.to(e)] = top[0] + graph.seconds(e);
+                    queue.add(new double[]{dist[graph.to(e)], graph.to(e)});
+                }
+            }
+        }
+        return dist;
+    }
+
+    private static OptimizeRequestDTO.DriverDTO driver(double lat, double lng) {
+        OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+        driver.id = "d1";
+        driver.home = location(lat, lng);
+        driver.seatCapacity = 4;
+        return driver;
+    }
+
+    private static OptimizeRequestDTO.StudentDTO student(double lat, double lng) {
+        OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+        student.id = "1";
+        student.home = location(lat, lng);
+        return student;
+    }
+
+    private static LatLngDTO location(double lat, double lng) {
+        LatLngDTO location = new LatLngDTO();
+        location.lat = lat;
+        location.lng = lng;
+        return location;
+    }
+}
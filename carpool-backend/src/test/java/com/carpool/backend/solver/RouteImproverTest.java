@@ -0,0 +1,120 @@
+package com.carpool.backend.solver;
+
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RouteImproverTest {
+
+    @Test
+    void improve_shouldNeverLengthenRoute_andKeepEveryStop() {
+        Random random = new Random(31L);
+        RouteImprover improver = new RouteImprover(50);
+        for (int trial = 0; trial < 30; trial++) {
+            int n = 2 + random.nextInt(9);
+            CostMatrix costs = randomRoute(n, random);
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+
+            int[] improved = improver.improve(costs, 0, order);
+
+            assertTrue(ExactRouteSolver.routeKm(costs, 0, improved) <= ExactRouteSolver.routeKm(costs, 0, order) + 1e-9);
+            int[] sorted = improved.clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(order, sorted);
+        }
+    }
+
+    @Test
+    void improve_shouldNeverLengthenRoute_onDirectionDependentRoadCosts() {
+        Random random = new Random(5L);
+        RouteImprover improver = new RouteImprover(50);
+        for (int trial = 0; trial < 40; trial++) {
+            // a strongly connected grid of one-way streets; every point sits on a node
+            int side = 5;
+            RoadGraph.Builder builder = new RoadGraph.Builder();
+            for (int v = 0; v < side * side; v++) {
+                builder.node(v, 43.0 + (v / side) * 0.02, -89.4 + (v % side) * 0.02);
+            }
+            for (int v = 0; v < side * side; v++) {
+                int row = v / side;
+                int col = v % side;
+                int right = row * side + (col + 1) % side;
+                int down = ((row + 1) % side) * side + col;
+                builder.edge(v, right, 60 + random.nextInt(600), 500 + random.nextInt(5000), true);
+                builder.edge(v, down, 60 + random.nextInt(600), 500 + random.nextInt(5000), true);
+            }
+            RoadGraph graph = builder.build();
+            RoadNetworkRouter router = RoadNetworkRouter.build(graph, TravelTimeModel.constant(40, 1.3));
+            int n = 3 + random.nextInt(7);
+            List<Integer> nodes = new ArrayList<>();
+            for (int v = 0; v < side * side; v++) {
+                nodes.add(v);
+            }
+            Collections.shuffle(nodes, random);
+            List<OptimizeRequestDTO.StudentDTO> students = new ArrayList<>();
+            for (int s = 0; s < n; s++) {
+                students.add(student(nodes.get(s), side));
+            }
+            OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+            driver.home = nodeLocation(nodes.get(n), side);
+            driver.seatCapacity = n;
+            CostMatrix costs = CostMatrix.of(
+                    List.of(driver), students, nodeLocation(nodes.get(n + 1), side), true, router);
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+
+            int[] improved = improver.improve(costs, 0, order);
+
+            assertTrue(ExactRouteSolver.routeKm(costs, 0, improved) <= ExactRouteSolver.routeKm(costs, 0, order) + 1e-9,
+                    "trial " + trial);
+        }
+    }
+
+    @Test
+    void improve_shouldUntangleStopsOnALine() {
+        CostMatrix costs = CostMatrix.build(new double[]{43.00}, new double[]{-89.40},
+                new double[]{43.03, 43.01, 43.04, 43.02}, new double[]{-89.40, -89.40, -89.40, -89.40},
+                43.05, -89.40, true);
+
+        assertArrayEquals(new int[]{1, 3, 0, 2}, new RouteImprover(50).improve(costs, 0, new int[]{0, 1, 2, 3}));
+    }
+
+    private static OptimizeRequestDTO.StudentDTO student(int node, int side) {
+        OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+        student.id = String.valueOf(node);
+        student.home = nodeLocation(node, side);
+        return student;
+    }
+
+    private static LatLngDTO nodeLocation(int node, int side) {
+        LatLngDTO location = new LatLngDTO();
+        location.lat = 43.0 + (node / side) * 0.02;
+        location.lng = -89.4 + (node % side) * 0.02;
+        return location;
+    }
+
+    private static CostMatrix randomRoute(int n, Random random) {
+        double[] studentLat = new double[n];
+        double[] studentLng = new double[n];
+        for (int s = 0; s < n; s++) {
+            studentLat[s] = 43.0 + random.nextDouble() * 0.2;
+            studentLng[s] = -89.5 + random.nextDouble() * 0.2;
+        }
+        return CostMatrix.build(new double[]{43.0 + random.nextDouble() * 0.2},
+                new double[]{-89.5 + random.nextDouble() * 0.2}, studentLat, studentLng, 43.1, -89.4, true);
+    }
+}
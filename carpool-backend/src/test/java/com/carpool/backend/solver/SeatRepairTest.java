@@ -0,0 +1,34 @@
+package com.carpool.backend.solver;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SeatRepairTest {
+
+    @Test
+    void repair_shouldMoveCostliestStopOfOverfullRoute_andKeepValidRoutes() {
+        // driver 0 heads north through students 0 and 1; student 2 is a detour east, next to driver 1
+        CostMatrix costs = CostMatrix.build(
+                new double[]{43.00, 43.015, 43.00}, new double[]{-89.40, -89.31, -89.45},
+                new double[]{43.01, 43.02, 43.015, 43.01}, new double[]{-89.40, -89.40, -89.32, -89.45},
+                43.05, -89.40, true);
+        VrpInstance instance = new VrpInstance(costs, new int[]{2, 2, 1});
+
+        VrpSolution solution = SeatRepair.repair(instance, new int[][]{{0, 2, 1}, {}, {3}});
+
+        assertArrayEquals(new int[]{0, 1}, solution.route(0));
+        assertArrayEquals(new int[]{2}, solution.route(1));
+        assertArrayEquals(new int[]{3}, solution.route(2));
+        assertEquals(0, solution.unassigned().length);
+    }
+
+    @Test
+    void trim_shouldLeaveRoutesWithinCapacityAlone() {
+        CostMatrix costs = CostMatrix.build(new double[]{43.00}, new double[]{-89.40},
+                new double[]{43.01, 43.02}, new double[]{-89.40, -89.40}, 43.05, -89.40, true);
+
+        assertArrayEquals(new int[]{1, 0}, SeatRepair.trim(new VrpInstance(costs, new int[]{2}), 0, new int[]{1, 0}));
+    }
+}
@@ -0,0 +1,81 @@
+package com.carpool.backend.solver;
+
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SweepPartitionerTest {
+
+    @Test
+    void partition_shouldCoverEveryDriverAndStudentOnce_withinClusterSizeAndSeats() {
+        List<OptimizeRequestDTO.DriverDTO> drivers = new ArrayList<>();
+        List<OptimizeRequestDTO.StudentDTO> students = new ArrayList<>();
+        Random random = new Random(17L);
+        for (int d = 0; d < 60; d++) {
+            OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+            driver.id = "d" + d;
+            driver.home = location(43.0 + random.nextDouble() * 0.2, -89.5 + random.nextDouble() * 0.2);
+            driver.seatCapacity = 1 + random.nextInt(5);
+            drivers.add(driver);
+        }
+        for (int s = 0; s < 150; s++) {
+            OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+            student.id = String.valueOf(s);
+            student.home = location(43.0 + random.nextDouble() * 0.2, -89.5 + random.nextDouble() * 0.2);
+            students.add(student);
+        }
+
+        List<SweepPartitioner.Cluster> clusters = SweepPartitioner.partition(drivers, students, location(43.1, -89.4), 40);
+
+        assertTrue(clusters.size() >= 4, "clusters: " + clusters.size());
+        Set<Integer> seenDrivers = new HashSet<>();
+        Set<Integer> seenStudents = new HashSet<>();
+        for (SweepPartitioner.Cluster cluster : clusters) {
+            int seats = 0;
+            for (int d : cluster.drivers()) {
+                assertTrue(seenDrivers.add(d), "driver in two clusters: " + d);
+                seats += drivers.get(d).seatCapacity;
+            }
+            for (int s : cluster.students()) {
+                assertTrue(seenStudents.add(s), "student in two clusters: " + s);
+            }
+            assertTrue(cluster.students().length <= 40);
+            assertTrue(cluster.students().length <= seats);
+        }
+        assertEquals(drivers.size(), seenDrivers.size());
+        assertEquals(students.size(), seenStudents.size());
+    }
+
+    @Test
+    void partition_shouldKeepOneCluster_whenRequestFits() {
+        OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+        driver.id = "d1";
+        driver.home = location(43.07, -89.40);
+        driver.seatCapacity = 2;
+        OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+        student.id = "1";
+        student.home = location(43.08, -89.41);
+
+        List<SweepPartitioner.Cluster> clusters = SweepPartitioner.partition(
+                List.of(driver), List.of(student, student, student), location(43.1, -89.4), 10);
+
+        assertEquals(1, clusters.size());
+        assertEquals(3, clusters.get(0).students().length);
+    }
+
+    private static LatLngDTO location(double lat, double lng) {
+        LatLngDTO location = new LatLngDTO();
+        location.lat = lat;
+        location.lng = lng;
+        return location;
+    }
+}
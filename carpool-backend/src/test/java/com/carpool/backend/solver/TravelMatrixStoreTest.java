@@ -0,0 +1,133 @@
+package com.carpool.backend.solver;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TravelMatrixStoreTest {
+
+    private static final TravelTimeModel MODEL = TravelTimeModel.constant(40, 1.3);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void put_shouldFillBothDirections_andSurviveReopening() throws Exception {
+        Path file = dir.resolve("matrix.bin");
+        long driver = TravelMatrixStore.key(TravelMatrixStore.Kind.DRIVER, 7);
+        long passenger = TravelMatrixStore.key(TravelMatrixStore.Kind.PASSENGER, 7);
+        double km = MODEL.roadKm(43.0731, -89.4012, 43.0750, -89.4100);
+
+        try (TravelMatrixStore store = TravelMatrixStore.open(file, 4, MODEL)) {
+            assertTrue(store.put(driver, 43.0731, -89.4012));
+            assertTrue(store.put(passenger, 43.0750, -89.4100));
+            assertFalse(store.put(driver, 43.0731, -89.4012));
+        }
+
+        try (TravelMatrixStore store = TravelMatrixStore.open(file, 4, MODEL)) {
+            int from = store.slot(driver);
+            int to = store.slot(passenger);
+            assertEquals(2, store.size());
+            assertEquals(-1, store.slot(TravelMatrixStore.Kind.DESTINATION, 7));
+            assertEquals(km, store.distanceKm(from, to), 1e-5);
+            assertEquals(km, store.distanceKm(to, from), 1e-5);
+            assertEquals(MODEL.travelSeconds(km), store.durationSeconds(from, to), 1e-2);
+            assertEquals(0.0, store.distanceKm(from, from));
+            assertFalse(store.put(passenger, 43.0750, -89.4100));
+        }
+    }
+
+    @Test
+    void put_shouldRecomputeOnlyTheMovedEntity_andGrowWhenFull() throws Exception {
+        Path file = dir.resolve("matrix.bin");
+        try (TravelMatrixStore store = TravelMatrixStore.open(file, 2, MODEL)) {
+            for (long id = 0; id < 5; id++) {
+                store.put(TravelMatrixStore.key(TravelMatrixStore.Kind.PASSENGER, id), 43.0 + id * 0.01, -89.4);
+            }
+            assertEquals(5, store.size());
+            assertEquals(8, store.capacity());
+            int first = store.slot(TravelMatrixStore.Kind.PASSENGER, 0);
+            int last = store.slot(TravelMatrixStore.Kind.PASSENGER, 4);
+            int middle = store.slot(TravelMatrixStore.Kind.PASSENGER, 2);
+            double untouched = store.distanceKm(first, middle);
+
+            assertTrue(store.put(TravelMatrixStore.key(TravelMatrixStore.Kind.PASSENGER, 4), 43.10, -89.4));
+
+            assertEquals(MODEL.roadKm(43.0, -89.4, 43.10, -89.4), store.distanceKm(first, last), 1e-5);
+            assertEquals(MODEL.roadKm(43.10, -89.4, 43.02, -89.4), store.distanceKm(last, middle), 1e-5);
+            assertEquals(untouched, store.distanceKm(first, middle));
+        }
+        assertFalse(Files.exists(dir.resolve("matrix.bin.grow")));
+    }
+
+    @Test
+    void remove_shouldFreeTheSlotForTheNextEntity_andSurviveReopening() throws Exception {
+        Path file = dir.resolve("matrix.bin");
+        long first = TravelMatrixStore.key(TravelMatrixStore.Kind.DRIVER, 1);
+        long second = TravelMatrixStore.key(TravelMatrixStore.Kind.DRIVER, 2);
+        long third = TravelMatrixStore.key(TravelMatrixStore.Kind.DRIVER, 3);
+        try (TravelMatrixStore store = TravelMatrixStore.open(file, 2, MODEL)) {
+            store.put(first, 43.00, -89.4);
+            store.put(second, 43.01, -89.4);
+            int freed = store.slot(first);
+
+            assertTrue(store.remove(first));
+            assertFalse(store.remove(first));
+            assertEquals(-1, store.slot(first));
+            assertEquals(1, store.size());
+
+            assertTrue(store.put(third, 43.02, -89.4));
+            assertEquals(freed, store.slot(third));
+            assertEquals(2, store.capacity());
+            assertTrue(store.remove(second));
+        }
+
+        try (TravelMatrixStore store = TravelMatrixStore.open(file, 2, MODEL)) {
+            assertEquals(1, store.size());
+            assertEquals(-1, store.slot(second));
+            int kept = store.slot(third);
+            assertTrue(store.put(first, 43.00, -89.4));
+            assertEquals(MODEL.roadKm(43.00, -89.4, 43.02, -89.4), store.distanceKm(store.slot(first), kept), 1e-5);
+            assertEquals(2, store.capacity());
+        }
+    }
+
+    @Test
+    void put_shouldRouteOverTheRoadNetwork_andRebuildWhenTheCostSourceChanges() throws Exception {
+        // one-way streets: 0 -> 1 directly, 1 -> 0 only around through 2
+        RoadGraph graph = new RoadGraph.Builder()
+                .node(0, 43.00, -89.40)
+                .node(1, 43.00, -89.38)
+                .node(2, 43.02, -89.39)
+                .edge(0, 1, 120, 1_600, true)
+                .edge(1, 2, 300, 3_000, true)
+                .edge(2, 0, 300, 3_000, true)
+                .build();
+        RoadNetworkRouter router = RoadNetworkRouter.build(graph, MODEL);
+        Path file = dir.resolve("matrix.bin");
+        long from = TravelMatrixStore.key(TravelMatrixStore.Kind.DRIVER, 1);
+        long to = TravelMatrixStore.key(TravelMatrixStore.Kind.DESTINATION, 1);
+
+        try (TravelMatrixStore store = TravelMatrixStore.open(file, 4, MODEL, router, 1)) {
+            store.put(from, 43.00, -89.40);
+            store.put(to, 43.00, -89.38);
+            TravelTimeModel.Leg there = router.leg(43.00, -89.40, 43.00, -89.38);
+            TravelTimeModel.Leg back = router.leg(43.00, -89.38, 43.00, -89.40);
+
+            assertEquals(there.km(), store.distanceKm(store.slot(from), store.slot(to)), 1e-5);
+            assertEquals(there.seconds(), store.durationSeconds(store.slot(from), store.slot(to)), 1e-2);
+            assertEquals(back.km(), store.distanceKm(store.slot(to), store.slot(from)), 1e-5);
+            assertTrue(back.seconds() > there.seconds());
+        }
+
+        try (TravelMatrixStore store = TravelMatrixStore.open(file, 4, MODEL, null, 2)) {
+            assertEquals(0, store.size());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.carpool.backend.solver;
+
+import com.carpool.backend.dto.LatLngDTO;
+import com.carpool.backend.dto.OptimizeRequestDTO;
+import com.carpool.backend.dto.RoutePlanDTO;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TravelTimeModelTest {
+
+    @Test
+    void travelSeconds_shouldUseSpeedOfBandTheLegStartsIn() {
+        TravelTimeModel model = TravelTimeModel.of(40, 1.0, 0, "07:00-09:00=20, 22:00-02:00=60", "UTC");
+
+        assertEquals(1800, model.travelSeconds(10, Instant.parse("2026-01-10T07:30:00Z")), 1e-9);
+        assertEquals(900, model.travelSeconds(10, Instant.parse("2026-01-10T09:00:00Z")), 1e-9);
+        assertEquals(600, model.travelSeconds(10, Instant.parse("2026-01-10T01:15:00Z")), 1e-9);
+        assertThrows(IllegalArgumentException.class, () -> TravelTimeModel.of(40, 1.0, 0, "07:00=20", "UTC"));
+    }
+
+    @Test
+    void assemble_shouldAddServiceTimeAfterEachPickup() {
+        RoutePlanAssembler assembler = new RoutePlanAssembler(TravelTimeModel.of(36, 1.0, 60, "", "UTC"));
+        OptimizeRequestDTO.DriverDTO driver = driver("d1", 0.0, 0.0);
+        // 0.01° of latitude is 1.112 km, i.e. 111 s at 36 km/h
+        List<OptimizeRequestDTO.StudentDTO> stops = List.of(student("1", 0.01, 0.0), student("2", 0.02, 0.0));
+
+        RoutePlanDTO plan = assembler.assemble(driver, location(0.03, 0.0), stops,
+                Instant.parse("2026-01-10T15:00:00Z"));
+
+        assertEquals("2026-01-10T15:01:51Z", plan.timeline.get(0).time);
+        assertEquals("2026-01-10T15:04:42Z", plan.timeline.get(1).time);
+        assertEquals("2026-01-10T15:07:34Z", plan.timeline.get(2).time);
+        assertEquals("334s", plan.metrics.get("travelDuration"));
+        assertEquals("120s", plan.metrics.get("visitDuration"));
+    }
+
+    @Test
+    void fitSpeedKmh_shouldReproduceFixtureTimelines() throws Exception {
+        JsonNode routes = new ObjectMapper().readTree(loadFixture()).path("routes");
+        LatLngDTO event = location(43.0800, -89.4000);
+        List<OptimizeRequestDTO.DriverDTO> drivers = List.of(
+                driver("d1", 43.0731, -89.4012),
+                driver("d2", 43.0680, -89.3980));
+        List<List<OptimizeRequestDTO.StudentDTO>> stops = List.of(
+                List.of(student("1", 43.0750, -89.4100), student("2", 43.0700, -89.4200)),
+                List.of(student("3", 43.0650, -89.4050)));
+
+        // each pickup leg plus the leg to the event, against the transition Google reported for it
+        TravelTimeModel unit = TravelTimeModel.constant(1, 1.3);
+        List<Double> km = new ArrayList<>();
+        List<Double> seconds = new ArrayList<>();
+        for (int v = 0; v < drivers.size(); v++) {
+            LatLngDTO previous = drivers.get(v).home;
+            List<LatLngDTO> legEnds = new ArrayList<>();
+            stops.get(v).forEach(student -> legEnds.add(student.home));
+            legEnds.add(event);
+            for (int leg = 0; leg < legEnds.size(); leg++) {
+                km.add(unit.roadKm(previous, legEnds.get(leg)));
+                seconds.add(seconds(routes.get(v).path("transitions").get(leg).path("travelDuration").asText()));
+                previous = legEnds.get(leg);
+            }
+        }
+        double speedKmh = TravelTimeModel.fitSpeedKmh(
+                km.stream().mapToDouble(Double::doubleValue).toArray(),
+                seconds.stream().mapToDouble(Double::doubleValue).toArray());
+
+        double calibratedError = meanArrivalErrorSeconds(
+                TravelTimeModel.constant(speedKmh, 1.3), routes, drivers, stops, event);
+        double defaultError = meanArrivalErrorSeconds(
+                TravelTimeModel.constant(40, 1.3), routes, drivers, stops, event);
+
+        assertEquals(8.46, speedKmh, 0.01);
+        assertTrue(calibratedError < 90, "calibrated mean error " + calibratedError + "s");
+        assertTrue(calibratedError * 5 < defaultError, "default mean error " + defaultError + "s");
+    }
+
+    /** Mean |local - Google| over every pickup and each car's arrival at the event (its first dropoff). */
+    private static double meanArrivalErrorSeconds(TravelTimeModel model,
+                                                  JsonNode routes,
+                                                  List<OptimizeRequestDTO.DriverDTO> drivers,
+                                                  List<List<OptimizeRequestDTO.StudentDTO>> stops,
+                                                  LatLngDTO event) {
+        RoutePlanAssembler assembler = new RoutePlanAssembler(model);
+        double totalError = 0;
+        int arrivals = 0;
+        for (int v = 0; v < drivers.size(); v++) {
+            JsonNode route = routes.get(v);
+            RoutePlanDTO plan = assembler.assemble(drivers.get(v), event, stops.get(v),
+                    Instant.parse(route.path("vehicleStartTime").asText()));
+            for (int i = 0; i <= stops.get(v).size(); i++) {
+                Instant local = Instant.parse(plan.timeline.get(i).time);
+                Instant google = Instant.parse(route.path("visits").get(i).path("startTime").asText());
+                totalError += Math.abs(Duration.between(google, local).toSeconds());
+                arrivals++;
+            }
+        }
+        return totalError / arrivals;
+    }
+
+    private static double seconds(String duration) {
+        return Double.parseDouble(duration.substring(0, duration.length() - 1));
+    }
+
+    private static byte[] loadFixture() throws Exception {
+        try (InputStream inputStream = TravelTimeModelTest.class.getClassLoader()
+                .getResourceAsStream("fixtures/optimizeTours_real_response.json")) {
+            assertNotNull(inputStream);
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static OptimizeRequestDTO.DriverDTO driver(String id, double lat, double lng) {
+        OptimizeRequestDTO.DriverDTO driver = new OptimizeRequestDTO.DriverDTO();
+        driver.id = id;
+        driver.home = location(lat, lng);
+        driver.seatCapacity = 4;
+        return driver;
+    }
+
+    private static OptimizeRequestDTO.StudentDTO student(String id, double lat, double lng) {
+        OptimizeRequestDTO.StudentDTO student = new OptimizeRequestDTO.StudentDTO();
+        student.id = id;
+        student.home = location(lat, lng);
+        return student;
+    }
+
+    private static LatLngDTO location(double lat, double lng) {
+        LatLngDTO location = new LatLngDTO();
+        location.lat = lat;
+        location.lng = lng;
+        return location;
+    }
+}
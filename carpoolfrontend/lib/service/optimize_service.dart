@@ -3,8 +3,11 @@ import 'package:dio/dio.dart';
 import '../models/plan_carpool_models.dart';
 
 class OptimizeService {
-  OptimizeService({String baseUrl = 'http://localhost:8080/api'})
-    : _dio = Dio(
+  OptimizeService({
+    String baseUrl = 'http://localhost:8080/api',
+    this.pollInterval = const Duration(seconds: 1),
+    this.jobTimeout = const Duration(minutes: 5),
+  }) : _dio = Dio(
         BaseOptions(
           baseUrl: baseUrl,
           connectTimeout: const Duration(seconds: 8),
@@ -14,6 +17,12 @@ class OptimizeService {
 
   final Dio _dio;
 
+  /// Delay between status polls of a submitted optimization job.
+  final Duration pollInterval;
+
+  /// How long to wait for a job before cancelling it on the server.
+  final Duration jobTimeout;
+
   Future<List<OptimizeRoutePlan>> optimize({
     required EventInput event,
     required List<DriverInput> drivers,
@@ -42,13 +51,34 @@ class OptimizeService {
     };
 
     try {
-      final res = await _dio.post('/optimize', data: body);
-      final list = (res.data as List<dynamic>? ?? const [])
-          .whereType<Map<String, dynamic>>()
-          .map(OptimizeRoutePlan.fromJson)
-          .toList();
+      // Solves run as server-side jobs so large events are not bound by
+      // receiveTimeout; the request only waits for the job to be accepted.
+      final submitted = await _dio.post('/optimize/jobs', data: body);
+      final jobId = (submitted.data as Map<String, dynamic>)['id'] as String;
+      final deadline = DateTime.now().add(jobTimeout);
 
-      return list;
+      while (true) {
+        final res = await _dio.get('/optimize/jobs/$jobId');
+        final job = res.data as Map<String, dynamic>;
+        switch (job['status']) {
+          case 'SUCCEEDED':
+            return (job['result'] as List<dynamic>? ?? const [])
+                .whereType<Map<String, dynamic>>()
+                .map(OptimizeRoutePlan.fromJson)
+                .toList();
+          case 'FAILED':
+            throw Exception('Optimize job $jobId failed: ${job['error']}');
+          case 'CANCELLED':
+            throw Exception('Optimize job $jobId was cancelled');
+        }
+        if (DateTime.now().isAfter(deadline)) {
+          await _dio.delete('/optimize/jobs/$jobId');
+          throw Exception(
+            'Optimize job $jobId did not finish within ${jobTimeout.inSeconds}s',
+          );
+        }
+        await Future<void>.delayed(pollInterval);
+      }
     } on DioException catch (e) {
       final request = e.requestOptions;
       final method = request.method;